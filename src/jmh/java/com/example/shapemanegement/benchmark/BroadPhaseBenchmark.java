@@ -0,0 +1,55 @@
+package com.example.shapemanegement.benchmark;
+
+import com.example.shapemanegement.geometry.BroadPhaseKernel;
+import com.example.shapemanegement.geometry.BroadPhaseKernels;
+import com.example.shapemanegement.geometry.ShapeSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One shape against every packed box (or circle) of the set, scalar vs Vector API kernels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class BroadPhaseBenchmark {
+
+    @Param({"100000"})
+    private int shapeCount;
+
+    @Param({"scalar", "vector"})
+    private String kernelName;
+
+    private ShapeSet shapes;
+    private BroadPhaseKernel kernel;
+    private int[] out;
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        shapes = OverlapBenchmark.randomShapes(shapeCount, 42L);
+        kernel = "vector".equals(kernelName) ? BroadPhaseKernels.vector() : BroadPhaseKernels.scalar();
+        if (kernel == null) {
+            throw new IllegalStateException("Vector API not available; run with --add-modules jdk.incubator.vector");
+        }
+        out = new int[shapeCount];
+    }
+
+    // Cycle the probe over the first circles so branch and hit patterns are not constant
+    @Setup(Level.Invocation)
+    public void nextProbe() {
+        probe = (probe + 3) % 300;
+    }
+
+    @Benchmark
+    public int boxesAgainstAll() {
+        return kernel.overlappingBoxes(shapes, probe, 0, shapeCount, out);
+    }
+
+    @Benchmark
+    public int circlesAgainstAll() {
+        return kernel.overlappingCircles(shapes, probe, 0, shapeCount, out);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.shapemanegement.benchmark;
+
+import com.example.shapemanegement.geometry.EdgeHierarchy;
+import com.example.shapemanegement.geometry.GeometryKernels;
+import com.example.shapemanegement.geometry.ShapeSet;
+import com.example.shapemanegement.geometry.ShapeType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exact tests on large polygons, linear scans vs the {@link EdgeHierarchy}. The pairs have
+ * intersecting bounding boxes but do not overlap, so neither variant can exit early: two jagged
+ * rings side by side, and a circle in the corner of a ring's box.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class NarrowPhaseBenchmark {
+
+    private static final int RADIUS = 10_000;
+    private static final int CENTER = RADIUS + 10;
+
+    @Param({"64", "512", "4096"})
+    private int vertices;
+
+    private ShapeSet shapes;
+    private EdgeHierarchy edges;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        int offset = CENTER + RADIUS * 3 / 2;
+        int corner = CENTER + RADIUS * 9 / 10;
+        ShapeSet.Builder builder = ShapeSet.builder(3);
+        builder.add(0, ShapeType.POLYGON, ring(CENTER, CENTER, vertices, random), null, null, null);
+        builder.add(1, ShapeType.POLYGON, ring(offset, offset, vertices, random), null, null, null);
+        builder.add(2, ShapeType.CIRCLE, null, (double) corner, (double) corner, RADIUS / 5.0);
+        shapes = builder.build();
+        edges = shapes.edges();
+    }
+
+    @Benchmark
+    public boolean polygonPolygonLinear() {
+        return GeometryKernels.polygonPolygonOverlap(shapes, 0, 1);
+    }
+
+    @Benchmark
+    public boolean polygonPolygonHierarchy() {
+        return GeometryKernels.polygonPolygonOverlap(shapes, edges, 0, 1);
+    }
+
+    @Benchmark
+    public boolean circlePolygonLinear() {
+        return GeometryKernels.circlePolygonOverlap(shapes, 2, 0);
+    }
+
+    @Benchmark
+    public boolean circlePolygonHierarchy() {
+        return GeometryKernels.circlePolygonOverlap(shapes, edges, 2, 0);
+    }
+
+    // A wavy outline between 0.75 and 1.0 of RADIUS, jittered by about the vertex spacing, like a digitised survey boundary
+    private static String ring(int cx, int cy, int vertices, Random random) {
+        double spacing = 2 * Math.PI * RADIUS / vertices;
+        StringBuilder coordinates = new StringBuilder();
+        for (int v = 0; v < vertices; v++) {
+            double angle = 2 * Math.PI * v / vertices;
+            double wave = 0.85 + 0.08 * Math.sin(7 * angle) + 0.04 * Math.sin(31 * angle);
+            double r = Math.min(RADIUS, RADIUS * wave + spacing * (random.nextDouble() - 0.5));
+            if (v > 0) {
+                coordinates.append(';');
+            }
+            coordinates.append(Math.round(cx + r * Math.cos(angle))).append(',').append(Math.round(cy + r * Math.sin(angle)));
+        }
+        return coordinates.toString();
+    }
+}
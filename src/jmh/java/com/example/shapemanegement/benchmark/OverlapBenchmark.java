@@ -0,0 +1,62 @@
+package com.example.shapemanegement.benchmark;
+
+import com.example.shapemanegement.geometry.GeometryStore;
+import com.example.shapemanegement.geometry.OffHeapShapeStore;
+import com.example.shapemanegement.geometry.OverlapDetector;
+import com.example.shapemanegement.geometry.ShapeSet;
+import com.example.shapemanegement.geometry.ShapeType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All-pairs overlap detection over a compiled ShapeSet: a random mix of circles, triangles and
+ * rectangles scattered over a square sized so that roughly one shape in ten overlaps another.
+ * {@code store} compares the on-heap arrays with the same geometry in direct memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class OverlapBenchmark {
+
+    @Param({"1000", "5000"})
+    private int shapeCount;
+
+    @Param({"heap", "off-heap"})
+    private String store;
+
+    private GeometryStore shapes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ShapeSet set = randomShapes(shapeCount, 42L);
+        shapes = "off-heap".equals(store) ? OffHeapShapeStore.copyOf(set) : set;
+    }
+
+    @Benchmark
+    public long[] findOverlappingIds() {
+        return OverlapDetector.findOverlappingIds(shapes);
+    }
+
+    static ShapeSet randomShapes(int count, long seed) {
+        Random random = new Random(seed);
+        int extent = (int) Math.sqrt(count) * 60;
+        ShapeSet.Builder builder = ShapeSet.builder(count);
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(extent);
+            int y = random.nextInt(extent);
+            int size = 2 + random.nextInt(8);
+            switch (i % 3) {
+                case 0 -> builder.add(i, ShapeType.CIRCLE, null, (double) x, (double) y, (double) size);
+                case 1 -> builder.add(i, ShapeType.TRIANGLE,
+                        x + "," + y + ";" + (x + size) + "," + y + ";" + (x + size / 2) + "," + (y + size), null, null, null);
+                default -> builder.add(i, ShapeType.RECTANGLE,
+                        x + "," + y + ";" + (x + size) + "," + y + ";" + (x + size) + "," + (y + size) + ";" + x + "," + (y + size),
+                        null, null, null);
+            }
+        }
+        return builder.build();
+    }
+}
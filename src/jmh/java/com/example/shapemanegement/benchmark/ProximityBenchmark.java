@@ -0,0 +1,80 @@
+package com.example.shapemanegement.benchmark;
+
+import com.example.shapemanegement.geometry.EdgeHierarchy;
+import com.example.shapemanegement.geometry.ShapeDistances;
+import com.example.shapemanegement.geometry.ShapeSet;
+import com.example.shapemanegement.geometry.ShapeTree;
+import com.example.shapemanegement.geometry.ShapeType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The 10 shapes nearest to a random point: measuring every shape and sorting, as a client does
+ * after downloading them all, vs a best-first search of the {@link ShapeTree}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class ProximityBenchmark {
+
+    private static final int K = 10;
+    private static final int WORLD = 100_000;
+
+    @Param({"10000", "100000"})
+    private int shapeCount;
+
+    private ShapeSet shapes;
+    private EdgeHierarchy edges;
+    private ShapeTree tree;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random shapeRandom = new Random(42L);
+        ShapeSet.Builder builder = ShapeSet.builder(shapeCount);
+        for (int i = 0; i < shapeCount; i++) {
+            int x = shapeRandom.nextInt(WORLD);
+            int y = shapeRandom.nextInt(WORLD);
+            int size = 10 + shapeRandom.nextInt(200);
+            if (i % 2 == 0) {
+                builder.add(i, ShapeType.CIRCLE, null, (double) x, (double) y, (double) size);
+            } else {
+                builder.add(i, ShapeType.RECTANGLE, x + "," + y + ";" + (x + size) + "," + y + ";"
+                        + (x + size) + "," + (y + size) + ";" + x + "," + (y + size), null, null, null);
+            }
+        }
+        shapes = builder.build();
+        edges = shapes.edges();
+        tree = shapes.tree();
+        random = new Random(7L);
+    }
+
+    @Benchmark
+    public double fullScan() {
+        double px = random.nextInt(WORLD);
+        double py = random.nextInt(WORLD);
+        double[] distances = new double[shapes.size()];
+        for (int i = 0; i < shapes.size(); i++) {
+            distances[i] = ShapeDistances.pointDistance(shapes, edges, i, px, py);
+        }
+        Arrays.sort(distances);
+        return distances[K - 1];
+    }
+
+    @Benchmark
+    public double bestFirst() {
+        double px = random.nextInt(WORLD);
+        double py = random.nextInt(WORLD);
+        double[] last = new double[1];
+        int[] found = new int[1];
+        tree.nearest(shapes, px, py, (shape, distance) -> {
+            last[0] = distance;
+            return ++found[0] < K;
+        });
+        return last[0];
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.shapemanegement.benchmark;
+
+import com.example.shapemanegement.ShapeManegementApplication;
+import com.example.shapemanegement.dto.response.ShapeResponseDto;
+import com.example.shapemanegement.entity.Shape;
+import com.example.shapemanegement.geometry.ShapeType;
+import com.example.shapemanegement.repository.ShapeRepository;
+import com.example.shapemanegement.service.IShapeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the old entity-hydrating read path of findAllShapes (managed entities in a
+ * read-write transaction, copied into DTOs) with the constructor-expression projection.
+ * Run with {@code -prof gc} to compare allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReadPathBenchmark {
+
+    @Param({"10000"})
+    private int shapeCount;
+
+    private ConfigurableApplicationContext context;
+    private ShapeRepository shapeRepository;
+    private IShapeService shapeService;
+    private TransactionTemplate readWriteTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ShapeManegementApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties("spring.jpa.show-sql=false")
+                .run();
+        shapeRepository = context.getBean(ShapeRepository.class);
+        shapeService = context.getBean(IShapeService.class);
+        readWriteTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        List<Shape> shapes = new ArrayList<>(shapeCount);
+        for (int i = 0; i < shapeCount; i++) {
+            int x = (i % 100) * 20;
+            int y = (i / 100) * 20;
+            if (i % 2 == 0) {
+                shapes.add(new Shape(null, "Circle" + i, ShapeType.CIRCLE, null, (double) x, (double) y, 5.0));
+            } else {
+                String coordinates = x + "," + y + ";" + (x + 10) + "," + y + ";" + (x + 10) + "," + (y + 10) + ";" + x + "," + (y + 10);
+                shapes.add(new Shape(null, "Rectangle" + i, ShapeType.RECTANGLE, coordinates, null, null, null));
+            }
+        }
+        shapeRepository.saveAll(shapes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ShapeResponseDto> entityHydration() {
+        return readWriteTransaction.execute(status -> shapeRepository.findAll().stream()
+                .map(shape -> new ShapeResponseDto(shape.getId(), shape.getName(), shape.getType(),
+                        shape.getCoordinates(), shape.getCenterX(), shape.getCenterY(), shape.getRadius(), shape.getVersion(),
+                        shape.getCanvasId()))
+                .collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public List<ShapeResponseDto> dtoProjection() {
+        return shapeService.findAllShapes(Shape.DEFAULT_CANVAS);
+    }
+}
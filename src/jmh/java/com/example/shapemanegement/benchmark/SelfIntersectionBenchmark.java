@@ -0,0 +1,58 @@
+package com.example.shapemanegement.benchmark;
+
+import com.example.shapemanegement.geometry.GeometryKernels;
+import com.example.shapemanegement.geometry.PolygonSimplicity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simplicity check of one large, simple, star-shaped ring on the write path: the Shamos–Hoey
+ * sweep vs testing every pair of edges for a crossing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class SelfIntersectionBenchmark {
+
+    @Param({"1000", "10000"})
+    private int vertexCount;
+
+    private double[] ring;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        ring = new double[2 * vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            // Radii vary but angles only grow, so the ring never meets itself
+            double angle = 2 * Math.PI * v / vertexCount;
+            double r = 500_000 + random.nextInt(400_000);
+            ring[2 * v] = Math.round(1_000_000 + r * Math.cos(angle));
+            ring[2 * v + 1] = Math.round(1_000_000 + r * Math.sin(angle));
+        }
+    }
+
+    @Benchmark
+    public PolygonSimplicity.EdgePair sweep() {
+        return PolygonSimplicity.findSelfIntersection(ring);
+    }
+
+    @Benchmark
+    public boolean allPairs() {
+        int n = ring.length / 2;
+        for (int a = 0; a < n; a++) {
+            int a2 = (a + 1) % n;
+            for (int b = a + 2; b < n; b++) {
+                int b2 = (b + 1) % n;
+                if (GeometryKernels.lineSegmentsIntersect(ring[2 * a], ring[2 * a + 1], ring[2 * a2], ring[2 * a2 + 1],
+                        ring[2 * b], ring[2 * b + 1], ring[2 * b2], ring[2 * b2 + 1])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.shapemanegement.benchmark;
+
+import com.example.shapemanegement.geometry.OffHeapShapeStore;
+import com.example.shapemanegement.geometry.ShapeSet;
+import com.example.shapemanegement.geometry.ShapeType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the geometry index without the database round-trip: parsing every shape's
+ * coordinate string into a ShapeSet versus mapping the snapshot file and reading each id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class SnapshotStartupBenchmark {
+
+    @Param({"1000000"})
+    private int shapeCount;
+
+    private List<String[]> rows;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42L);
+        rows = new ArrayList<>(shapeCount);
+        for (int i = 0; i < shapeCount; i++) {
+            int x = random.nextInt(100_000);
+            int y = random.nextInt(100_000);
+            rows.add(new String[]{"rectangle", x + "," + y + ";" + (x + 10) + "," + y + ";" + (x + 10) + "," + (y + 10) + ";" + x + "," + (y + 10)});
+        }
+        file = Files.createTempFile("shape-geometry", ".bin");
+        OffHeapShapeStore.write(compile(), 1L, file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public ShapeSet parseAll() {
+        return compile();
+    }
+
+    @Benchmark
+    public long mapSnapshot() throws IOException {
+        OffHeapShapeStore store = OffHeapShapeStore.map(file);
+        long sum = 0;
+        for (int i = 0; i < store.size(); i++) {
+            sum += store.id(i);
+        }
+        return sum;
+    }
+
+    private ShapeSet compile() {
+        ShapeSet.Builder builder = ShapeSet.builder(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            builder.add(i, ShapeType.fromValue(rows.get(i)[0]), rows.get(i)[1], null, null, null);
+        }
+        return builder.build();
+    }
+}
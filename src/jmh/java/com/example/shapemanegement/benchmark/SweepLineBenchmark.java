@@ -0,0 +1,54 @@
+package com.example.shapemanegement.benchmark;
+
+import com.example.shapemanegement.geometry.OverlapDetector;
+import com.example.shapemanegement.geometry.ShapeSet;
+import com.example.shapemanegement.geometry.ShapeType;
+import com.example.shapemanegement.geometry.SweepLineOverlapDetector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All-pairs overlap detection over long, thin, diagonal polygons (most of whose bounding boxes
+ * overlap, while few of whose edges cross): the pairwise detector that tests every box pair vs
+ * one sweep over all the edges.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class SweepLineBenchmark {
+
+    private static final int WORLD = 1_000_000;
+
+    @Param({"2000", "10000"})
+    private int shapeCount;
+
+    private ShapeSet shapes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        ShapeSet.Builder builder = ShapeSet.builder(shapeCount);
+        for (int i = 0; i < shapeCount; i++) {
+            // Parallel slivers from the bottom edge to the top, with a little jitter
+            int x = random.nextInt(WORLD);
+            int shift = WORLD / 2 + random.nextInt(1000);
+            builder.add(i, ShapeType.POLYGON, x + ",0;" + (x + 10) + ",0;" + (x + shift + 10) + "," + WORLD
+                    + ";" + (x + shift) + "," + WORLD, null, null, null);
+        }
+        shapes = builder.build();
+        shapes.tree();
+    }
+
+    @Benchmark
+    public long[] pairwise() {
+        return OverlapDetector.findOverlappingIds(shapes);
+    }
+
+    @Benchmark
+    public long[] sweep() {
+        return SweepLineOverlapDetector.findOverlappingIds(shapes);
+    }
+}
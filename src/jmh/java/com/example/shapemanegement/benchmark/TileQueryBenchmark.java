@@ -0,0 +1,66 @@
+package com.example.shapemanegement.benchmark;
+
+import com.example.shapemanegement.geometry.ShapeSet;
+import com.example.shapemanegement.geometry.ShapeTree;
+import com.example.shapemanegement.geometry.ShapeType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the shapes of a zoomed-out tile (z = 2 of a 65,536-unit world, 64 units per pixel)
+ * among mostly small shapes: checking every shape's box and size, vs the {@link ShapeTree}
+ * query that skips subtrees of sub-pixel shapes. Both count the shapes the tile would show.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class TileQueryBenchmark {
+
+    private static final int WORLD = 65_536;
+    private static final double TILE = WORLD / 4.0;
+    private static final double PIXEL = TILE / 256;
+
+    @Param({"1000000"})
+    private int shapeCount;
+
+    private ShapeSet shapes;
+    private ShapeTree tree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        ShapeSet.Builder builder = ShapeSet.builder(shapeCount);
+        for (int i = 0; i < shapeCount; i++) {
+            int x = random.nextInt(WORLD - 1000);
+            int y = random.nextInt(WORLD - 1000);
+            // One shape in a thousand is large enough to see at this zoom
+            int size = i % 1000 == 0 ? 100 + random.nextInt(800) : 1 + random.nextInt(20);
+            builder.add(i, ShapeType.RECTANGLE, x + "," + y + ";" + (x + size) + "," + y + ";"
+                    + (x + size) + "," + (y + size) + ";" + x + "," + (y + size), null, null, null);
+        }
+        shapes = builder.build();
+        tree = shapes.tree();
+    }
+
+    @Benchmark
+    public int fullScan() {
+        int visible = 0;
+        for (int i = 0; i < shapes.size(); i++) {
+            if (shapes.maxX[i] >= TILE && shapes.minX[i] <= 2 * TILE && shapes.maxY[i] >= TILE && shapes.minY[i] <= 2 * TILE
+                    && Math.max(shapes.maxX[i] - shapes.minX[i], shapes.maxY[i] - shapes.minY[i]) >= PIXEL) {
+                visible++;
+            }
+        }
+        return visible;
+    }
+
+    @Benchmark
+    public int tree() {
+        int[] visible = new int[1];
+        tree.intersecting(shapes, TILE, TILE, 2 * TILE, 2 * TILE, PIXEL, shape -> visible[0]++);
+        return visible[0];
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.shapemanegement.benchmark;
+
+import com.example.shapemanegement.geometry.ShapeSet;
+import com.example.shapemanegement.geometry.ShapeType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of picking the narrow-phase variant for every pair of shapes: the old string checks
+ * (isCircle/isPolygon on the type name), a check on the enum, and the byte tag the compiled
+ * geometry stores. Only the dispatch is measured; each variant returns which kernel it chose.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class TypeDispatchBenchmark {
+
+    @Param({"2000"})
+    private int shapeCount;
+
+    private String[] names;
+    private ShapeType[] types;
+    private byte[] codes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        ShapeType[] all = ShapeType.values();
+        names = new String[shapeCount];
+        types = new ShapeType[shapeCount];
+        codes = new byte[shapeCount];
+        for (int i = 0; i < shapeCount; i++) {
+            ShapeType type = all[random.nextInt(all.length)];
+            // Separate instances, as rows read from the database would be
+            names[i] = new String(type.value());
+            types[i] = type;
+            codes[i] = type.code();
+        }
+    }
+
+    @Benchmark
+    public long stringNames() {
+        long chosen = 0;
+        for (int i = 0; i < shapeCount; i++) {
+            for (int j = i + 1; j < shapeCount; j++) {
+                if (isCircle(names[i]) && isCircle(names[j])) {
+                    chosen += 1;
+                } else if (isCircle(names[i]) && isPolygon(names[j])) {
+                    chosen += 2;
+                } else if (isPolygon(names[i]) && isCircle(names[j])) {
+                    chosen += 3;
+                } else if (isPolygon(names[i]) && isPolygon(names[j])) {
+                    chosen += 4;
+                }
+            }
+        }
+        return chosen;
+    }
+
+    @Benchmark
+    public long enumTypes() {
+        long chosen = 0;
+        for (int i = 0; i < shapeCount; i++) {
+            boolean circle = types[i].isCircle();
+            for (int j = i + 1; j < shapeCount; j++) {
+                boolean otherCircle = types[j].isCircle();
+                chosen += circle ? (otherCircle ? 1 : 2) : (otherCircle ? 3 : 4);
+            }
+        }
+        return chosen;
+    }
+
+    @Benchmark
+    public long byteTags() {
+        long chosen = 0;
+        for (int i = 0; i < shapeCount; i++) {
+            byte typeA = codes[i];
+            for (int j = i + 1; j < shapeCount; j++) {
+                byte typeB = codes[j];
+                if (typeA == ShapeSet.TYPE_CIRCLE && typeB == ShapeSet.TYPE_CIRCLE) {
+                    chosen += 1;
+                } else if (typeA == ShapeSet.TYPE_CIRCLE && typeB == ShapeSet.TYPE_POLYGON) {
+                    chosen += 2;
+                } else if (typeA == ShapeSet.TYPE_POLYGON && typeB == ShapeSet.TYPE_CIRCLE) {
+                    chosen += 3;
+                } else if (typeA == ShapeSet.TYPE_POLYGON && typeB == ShapeSet.TYPE_POLYGON) {
+                    chosen += 4;
+                }
+            }
+        }
+        return chosen;
+    }
+
+    // The string checks ShapeServiceImpl ran for every pair before types were compiled
+    private static boolean isCircle(String type) {
+        return "circle".equalsIgnoreCase(type);
+    }
+
+    private static boolean isPolygon(String type) {
+        String lower = type.toLowerCase();
+        return "triangle".equals(lower) || "rectangle".equals(lower) || "polygon".equals(lower);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.shapemanegement.controller;
+
+import com.example.shapemanegement.service.ICacheStatsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheStatsController {
+    //constructor injection
+    private final ICacheStatsService cacheStatsService;
+
+    public CacheStatsController(ICacheStatsService cacheStatsService) {
+        this.cacheStatsService = cacheStatsService;
+    }
+
+    //second-level cache statistics, for tuning region sizes
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStatistics() {
+        return ResponseEntity.ok(cacheStatsService.getCacheStatistics());
+    }
+}
@@ -1,15 +1,29 @@
 package com.example.shapemanegement.controller;
 
 
+import com.example.shapemanegement.dto.request.ShapeBatchGetRequestDto;
+import com.example.shapemanegement.dto.request.ShapeGeometryRequestDto;
 import com.example.shapemanegement.dto.request.ShapeRequestDto;
+import com.example.shapemanegement.dto.request.ShapeTransformRequestDto;
+import com.example.shapemanegement.dto.response.OverlapAreaDto;
+import com.example.shapemanegement.dto.response.OverlapPageDto;
+import com.example.shapemanegement.dto.response.ShapeBatchResponseDto;
+import com.example.shapemanegement.dto.response.ShapeChangesResponseDto;
+import com.example.shapemanegement.dto.response.ShapeDistanceDto;
 import com.example.shapemanegement.dto.response.ShapeResponseDto;
+import com.example.shapemanegement.dto.response.ShapeTileDto;
 import com.example.shapemanegement.service.IShapeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -17,14 +31,28 @@ import java.util.List;
 public class ShapeController {
     //constructor injection
     private final IShapeService shapeService;
+    private final ObjectMapper objectMapper;
 
-    public ShapeController(IShapeService shapeService) {
+    public ShapeController(IShapeService shapeService, ObjectMapper objectMapper) {
         this.shapeService = shapeService;
+        this.objectMapper = objectMapper;
     }
-    //get shapes
+    //get the shapes of one canvas
     @GetMapping
-    public ResponseEntity<List<ShapeResponseDto>> getAllShapes() {
-        List<ShapeResponseDto> shapes = shapeService.findAllShapes();
+    public ResponseEntity<List<ShapeResponseDto>> getAllShapes(@RequestParam(defaultValue = "0") long canvasId) {
+        List<ShapeResponseDto> shapes = shapeService.findAllShapes(canvasId);
+        return ResponseEntity.ok(shapes);
+    }
+    //get many shapes by id in one round-trip: ?ids=1,2,3
+    @GetMapping(params = "ids")
+    public ResponseEntity<ShapeBatchResponseDto> getShapesByIds(@RequestParam List<Long> ids) {
+        ShapeBatchResponseDto shapes = shapeService.findShapesByIds(ids);
+        return ResponseEntity.ok(shapes);
+    }
+    //same, for id lists too long for a URL
+    @PostMapping("/batch-get")
+    public ResponseEntity<ShapeBatchResponseDto> batchGetShapes(@Valid @RequestBody ShapeBatchGetRequestDto batchDto) {
+        ShapeBatchResponseDto shapes = shapeService.findShapesByIds(batchDto.getIds());
         return ResponseEntity.ok(shapes);
     }
     //get shapes by id
@@ -46,6 +74,18 @@ public class ShapeController {
         ShapeResponseDto updatedShape = shapeService.updateShape(id, shapeDto);
         return ResponseEntity.ok(updatedShape);
     }
+    //geometry-only update for drags: accepted at once, written with the next batch
+    @PatchMapping("/{id}/geometry")
+    public ResponseEntity<Void> updateShapeGeometry(@PathVariable Long id, @Valid @RequestBody ShapeGeometryRequestDto geometryDto) {
+        shapeService.updateGeometryLater(id, geometryDto);
+        return ResponseEntity.accepted().build();
+    }
+    //apply one affine transform to many shapes in a single transaction
+    @PostMapping("/transform")
+    public ResponseEntity<List<ShapeResponseDto>> transformShapes(@Valid @RequestBody ShapeTransformRequestDto transformDto) {
+        List<ShapeResponseDto> transformedShapes = shapeService.transformShapes(transformDto);
+        return ResponseEntity.ok(transformedShapes);
+    }
     //delete shape
     @DeleteMapping("/{id}")
 
@@ -54,11 +94,115 @@ public class ShapeController {
         return ResponseEntity.noContent().build();
     }
 
-    //overlap detection
+    //overlap detection; Jackson writes the long[] element by element, so ids are never boxed
     @GetMapping("/overlaps")
-    public ResponseEntity<List<Long>> getOverlappingShapeIds() {
-        List<Long> overlappingIds = shapeService.findOverlappingShapeIds();
+    public ResponseEntity<long[]> getOverlappingShapeIds(@RequestParam(defaultValue = "0") long canvasId) {
+        long[] overlappingIds = shapeService.findOverlappingShapeIds(canvasId);
         return ResponseEntity.ok(overlappingIds);
     }
 
+    //overlap detection within a time budget; pass the continuation back to resume where it stopped
+    @GetMapping(value = "/overlaps", params = "deadlineMs")
+    public ResponseEntity<OverlapPageDto> getOverlappingShapeIds(@RequestParam(defaultValue = "0") long canvasId,
+                                                                 @RequestParam long deadlineMs,
+                                                                 @RequestParam(required = false) Long continuation) {
+        OverlapPageDto page = shapeService.findOverlappingShapeIds(canvasId, deadlineMs, continuation);
+        return ResponseEntity.ok(page);
+    }
+
+    //intersection area of every overlapping pair, one JSON object per line as each pair is computed
+    @GetMapping(value = "/overlaps/areas", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamOverlapAreas(@RequestParam(defaultValue = "0") long canvasId) {
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+                shapeService.forEachOverlapArea(canvasId, (OverlapAreaDto pair) -> {
+                    try {
+                        writer.write(pair);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok(body);
+    }
+
+    //shapes overlapping a single shape
+    @GetMapping("/{id}/overlaps")
+    public ResponseEntity<long[]> getShapesOverlapping(@PathVariable Long id) {
+        long[] overlappingIds = shapeService.findShapesOverlapping(id);
+        return ResponseEntity.ok(overlappingIds);
+    }
+
+    //k shapes nearest to a point, nearest first
+    @GetMapping("/nearest")
+    public ResponseEntity<List<ShapeDistanceDto>> getNearestShapes(@RequestParam(defaultValue = "0") long canvasId,
+                                                                   @RequestParam double x, @RequestParam double y,
+                                                                   @RequestParam(defaultValue = "10") int k) {
+        List<ShapeDistanceDto> shapes = shapeService.findNearestShapes(canvasId, x, y, k);
+        return ResponseEntity.ok(shapes);
+    }
+
+    //shapes within a distance of one shape, nearest first
+    @GetMapping("/within")
+    public ResponseEntity<List<ShapeDistanceDto>> getShapesWithin(@RequestParam Long id, @RequestParam double distance) {
+        List<ShapeDistanceDto> shapes = shapeService.findShapesWithin(id, distance);
+        return ResponseEntity.ok(shapes);
+    }
+
+    //shapes lying entirely inside one shape
+    @GetMapping("/{id}/contains")
+    public ResponseEntity<long[]> getShapesContainedBy(@PathVariable Long id) {
+        long[] containedIds = shapeService.findShapesContainedBy(id);
+        return ResponseEntity.ok(containedIds);
+    }
+
+    //shapes that one shape lies entirely inside
+    @GetMapping("/{id}/containing")
+    public ResponseEntity<long[]> getShapesContaining(@PathVariable Long id) {
+        long[] containingIds = shapeService.findShapesContaining(id);
+        return ResponseEntity.ok(containingIds);
+    }
+
+    //shapes that do not overlap one shape
+    @GetMapping("/{id}/disjoint")
+    public ResponseEntity<long[]> getShapesDisjointFrom(@PathVariable Long id) {
+        long[] disjointIds = shapeService.findShapesDisjointFrom(id);
+        return ResponseEntity.ok(disjointIds);
+    }
+
+    //shapes containing a point, outlines included
+    @GetMapping("/containing")
+    public ResponseEntity<long[]> getShapesContainingPoint(@RequestParam(defaultValue = "0") long canvasId,
+                                                           @RequestParam double x, @RequestParam double y) {
+        long[] containingIds = shapeService.findShapesContainingPoint(canvasId, x, y);
+        return ResponseEntity.ok(containingIds);
+    }
+
+    //shapes whose bounding box intersects the viewport
+    @GetMapping("/viewport")
+    public ResponseEntity<List<ShapeResponseDto>> getShapesInViewport(@RequestParam(defaultValue = "0") long canvasId,
+                                                                      @RequestParam double minX, @RequestParam double minY,
+                                                                      @RequestParam double maxX, @RequestParam double maxY) {
+        List<ShapeResponseDto> shapes = shapeService.findShapesInViewport(canvasId, minX, minY, maxX, maxY);
+        return ResponseEntity.ok(shapes);
+    }
+
+    //shapes in one map tile, simplified for its zoom level
+    @GetMapping("/tiles/{z}/{x}/{y}")
+    public ResponseEntity<ShapeTileDto> getTile(@PathVariable int z, @PathVariable int x, @PathVariable int y,
+                                                @RequestParam(defaultValue = "0") long canvasId) {
+        ShapeTileDto tile = shapeService.findTile(canvasId, z, x, y);
+        return ResponseEntity.ok(tile);
+    }
+
+    //changes to a canvas after a sequence number, for incremental sync
+    @GetMapping("/changes")
+    public ResponseEntity<ShapeChangesResponseDto> getChanges(@RequestParam(defaultValue = "0") long canvasId,
+                                                              @RequestParam(defaultValue = "0") long since,
+                                                              @RequestParam(defaultValue = "500") int limit) {
+        ShapeChangesResponseDto changes = shapeService.findChangesSince(canvasId, since, limit);
+        return ResponseEntity.ok(changes);
+    }
+
 }
\ No newline at end of file
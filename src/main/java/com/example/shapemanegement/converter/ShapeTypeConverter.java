@@ -0,0 +1,27 @@
+package com.example.shapemanegement.converter;
+
+import com.example.shapemanegement.geometry.ShapeType;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Stores the lowercase name, so the column keeps the values written before it was an enum
+@Converter(autoApply = false)
+public class ShapeTypeConverter implements AttributeConverter<ShapeType, String> {
+
+    @Override
+    public String convertToDatabaseColumn(ShapeType attribute) {
+        return attribute == null ? null : attribute.value();
+    }
+
+    @Override
+    public ShapeType convertToEntityAttribute(String dbData) {
+        if (dbData == null) {
+            return null;
+        }
+        ShapeType type = ShapeType.fromValue(dbData);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown shape type in database: " + dbData);
+        }
+        return type;
+    }
+}
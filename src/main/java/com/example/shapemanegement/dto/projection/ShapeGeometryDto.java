@@ -0,0 +1,19 @@
+package com.example.shapemanegement.dto.projection;
+
+import com.example.shapemanegement.geometry.ShapeType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Slim read model for overlap detection: only the fields the geometry needs
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShapeGeometryDto {
+    private Long id;
+    private ShapeType type;
+    private String coordinates;
+    private Double centerX;
+    private Double centerY;
+    private Double radius;
+}
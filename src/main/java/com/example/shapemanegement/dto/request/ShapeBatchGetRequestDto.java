@@ -0,0 +1,17 @@
+package com.example.shapemanegement.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShapeBatchGetRequestDto {
+
+    @NotNull(message = "Shape ids are required.")
+    private List<Long> ids;
+}
@@ -0,0 +1,23 @@
+package com.example.shapemanegement.dto.request;
+
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// New geometry for an existing shape; the shape's type decides which fields are required
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShapeGeometryRequestDto {
+
+    // For polygons
+    private String coordinates;
+
+    // For circles
+    private Double centerX;
+    private Double centerY;
+
+    @Positive(message = "Radius must be a positive value for circles.")
+    private Double radius;
+}
@@ -3,11 +3,9 @@ package com.example.shapemanegement.dto.request;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Positive;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class ShapeRequestDto {
 
@@ -27,4 +25,20 @@ public class ShapeRequestDto {
 
     @Positive(message = "Radius must be a positive value for circles.")
     private Double radius;
+
+    // Canvas the shape belongs to; the default canvas when omitted. On update it may be omitted, and
+    // a different canvas is rejected, since a shape cannot be moved to another canvas.
+    private Long canvasId;
+
+    // Optional on update: the version the client last read. A stale version is rejected with 409.
+    private Long version;
+
+    public ShapeRequestDto(String name, String type, String coordinates, Double centerX, Double centerY, Double radius) {
+        this.name = name;
+        this.type = type;
+        this.coordinates = coordinates;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.radius = radius;
+    }
 }
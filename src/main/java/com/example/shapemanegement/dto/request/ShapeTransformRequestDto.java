@@ -0,0 +1,30 @@
+package com.example.shapemanegement.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One affine transform for many shapes, selected either by id or by a box their bounding boxes intersect
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShapeTransformRequestDto {
+
+    private List<Long> ids;
+
+    private Double minX;
+    private Double minY;
+    private Double maxX;
+    private Double maxY;
+    // Canvas searched by a box selection; the default canvas when omitted
+    private Long canvasId;
+
+    // [a, b, c, d, e, f]: x' = a*x + c*y + e, y' = b*x + d*y + f
+    @NotNull(message = "Transform matrix is required.")
+    @Size(min = 6, max = 6, message = "Transform matrix must have 6 entries: a, b, c, d, e, f.")
+    private List<Double> matrix;
+}
@@ -0,0 +1,17 @@
+package com.example.shapemanegement.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OverlapAreaDto {
+    private Long firstId;
+    private Long secondId;
+    private double intersectionArea;
+    // Share of each shape's own area covered by the other, 0 to 100
+    private double firstCoveragePercent;
+    private double secondCoveragePercent;
+}
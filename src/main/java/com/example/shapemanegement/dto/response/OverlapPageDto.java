@@ -0,0 +1,16 @@
+package com.example.shapemanegement.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OverlapPageDto {
+    private long[] ids;
+    // False when the deadline ran out; the ids of every page up to a complete one add up to the full result
+    private boolean complete;
+    // Passed back to resume; null once complete
+    private Long continuation;
+}
@@ -0,0 +1,17 @@
+package com.example.shapemanegement.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShapeBatchResponseDto {
+    // In the order the ids were requested, each shape once
+    private List<ShapeResponseDto> shapes;
+    // Requested ids with no shape, in request order
+    private List<Long> missing;
+}
@@ -0,0 +1,17 @@
+package com.example.shapemanegement.dto.response;
+
+import com.example.shapemanegement.entity.ShapeChange;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShapeChangeDto {
+    private Long seq;
+    private Long shapeId;
+    private ShapeChange.Type type;
+    // Current state of the shape, which may be newer than this change; null once it is deleted
+    private ShapeResponseDto shape;
+}
@@ -0,0 +1,17 @@
+package com.example.shapemanegement.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShapeChangesResponseDto {
+    private List<ShapeChangeDto> changes;
+    // Pass as since on the next call
+    private Long nextSince;
+    private boolean hasMore;
+}
@@ -0,0 +1,14 @@
+package com.example.shapemanegement.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShapeDistanceDto {
+    private Long id;
+    // 0 when the shape overlaps the query shape or contains the query point
+    private double distance;
+}
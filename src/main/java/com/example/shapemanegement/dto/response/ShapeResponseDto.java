@@ -1,6 +1,7 @@
 package com.example.shapemanegement.dto.response;
 
 
+import com.example.shapemanegement.geometry.ShapeType;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,9 +12,12 @@ import lombok.NoArgsConstructor;
 public class ShapeResponseDto {
     private Long id;
     private String name;
-    private String type;
+    private ShapeType type;
     private String coordinates;
     private Double centerX;
     private Double centerY;
     private Double radius;
+    // Send back with an update to have it rejected if the shape changed in between; null when not known
+    private Long version;
+    private Long canvasId;
 }
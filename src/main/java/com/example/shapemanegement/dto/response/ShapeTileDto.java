@@ -0,0 +1,19 @@
+package com.example.shapemanegement.dto.response;
+
+import com.example.shapemanegement.dto.projection.ShapeGeometryDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShapeTileDto {
+    private int z;
+    private int x;
+    private int y;
+    // Polygon coordinates are simplified for the zoom level; shapes smaller than a tile pixel are left out
+    private List<ShapeGeometryDto> shapes;
+}
@@ -1,27 +1,61 @@
 package com.example.shapemanegement.entity;
 
+import com.example.shapemanegement.converter.ShapeTypeConverter;
 import com.example.shapemanegement.converter.StringToJsonConverter;
+import com.example.shapemanegement.geometry.CoordinateFormatException;
+import com.example.shapemanegement.geometry.CoordinateParser;
+import com.example.shapemanegement.geometry.ShapeType;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
+import java.time.Instant;
 
 @Entity
-@Table(name = "shapes")
+@Table(name = "shapes", uniqueConstraints = {
+        // Writes rely on this constraint for name uniqueness within a canvas; see ShapeServiceImpl
+        @UniqueConstraint(name = Shape.NAME_CONSTRAINT, columnNames = {"canvas_id", "name"})
+}, indexes = {
+        // Composite bounding-box indexes: one per leading axis so the optimizer can range-scan
+        // whichever axis is more selective, while the remaining columns are filtered from the index.
+        @Index(name = "idx_shapes_bbox_x", columnList = "min_x, max_x, min_y, max_y"),
+        @Index(name = "idx_shapes_bbox_y", columnList = "min_y, max_y, min_x, max_x"),
+        // Listing and geometry loads read one canvas in id order
+        @Index(name = "idx_shapes_canvas", columnList = "canvas_id, id")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "shapes")
+@NaturalIdCache(region = "shapes-by-name")
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class Shape {
 
+    public static final String NAME_CONSTRAINT = "uk_shapes_name";
+
+    // Canvas of shapes created without one
+    public static final long DEFAULT_CANVAS = 0L;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "name", unique = true, nullable = false)
+    // Workspace the shape belongs to; names are unique per canvas, and overlaps, listings and
+    // tiles only ever consider the shapes of one canvas
+    @NaturalId(mutable = true)
+    @Column(name = "canvas_id", nullable = false, updatable = false)
+    private Long canvasId = DEFAULT_CANVAS;
+
+    @NaturalId(mutable = true)
+    @Column(name = "name", nullable = false)
     private String name;
 
     @Column(name = "type", nullable = false)
-    private String type;
+    @Convert(converter = ShapeTypeConverter.class)
+    private ShapeType type;
 
 
     @Column(name = "coordinates", columnDefinition = "JSON")
@@ -37,4 +71,76 @@ public class Shape {
 
     @Column(name = "radius")
     private Double radius;
-}
\ No newline at end of file
+
+    // Bounding box, derived from the geometry on every save
+    @Column(name = "min_x")
+    private Double minX;
+
+    @Column(name = "min_y")
+    private Double minY;
+
+    @Column(name = "max_x")
+    private Double maxX;
+
+    @Column(name = "max_y")
+    private Double maxY;
+
+    // Time of the last write
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    // Optimistic lock; bumped by every write
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    public Shape(Long id, String name, ShapeType type, String coordinates, Double centerX, Double centerY, Double radius) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.coordinates = coordinates;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.radius = radius;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void beforeWrite() {
+        updateBoundingBox();
+        updatedAt = Instant.now();
+    }
+
+    // Keeps the bounding-box columns in sync with the geometry. Shapes whose geometry
+    // cannot be read are stored without a box and never match range queries.
+    public void updateBoundingBox() {
+        minX = minY = maxX = maxY = null;
+        if (type == ShapeType.CIRCLE) {
+            if (centerX == null || centerY == null || radius == null) {
+                return;
+            }
+            minX = centerX - radius;
+            minY = centerY - radius;
+            maxX = centerX + radius;
+            maxY = centerY + radius;
+        } else if (coordinates != null && !coordinates.isBlank()) {
+            double[] xy;
+            try {
+                xy = CoordinateParser.parse(coordinates);
+            } catch (CoordinateFormatException e) {
+                return;
+            }
+            double loX = xy[0], loY = xy[1], hiX = xy[0], hiY = xy[1];
+            for (int i = 2; i < xy.length; i += 2) {
+                loX = Math.min(loX, xy[i]);
+                loY = Math.min(loY, xy[i + 1]);
+                hiX = Math.max(hiX, xy[i]);
+                hiY = Math.max(hiY, xy[i + 1]);
+            }
+            minX = loX;
+            minY = loY;
+            maxX = hiX;
+            maxY = hiY;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.shapemanegement.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+// One row per shape write, numbered by a gap-free sequence in commit order; see ShapeChangeLog
+@Entity
+@Table(name = "shape_changes", indexes = @Index(name = "idx_shape_changes_canvas_seq", columnList = "canvas_id, seq"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShapeChange implements Persistable<Long> {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    @Id
+    @Column(name = "seq")
+    private Long seq;
+
+    @Column(name = "canvas_id", nullable = false)
+    private Long canvasId;
+
+    @Column(name = "shape_id", nullable = false)
+    private Long shapeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 16)
+    private Type type;
+
+    @Override
+    public Long getId() {
+        return seq;
+    }
+
+    // Rows are insert-only and carry an assigned id, so save() can persist without a select
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
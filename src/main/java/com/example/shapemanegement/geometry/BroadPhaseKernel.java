@@ -0,0 +1,17 @@
+package com.example.shapemanegement.geometry;
+
+/**
+ * Tests one shape of a {@link GeometryStore} against a contiguous index range of the same set and
+ * writes the indices that pass into {@code out}, returning how many were written. {@code out}
+ * must have room for {@code to - from} entries.
+ */
+public interface BroadPhaseKernel {
+
+    // Shapes in [from, to) whose bounding box intersects the box of shape i (touching counts)
+    int overlappingBoxes(GeometryStore shapes, int i, int from, int to, int[] out);
+
+    // Circles in [from, to) that overlap circle i; non-circles never match because their circle fields are NaN
+    int overlappingCircles(GeometryStore shapes, int i, int from, int to, int[] out);
+
+    String name();
+}
@@ -0,0 +1,43 @@
+package com.example.shapemanegement.geometry;
+
+// Chooses the broad-phase kernel once per JVM
+public final class BroadPhaseKernels {
+
+    // Set -Dshapes.simd=false to force the scalar kernel even when the Vector API is available
+    public static final String SIMD_PROPERTY = "shapes.simd";
+
+    private static final BroadPhaseKernel SCALAR = new ScalarBroadPhaseKernel();
+    private static final BroadPhaseKernel VECTOR = loadVectorKernel();
+
+    private BroadPhaseKernels() {
+    }
+
+    public static BroadPhaseKernel best() {
+        if (VECTOR != null && !"false".equalsIgnoreCase(System.getProperty(SIMD_PROPERTY))) {
+            return VECTOR;
+        }
+        return SCALAR;
+    }
+
+    public static BroadPhaseKernel scalar() {
+        return SCALAR;
+    }
+
+    // Null unless the JVM was started with --add-modules jdk.incubator.vector
+    public static BroadPhaseKernel vector() {
+        return VECTOR;
+    }
+
+    private static BroadPhaseKernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (BroadPhaseKernel) Class.forName(BroadPhaseKernels.class.getPackageName() + ".VectorBroadPhaseKernel")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.shapemanegement.geometry;
+
+// Thrown by CoordinateParser; position is the zero-based offset of the offending character
+public class CoordinateFormatException extends IllegalArgumentException {
+
+    private final int position;
+
+    public CoordinateFormatException(String reason, int position) {
+        super(reason + " at position " + position);
+        this.position = position;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+}
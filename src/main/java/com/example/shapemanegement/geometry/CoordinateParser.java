@@ -0,0 +1,102 @@
+package com.example.shapemanegement.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass scanner for coordinate strings of the form {@code "x1,y1;x2,y2;..."}.
+ * <p>
+ * Accepts exactly the language of {@code ^\s*\d+,\d+(;\s*\d+,\d+)*\s*$}: unsigned integers,
+ * whitespace only at either end and after a ';'. Validation and parsing happen in the same
+ * pass, and the result is a flat {@code [x0, y0, x1, y1, ...]} array with no per-point objects.
+ */
+public final class CoordinateParser {
+
+    // Up to 18 decimal digits always fit in a long, and (double) long rounds exactly like Double.parseDouble
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private CoordinateParser() {
+    }
+
+    public static double[] parse(String coordinates) {
+        int length = coordinates.length();
+        double[] xy = new double[16];
+        int count = 0;
+
+        int pos = skipWhitespace(coordinates, 0, length);
+        while (true) {
+            if (count + 2 > xy.length) {
+                xy = Arrays.copyOf(xy, xy.length * 2);
+            }
+
+            int start = pos;
+            pos = skipDigits(coordinates, pos, length);
+            if (pos == start) {
+                throw new CoordinateFormatException("expected a digit", pos);
+            }
+            xy[count] = toDouble(coordinates, start, pos);
+
+            if (pos == length || coordinates.charAt(pos) != ',') {
+                throw new CoordinateFormatException("expected ','", pos);
+            }
+            start = ++pos;
+            pos = skipDigits(coordinates, pos, length);
+            if (pos == start) {
+                throw new CoordinateFormatException("expected a digit", pos);
+            }
+            xy[count + 1] = toDouble(coordinates, start, pos);
+            count += 2;
+
+            if (pos == length) {
+                break;
+            }
+            char c = coordinates.charAt(pos);
+            if (c == ';') {
+                pos = skipWhitespace(coordinates, pos + 1, length);
+            } else if (isWhitespace(c)) {
+                pos = skipWhitespace(coordinates, pos, length);
+                if (pos != length) {
+                    throw new CoordinateFormatException("expected end of input", pos);
+                }
+                break;
+            } else {
+                throw new CoordinateFormatException("expected ';'", pos);
+            }
+        }
+
+        return count == xy.length ? xy : Arrays.copyOf(xy, count);
+    }
+
+    private static int skipDigits(String s, int pos, int length) {
+        while (pos < length && isDigit(s.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipWhitespace(String s, int pos, int length) {
+        while (pos < length && isWhitespace(s.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static double toDouble(String s, int start, int end) {
+        if (end - start > MAX_LONG_DIGITS) {
+            return Double.parseDouble(s.substring(start, end));
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (s.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    // Same classes as the regex \d and \s (ASCII only)
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
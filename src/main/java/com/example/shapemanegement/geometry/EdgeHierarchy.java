@@ -0,0 +1,244 @@
+package com.example.shapemanegement.geometry;
+
+import static com.example.shapemanegement.geometry.ShapeSet.TYPE_POLYGON;
+
+/**
+ * Bounding-volume hierarchy over the edges of every large polygon in a {@link GeometryStore}, so
+ * the narrow phase visits only the edges near the query instead of the whole ring.
+ * <p>
+ * A polygon's edges are split recursively into halves of the ring, which keeps each node's edges
+ * contiguous and spatially close, until a node holds at most {@link #LEAF_EDGES}. Edge {@code v}
+ * runs from vertex {@code v} to the next vertex of the ring. Nodes are stored in preorder in
+ * parallel arrays; {@code skip[node]} is the first node after the node's subtree, so a query
+ * walks the tree front to back without a stack and without allocating. Polygons with fewer than
+ * {@link #MIN_VERTICES} vertices get no nodes and are scanned linearly by {@link GeometryKernels}.
+ */
+public final class EdgeHierarchy {
+
+    // Below this many vertices a linear scan is as fast as descending the tree
+    public static final int MIN_VERTICES = 32;
+    static final int LEAF_EDGES = 8;
+
+    // Nodes of shape i are firstNode[i] (inclusive) to firstNode[i + 1] (exclusive)
+    private final int[] firstNode;
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] maxX;
+    private final double[] maxY;
+    // Edges of a node are firstEdge[node] (inclusive) to lastEdge[node] (exclusive)
+    private final int[] firstEdge;
+    private final int[] lastEdge;
+    private final int[] skip;
+
+    private EdgeHierarchy(int[] firstNode) {
+        int nodes = firstNode[firstNode.length - 1];
+        this.firstNode = firstNode;
+        this.minX = new double[nodes];
+        this.minY = new double[nodes];
+        this.maxX = new double[nodes];
+        this.maxY = new double[nodes];
+        this.firstEdge = new int[nodes];
+        this.lastEdge = new int[nodes];
+        this.skip = new int[nodes];
+    }
+
+    public static EdgeHierarchy build(GeometryStore s) {
+        int n = s.size();
+        int[] firstNode = new int[n + 1];
+        int nodes = 0;
+        for (int i = 0; i < n; i++) {
+            firstNode[i] = nodes;
+            if (isLarge(s, i)) {
+                nodes += nodeCount(s.vertexEnd(i) - s.vertexStart(i));
+            }
+        }
+        firstNode[n] = nodes;
+
+        EdgeHierarchy hierarchy = new EdgeHierarchy(firstNode);
+        for (int i = 0; i < n; i++) {
+            if (isLarge(s, i)) {
+                hierarchy.fill(s, s.vertexStart(i), s.vertexEnd(i), s.vertexStart(i), s.vertexEnd(i), firstNode[i]);
+            }
+        }
+        return hierarchy;
+    }
+
+    public boolean indexes(int shape) {
+        return firstNode[shape] < firstNode[shape + 1];
+    }
+
+    public int nodeCount() {
+        return skip.length;
+    }
+
+    // Same crossings as GeometryKernels.isPointInPolygon, skipping nodes no edge of which spans py
+    public boolean isPointInPolygon(GeometryStore s, int polygon, double px, double py) {
+        int start = s.vertexStart(polygon);
+        int end = s.vertexEnd(polygon);
+        boolean inside = false;
+        int node = firstNode[polygon];
+        int last = firstNode[polygon + 1];
+        while (node < last) {
+            if (py < minY[node] || py >= maxY[node]) {
+                node = skip[node];
+                continue;
+            }
+            if (isLeaf(node)) {
+                for (int v = firstEdge[node]; v < lastEdge[node]; v++) {
+                    int w = v + 1 == end ? start : v + 1;
+                    if (GeometryKernels.rayIntersectsEdge(px, py, s.x(v), s.y(v), s.x(w), s.y(w))) {
+                        inside = !inside;
+                    }
+                }
+            }
+            node++;
+        }
+        return inside;
+    }
+
+    // Whether any edge of the polygon passes closer than r to (cx, cy)
+    public boolean anyEdgeWithin(GeometryStore s, int polygon, double cx, double cy, double r) {
+        int start = s.vertexStart(polygon);
+        int end = s.vertexEnd(polygon);
+        int node = firstNode[polygon];
+        int last = firstNode[polygon + 1];
+        while (node < last) {
+            double dx = Math.max(0, Math.max(minX[node] - cx, cx - maxX[node]));
+            double dy = Math.max(0, Math.max(minY[node] - cy, cy - maxY[node]));
+            if (Math.sqrt(dx * dx + dy * dy) >= r) {
+                node = skip[node];
+                continue;
+            }
+            if (isLeaf(node)) {
+                for (int v = firstEdge[node]; v < lastEdge[node]; v++) {
+                    int w = v + 1 == end ? start : v + 1;
+                    if (GeometryKernels.distanceFromPointToLineSegment(cx, cy, s.x(v), s.y(v), s.x(w), s.y(w)) < r) {
+                        return true;
+                    }
+                }
+            }
+            node++;
+        }
+        return false;
+    }
+
+    /**
+     * Whether an edge of polygon {@code a} properly crosses an edge of polygon {@code b}, as the
+     * nested edge loop of {@link GeometryKernels#polygonPolygonOverlap}. At least one of the two
+     * must be indexed; each of its leaves is tested against the other's tree, or against every
+     * edge of the other when that one is small.
+     */
+    public boolean edgesIntersect(GeometryStore s, int a, int b) {
+        if (!indexes(a)) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        boolean treeB = indexes(b);
+        int node = firstNode[a];
+        int last = firstNode[a + 1];
+        while (node < last) {
+            if (disjoint(node, s.minX(b), s.minY(b), s.maxX(b), s.maxY(b))) {
+                node = skip[node];
+                continue;
+            }
+            if (isLeaf(node) && (treeB
+                    ? leafCrossesTree(s, a, node, b)
+                    : crosses(s, a, firstEdge[node], lastEdge[node], b, s.vertexStart(b), s.vertexEnd(b)))) {
+                return true;
+            }
+            node++;
+        }
+        return false;
+    }
+
+    private boolean leafCrossesTree(GeometryStore s, int a, int leaf, int b) {
+        int node = firstNode[b];
+        int last = firstNode[b + 1];
+        while (node < last) {
+            if (disjoint(node, minX[leaf], minY[leaf], maxX[leaf], maxY[leaf])) {
+                node = skip[node];
+                continue;
+            }
+            if (isLeaf(node) && crosses(s, a, firstEdge[leaf], lastEdge[leaf], b, firstEdge[node], lastEdge[node])) {
+                return true;
+            }
+            node++;
+        }
+        return false;
+    }
+
+    // Edges [loA, hiA) of polygon a against edges [loB, hiB) of polygon b
+    private static boolean crosses(GeometryStore s, int a, int loA, int hiA, int b, int loB, int hiB) {
+        int startA = s.vertexStart(a);
+        int endA = s.vertexEnd(a);
+        int startB = s.vertexStart(b);
+        int endB = s.vertexEnd(b);
+        for (int v = loA; v < hiA; v++) {
+            int v2 = v + 1 == endA ? startA : v + 1;
+            for (int w = loB; w < hiB; w++) {
+                int w2 = w + 1 == endB ? startB : w + 1;
+                if (GeometryKernels.lineSegmentsIntersect(s.x(v), s.y(v), s.x(v2), s.y(v2), s.x(w), s.y(w), s.x(w2), s.y(w2))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean disjoint(int node, double loX, double loY, double hiX, double hiY) {
+        return maxX[node] < loX || hiX < minX[node] || maxY[node] < loY || hiY < minY[node];
+    }
+
+    private boolean isLeaf(int node) {
+        return skip[node] == node + 1;
+    }
+
+    // Writes the subtree for edges [lo, hi) of the ring [start, end) at node; returns the node after it
+    private int fill(GeometryStore s, int start, int end, int lo, int hi, int node) {
+        firstEdge[node] = lo;
+        lastEdge[node] = hi;
+        if (hi - lo <= LEAF_EDGES) {
+            double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY;
+            double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+            // Each edge ends at the next vertex, which for the last edge of the ring is the first
+            for (int v = lo; v <= hi; v++) {
+                int vertex = v == end ? start : v;
+                loX = Math.min(loX, s.x(vertex));
+                loY = Math.min(loY, s.y(vertex));
+                hiX = Math.max(hiX, s.x(vertex));
+                hiY = Math.max(hiY, s.y(vertex));
+            }
+            setBox(node, loX, loY, hiX, hiY);
+            skip[node] = node + 1;
+            return skip[node];
+        }
+        int mid = lo + ((hi - lo) >>> 1);
+        int right = fill(s, start, end, lo, mid, node + 1);
+        int after = fill(s, start, end, mid, hi, right);
+        int left = node + 1;
+        setBox(node, Math.min(minX[left], minX[right]), Math.min(minY[left], minY[right]),
+                Math.max(maxX[left], maxX[right]), Math.max(maxY[left], maxY[right]));
+        skip[node] = after;
+        return after;
+    }
+
+    private void setBox(int node, double loX, double loY, double hiX, double hiY) {
+        minX[node] = loX;
+        minY[node] = loY;
+        maxX[node] = hiX;
+        maxY[node] = hiY;
+    }
+
+    private static boolean isLarge(GeometryStore s, int shape) {
+        return s.type(shape) == TYPE_POLYGON && s.vertexEnd(shape) - s.vertexStart(shape) >= MIN_VERTICES;
+    }
+
+    private static int nodeCount(int edges) {
+        if (edges <= LEAF_EDGES) {
+            return 1;
+        }
+        int half = edges >>> 1;
+        return 1 + nodeCount(half) + nodeCount(edges - half);
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.shapemanegement.geometry;
+
+import static com.example.shapemanegement.geometry.ShapeSet.TYPE_CIRCLE;
+import static com.example.shapemanegement.geometry.ShapeSet.TYPE_POLYGON;
+
+/**
+ * Overlap predicates over a {@link GeometryStore}. Shapes are addressed by index and every method
+ * works on primitives only: no allocation, no boxing, and only the store's accessors as calls,
+ * so the JIT can inline the whole narrow phase into the pair loop.
+ */
+public final class GeometryKernels {
+
+    private GeometryKernels() {
+    }
+
+    public static boolean overlaps(GeometryStore s, EdgeHierarchy edges, int a, int b) {
+        // Early bounding box check
+        return boundingBoxesOverlap(s, a, b) && narrowPhaseOverlaps(s, edges, a, b);
+    }
+
+    // Exact test for a pair whose bounding boxes are already known to intersect; edges is s.edges()
+    public static boolean narrowPhaseOverlaps(GeometryStore s, EdgeHierarchy edges, int a, int b) {
+        byte typeA = s.type(a);
+        byte typeB = s.type(b);
+        if (typeA == TYPE_CIRCLE && typeB == TYPE_CIRCLE) {
+            return circleCircleOverlap(s, a, b);
+        } else if (typeA == TYPE_CIRCLE && typeB == TYPE_POLYGON) {
+            return circlePolygonOverlap(s, edges, a, b);
+        } else if (typeA == TYPE_POLYGON && typeB == TYPE_CIRCLE) {
+            return circlePolygonOverlap(s, edges, b, a);
+        } else if (typeA == TYPE_POLYGON && typeB == TYPE_POLYGON) {
+            return polygonPolygonOverlap(s, edges, a, b);
+        }
+        return false;
+    }
+
+    public static boolean boundingBoxesOverlap(GeometryStore s, int a, int b) {
+        return !(s.maxX(a) < s.minX(b) ||
+                s.maxX(b) < s.minX(a) ||
+                s.maxY(a) < s.minY(b) ||
+                s.maxY(b) < s.minY(a));
+    }
+
+    public static boolean circleCircleOverlap(GeometryStore s, int a, int b) {
+        double dx = s.centerX(a) - s.centerX(b);
+        double dy = s.centerY(a) - s.centerY(b);
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        return distance < s.radius(a) + s.radius(b);
+    }
+
+    // As circlePolygonOverlap, descending the polygon's edge tree when it has one
+    public static boolean circlePolygonOverlap(GeometryStore s, EdgeHierarchy edges, int circle, int polygon) {
+        if (!edges.indexes(polygon)) {
+            return circlePolygonOverlap(s, circle, polygon);
+        }
+        double cx = s.centerX(circle);
+        double cy = s.centerY(circle);
+        // A vertex inside the circle puts its edges within r as well, so one edge query covers both scans
+        return edges.isPointInPolygon(s, polygon, cx, cy) || edges.anyEdgeWithin(s, polygon, cx, cy, s.radius(circle));
+    }
+
+    public static boolean circlePolygonOverlap(GeometryStore s, int circle, int polygon) {
+        double cx = s.centerX(circle);
+        double cy = s.centerY(circle);
+        double r = s.radius(circle);
+        int start = s.vertexStart(polygon);
+        int end = s.vertexEnd(polygon);
+
+        // Circle center inside polygon
+        if (isPointInPolygon(cx, cy, s, start, end)) {
+            return true;
+        }
+
+        // Any polygon vertex inside circle
+        for (int v = start; v < end; v++) {
+            double dx = s.x(v) - cx;
+            double dy = s.y(v) - cy;
+            if (Math.sqrt(dx * dx + dy * dy) < r) {
+                return true;
+            }
+        }
+
+        // Circle crosses any polygon edge
+        for (int v = start; v < end; v++) {
+            int w = v + 1 == end ? start : v + 1;
+            if (distanceFromPointToLineSegment(cx, cy, s.x(v), s.y(v), s.x(w), s.y(w)) < r) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // As polygonPolygonOverlap, using the edge trees of whichever polygons have one
+    public static boolean polygonPolygonOverlap(GeometryStore s, EdgeHierarchy edges, int a, int b) {
+        if (!edges.indexes(a) && !edges.indexes(b)) {
+            return polygonPolygonOverlap(s, a, b);
+        }
+        for (int v = s.vertexStart(a); v < s.vertexEnd(a); v++) {
+            if (contains(s, edges, b, s.x(v), s.y(v))) {
+                return true;
+            }
+        }
+        for (int v = s.vertexStart(b); v < s.vertexEnd(b); v++) {
+            if (contains(s, edges, a, s.x(v), s.y(v))) {
+                return true;
+            }
+        }
+        return edges.edgesIntersect(s, a, b);
+    }
+
+    public static boolean polygonPolygonOverlap(GeometryStore s, int a, int b) {
+        int startA = s.vertexStart(a);
+        int endA = s.vertexEnd(a);
+        int startB = s.vertexStart(b);
+        int endB = s.vertexEnd(b);
+
+        // Any vertex of one polygon inside the other
+        for (int v = startA; v < endA; v++) {
+            if (isPointInPolygon(s.x(v), s.y(v), s, startB, endB)) {
+                return true;
+            }
+        }
+        for (int v = startB; v < endB; v++) {
+            if (isPointInPolygon(s.x(v), s.y(v), s, startA, endA)) {
+                return true;
+            }
+        }
+
+        return edgesCross(s, a, b);
+    }
+
+    // Whether any edge of polygon a properly crosses an edge of polygon b, by the nested edge loop
+    static boolean edgesCross(GeometryStore s, int a, int b) {
+        int startA = s.vertexStart(a);
+        int endA = s.vertexEnd(a);
+        int startB = s.vertexStart(b);
+        int endB = s.vertexEnd(b);
+        for (int v = startA; v < endA; v++) {
+            int v2 = v + 1 == endA ? startA : v + 1;
+            for (int w = startB; w < endB; w++) {
+                int w2 = w + 1 == endB ? startB : w + 1;
+                if (lineSegmentsIntersect(s.x(v), s.y(v), s.x(v2), s.y(v2), s.x(w), s.y(w), s.x(w2), s.y(w2))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Points outside the bounding box are rejected before any edge is looked at
+    static boolean contains(GeometryStore s, EdgeHierarchy edges, int polygon, double px, double py) {
+        if (px < s.minX(polygon) || px > s.maxX(polygon) || py < s.minY(polygon) || py > s.maxY(polygon)) {
+            return false;
+        }
+        return edges.indexes(polygon)
+                ? edges.isPointInPolygon(s, polygon, px, py)
+                : isPointInPolygon(px, py, s, s.vertexStart(polygon), s.vertexEnd(polygon));
+    }
+
+    // Ray casting over the closed ring of vertices [start, end)
+    public static boolean isPointInPolygon(double px, double py, GeometryStore s, int start, int end) {
+        boolean inside = false;
+        for (int v = start; v < end; v++) {
+            int w = v + 1 == end ? start : v + 1;
+            if (rayIntersectsEdge(px, py, s.x(v), s.y(v), s.x(w), s.y(w))) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    public static boolean rayIntersectsEdge(double px, double py, double x1, double y1, double x2, double y2) {
+        if (y1 > py != y2 > py) {
+            double intersectionX = (x2 - x1) * (py - y1) / (y2 - y1) + x1;
+            return px < intersectionX;
+        }
+        return false;
+    }
+
+    public static double distanceFromPointToLineSegment(double px, double py, double x1, double y1, double x2, double y2) {
+        double a = px - x1;
+        double b = py - y1;
+        double c = x2 - x1;
+        double d = y2 - y1;
+
+        double dot = a * c + b * d;
+        double lenSq = c * c + d * d;
+        if (lenSq == 0) {
+            return Math.sqrt(a * a + b * b);
+        }
+
+        double param = dot / lenSq;
+        double xx, yy;
+        if (param < 0) {
+            xx = x1;
+            yy = y1;
+        } else if (param > 1) {
+            xx = x2;
+            yy = y2;
+        } else {
+            xx = x1 + param * c;
+            yy = y1 + param * d;
+        }
+
+        double dx = px - xx;
+        double dy = py - yy;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    // Proper intersection only: touching or collinear segments do not count
+    public static boolean lineSegmentsIntersect(double x1, double y1, double x2, double y2,
+                                                double x3, double y3, double x4, double y4) {
+        double d1 = crossProduct(x4 - x3, y4 - y3, x1 - x3, y1 - y3);
+        double d2 = crossProduct(x4 - x3, y4 - y3, x2 - x3, y2 - y3);
+        double d3 = crossProduct(x2 - x1, y2 - y1, x3 - x1, y3 - y1);
+        double d4 = crossProduct(x2 - x1, y2 - y1, x4 - x1, y4 - y1);
+
+        return ((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) &&
+                ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0));
+    }
+
+    public static double crossProduct(double ax, double ay, double bx, double by) {
+        return ax * by - ay * bx;
+    }
+}
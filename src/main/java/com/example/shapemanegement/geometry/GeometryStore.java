@@ -0,0 +1,52 @@
+package com.example.shapemanegement.geometry;
+
+/**
+ * Read access to compiled shape geometry. Shapes are addressed by index {@code 0..size()-1};
+ * polygon vertices by vertex index, shape {@code i} owning {@code vertexStart(i)} (inclusive)
+ * to {@code vertexEnd(i)} (exclusive). Circles have an empty vertex range, polygons NaN
+ * circle fields.
+ * <p>
+ * There are exactly two implementations, the on-heap {@link ShapeSet} and the off-heap
+ * {@link OffHeapShapeStore}. Both are final, so the accessor calls in the kernels stay at most
+ * bimorphic and are inlined by the JIT.
+ * <p>
+ * Each store also provides the {@link EdgeHierarchy} of its large polygons, built once per store,
+ * and a {@link ShapeTree} over every shape, built on first use.
+ */
+public interface GeometryStore {
+
+    int size();
+
+    long id(int shape);
+
+    byte type(int shape);
+
+    // The type the shape was stored with; type() only tells circles from polygons
+    ShapeType shapeType(int shape);
+
+    double minX(int shape);
+
+    double minY(int shape);
+
+    double maxX(int shape);
+
+    double maxY(int shape);
+
+    double centerX(int shape);
+
+    double centerY(int shape);
+
+    double radius(int shape);
+
+    int vertexStart(int shape);
+
+    int vertexEnd(int shape);
+
+    double x(int vertex);
+
+    double y(int vertex);
+
+    EdgeHierarchy edges();
+
+    ShapeTree tree();
+}
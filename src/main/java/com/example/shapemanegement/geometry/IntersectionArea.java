@@ -0,0 +1,263 @@
+package com.example.shapemanegement.geometry;
+
+import java.util.Arrays;
+
+import static com.example.shapemanegement.geometry.ShapeSet.TYPE_CIRCLE;
+import static com.example.shapemanegement.geometry.ShapeSet.TYPE_POLYGON;
+
+/**
+ * Areas of shapes and of the intersection of two shapes in a {@link GeometryStore}.
+ * <ul>
+ *   <li>circle-circle: the closed-form lens area</li>
+ *   <li>circle-polygon: the circle intersected with each triangle fanned from its center to one
+ *   polygon edge, signed by the triangle's orientation and summed</li>
+ *   <li>polygon-polygon: each polygon is the signed sum of the trapezoids between its edges and
+ *   a common baseline, so the intersection area is the signed sum, over pairs of edges whose
+ *   x-ranges overlap, of the area under the lower of the two edges. A sweep over x finds those
+ *   pairs, which keeps large outlines near linear. This works for concave polygons as well and
+ *   counts shared edges exactly once.</li>
+ * </ul>
+ * Unlike {@link GeometryKernels} these methods allocate scratch arrays; they run once per
+ * overlapping pair, after the boolean predicates.
+ */
+public final class IntersectionArea {
+
+    private IntersectionArea() {
+    }
+
+    public static double area(GeometryStore s, int shape) {
+        if (s.type(shape) == TYPE_CIRCLE) {
+            return Math.PI * s.radius(shape) * s.radius(shape);
+        }
+        return Math.abs(signedArea(s, shape));
+    }
+
+    public static double intersectionArea(GeometryStore s, int a, int b) {
+        byte typeA = s.type(a);
+        byte typeB = s.type(b);
+        if (typeA == TYPE_CIRCLE && typeB == TYPE_CIRCLE) {
+            double dx = s.centerX(a) - s.centerX(b);
+            double dy = s.centerY(a) - s.centerY(b);
+            return circleCircle(s.radius(a), s.radius(b), Math.sqrt(dx * dx + dy * dy));
+        } else if (typeA == TYPE_CIRCLE && typeB == TYPE_POLYGON) {
+            return circlePolygon(s, a, b);
+        } else if (typeA == TYPE_POLYGON && typeB == TYPE_CIRCLE) {
+            return circlePolygon(s, b, a);
+        } else if (typeA == TYPE_POLYGON && typeB == TYPE_POLYGON) {
+            return polygonPolygon(s, a, b);
+        }
+        return 0;
+    }
+
+    static double circleCircle(double r1, double r2, double d) {
+        if (d >= r1 + r2) {
+            return 0;
+        }
+        if (d <= Math.abs(r1 - r2)) {
+            double r = Math.min(r1, r2);
+            return Math.PI * r * r;
+        }
+        double alpha = Math.acos((d * d + r1 * r1 - r2 * r2) / (2 * d * r1));
+        double beta = Math.acos((d * d + r2 * r2 - r1 * r1) / (2 * d * r2));
+        double kite = 0.5 * Math.sqrt((-d + r1 + r2) * (d + r1 - r2) * (d - r1 + r2) * (d + r1 + r2));
+        return r1 * r1 * alpha + r2 * r2 * beta - kite;
+    }
+
+    static double circlePolygon(GeometryStore s, int circle, int polygon) {
+        double cx = s.centerX(circle);
+        double cy = s.centerY(circle);
+        double r = s.radius(circle);
+        int start = s.vertexStart(polygon);
+        int end = s.vertexEnd(polygon);
+        double sum = 0;
+        for (int v = start; v < end; v++) {
+            int w = v + 1 == end ? start : v + 1;
+            sum += circleTriangle(r, s.x(v) - cx, s.y(v) - cy, s.x(w) - cx, s.y(w) - cy);
+        }
+        return Math.abs(sum);
+    }
+
+    // Signed area of the circle of radius r around the origin intersected with the triangle (origin, A, B)
+    static double circleTriangle(double r, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double a = dx * dx + dy * dy;
+        if (a == 0) {
+            return 0;
+        }
+        // Points of AB on the circle: |A + t (B - A)|^2 = r^2
+        double b = ax * dx + ay * dy;
+        double c = ax * ax + ay * ay - r * r;
+        double discriminant = b * b - a * c;
+        if (discriminant <= 0) {
+            return sector(r, ax, ay, bx, by);
+        }
+        double root = Math.sqrt(discriminant);
+        double t1 = Math.max(0, Math.min(1, (-b - root) / a));
+        double t2 = Math.max(0, Math.min(1, (-b + root) / a));
+        double p1x = ax + t1 * dx, p1y = ay + t1 * dy;
+        double p2x = ax + t2 * dx, p2y = ay + t2 * dy;
+        // Outside the circle the region is a sector, inside it the triangle itself
+        return sector(r, ax, ay, p1x, p1y) + 0.5 * GeometryKernels.crossProduct(p1x, p1y, p2x, p2y) + sector(r, p2x, p2y, bx, by);
+    }
+
+    private static double sector(double r, double ux, double uy, double vx, double vy) {
+        if ((ux == vx && uy == vy) || (ux == 0 && uy == 0) || (vx == 0 && vy == 0)) {
+            return 0;
+        }
+        return 0.5 * r * r * Math.atan2(GeometryKernels.crossProduct(ux, uy, vx, vy), ux * vx + uy * vy);
+    }
+
+    static double polygonPolygon(GeometryStore s, int a, int b) {
+        double signA = Math.signum(signedArea(s, a));
+        double signB = Math.signum(signedArea(s, b));
+        if (signA == 0 || signB == 0) {
+            return 0;
+        }
+        double baseline = Math.min(s.minY(a), s.minY(b));
+        Edges edgesA = Edges.of(s, a);
+        Edges edgesB = Edges.of(s, b);
+
+        // Sweep both edge lists by left end; each edge meets only the other side's edges still open
+        int[] openA = new int[edgesA.count];
+        int[] openB = new int[edgesB.count];
+        int openCountA = 0;
+        int openCountB = 0;
+        int i = 0;
+        int j = 0;
+        double sum = 0;
+        while (i < edgesA.count || j < edgesB.count) {
+            boolean takeA = j == edgesB.count || (i < edgesA.count && edgesA.left[i] <= edgesB.left[j]);
+            if (takeA) {
+                openCountB = close(edgesB, openB, openCountB, edgesA.left[i]);
+                for (int k = 0; k < openCountB; k++) {
+                    sum += underLower(edgesA, i, edgesB, openB[k], baseline);
+                }
+                openA[openCountA++] = i++;
+            } else {
+                openCountA = close(edgesA, openA, openCountA, edgesB.left[j]);
+                for (int k = 0; k < openCountA; k++) {
+                    sum += underLower(edgesA, openA[k], edgesB, j, baseline);
+                }
+                openB[openCountB++] = j++;
+            }
+        }
+        // The trapezoid sums equal -orientation times each polygon, so the signs cancel in the product
+        return Math.max(0, signA * signB * sum);
+    }
+
+    // Drops open edges ending at or before x; returns the new open count
+    private static int close(Edges edges, int[] open, int count, double x) {
+        int kept = 0;
+        for (int k = 0; k < count; k++) {
+            if (edges.right[open[k]] > x) {
+                open[kept++] = open[k];
+            }
+        }
+        return kept;
+    }
+
+    // Signed area between the baseline and the lower of edges p and q, over the x-range both cover
+    private static double underLower(Edges p, int ip, Edges q, int iq, double baseline) {
+        double lo = Math.max(p.left[ip], q.left[iq]);
+        double hi = Math.min(p.right[ip], q.right[iq]);
+        if (hi <= lo) {
+            return 0;
+        }
+        double pLo = p.yAt(ip, lo), pHi = p.yAt(ip, hi);
+        double qLo = q.yAt(iq, lo), qHi = q.yAt(iq, hi);
+        double dLo = pLo - qLo;
+        double dHi = pHi - qHi;
+        double area;
+        if ((dLo > 0 && dHi < 0) || (dLo < 0 && dHi > 0)) {
+            // The edges cross inside the range; the lower one changes there
+            double t = dLo / (dLo - dHi);
+            double xc = lo + t * (hi - lo);
+            double yc = pLo + t * (pHi - pLo);
+            area = (xc - lo) * ((Math.min(pLo, qLo) + yc) / 2 - baseline)
+                    + (hi - xc) * ((yc + Math.min(pHi, qHi)) / 2 - baseline);
+        } else {
+            area = (hi - lo) * ((Math.min(pLo, qLo) + Math.min(pHi, qHi)) / 2 - baseline);
+        }
+        return p.sign[ip] * q.sign[iq] * area;
+    }
+
+    // Shoelace formula; positive for counter-clockwise rings
+    static double signedArea(GeometryStore s, int polygon) {
+        int start = s.vertexStart(polygon);
+        int end = s.vertexEnd(polygon);
+        double sum = 0;
+        for (int v = start; v < end; v++) {
+            int w = v + 1 == end ? start : v + 1;
+            sum += GeometryKernels.crossProduct(s.x(v), s.y(v), s.x(w), s.y(w));
+        }
+        return sum / 2;
+    }
+
+    // Non-vertical edges of one polygon sorted by left end; sign is +1 where the ring runs left to right
+    private static final class Edges {
+        final int count;
+        final double[] left;
+        final double[] right;
+        final double[] yLeft;
+        final double[] yRight;
+        final double[] sign;
+
+        private Edges(int count) {
+            this.count = count;
+            left = new double[count];
+            right = new double[count];
+            yLeft = new double[count];
+            yRight = new double[count];
+            sign = new double[count];
+        }
+
+        static Edges of(GeometryStore s, int polygon) {
+            int start = s.vertexStart(polygon);
+            int end = s.vertexEnd(polygon);
+            int[] order = new int[end - start];
+            int count = 0;
+            for (int v = start; v < end; v++) {
+                int w = v + 1 == end ? start : v + 1;
+                if (s.x(v) != s.x(w)) {
+                    order[count++] = v;
+                }
+            }
+            // Sort the vertex indices by left end x, then read each edge once into the columns
+            double[] keys = new double[count];
+            Integer[] boxed = new Integer[count];
+            for (int k = 0; k < count; k++) {
+                int v = order[k];
+                int w = v + 1 == end ? start : v + 1;
+                keys[k] = Math.min(s.x(v), s.x(w));
+                boxed[k] = k;
+            }
+            Arrays.sort(boxed, (p, q) -> Double.compare(keys[p], keys[q]));
+
+            Edges edges = new Edges(count);
+            for (int k = 0; k < count; k++) {
+                int v = order[boxed[k]];
+                int w = v + 1 == end ? start : v + 1;
+                boolean rightward = s.x(v) < s.x(w);
+                int l = rightward ? v : w;
+                int r = rightward ? w : v;
+                edges.left[k] = s.x(l);
+                edges.right[k] = s.x(r);
+                edges.yLeft[k] = s.y(l);
+                edges.yRight[k] = s.y(r);
+                edges.sign[k] = rightward ? 1 : -1;
+            }
+            return edges;
+        }
+
+        double yAt(int edge, double x) {
+            if (x <= left[edge]) {
+                return yLeft[edge];
+            }
+            if (x >= right[edge]) {
+                return yRight[edge];
+            }
+            return yLeft[edge] + (yRight[edge] - yLeft[edge]) * (x - left[edge]) / (right[edge] - left[edge]);
+        }
+    }
+}
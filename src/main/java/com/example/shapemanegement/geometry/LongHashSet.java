@@ -0,0 +1,113 @@
+package com.example.shapemanegement.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive longs with open addressing and linear probing, so adding and finding keys
+ * allocates nothing (a {@code HashSet<Long>} boxes each key and adds an entry object).
+ * Keys are scrambled before probing, so structured keys such as packed index pairs still spread.
+ * Not thread-safe.
+ */
+public final class LongHashSet {
+
+    // Fill limit before the table doubles, as a fraction of its length
+    private static final double LOAD_FACTOR = 0.5;
+
+    private long[] keys;
+    private boolean[] used;
+    private int size;
+    private int limit;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) Math.ceil(expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // True if the key was not already present
+    public boolean add(long key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        used[slot] = true;
+        if (++size > limit) {
+            grow();
+        }
+        return true;
+    }
+
+    // The keys in no particular order
+    public long[] toArray() {
+        long[] result = new long[size];
+        int next = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) {
+                result[next++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    // The keys in ascending order
+    public long[] toSortedArray() {
+        long[] result = toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (oldUsed[old]) {
+                int slot = slot(oldKeys[old], mask);
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[old];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        used = new boolean[capacity];
+        limit = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // Fibonacci hashing; folding in the product's high half, which depends on every key bit, spreads keys differing only above the mask
+    private static int slot(long key, int mask) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.shapemanegement.geometry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compiled geometry held outside the Java heap, in one direct or memory-mapped buffer. The heap
+ * keeps only this object and the buffer header, so millions of shapes add nothing to GC
+ * marking or copying. The memory is released when the store becomes unreachable. Only the
+ * small {@link EdgeHierarchy} stays on the heap; a mapped store builds it on first use. The
+ * {@link ShapeTree} is also on the heap, built when the first spatial query needs it.
+ * <p>
+ * The layout is columnar, little-endian and 8-byte aligned; the same bytes are used in memory
+ * and on disk:
+ * <pre>
+ *   header     int magic, int format version, int shape count n, int vertex count v,
+ *              long data version (opaque to the store; 0 unless the writer sets one)
+ *   ids        n longs
+ *   minX minY maxX maxY centerX centerY radius    n doubles each
+ *   offsets    n + 1 ints (vertex start of each shape), padded to 8 bytes
+ *   types      n bytes, padded to 8 bytes
+ *   shapeTypes n bytes ({@link ShapeType} ordinals), padded to 8 bytes
+ *   xs ys      v doubles each
+ * </pre>
+ * Offsets are ints, so one store, and one file, holds at most {@link #MAX_BYTES} (2 GiB). At 16
+ * bytes per vertex and 70 per shape that is somewhat under 134 million vertices. Check
+ * {@link #fits} first: a larger set is rejected with an {@link IllegalArgumentException}.
+ */
+public final class OffHeapShapeStore implements GeometryStore {
+
+    static final int MAGIC = 0x53485047; // "SHPG"
+    static final int FORMAT_VERSION = 4;
+    static final int HEADER_BYTES = 24;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    public static final long MAX_BYTES = Integer.MAX_VALUE;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final long version;
+    final int idsAt;
+    final int minXAt;
+    final int minYAt;
+    final int maxXAt;
+    final int maxYAt;
+    final int centerXAt;
+    final int centerYAt;
+    final int radiusAt;
+    final int offsetsAt;
+    final int typesAt;
+    final int shapeTypesAt;
+    final int xsAt;
+    final int ysAt;
+    private final int byteSize;
+    private volatile EdgeHierarchy edges;
+    private volatile ShapeTree tree;
+
+    private OffHeapShapeStore(ByteBuffer buffer, int size, int vertexCount, long version) {
+        this.buffer = buffer;
+        this.size = size;
+        this.version = version;
+        this.idsAt = HEADER_BYTES;
+        this.minXAt = idsAt + 8 * size;
+        this.minYAt = minXAt + 8 * size;
+        this.maxXAt = minYAt + 8 * size;
+        this.maxYAt = maxXAt + 8 * size;
+        this.centerXAt = maxYAt + 8 * size;
+        this.centerYAt = centerXAt + 8 * size;
+        this.radiusAt = centerYAt + 8 * size;
+        this.offsetsAt = radiusAt + 8 * size;
+        this.typesAt = offsetsAt + align(4 * (size + 1));
+        this.shapeTypesAt = typesAt + align(size);
+        this.xsAt = shapeTypesAt + align(size);
+        this.ysAt = xsAt + 8 * vertexCount;
+        this.byteSize = ysAt + 8 * vertexCount;
+    }
+
+    // Whether the shapes fit in one buffer
+    public static boolean fits(GeometryStore shapes) {
+        return byteSize(shapes.size(), vertexCount(shapes)) <= MAX_BYTES;
+    }
+
+    // Copies the shapes into freshly allocated native memory
+    public static OffHeapShapeStore copyOf(GeometryStore shapes) {
+        int bytes = byteSize(shapes);
+        OffHeapShapeStore store = new OffHeapShapeStore(ByteBuffer.allocateDirect(bytes).order(ORDER),
+                shapes.size(), vertexCount(shapes), 0);
+        store.fill(shapes);
+        // Same indices and coordinates, so the source's hierarchy fits as is
+        store.edges = shapes.edges();
+        return store;
+    }
+
+    /**
+     * Writes the shapes and a data version to {@code file} and maps it. The bytes go to a sibling
+     * temp file that is moved into place, so a reader never maps a half-written file.
+     */
+    public static OffHeapShapeStore write(GeometryStore shapes, long version, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, byteSize(shapes));
+                new OffHeapShapeStore(mapped.order(ORDER), shapes.size(), vertexCount(shapes), version).fill(shapes);
+                mapped.force();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        OffHeapShapeStore mapped = map(file);
+        mapped.edges = shapes.edges();
+        return mapped;
+    }
+
+    // Maps a file written by write(); pages are loaded lazily by the OS on first access
+    public static OffHeapShapeStore map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES || length > MAX_BYTES) {
+                throw new IOException("Not a shape geometry file: " + file);
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length).order(ORDER);
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Not a shape geometry file: " + file);
+            }
+            int size = mapped.getInt(8);
+            int vertexCount = mapped.getInt(12);
+            if (size < 0 || vertexCount < 0 || byteSize(size, vertexCount) != length) {
+                throw new IOException("Truncated shape geometry file: " + file);
+            }
+            return new OffHeapShapeStore(mapped, size, vertexCount, mapped.getLong(16));
+        }
+    }
+
+    public int byteSize() {
+        return byteSize;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    // The whole store, for the vector kernel; positions are absolute byte offsets
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long id(int shape) {
+        return buffer.getLong(idsAt + 8 * shape);
+    }
+
+    @Override
+    public byte type(int shape) {
+        return buffer.get(typesAt + shape);
+    }
+
+    @Override
+    public ShapeType shapeType(int shape) {
+        return ShapeType.ofOrdinal(buffer.get(shapeTypesAt + shape));
+    }
+
+    @Override
+    public double minX(int shape) {
+        return buffer.getDouble(minXAt + 8 * shape);
+    }
+
+    @Override
+    public double minY(int shape) {
+        return buffer.getDouble(minYAt + 8 * shape);
+    }
+
+    @Override
+    public double maxX(int shape) {
+        return buffer.getDouble(maxXAt + 8 * shape);
+    }
+
+    @Override
+    public double maxY(int shape) {
+        return buffer.getDouble(maxYAt + 8 * shape);
+    }
+
+    @Override
+    public double centerX(int shape) {
+        return buffer.getDouble(centerXAt + 8 * shape);
+    }
+
+    @Override
+    public double centerY(int shape) {
+        return buffer.getDouble(centerYAt + 8 * shape);
+    }
+
+    @Override
+    public double radius(int shape) {
+        return buffer.getDouble(radiusAt + 8 * shape);
+    }
+
+    @Override
+    public int vertexStart(int shape) {
+        return buffer.getInt(offsetsAt + 4 * shape);
+    }
+
+    @Override
+    public int vertexEnd(int shape) {
+        return buffer.getInt(offsetsAt + 4 * (shape + 1));
+    }
+
+    @Override
+    public double x(int vertex) {
+        return buffer.getDouble(xsAt + 8 * vertex);
+    }
+
+    @Override
+    public double y(int vertex) {
+        return buffer.getDouble(ysAt + 8 * vertex);
+    }
+
+    @Override
+    public EdgeHierarchy edges() {
+        EdgeHierarchy built = edges;
+        if (built == null) {
+            // Concurrent first callers may each build one; they are identical
+            built = EdgeHierarchy.build(this);
+            edges = built;
+        }
+        return built;
+    }
+
+    @Override
+    public ShapeTree tree() {
+        ShapeTree built = tree;
+        if (built == null) {
+            built = ShapeTree.build(this);
+            tree = built;
+        }
+        return built;
+    }
+
+    private void fill(GeometryStore shapes) {
+        int vertexCount = vertexCount(shapes);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putInt(8, size);
+        buffer.putInt(12, vertexCount);
+        buffer.putLong(16, version);
+        for (int i = 0; i < size; i++) {
+            buffer.putLong(idsAt + 8 * i, shapes.id(i));
+            buffer.putDouble(minXAt + 8 * i, shapes.minX(i));
+            buffer.putDouble(minYAt + 8 * i, shapes.minY(i));
+            buffer.putDouble(maxXAt + 8 * i, shapes.maxX(i));
+            buffer.putDouble(maxYAt + 8 * i, shapes.maxY(i));
+            buffer.putDouble(centerXAt + 8 * i, shapes.centerX(i));
+            buffer.putDouble(centerYAt + 8 * i, shapes.centerY(i));
+            buffer.putDouble(radiusAt + 8 * i, shapes.radius(i));
+            buffer.put(typesAt + i, shapes.type(i));
+            buffer.put(shapeTypesAt + i, (byte) shapes.shapeType(i).ordinal());
+            buffer.putInt(offsetsAt + 4 * i, shapes.vertexStart(i));
+        }
+        buffer.putInt(offsetsAt + 4 * size, vertexCount);
+        for (int v = 0; v < vertexCount; v++) {
+            buffer.putDouble(xsAt + 8 * v, shapes.x(v));
+            buffer.putDouble(ysAt + 8 * v, shapes.y(v));
+        }
+    }
+
+    private static int vertexCount(GeometryStore shapes) {
+        return shapes.size() == 0 ? 0 : shapes.vertexEnd(shapes.size() - 1);
+    }
+
+    private static int byteSize(GeometryStore shapes) {
+        long bytes = byteSize(shapes.size(), vertexCount(shapes));
+        if (bytes > MAX_BYTES) {
+            throw new IllegalArgumentException("Shape set too large for one buffer: " + bytes + " bytes");
+        }
+        return (int) bytes;
+    }
+
+    private static long byteSize(int size, int vertexCount) {
+        return HEADER_BYTES + 8L * 8 * size + align(4L * (size + 1)) + 2 * align((long) size) + 16L * vertexCount;
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
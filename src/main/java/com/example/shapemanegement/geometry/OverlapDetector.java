@@ -0,0 +1,157 @@
+package com.example.shapemanegement.geometry;
+
+import java.util.Arrays;
+
+import static com.example.shapemanegement.geometry.ShapeSet.TYPE_CIRCLE;
+
+/**
+ * All-pairs overlap detection over compiled geometry, on or off the heap. Each shape is tested against the rest
+ * of the set by a {@link BroadPhaseKernel}: circle pairs are decided by its bounding-box and
+ * circle passes, everything else that survives the bounding-box pass goes to the exact
+ * predicates in {@link GeometryKernels}.
+ */
+public final class OverlapDetector {
+
+    // Never compared against the clock
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private OverlapDetector() {
+    }
+
+    // Ids of every shape that overlaps at least one other shape, in set order
+    public static long[] findOverlappingIds(GeometryStore shapes) {
+        return findOverlappingIds(shapes, BroadPhaseKernels.best());
+    }
+
+    public static long[] findOverlappingIds(GeometryStore shapes, BroadPhaseKernel kernel) {
+        boolean[] overlapping = new boolean[shapes.size()];
+        scan(shapes, kernel, 0, NO_DEADLINE, overlapping);
+        return collectIds(shapes, overlapping);
+    }
+
+    /**
+     * Overlapping ids from the pairs whose lower index is at least {@code from}, stopping between
+     * shapes once {@link System#nanoTime()} passes {@code deadline}. At least one shape is always
+     * done, so resuming from {@link PartialOverlaps#next()} makes progress; the ids of every run
+     * from 0 until one is complete add up to {@link #findOverlappingIds(GeometryStore)}.
+     */
+    public static PartialOverlaps findOverlappingIds(GeometryStore shapes, int from, long deadline) {
+        boolean[] overlapping = new boolean[shapes.size()];
+        int next = scan(shapes, BroadPhaseKernels.best(), from, deadline, overlapping);
+        return new PartialOverlaps(collectIds(shapes, overlapping), next, next == shapes.size());
+    }
+
+    // Ids found so far, and the index of the first shape whose pairs with higher indices are not yet tested
+    public record PartialOverlaps(long[] ids, int next, boolean complete) {
+    }
+
+    // Returns the index it stopped before; the set's size once every pair is tested
+    private static int scan(GeometryStore shapes, BroadPhaseKernel kernel, int from, long deadline, boolean[] overlapping) {
+        int n = shapes.size();
+        EdgeHierarchy edges = shapes.edges();
+        int[] candidates = new int[n];
+        int[] circleHits = new int[n];
+
+        for (int i = from; i < n; i++) {
+            if (deadline != NO_DEADLINE && i > from && System.nanoTime() - deadline > 0) {
+                return i;
+            }
+            boolean circle = shapes.type(i) == TYPE_CIRCLE;
+            int count = kernel.overlappingBoxes(shapes, i, i + 1, n, candidates);
+            if (count == 0) {
+                continue;
+            }
+            // Both kernels emit indices in ascending order, so circle pairs are a merge of the two lists
+            int hits = circle ? kernel.overlappingCircles(shapes, i, i + 1, n, circleHits) : 0;
+            int h = 0;
+
+            for (int k = 0; k < count; k++) {
+                int j = candidates[k];
+                boolean overlaps;
+                if (circle && shapes.type(j) == TYPE_CIRCLE) {
+                    while (h < hits && circleHits[h] < j) {
+                        h++;
+                    }
+                    overlaps = h < hits && circleHits[h] == j;
+                } else {
+                    overlaps = (!overlapping[i] || !overlapping[j]) && GeometryKernels.narrowPhaseOverlaps(shapes, edges, i, j);
+                }
+                if (overlaps) {
+                    overlapping[i] = true;
+                    overlapping[j] = true;
+                }
+            }
+        }
+        return n;
+    }
+
+    // Every overlapping pair (a < b), with the same passes as findOverlappingIds but no short cut for shapes already flagged
+    public static void forEachOverlappingPair(GeometryStore shapes, PairVisitor visitor) {
+        BroadPhaseKernel kernel = BroadPhaseKernels.best();
+        int n = shapes.size();
+        EdgeHierarchy edges = shapes.edges();
+        int[] candidates = new int[n];
+        int[] circleHits = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            boolean circle = shapes.type(i) == TYPE_CIRCLE;
+            int count = kernel.overlappingBoxes(shapes, i, i + 1, n, candidates);
+            if (count == 0) {
+                continue;
+            }
+            int hits = circle ? kernel.overlappingCircles(shapes, i, i + 1, n, circleHits) : 0;
+            int h = 0;
+
+            for (int k = 0; k < count; k++) {
+                int j = candidates[k];
+                boolean overlaps;
+                if (circle && shapes.type(j) == TYPE_CIRCLE) {
+                    while (h < hits && circleHits[h] < j) {
+                        h++;
+                    }
+                    overlaps = h < hits && circleHits[h] == j;
+                } else {
+                    overlaps = GeometryKernels.narrowPhaseOverlaps(shapes, edges, i, j);
+                }
+                if (overlaps) {
+                    visitor.visit(i, j);
+                }
+            }
+        }
+    }
+
+    // Ids of the other shapes in the set that overlap the shape at index target
+    public static long[] findOverlappingIds(GeometryStore shapes, int target) {
+        EdgeHierarchy edges = shapes.edges();
+        long[] ids = new long[shapes.size()];
+        int count = 0;
+        for (int j = 0; j < shapes.size(); j++) {
+            if (j != target && GeometryKernels.overlaps(shapes, edges, target, j)) {
+                ids[count++] = shapes.id(j);
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    static long[] collectIds(GeometryStore shapes, boolean[] overlapping) {
+        int count = 0;
+        for (boolean flag : overlapping) {
+            if (flag) {
+                count++;
+            }
+        }
+        long[] ids = new long[count];
+        int next = 0;
+        for (int i = 0; i < shapes.size(); i++) {
+            if (overlapping[i]) {
+                ids[next++] = shapes.id(i);
+            }
+        }
+        return ids;
+    }
+
+    @FunctionalInterface
+    public interface PairVisitor {
+        void visit(int a, int b);
+    }
+}
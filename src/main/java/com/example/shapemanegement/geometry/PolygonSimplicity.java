@@ -0,0 +1,232 @@
+package com.example.shapemanegement.geometry;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * Checks that a polygon ring is simple: no two edges meet except consecutive edges at their
+ * shared vertex. Bow-ties, rings that revisit a vertex and spikes that fold an edge back onto the
+ * previous one all fail, since point-in-polygon results inside them depend on where the ray
+ * happens to go.
+ * <p>
+ * Shamos–Hoey sweep: edges enter a status ordered bottom to top at their left end and leave at
+ * their right end, and each edge is only tested against its neighbours in the status when it
+ * enters, and the two edges that become neighbours when one leaves. A ring without an
+ * intersection costs O(n log n); the sweep stops at the first intersection it meets. Repeated
+ * consecutive vertices (including a closing vertex equal to the first) form empty edges, which
+ * are skipped.
+ * <p>
+ * As in {@link SweepLineOverlapDetector}, the status is ordered by orientation tests only, so the
+ * result is exact while coordinates stay below 2^26.
+ */
+public final class PolygonSimplicity {
+
+    private PolygonSimplicity() {
+    }
+
+    // Two edges of a ring that meet; edge i runs from vertex i to vertex i + 1, the last one back to vertex 0
+    public record EdgePair(int first, int second) {
+    }
+
+    // The first intersecting pair the sweep finds in the flat [x0, y0, x1, y1, ...] ring, or null if it is simple
+    public static EdgePair findSelfIntersection(double[] xy) {
+        return new Sweep(xy).run();
+    }
+
+    private static final class Sweep {
+        private final int count;
+        // Ring edge of each non-empty edge, in ring order
+        private final int[] ringEdge;
+        // Left end (smaller x, then smaller y) and right end of each non-empty edge
+        private final double[] x1;
+        private final double[] y1;
+        private final double[] x2;
+        private final double[] y2;
+        private final TreeSet<Integer> status = new TreeSet<>(this::compare);
+
+        Sweep(double[] xy) {
+            int n = xy.length / 2;
+            ringEdge = new int[n];
+            x1 = new double[n];
+            y1 = new double[n];
+            x2 = new double[n];
+            y2 = new double[n];
+            int e = 0;
+            for (int v = 0; v < n; v++) {
+                int w = v + 1 == n ? 0 : v + 1;
+                double vx = xy[2 * v];
+                double vy = xy[2 * v + 1];
+                double wx = xy[2 * w];
+                double wy = xy[2 * w + 1];
+                if (vx == wx && vy == wy) {
+                    continue;
+                }
+                boolean forward = comparePoints(vx, vy, wx, wy) < 0;
+                ringEdge[e] = v;
+                x1[e] = forward ? vx : wx;
+                y1[e] = forward ? vy : wy;
+                x2[e] = forward ? wx : vx;
+                y2[e] = forward ? wy : vy;
+                e++;
+            }
+            count = e;
+        }
+
+        EdgePair run() {
+            // Two edges enclose nothing: the ring runs out along one segment and back
+            if (count == 2) {
+                return new EdgePair(ringEdge[0], ringEdge[1]);
+            }
+            if (count < 2) {
+                return null;
+            }
+            int[] events = events();
+            for (int event : events) {
+                int edge = event >> 1;
+                EdgePair found = (event & 1) == 0 ? insert(edge) : remove(edge);
+                if (found != null) {
+                    return found;
+                }
+            }
+            return null;
+        }
+
+        // Event 2e starts edge e and 2e + 1 ends it; at one point starts come first, so edges meeting there are tested
+        private int[] events() {
+            Integer[] events = new Integer[2 * count];
+            for (int e = 0; e < count; e++) {
+                events[2 * e] = 2 * e;
+                events[2 * e + 1] = 2 * e + 1;
+            }
+            Arrays.sort(events, (p, q) -> {
+                int order = comparePoints(eventX(p), eventY(p), eventX(q), eventY(q));
+                return order != 0 ? order : Integer.compare(p & 1, q & 1);
+            });
+            int[] sorted = new int[events.length];
+            for (int k = 0; k < events.length; k++) {
+                sorted[k] = events[k];
+            }
+            return sorted;
+        }
+
+        private double eventX(int event) {
+            return (event & 1) == 0 ? x1[event >> 1] : x2[event >> 1];
+        }
+
+        private double eventY(int event) {
+            return (event & 1) == 0 ? y1[event >> 1] : y2[event >> 1];
+        }
+
+        private EdgePair insert(int edge) {
+            status.add(edge);
+            EdgePair found = check(status.lower(edge), edge);
+            return found != null ? found : check(edge, status.higher(edge));
+        }
+
+        private EdgePair remove(int edge) {
+            Integer below = status.lower(edge);
+            Integer above = status.higher(edge);
+            status.remove(edge);
+            return check(below, above);
+        }
+
+        private EdgePair check(Integer p, Integer q) {
+            if (p == null || q == null) {
+                return null;
+            }
+            int a = Math.min(p, q);
+            int b = Math.max(p, q);
+            boolean meet;
+            if (b == a + 1) {
+                meet = foldsBack(a, b);
+            } else if (a == 0 && b == count - 1) {
+                meet = foldsBack(b, a);
+            } else {
+                meet = intersect(a, b);
+            }
+            return meet ? new EdgePair(ringEdge[a], ringEdge[b]) : null;
+        }
+
+        // Consecutive edges share one vertex; they meet anywhere else only if the second turns back along the first
+        private boolean foldsBack(int before, int after) {
+            double px = sharedX(before, after);
+            double py = sharedY(before, after);
+            double ax = otherX(before, px, py);
+            double ay = otherY(before, px, py);
+            double bx = otherX(after, px, py);
+            double by = otherY(after, px, py);
+            return GeometryKernels.crossProduct(ax - px, ay - py, bx - px, by - py) == 0
+                    && (ax - px) * (bx - px) + (ay - py) * (by - py) > 0;
+        }
+
+        private double sharedX(int a, int b) {
+            return x1[a] == x1[b] && y1[a] == y1[b] || x1[a] == x2[b] && y1[a] == y2[b] ? x1[a] : x2[a];
+        }
+
+        private double sharedY(int a, int b) {
+            return x1[a] == x1[b] && y1[a] == y1[b] || x1[a] == x2[b] && y1[a] == y2[b] ? y1[a] : y2[a];
+        }
+
+        private double otherX(int edge, double px, double py) {
+            return x1[edge] == px && y1[edge] == py ? x2[edge] : x1[edge];
+        }
+
+        private double otherY(int edge, double px, double py) {
+            return x1[edge] == px && y1[edge] == py ? y2[edge] : y1[edge];
+        }
+
+        // Closed segments: touching and collinear overlap count
+        private boolean intersect(int a, int b) {
+            double d1 = side(a, x1[b], y1[b]);
+            double d2 = side(a, x2[b], y2[b]);
+            double d3 = side(b, x1[a], y1[a]);
+            double d4 = side(b, x2[a], y2[a]);
+            if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) {
+                return true;
+            }
+            return d1 == 0 && onSegment(a, x1[b], y1[b])
+                    || d2 == 0 && onSegment(a, x2[b], y2[b])
+                    || d3 == 0 && onSegment(b, x1[a], y1[a])
+                    || d4 == 0 && onSegment(b, x2[a], y2[a]);
+        }
+
+        // For a point on the line through the edge: whether it lies between the ends
+        private boolean onSegment(int edge, double px, double py) {
+            return comparePoints(x1[edge], y1[edge], px, py) <= 0 && comparePoints(px, py, x2[edge], y2[edge]) <= 0;
+        }
+
+        // Bottom-to-top order of two edges crossed by the sweep line; the later-starting edge's left end,
+        // or if that lies on the other edge its right end, decides
+        private int compare(Integer p, Integer q) {
+            int a = p;
+            int b = q;
+            if (a == b) {
+                return 0;
+            }
+            boolean aFirst = comparePoints(x1[a], y1[a], x1[b], y1[b]) <= 0;
+            int first = aFirst ? a : b;
+            int second = aFirst ? b : a;
+            double side = side(first, x1[second], y1[second]);
+            if (side == 0) {
+                side = side(first, x2[second], y2[second]);
+            }
+            int order;
+            if (side != 0) {
+                order = side > 0 ? -1 : 1;
+            } else {
+                order = Integer.compare(first, second);
+            }
+            return aFirst ? order : -order;
+        }
+
+        // Positive when (px, py) lies above the line through the edge
+        private double side(int edge, double px, double py) {
+            return GeometryKernels.crossProduct(x2[edge] - x1[edge], y2[edge] - y1[edge], px - x1[edge], py - y1[edge]);
+        }
+
+        private static int comparePoints(double ax, double ay, double bx, double by) {
+            int order = Double.compare(ax, bx);
+            return order != 0 ? order : Double.compare(ay, by);
+        }
+    }
+}
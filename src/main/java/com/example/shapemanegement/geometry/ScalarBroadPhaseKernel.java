@@ -0,0 +1,36 @@
+package com.example.shapemanegement.geometry;
+
+// Plain loop implementation; the reference for the vector kernel and the fallback when it is unavailable
+public final class ScalarBroadPhaseKernel implements BroadPhaseKernel {
+
+    @Override
+    public int overlappingBoxes(GeometryStore s, int i, int from, int to, int[] out) {
+        double aMinX = s.minX(i), aMinY = s.minY(i), aMaxX = s.maxX(i), aMaxY = s.maxY(i);
+        int count = 0;
+        for (int j = from; j < to; j++) {
+            if (!(aMaxX < s.minX(j) || s.maxX(j) < aMinX || aMaxY < s.minY(j) || s.maxY(j) < aMinY)) {
+                out[count++] = j;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int overlappingCircles(GeometryStore s, int i, int from, int to, int[] out) {
+        double cx = s.centerX(i), cy = s.centerY(i), r = s.radius(i);
+        int count = 0;
+        for (int j = from; j < to; j++) {
+            double dx = cx - s.centerX(j);
+            double dy = cy - s.centerY(j);
+            if (Math.sqrt(dx * dx + dy * dy) < r + s.radius(j)) {
+                out[count++] = j;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
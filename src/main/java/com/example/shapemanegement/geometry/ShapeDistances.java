@@ -0,0 +1,67 @@
+package com.example.shapemanegement.geometry;
+
+import static com.example.shapemanegement.geometry.ShapeSet.TYPE_CIRCLE;
+
+/**
+ * Exact distances between shapes, and from a point to a shape, in a {@link GeometryStore}.
+ * Shapes that overlap, or a point inside a shape, are at distance 0; otherwise the distance is
+ * between the nearest points of the outlines, from {@link GeometryKernels#distanceFromPointToLineSegment}
+ * for polygon edges.
+ */
+public final class ShapeDistances {
+
+    private ShapeDistances() {
+    }
+
+    public static double pointDistance(GeometryStore s, EdgeHierarchy edges, int shape, double px, double py) {
+        if (s.type(shape) == TYPE_CIRCLE) {
+            double dx = px - s.centerX(shape);
+            double dy = py - s.centerY(shape);
+            return Math.max(0, Math.sqrt(dx * dx + dy * dy) - s.radius(shape));
+        }
+        if (GeometryKernels.contains(s, edges, shape, px, py)) {
+            return 0;
+        }
+        return edgeDistance(s, shape, px, py);
+    }
+
+    public static double distance(GeometryStore s, EdgeHierarchy edges, int a, int b) {
+        if (GeometryKernels.overlaps(s, edges, a, b)) {
+            return 0;
+        }
+        boolean circleA = s.type(a) == TYPE_CIRCLE;
+        boolean circleB = s.type(b) == TYPE_CIRCLE;
+        if (circleA && circleB) {
+            double dx = s.centerX(a) - s.centerX(b);
+            double dy = s.centerY(a) - s.centerY(b);
+            return Math.max(0, Math.sqrt(dx * dx + dy * dy) - s.radius(a) - s.radius(b));
+        }
+        if (circleA || circleB) {
+            int circle = circleA ? a : b;
+            int polygon = circleA ? b : a;
+            // Not overlapping, so the center is outside the polygon
+            return Math.max(0, edgeDistance(s, polygon, s.centerX(circle), s.centerY(circle)) - s.radius(circle));
+        }
+        // Disjoint polygons are nearest at a vertex of one of them
+        double nearest = Double.POSITIVE_INFINITY;
+        for (int v = s.vertexStart(a); v < s.vertexEnd(a); v++) {
+            nearest = Math.min(nearest, edgeDistance(s, b, s.x(v), s.y(v)));
+        }
+        for (int v = s.vertexStart(b); v < s.vertexEnd(b); v++) {
+            nearest = Math.min(nearest, edgeDistance(s, a, s.x(v), s.y(v)));
+        }
+        return nearest;
+    }
+
+    // Distance from (px, py) to the nearest edge of the polygon
+    private static double edgeDistance(GeometryStore s, int polygon, double px, double py) {
+        int start = s.vertexStart(polygon);
+        int end = s.vertexEnd(polygon);
+        double nearest = Double.POSITIVE_INFINITY;
+        for (int v = start; v < end; v++) {
+            int w = v + 1 == end ? start : v + 1;
+            nearest = Math.min(nearest, GeometryKernels.distanceFromPointToLineSegment(px, py, s.x(v), s.y(v), s.x(w), s.y(w)));
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.shapemanegement.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Compiled geometry for a set of shapes, stored as parallel primitive arrays.
+ * <p>
+ * Shape {@code i} has id {@code ids[i]}, type code {@code types[i]}, {@link ShapeType} ordinal
+ * {@code shapeTypes[i]} and bounding box
+ * {@code minX[i]..maxX[i], minY[i]..maxY[i]}. Circles use {@code centerX/centerY/radius};
+ * polygon vertices live in {@code xs/ys} at indices {@code offsets[i]} (inclusive) to
+ * {@code offsets[i + 1]} (exclusive). The arrays are exposed directly so the vector kernel can
+ * load them lane by lane; treat them as read-only. Everything else reads through the
+ * {@link GeometryStore} accessors.
+ */
+public final class ShapeSet implements GeometryStore {
+
+    public static final byte TYPE_CIRCLE = 1;
+    public static final byte TYPE_POLYGON = 2;
+
+    public final int size;
+    public final long[] ids;
+    public final byte[] types;
+    public final byte[] shapeTypes;
+    public final double[] minX;
+    public final double[] minY;
+    public final double[] maxX;
+    public final double[] maxY;
+    public final double[] centerX;
+    public final double[] centerY;
+    public final double[] radius;
+    public final int[] offsets;
+    public final double[] xs;
+    public final double[] ys;
+    private final EdgeHierarchy edges;
+    private volatile ShapeTree tree;
+
+    private ShapeSet(Builder builder) {
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.types = Arrays.copyOf(builder.types, size);
+        this.shapeTypes = Arrays.copyOf(builder.shapeTypes, size);
+        this.minX = Arrays.copyOf(builder.minX, size);
+        this.minY = Arrays.copyOf(builder.minY, size);
+        this.maxX = Arrays.copyOf(builder.maxX, size);
+        this.maxY = Arrays.copyOf(builder.maxY, size);
+        this.centerX = Arrays.copyOf(builder.centerX, size);
+        this.centerY = Arrays.copyOf(builder.centerY, size);
+        this.radius = Arrays.copyOf(builder.radius, size);
+        this.offsets = Arrays.copyOf(builder.offsets, size + 1);
+        this.xs = Arrays.copyOf(builder.xs, builder.vertexCount);
+        this.ys = Arrays.copyOf(builder.ys, builder.vertexCount);
+        this.edges = EdgeHierarchy.build(this);
+    }
+
+    public static Builder builder(int expectedShapes) {
+        return new Builder(expectedShapes);
+    }
+
+    public int vertexCount(int shape) {
+        return offsets[shape + 1] - offsets[shape];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long id(int shape) {
+        return ids[shape];
+    }
+
+    @Override
+    public byte type(int shape) {
+        return types[shape];
+    }
+
+    @Override
+    public ShapeType shapeType(int shape) {
+        return ShapeType.ofOrdinal(shapeTypes[shape]);
+    }
+
+    @Override
+    public double minX(int shape) {
+        return minX[shape];
+    }
+
+    @Override
+    public double minY(int shape) {
+        return minY[shape];
+    }
+
+    @Override
+    public double maxX(int shape) {
+        return maxX[shape];
+    }
+
+    @Override
+    public double maxY(int shape) {
+        return maxY[shape];
+    }
+
+    @Override
+    public double centerX(int shape) {
+        return centerX[shape];
+    }
+
+    @Override
+    public double centerY(int shape) {
+        return centerY[shape];
+    }
+
+    @Override
+    public double radius(int shape) {
+        return radius[shape];
+    }
+
+    @Override
+    public int vertexStart(int shape) {
+        return offsets[shape];
+    }
+
+    @Override
+    public int vertexEnd(int shape) {
+        return offsets[shape + 1];
+    }
+
+    @Override
+    public double x(int vertex) {
+        return xs[vertex];
+    }
+
+    @Override
+    public double y(int vertex) {
+        return ys[vertex];
+    }
+
+    @Override
+    public EdgeHierarchy edges() {
+        return edges;
+    }
+
+    @Override
+    public ShapeTree tree() {
+        ShapeTree built = tree;
+        if (built == null) {
+            // Only spatial queries need it, so sets compiled for a single overlap check never pay for it
+            built = ShapeTree.build(this);
+            tree = built;
+        }
+        return built;
+    }
+
+    public static final class Builder {
+        private int size;
+        private int vertexCount;
+        private long[] ids;
+        private byte[] types;
+        private byte[] shapeTypes;
+        private double[] minX;
+        private double[] minY;
+        private double[] maxX;
+        private double[] maxY;
+        private double[] centerX;
+        private double[] centerY;
+        private double[] radius;
+        private int[] offsets;
+        private double[] xs;
+        private double[] ys;
+
+        private Builder(int expectedShapes) {
+            int capacity = Math.max(expectedShapes, 4);
+            ids = new long[capacity];
+            types = new byte[capacity];
+            shapeTypes = new byte[capacity];
+            minX = new double[capacity];
+            minY = new double[capacity];
+            maxX = new double[capacity];
+            maxY = new double[capacity];
+            centerX = new double[capacity];
+            centerY = new double[capacity];
+            radius = new double[capacity];
+            offsets = new int[capacity + 1];
+            xs = new double[capacity * 4];
+            ys = new double[capacity * 4];
+        }
+
+        /**
+         * Adds one shape. Circles need center and radius; every other type is read from the
+         * coordinate string, which must be valid for {@link CoordinateParser}.
+         *
+         * @return the index of the shape in the built set
+         */
+        public int add(long id, ShapeType type, String coordinates, Double cx, Double cy, Double r) {
+            ensureShapeCapacity();
+            int index = size;
+            byte typeCode = type.code();
+            ids[index] = id;
+            types[index] = typeCode;
+            shapeTypes[index] = (byte) type.ordinal();
+
+            if (typeCode == TYPE_CIRCLE) {
+                centerX[index] = cx;
+                centerY[index] = cy;
+                radius[index] = r;
+                minX[index] = cx - r;
+                minY[index] = cy - r;
+                maxX[index] = cx + r;
+                maxY[index] = cy + r;
+            } else {
+                double[] xy = CoordinateParser.parse(coordinates);
+                int points = xy.length / 2;
+                ensureVertexCapacity(points);
+                double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY;
+                double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+                for (int p = 0; p < points; p++) {
+                    double x = xy[2 * p];
+                    double y = xy[2 * p + 1];
+                    xs[vertexCount + p] = x;
+                    ys[vertexCount + p] = y;
+                    loX = Math.min(loX, x);
+                    loY = Math.min(loY, y);
+                    hiX = Math.max(hiX, x);
+                    hiY = Math.max(hiY, y);
+                }
+                vertexCount += points;
+                centerX[index] = Double.NaN;
+                centerY[index] = Double.NaN;
+                radius[index] = Double.NaN;
+                minX[index] = loX;
+                minY[index] = loY;
+                maxX[index] = hiX;
+                maxY[index] = hiY;
+            }
+            size++;
+            offsets[size] = vertexCount;
+            return index;
+        }
+
+        // Copies one already compiled shape, without parsing it again
+        public int add(GeometryStore source, int shape) {
+            ensureShapeCapacity();
+            int index = size;
+            ids[index] = source.id(shape);
+            types[index] = source.type(shape);
+            shapeTypes[index] = (byte) source.shapeType(shape).ordinal();
+            minX[index] = source.minX(shape);
+            minY[index] = source.minY(shape);
+            maxX[index] = source.maxX(shape);
+            maxY[index] = source.maxY(shape);
+            centerX[index] = source.centerX(shape);
+            centerY[index] = source.centerY(shape);
+            radius[index] = source.radius(shape);
+            int start = source.vertexStart(shape);
+            int end = source.vertexEnd(shape);
+            ensureVertexCapacity(end - start);
+            for (int v = start; v < end; v++) {
+                xs[vertexCount] = source.x(v);
+                ys[vertexCount] = source.y(v);
+                vertexCount++;
+            }
+            size++;
+            offsets[size] = vertexCount;
+            return index;
+        }
+
+        public ShapeSet build() {
+            return new ShapeSet(this);
+        }
+
+        private void ensureShapeCapacity() {
+            if (size < ids.length) {
+                return;
+            }
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            types = Arrays.copyOf(types, capacity);
+            shapeTypes = Arrays.copyOf(shapeTypes, capacity);
+            minX = Arrays.copyOf(minX, capacity);
+            minY = Arrays.copyOf(minY, capacity);
+            maxX = Arrays.copyOf(maxX, capacity);
+            maxY = Arrays.copyOf(maxY, capacity);
+            centerX = Arrays.copyOf(centerX, capacity);
+            centerY = Arrays.copyOf(centerY, capacity);
+            radius = Arrays.copyOf(radius, capacity);
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+        }
+
+        private void ensureVertexCapacity(int additional) {
+            if (vertexCount + additional <= xs.length) {
+                return;
+            }
+            int capacity = Math.max(xs.length * 2, vertexCount + additional);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+        }
+    }
+}
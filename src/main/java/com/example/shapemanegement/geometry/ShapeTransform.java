@@ -0,0 +1,51 @@
+package com.example.shapemanegement.geometry;
+
+/**
+ * Affine transform of the plane in SVG/canvas matrix order {@code [a, b, c, d, e, f]}:
+ * {@code x' = a*x + c*y + e}, {@code y' = b*x + d*y + f}. Translation, scaling, rotation and
+ * shearing are all of this form, and so is any composition of them.
+ */
+public record ShapeTransform(double a, double b, double c, double d, double e, double f) {
+
+    // Relative tolerance when deciding whether the linear part is a uniform scale with rotation or reflection
+    private static final double SIMILARITY_TOLERANCE = 1e-9;
+
+    public double determinant() {
+        return a * d - b * c;
+    }
+
+    /**
+     * True if the transform maps every circle onto a circle: rotation, reflection, uniform scaling
+     * and translation, in any combination. Shears and unequal scales turn circles into ellipses.
+     */
+    public boolean isSimilarity() {
+        double tolerance = SIMILARITY_TOLERANCE * Math.max(1, Math.abs(a) + Math.abs(b) + Math.abs(c) + Math.abs(d));
+        boolean rotation = Math.abs(a - d) <= tolerance && Math.abs(b + c) <= tolerance;
+        boolean reflection = Math.abs(a + d) <= tolerance && Math.abs(b - c) <= tolerance;
+        return rotation || reflection;
+    }
+
+    // Factor by which a similarity scales lengths, and so radii
+    public double scale() {
+        return Math.sqrt(Math.abs(determinant()));
+    }
+
+    public double x(double x, double y) {
+        return a * x + c * y + e;
+    }
+
+    public double y(double x, double y) {
+        return b * x + d * y + f;
+    }
+
+    // Transforms a flat [x0, y0, x1, y1, ...] array in place and returns it
+    public double[] apply(double[] xy) {
+        for (int i = 0; i < xy.length; i += 2) {
+            double x = xy[i];
+            double y = xy[i + 1];
+            xy[i] = x(x, y);
+            xy[i + 1] = y(x, y);
+        }
+        return xy;
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.shapemanegement.geometry;
+
+import java.util.Arrays;
+
+/**
+ * R-trees over the bounding boxes of every shape in a {@link GeometryStore}, for nearest-neighbour
+ * and within-distance queries and for box queries such as map tiles.
+ * <p>
+ * Shapes are first split into size classes by the power of two of their larger box side, with
+ * one tree per class. A zoomed-out box query then skips every class smaller than it cares about
+ * without touching it; mixed in one tree, a few large shapes would inflate every node they share
+ * with small ones.
+ * <p>
+ * Each tree is packed by sort-tile-recursive splitting, top down: a node's shapes are sorted by
+ * box center x and cut into vertical slices, each slice is sorted by center y and cut into
+ * children of equal capacity, so siblings are compact and barely overlap. Each node owns a
+ * contiguous range of the shape order; nodes are stored in preorder with {@code skip[node]} the
+ * first node after its subtree, as in {@link EdgeHierarchy}.
+ * <p>
+ * Distance queries are best-first: nodes and shapes wait in one priority queue keyed by their
+ * distance from the query, a bounding-box lower bound for nodes and the exact
+ * {@link ShapeDistances} value for shapes. Shapes therefore come out in ascending distance order,
+ * and the search stops as soon as the caller has enough of them.
+ */
+public final class ShapeTree {
+
+    static final int NODE_CAPACITY = 16;
+
+    // Visits one result; returning false ends the search
+    @FunctionalInterface
+    public interface HitVisitor {
+        boolean visit(int shape, double distance);
+    }
+
+    @FunctionalInterface
+    public interface ShapeVisitor {
+        void visit(int shape);
+    }
+
+    // Shape indices; node i owns order[first[i]] (inclusive) to order[last[i]] (exclusive)
+    private final int[] order;
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] maxX;
+    private final double[] maxY;
+    private final int[] first;
+    private final int[] last;
+    private final int[] skip;
+    private int nodes;
+    // Root node of each size class, and a bound every shape in the class is smaller than
+    private int[] roots = new int[0];
+    private double[] classExtent = new double[0];
+
+    private ShapeTree(int shapes) {
+        // Leaves are never empty and inner nodes have at least two children
+        int capacity = Math.max(1, 2 * shapes);
+        this.order = new int[shapes];
+        this.minX = new double[capacity];
+        this.minY = new double[capacity];
+        this.maxX = new double[capacity];
+        this.maxY = new double[capacity];
+        this.first = new int[capacity];
+        this.last = new int[capacity];
+        this.skip = new int[capacity];
+    }
+
+    public static ShapeTree build(GeometryStore s) {
+        int n = s.size();
+        ShapeTree tree = new ShapeTree(n);
+        if (n == 0) {
+            return tree;
+        }
+        long[] scratch = new long[n];
+        for (int i = 0; i < n; i++) {
+            scratch[i] = (long) sizeClass(s, i) << 32 | i;
+        }
+        Arrays.sort(scratch);
+        for (int k = 0; k < n; k++) {
+            tree.order[k] = (int) scratch[k];
+        }
+
+        int[] rankX = ranks(s, true);
+        int[] rankY = ranks(s, false);
+        int[] roots = new int[n];
+        double[] classExtent = new double[n];
+        int classes = 0;
+        int lo = 0;
+        while (lo < n) {
+            int sizeClass = sizeClass(s, tree.order[lo]);
+            int hi = lo + 1;
+            while (hi < n && sizeClass(s, tree.order[hi]) == sizeClass) {
+                hi++;
+            }
+            roots[classes] = tree.nodes;
+            classExtent[classes++] = Math.scalb(1.0, sizeClass - Double.MAX_EXPONENT + 1);
+            tree.fill(s, lo, hi, rankX, rankY, scratch);
+            lo = hi;
+        }
+        tree.roots = Arrays.copyOf(roots, classes);
+        tree.classExtent = Arrays.copyOf(classExtent, classes);
+        return tree;
+    }
+
+    public int nodeCount() {
+        return nodes;
+    }
+
+    public int sizeClassCount() {
+        return roots.length;
+    }
+
+    // Every shape in ascending distance from (px, py), until the visitor stops
+    public void nearest(GeometryStore s, double px, double py, HitVisitor visitor) {
+        search(s, -1, px, py, px, py, Double.POSITIVE_INFINITY, visitor);
+    }
+
+    // Every other shape no further than distance from shape, in ascending distance, until the visitor stops
+    public void within(GeometryStore s, int shape, double distance, HitVisitor visitor) {
+        search(s, shape, s.minX(shape), s.minY(shape), s.maxX(shape), s.maxY(shape), distance, visitor);
+    }
+
+    /**
+     * Every shape whose bounding box intersects the box and is at least minExtent wide or high.
+     * Smaller shapes are skipped a whole subtree at a time, since a node no larger than that
+     * holds only smaller shapes.
+     */
+    public void intersecting(GeometryStore s, double loX, double loY, double hiX, double hiY,
+                             double minExtent, ShapeVisitor visitor) {
+        for (int c = 0; c < roots.length; c++) {
+            if (classExtent[c] <= minExtent) {
+                continue;
+            }
+            intersecting(s, roots[c], loX, loY, hiX, hiY, minExtent, visitor);
+        }
+    }
+
+    private void intersecting(GeometryStore s, int root, double loX, double loY, double hiX, double hiY,
+                              double minExtent, ShapeVisitor visitor) {
+        int node = root;
+        int end = skip[root];
+        while (node < end) {
+            if (maxX[node] < loX || hiX < minX[node] || maxY[node] < loY || hiY < minY[node]
+                    || Math.max(maxX[node] - minX[node], maxY[node] - minY[node]) < minExtent) {
+                node = skip[node];
+                continue;
+            }
+            if (skip[node] == node + 1) {
+                for (int k = first[node]; k < last[node]; k++) {
+                    int shape = order[k];
+                    if (s.maxX(shape) >= loX && hiX >= s.minX(shape) && s.maxY(shape) >= loY && hiY >= s.minY(shape)
+                            && Math.max(s.maxX(shape) - s.minX(shape), s.maxY(shape) - s.minY(shape)) >= minExtent) {
+                        visitor.visit(shape);
+                    }
+                }
+            }
+            node++;
+        }
+    }
+
+    // With target -1 the query is the point (loX, loY); otherwise the box is the target shape's
+    private void search(GeometryStore s, int target, double loX, double loY, double hiX, double hiY,
+                        double limit, HitVisitor visitor) {
+        EdgeHierarchy edges = s.edges();
+        Queue queue = new Queue();
+        for (int root : roots) {
+            double bound = boxDistance(minX[root], minY[root], maxX[root], maxY[root], loX, loY, hiX, hiY);
+            if (bound <= limit) {
+                queue.push(bound, root);
+            }
+        }
+        while (queue.size > 0) {
+            double key = queue.peekKey();
+            int item = queue.pop();
+            if (item < 0) {
+                if (!visitor.visit(~item, key)) {
+                    return;
+                }
+                continue;
+            }
+            if (skip[item] == item + 1) {
+                for (int k = first[item]; k < last[item]; k++) {
+                    int shape = order[k];
+                    if (shape == target
+                            || boxDistance(s.minX(shape), s.minY(shape), s.maxX(shape), s.maxY(shape), loX, loY, hiX, hiY) > limit) {
+                        continue;
+                    }
+                    double distance = target < 0
+                            ? ShapeDistances.pointDistance(s, edges, shape, loX, loY)
+                            : ShapeDistances.distance(s, edges, target, shape);
+                    if (distance <= limit) {
+                        queue.push(distance, ~shape);
+                    }
+                }
+                continue;
+            }
+            for (int child = item + 1; child < skip[item]; child = skip[child]) {
+                double bound = boxDistance(minX[child], minY[child], maxX[child], maxY[child], loX, loY, hiX, hiY);
+                if (bound <= limit) {
+                    queue.push(bound, child);
+                }
+            }
+        }
+    }
+
+    // Writes the subtree for order[lo, hi) at the next free node
+    private void fill(GeometryStore s, int lo, int hi, int[] rankX, int[] rankY, long[] scratch) {
+        int node = nodes++;
+        first[node] = lo;
+        last[node] = hi;
+        int count = hi - lo;
+        if (count <= NODE_CAPACITY) {
+            double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY;
+            double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+            for (int k = lo; k < hi; k++) {
+                int shape = order[k];
+                loX = Math.min(loX, s.minX(shape));
+                loY = Math.min(loY, s.minY(shape));
+                hiX = Math.max(hiX, s.maxX(shape));
+                hiY = Math.max(hiY, s.maxY(shape));
+            }
+            setBox(node, loX, loY, hiX, hiY);
+            skip[node] = node + 1;
+            return;
+        }
+
+        // Capacity of a full child subtree one level down, and the slices that cover the children
+        int childCapacity = NODE_CAPACITY;
+        while ((long) childCapacity * NODE_CAPACITY < count) {
+            childCapacity *= NODE_CAPACITY;
+        }
+        int children = (count + childCapacity - 1) / childCapacity;
+        int slices = (int) Math.ceil(Math.sqrt(children));
+        int sliceSize = childCapacity * ((children + slices - 1) / slices);
+
+        sort(lo, hi, rankX, scratch);
+        for (int sliceLo = lo; sliceLo < hi; sliceLo += sliceSize) {
+            int sliceHi = Math.min(hi, sliceLo + sliceSize);
+            sort(sliceLo, sliceHi, rankY, scratch);
+            for (int childLo = sliceLo; childLo < sliceHi; childLo += childCapacity) {
+                fill(s, childLo, Math.min(sliceHi, childLo + childCapacity), rankX, rankY, scratch);
+            }
+        }
+
+        double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY;
+        double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+        for (int child = node + 1; child < nodes; child = skip[child]) {
+            loX = Math.min(loX, minX[child]);
+            loY = Math.min(loY, minY[child]);
+            hiX = Math.max(hiX, maxX[child]);
+            hiY = Math.max(hiY, maxY[child]);
+        }
+        setBox(node, loX, loY, hiX, hiY);
+        skip[node] = nodes;
+    }
+
+    // Biased exponent of the larger box side: class c holds extents below 2^(c - 1022), and 0 holds empty boxes
+    private static int sizeClass(GeometryStore s, int shape) {
+        double extent = Math.max(s.maxX(shape) - s.minX(shape), s.maxY(shape) - s.minY(shape));
+        return Math.getExponent(extent) + Double.MAX_EXPONENT;
+    }
+
+    // Sorts order[lo, hi) by rank; rank and index share one long so the sort stays primitive
+    private void sort(int lo, int hi, int[] rank, long[] scratch) {
+        for (int k = lo; k < hi; k++) {
+            scratch[k] = (long) rank[order[k]] << 32 | order[k];
+        }
+        Arrays.sort(scratch, lo, hi);
+        for (int k = lo; k < hi; k++) {
+            order[k] = (int) scratch[k];
+        }
+    }
+
+    // Position of each shape when all are sorted by box center x (or y)
+    private static int[] ranks(GeometryStore s, boolean x) {
+        int n = s.size();
+        Integer[] sorted = new Integer[n];
+        double[] centers = new double[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = i;
+            centers[i] = x ? s.minX(i) + s.maxX(i) : s.minY(i) + s.maxY(i);
+        }
+        Arrays.sort(sorted, (a, b) -> Double.compare(centers[a], centers[b]));
+        int[] rank = new int[n];
+        for (int k = 0; k < n; k++) {
+            rank[sorted[k]] = k;
+        }
+        return rank;
+    }
+
+    // Gap between two boxes, 0 when they intersect; a lower bound on the distance of anything inside them
+    private static double boxDistance(double aLoX, double aLoY, double aHiX, double aHiY,
+                                      double bLoX, double bLoY, double bHiX, double bHiY) {
+        double dx = Math.max(0, Math.max(aLoX - bHiX, bLoX - aHiX));
+        double dy = Math.max(0, Math.max(aLoY - bHiY, bLoY - aHiY));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private void setBox(int node, double loX, double loY, double hiX, double hiY) {
+        minX[node] = loX;
+        minY[node] = loY;
+        maxX[node] = hiX;
+        maxY[node] = hiY;
+    }
+
+    // Binary min-heap of (distance, item); items are node indices, or ~shape for shapes
+    private static final class Queue {
+        private double[] keys = new double[64];
+        private int[] items = new int[64];
+        private int size;
+
+        void push(double key, int item) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int k = size++;
+            while (k > 0) {
+                int parent = (k - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[k] = keys[parent];
+                items[k] = items[parent];
+                k = parent;
+            }
+            keys[k] = key;
+            items[k] = item;
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        int pop() {
+            int top = items[0];
+            double key = keys[--size];
+            int item = items[size];
+            int k = 0;
+            while (true) {
+                int child = 2 * k + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                keys[k] = keys[child];
+                items[k] = items[child];
+                k = child;
+            }
+            keys[k] = key;
+            items[k] = item;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.shapemanegement.geometry;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * The kinds of shape the API accepts. Each carries the type code the compiled geometry stores,
+ * so a type name is resolved once, when a row is read, and the kernels only ever compare bytes.
+ * Names are lowercase in JSON and in the {@code shapes.type} column.
+ */
+public enum ShapeType {
+
+    CIRCLE("circle", ShapeSet.TYPE_CIRCLE),
+    TRIANGLE("triangle", ShapeSet.TYPE_POLYGON),
+    RECTANGLE("rectangle", ShapeSet.TYPE_POLYGON),
+    POLYGON("polygon", ShapeSet.TYPE_POLYGON);
+
+    private static final ShapeType[] VALUES = values();
+
+    private final String value;
+    private final byte code;
+
+    ShapeType(String value, byte code) {
+        this.value = value;
+        this.code = code;
+    }
+
+    @JsonValue
+    public String value() {
+        return value;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    // Compiled stores keep the ordinal, so new types go last
+    public static ShapeType ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    public boolean isCircle() {
+        return code == ShapeSet.TYPE_CIRCLE;
+    }
+
+    // Ignores case, as rows written before the enum may; null for names that are not a shape type
+    @JsonCreator
+    public static ShapeType fromValue(String value) {
+        for (ShapeType type : VALUES) {
+            if (type.value.equalsIgnoreCase(value)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.shapemanegement.geometry;
+
+/**
+ * Douglas–Peucker simplification of polygon rings in a {@link GeometryStore}. The ring is cut at
+ * its first vertex and the vertex farthest from it, and each chain keeps only the vertices that
+ * lie more than the tolerance from the line through its kept neighbours.
+ */
+public final class Simplifier {
+
+    private Simplifier() {
+    }
+
+    /**
+     * Vertex indices of the polygon's ring that survive at the given tolerance, in ring order.
+     * Returns every vertex when the ring would collapse below a triangle.
+     */
+    public static int[] simplifyRing(GeometryStore s, int polygon, double tolerance) {
+        int start = s.vertexStart(polygon);
+        int n = s.vertexEnd(polygon) - start;
+        if (n <= 3 || !(tolerance > 0)) {
+            return allVertices(start, n);
+        }
+
+        int far = 0;
+        double farthest = -1;
+        for (int v = 1; v < n; v++) {
+            double dx = s.x(start + v) - s.x(start);
+            double dy = s.y(start + v) - s.y(start);
+            double d = dx * dx + dy * dy;
+            if (d > farthest) {
+                farthest = d;
+                far = v;
+            }
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[far] = true;
+        // Pending chains as (from, to) pairs of ring positions; position n is vertex 0 again
+        int[] stack = new int[2 * n + 4];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = far;
+        stack[top++] = far;
+        stack[top++] = n;
+        while (top > 0) {
+            int to = stack[--top];
+            int from = stack[--top];
+            double x1 = s.x(start + from);
+            double y1 = s.y(start + from);
+            double x2 = s.x(start + to % n);
+            double y2 = s.y(start + to % n);
+            int split = -1;
+            double worst = tolerance;
+            for (int v = from + 1; v < to; v++) {
+                double d = GeometryKernels.distanceFromPointToLineSegment(s.x(start + v), s.y(start + v), x1, y1, x2, y2);
+                if (d > worst) {
+                    worst = d;
+                    split = v;
+                }
+            }
+            if (split >= 0) {
+                keep[split] = true;
+                stack[top++] = from;
+                stack[top++] = split;
+                stack[top++] = split;
+                stack[top++] = to;
+            }
+        }
+
+        int kept = 0;
+        for (boolean k : keep) {
+            if (k) {
+                kept++;
+            }
+        }
+        if (kept < 3) {
+            return allVertices(start, n);
+        }
+        int[] vertices = new int[kept];
+        int next = 0;
+        for (int v = 0; v < n; v++) {
+            if (keep[v]) {
+                vertices[next++] = start + v;
+            }
+        }
+        return vertices;
+    }
+
+    private static int[] allVertices(int start, int n) {
+        int[] vertices = new int[n];
+        for (int v = 0; v < n; v++) {
+            vertices[v] = start + v;
+        }
+        return vertices;
+    }
+}
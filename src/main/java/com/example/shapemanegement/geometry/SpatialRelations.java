@@ -0,0 +1,109 @@
+package com.example.shapemanegement.geometry;
+
+import static com.example.shapemanegement.geometry.ShapeSet.TYPE_CIRCLE;
+
+/**
+ * Containment tests between shapes, and between a shape and a point, in a {@link GeometryStore}.
+ * A shape contains another when no part of the other lies outside it; the outlines may touch.
+ * Points on an outline, within a small tolerance for rounding, count as inside.
+ * <p>
+ * A polygon contains a polygon when every vertex and every edge midpoint of the inner one is
+ * inside or on the outer one, no edges cross properly, and no vertex of the outer one lies
+ * strictly inside the inner one. The midpoints catch an inner edge that leaves through two
+ * vertices of the outer outline; the outer vertices catch an outline that dents into the inner
+ * polygon between its vertices.
+ */
+public final class SpatialRelations {
+
+    // Distance at which a point still counts as on an outline, absorbing rounding in the distance math
+    private static final double TOLERANCE = 1e-9;
+
+    private SpatialRelations() {
+    }
+
+    // Whether no part of shape inner lies outside shape outer; edges is s.edges()
+    public static boolean contains(GeometryStore s, EdgeHierarchy edges, int outer, int inner) {
+        if (s.minX(inner) < s.minX(outer) - TOLERANCE || s.maxX(inner) > s.maxX(outer) + TOLERANCE
+                || s.minY(inner) < s.minY(outer) - TOLERANCE || s.maxY(inner) > s.maxY(outer) + TOLERANCE) {
+            return false;
+        }
+        boolean circleOuter = s.type(outer) == TYPE_CIRCLE;
+        boolean circleInner = s.type(inner) == TYPE_CIRCLE;
+        if (circleOuter && circleInner) {
+            double dx = s.centerX(inner) - s.centerX(outer);
+            double dy = s.centerY(inner) - s.centerY(outer);
+            return Math.sqrt(dx * dx + dy * dy) + s.radius(inner) <= s.radius(outer) + TOLERANCE;
+        }
+        if (circleOuter) {
+            // The disk is convex, so it holds the polygon once it holds every vertex
+            for (int v = s.vertexStart(inner); v < s.vertexEnd(inner); v++) {
+                if (!containsPoint(s, edges, outer, s.x(v), s.y(v))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (circleInner) {
+            double cx = s.centerX(inner);
+            double cy = s.centerY(inner);
+            return GeometryKernels.contains(s, edges, outer, cx, cy)
+                    && !anyEdgeWithin(s, edges, outer, cx, cy, s.radius(inner) - TOLERANCE);
+        }
+        return polygonContainsPolygon(s, edges, outer, inner);
+    }
+
+    public static boolean containsPoint(GeometryStore s, EdgeHierarchy edges, int shape, double px, double py) {
+        if (s.type(shape) == TYPE_CIRCLE) {
+            double dx = px - s.centerX(shape);
+            double dy = py - s.centerY(shape);
+            return Math.sqrt(dx * dx + dy * dy) <= s.radius(shape) + TOLERANCE;
+        }
+        return GeometryKernels.contains(s, edges, shape, px, py) || anyEdgeWithin(s, edges, shape, px, py, TOLERANCE);
+    }
+
+    private static boolean polygonContainsPolygon(GeometryStore s, EdgeHierarchy edges, int outer, int inner) {
+        int start = s.vertexStart(inner);
+        int end = s.vertexEnd(inner);
+        for (int v = start; v < end; v++) {
+            if (!containsPoint(s, edges, outer, s.x(v), s.y(v))) {
+                return false;
+            }
+        }
+        for (int v = start; v < end; v++) {
+            int w = v + 1 == end ? start : v + 1;
+            if (!containsPoint(s, edges, outer, (s.x(v) + s.x(w)) / 2, (s.y(v) + s.y(w)) / 2)) {
+                return false;
+            }
+        }
+        boolean crossing = edges.indexes(outer) || edges.indexes(inner)
+                ? edges.edgesIntersect(s, outer, inner)
+                : GeometryKernels.edgesCross(s, outer, inner);
+        if (crossing) {
+            return false;
+        }
+        for (int v = s.vertexStart(outer); v < s.vertexEnd(outer); v++) {
+            double px = s.x(v);
+            double py = s.y(v);
+            if (GeometryKernels.contains(s, edges, inner, px, py) && !anyEdgeWithin(s, edges, inner, px, py, TOLERANCE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether any edge of the polygon passes closer than r to (px, py)
+    private static boolean anyEdgeWithin(GeometryStore s, EdgeHierarchy edges, int polygon, double px, double py, double r) {
+        if (edges.indexes(polygon)) {
+            return edges.anyEdgeWithin(s, polygon, px, py, r);
+        }
+        int start = s.vertexStart(polygon);
+        int end = s.vertexEnd(polygon);
+        for (int v = start; v < end; v++) {
+            int w = v + 1 == end ? start : v + 1;
+            if (GeometryKernels.distanceFromPointToLineSegment(px, py, s.x(v), s.y(v), s.x(w), s.y(w)) < r) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
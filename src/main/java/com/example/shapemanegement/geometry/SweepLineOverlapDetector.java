@@ -0,0 +1,398 @@
+package com.example.shapemanegement.geometry;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import static com.example.shapemanegement.geometry.ShapeSet.TYPE_CIRCLE;
+
+/**
+ * All-pairs overlap detection by one plane sweep over the edges of every polygon, instead of
+ * testing the edges of each bounding-box pair against each other. Suited to scenes of long-edged
+ * polygons, whose boxes overlap far more often than their edges cross.
+ * <ul>
+ *   <li>Edge crossings: a Bentley–Ottmann sweep from left to right. The sweep line's status
+ *   holds the edges it crosses, bottom to top; edges are tested when they become neighbours and
+ *   trade places at their crossing, so every properly crossing pair is found in
+ *   O((N + K) log N) for N edges and K crossings. Vertical edges are not kept in the status; each
+ *   is checked against the status edges between its ends when the sweep reaches it.</li>
+ *   <li>Containment: a polygon with no crossing edge overlaps another only if one lies inside the
+ *   other, so one vertex of a polygon is located among the shapes whose boxes hold it.</li>
+ *   <li>Circles: each circle is tested against the shapes whose boxes meet its own, found through
+ *   the {@link ShapeTree}.</li>
+ * </ul>
+ * The status is ordered by orientation tests only (which side of one edge the other's end
+ * lies), never by y interpolated at the sweep position, so it is exact while coordinates stay
+ * below 2^26. Shapes that only touch, with no interior in common, can be classed differently
+ * than by {@link OverlapDetector}: there the answer for a vertex exactly on the other outline
+ * depends on which vertex it is.
+ */
+public final class SweepLineOverlapDetector {
+
+    private SweepLineOverlapDetector() {
+    }
+
+    // Ids of every shape that overlaps at least one other shape, in set order
+    public static long[] findOverlappingIds(GeometryStore shapes) {
+        boolean[] overlapping = new boolean[shapes.size()];
+        new Sweep(shapes, overlapping).run();
+        findContainment(shapes, overlapping);
+        findCircleOverlaps(shapes, overlapping);
+        return OverlapDetector.collectIds(shapes, overlapping);
+    }
+
+    /**
+     * A polygon inside another with no edges crossing has every vertex inside it, so its first
+     * vertex decides. Only pairs with a shape not yet flagged can change the result: a polygon
+     * not yet flagged looks for polygons around its vertex, then one still not flagged looks for
+     * polygons whose vertex lies inside it.
+     */
+    private static void findContainment(GeometryStore shapes, boolean[] overlapping) {
+        EdgeHierarchy edges = shapes.edges();
+        ShapeTree tree = shapes.tree();
+        for (int p = 0; p < shapes.size(); p++) {
+            if (overlapping[p] || !isPolygon(shapes, p)) {
+                continue;
+            }
+            int inner = p;
+            double px = shapes.x(shapes.vertexStart(p));
+            double py = shapes.y(shapes.vertexStart(p));
+            tree.intersecting(shapes, px, py, px, py, 0, outer -> {
+                if (outer != inner && isPolygon(shapes, outer) && GeometryKernels.contains(shapes, edges, outer, px, py)) {
+                    overlapping[inner] = true;
+                    overlapping[outer] = true;
+                }
+            });
+        }
+        for (int q = 0; q < shapes.size(); q++) {
+            if (overlapping[q] || !isPolygon(shapes, q)) {
+                continue;
+            }
+            int outer = q;
+            tree.intersecting(shapes, shapes.minX(q), shapes.minY(q), shapes.maxX(q), shapes.maxY(q), 0, inner -> {
+                if (inner != outer && isPolygon(shapes, inner) && GeometryKernels.contains(shapes, edges, outer,
+                        shapes.x(shapes.vertexStart(inner)), shapes.y(shapes.vertexStart(inner)))) {
+                    overlapping[inner] = true;
+                    overlapping[outer] = true;
+                }
+            });
+        }
+    }
+
+    private static boolean isPolygon(GeometryStore shapes, int shape) {
+        return shapes.type(shape) != TYPE_CIRCLE && shapes.vertexStart(shape) < shapes.vertexEnd(shape);
+    }
+
+    private static void findCircleOverlaps(GeometryStore shapes, boolean[] overlapping) {
+        EdgeHierarchy edges = shapes.edges();
+        ShapeTree tree = shapes.tree();
+        for (int c = 0; c < shapes.size(); c++) {
+            if (shapes.type(c) != TYPE_CIRCLE) {
+                continue;
+            }
+            int circle = c;
+            tree.intersecting(shapes, shapes.minX(c), shapes.minY(c), shapes.maxX(c), shapes.maxY(c), 0, other -> {
+                // Circle pairs are tested once, from the lower index
+                boolean tested = other == circle || (shapes.type(other) == TYPE_CIRCLE && other < circle);
+                if (!tested && (!overlapping[circle] || !overlapping[other])
+                        && GeometryKernels.narrowPhaseOverlaps(shapes, edges, circle, other)) {
+                    overlapping[circle] = true;
+                    overlapping[other] = true;
+                }
+            });
+        }
+    }
+
+    private record Crossing(double x, double y, int a, int b) {
+    }
+
+    /**
+     * One sweep over the polygon edges. Edge {@code e} runs from its left end
+     * {@code (x1[e], y1[e])} to its right end {@code (x2[e], y2[e])}, left meaning smaller x, then
+     * smaller y. Two indices past the last edge stand for the ends of the vertical edge being
+     * checked, so the status can be searched by point.
+     */
+    private static final class Sweep {
+        private final boolean[] overlapping;
+        private final int count;
+        private final double[] x1;
+        private final double[] y1;
+        private final double[] x2;
+        private final double[] y2;
+        private final int[] owner;
+        private final int low;
+        private final int high;
+        private final TreeSet<Integer> status = new TreeSet<>(this::compare);
+        private final PriorityQueue<Crossing> crossings = new PriorityQueue<>(
+                (p, q) -> comparePoints(p.x(), p.y(), q.x(), q.y()));
+        // Pairs that have traded places; swaps[e] counts them per edge so most comparisons skip the lookup
+        private final LongHashSet swapped = new LongHashSet();
+        private final int[] swaps;
+        private double sweepX;
+        private double sweepY;
+        // The vertical edge whose ends the probe indices stand for
+        private int vertical;
+
+        Sweep(GeometryStore s, boolean[] overlapping) {
+            this.overlapping = overlapping;
+            int edges = 0;
+            for (int i = 0; i < s.size(); i++) {
+                edges += s.vertexEnd(i) - s.vertexStart(i);
+            }
+            double[] ax = new double[edges + 2];
+            double[] ay = new double[edges + 2];
+            double[] bx = new double[edges + 2];
+            double[] by = new double[edges + 2];
+            int[] owners = new int[edges];
+            int e = 0;
+            for (int i = 0; i < s.size(); i++) {
+                int start = s.vertexStart(i);
+                int end = s.vertexEnd(i);
+                for (int v = start; v < end; v++) {
+                    int w = v + 1 == end ? start : v + 1;
+                    if (s.x(v) == s.x(w) && s.y(v) == s.y(w)) {
+                        continue;
+                    }
+                    boolean forward = s.x(v) < s.x(w) || (s.x(v) == s.x(w) && s.y(v) < s.y(w));
+                    int l = forward ? v : w;
+                    int r = forward ? w : v;
+                    ax[e] = s.x(l);
+                    ay[e] = s.y(l);
+                    bx[e] = s.x(r);
+                    by[e] = s.y(r);
+                    owners[e++] = i;
+                }
+            }
+            this.count = e;
+            this.low = e;
+            this.high = e + 1;
+            this.x1 = ax;
+            this.y1 = ay;
+            this.x2 = bx;
+            this.y2 = by;
+            this.owner = owners;
+            this.swaps = new int[e];
+        }
+
+        void run() {
+            int[] events = endpointEvents();
+            int next = 0;
+            while (next < events.length || !crossings.isEmpty()) {
+                Crossing crossing = crossings.peek();
+                if (crossing != null && (next == events.length
+                        || comparePoints(crossing.x(), crossing.y(), eventX(events[next]), eventY(events[next])) <= 0)) {
+                    crossings.poll();
+                    sweepX = crossing.x();
+                    sweepY = crossing.y();
+                    swap(crossing.a(), crossing.b());
+                    continue;
+                }
+                int event = events[next++];
+                int edge = event >> 1;
+                sweepX = eventX(event);
+                sweepY = eventY(event);
+                if (x1[edge] == x2[edge]) {
+                    checkVertical(edge);
+                } else if ((event & 1) == 0) {
+                    remove(edge);
+                } else {
+                    insert(edge);
+                }
+            }
+        }
+
+        // Event 2e + 1 starts edge e at its left end and 2e ends it at its right end; vertical edges only start
+        private int[] endpointEvents() {
+            int verticals = 0;
+            for (int e = 0; e < count; e++) {
+                if (x1[e] == x2[e]) {
+                    verticals++;
+                }
+            }
+            Integer[] events = new Integer[2 * count - verticals];
+            int n = 0;
+            for (int e = 0; e < count; e++) {
+                events[n++] = 2 * e + 1;
+                if (x1[e] != x2[e]) {
+                    events[n++] = 2 * e;
+                }
+            }
+            // At one point, ends before starts, so edges meeting end to end are never neighbours
+            Arrays.sort(events, (p, q) -> {
+                int order = comparePoints(eventX(p), eventY(p), eventX(q), eventY(q));
+                return order != 0 ? order : Integer.compare(p & 1, q & 1);
+            });
+            int[] sorted = new int[events.length];
+            for (int k = 0; k < events.length; k++) {
+                sorted[k] = events[k];
+            }
+            return sorted;
+        }
+
+        private double eventX(int event) {
+            return (event & 1) == 1 ? x1[event >> 1] : x2[event >> 1];
+        }
+
+        private double eventY(int event) {
+            return (event & 1) == 1 ? y1[event >> 1] : y2[event >> 1];
+        }
+
+        private void insert(int edge) {
+            status.add(edge);
+            Integer below = status.lower(edge);
+            Integer above = status.higher(edge);
+            check(below, edge);
+            check(edge, above);
+        }
+
+        private void remove(int edge) {
+            Integer below = status.lower(edge);
+            Integer above = status.higher(edge);
+            status.remove(edge);
+            check(below, above);
+        }
+
+        // Crossing edges trade places; an event for a pair that is no longer adjacent is dropped and raised again when it is
+        private void swap(int a, int b) {
+            if (isSwapped(a, b)) {
+                return;
+            }
+            Integer aboveA = status.higher(a);
+            int lower;
+            int upper;
+            if (aboveA != null && aboveA == b) {
+                lower = a;
+                upper = b;
+            } else {
+                Integer aboveB = status.higher(b);
+                if (aboveB == null || aboveB != a) {
+                    return;
+                }
+                lower = b;
+                upper = a;
+            }
+            status.remove(lower);
+            status.remove(upper);
+            swapped.add(pairKey(a, b));
+            swaps[a]++;
+            swaps[b]++;
+            status.add(lower);
+            status.add(upper);
+            check(status.lower(upper), upper);
+            check(lower, status.higher(lower));
+        }
+
+        private void check(Integer below, Integer above) {
+            if (below == null || above == null || isSwapped(below, above)) {
+                return;
+            }
+            int a = below;
+            int b = above;
+            if (!crosses(a, b)) {
+                return;
+            }
+            flag(a, b);
+            double dx = x2[a] - x1[a];
+            double dy = y2[a] - y1[a];
+            double t = GeometryKernels.crossProduct(x1[b] - x1[a], y1[b] - y1[a], x2[b] - x1[b], y2[b] - y1[b])
+                    / GeometryKernels.crossProduct(dx, dy, x2[b] - x1[b], y2[b] - y1[b]);
+            double x = x1[a] + t * dx;
+            double y = y1[a] + t * dy;
+            // Rounding can put the crossing a hair behind the sweep; then it is handled next
+            if (comparePoints(x, y, sweepX, sweepY) < 0) {
+                x = sweepX;
+                y = sweepY;
+            }
+            crossings.add(new Crossing(x, y, a, b));
+        }
+
+        // Every status edge strictly between the vertical edge's ends is a candidate crossing
+        private void checkVertical(int edge) {
+            vertical = edge;
+            for (int other : status.subSet(low, false, high, false)) {
+                if (GeometryKernels.lineSegmentsIntersect(x1[edge], y1[edge], x2[edge], y2[edge],
+                        x1[other], y1[other], x2[other], y2[other])) {
+                    flag(edge, other);
+                }
+            }
+        }
+
+        private void flag(int a, int b) {
+            if (owner[a] != owner[b]) {
+                overlapping[owner[a]] = true;
+                overlapping[owner[b]] = true;
+            }
+        }
+
+        // Only edges that properly cross can have traded places, and that test is cheaper than the lookup
+        private boolean isSwapped(int a, int b) {
+            return swaps[a] > 0 && swaps[b] > 0 && crosses(a, b) && swapped.contains(pairKey(a, b));
+        }
+
+        private boolean crosses(int a, int b) {
+            return GeometryKernels.lineSegmentsIntersect(x1[a], y1[a], x2[a], y2[a], x1[b], y1[b], x2[b], y2[b]);
+        }
+
+        // Bottom-to-top order of two edges, or of an edge and one end of the vertical edge being checked
+        private int compare(Integer p, Integer q) {
+            int a = p;
+            int b = q;
+            if (a == b) {
+                return 0;
+            }
+            if (a >= low && b >= low) {
+                return a == low ? -1 : 1;
+            }
+            if (a >= low) {
+                return compareEnd(a, b);
+            }
+            if (b >= low) {
+                return -compareEnd(b, a);
+            }
+            int order = compareUncrossed(a, b);
+            return isSwapped(a, b) ? -order : order;
+        }
+
+        // An end of the vertical edge against a status edge; an edge through an end counts as outside the range
+        private int compareEnd(int end, int edge) {
+            double y = end == low ? y1[vertical] : y2[vertical];
+            double side = side(edge, sweepX, y);
+            if (side != 0) {
+                return side > 0 ? 1 : -1;
+            }
+            return end == low ? 1 : -1;
+        }
+
+        // The later-starting edge's left end, or if that lies on the other edge its right end, decides
+        private int compareUncrossed(int a, int b) {
+            boolean aFirst = comparePoints(x1[a], y1[a], x1[b], y1[b]) <= 0;
+            int first = aFirst ? a : b;
+            int second = aFirst ? b : a;
+            double side = side(first, x1[second], y1[second]);
+            if (side == 0) {
+                side = side(first, x2[second], y2[second]);
+            }
+            int order;
+            if (side != 0) {
+                order = side > 0 ? -1 : 1;
+            } else {
+                order = Integer.compare(first, second);
+            }
+            return aFirst ? order : -order;
+        }
+
+        // Positive when (px, py) lies above the line through the edge
+        private double side(int edge, double px, double py) {
+            return GeometryKernels.crossProduct(x2[edge] - x1[edge], y2[edge] - y1[edge], px - x1[edge], py - y1[edge]);
+        }
+
+        private static long pairKey(int a, int b) {
+            return a < b ? (long) a << 32 | b : (long) b << 32 | a;
+        }
+
+        private static int comparePoints(double ax, double ay, double bx, double by) {
+            int order = Double.compare(ax, bx);
+            return order != 0 ? order : Double.compare(ay, by);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.shapemanegement.geometry;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SIMD implementation on the incubating Vector API. Compares one shape against
+ * {@code SPECIES.length()} packed shapes per step and gives exactly the scalar results:
+ * the same comparisons, in the same order, on the same IEEE doubles. Lanes are loaded straight
+ * from the {@link ShapeSet} arrays or the {@link OffHeapShapeStore} buffer.
+ * <p>
+ * Only load this class through {@link BroadPhaseKernels}, which checks that the
+ * {@code jdk.incubator.vector} module is present first.
+ */
+final class VectorBroadPhaseKernel implements BroadPhaseKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public int overlappingBoxes(GeometryStore s, int i, int from, int to, int[] out) {
+        if (s instanceof ShapeSet shapes) {
+            return overlappingBoxes(shapes, i, from, to, out);
+        }
+        return overlappingBoxes((OffHeapShapeStore) s, i, from, to, out);
+    }
+
+    @Override
+    public int overlappingCircles(GeometryStore s, int i, int from, int to, int[] out) {
+        if (s instanceof ShapeSet shapes) {
+            return overlappingCircles(shapes, i, from, to, out);
+        }
+        return overlappingCircles((OffHeapShapeStore) s, i, from, to, out);
+    }
+
+    private int overlappingBoxes(ShapeSet s, int i, int from, int to, int[] out) {
+        DoubleVector vMinX = DoubleVector.broadcast(SPECIES, s.minX[i]);
+        DoubleVector vMinY = DoubleVector.broadcast(SPECIES, s.minY[i]);
+        DoubleVector vMaxX = DoubleVector.broadcast(SPECIES, s.maxX[i]);
+        DoubleVector vMaxY = DoubleVector.broadcast(SPECIES, s.maxY[i]);
+
+        int count = 0;
+        int j = from;
+        int upper = from + SPECIES.loopBound(to - from);
+        for (; j < upper; j += SPECIES.length()) {
+            VectorMask<Double> rejected = vMaxX.compare(VectorOperators.LT, DoubleVector.fromArray(SPECIES, s.minX, j))
+                    .or(DoubleVector.fromArray(SPECIES, s.maxX, j).compare(VectorOperators.LT, vMinX))
+                    .or(vMaxY.compare(VectorOperators.LT, DoubleVector.fromArray(SPECIES, s.minY, j)))
+                    .or(DoubleVector.fromArray(SPECIES, s.maxY, j).compare(VectorOperators.LT, vMinY));
+            count = writeLanes(rejected.not(), j, out, count);
+        }
+        return boxTail(s, i, j, to, out, count);
+    }
+
+    private int overlappingBoxes(OffHeapShapeStore s, int i, int from, int to, int[] out) {
+        ByteBuffer buffer = s.buffer();
+        DoubleVector vMinX = DoubleVector.broadcast(SPECIES, s.minX(i));
+        DoubleVector vMinY = DoubleVector.broadcast(SPECIES, s.minY(i));
+        DoubleVector vMaxX = DoubleVector.broadcast(SPECIES, s.maxX(i));
+        DoubleVector vMaxY = DoubleVector.broadcast(SPECIES, s.maxY(i));
+
+        int count = 0;
+        int j = from;
+        int upper = from + SPECIES.loopBound(to - from);
+        for (; j < upper; j += SPECIES.length()) {
+            int lane = 8 * j;
+            VectorMask<Double> rejected = vMaxX.compare(VectorOperators.LT, load(buffer, s.minXAt + lane))
+                    .or(load(buffer, s.maxXAt + lane).compare(VectorOperators.LT, vMinX))
+                    .or(vMaxY.compare(VectorOperators.LT, load(buffer, s.minYAt + lane)))
+                    .or(load(buffer, s.maxYAt + lane).compare(VectorOperators.LT, vMinY));
+            count = writeLanes(rejected.not(), j, out, count);
+        }
+        return boxTail(s, i, j, to, out, count);
+    }
+
+    private int overlappingCircles(ShapeSet s, int i, int from, int to, int[] out) {
+        DoubleVector vCx = DoubleVector.broadcast(SPECIES, s.centerX[i]);
+        DoubleVector vCy = DoubleVector.broadcast(SPECIES, s.centerY[i]);
+        DoubleVector vR = DoubleVector.broadcast(SPECIES, s.radius[i]);
+
+        int count = 0;
+        int j = from;
+        int upper = from + SPECIES.loopBound(to - from);
+        for (; j < upper; j += SPECIES.length()) {
+            DoubleVector dx = vCx.sub(DoubleVector.fromArray(SPECIES, s.centerX, j));
+            DoubleVector dy = vCy.sub(DoubleVector.fromArray(SPECIES, s.centerY, j));
+            DoubleVector distance = dx.mul(dx).add(dy.mul(dy)).lanewise(VectorOperators.SQRT);
+            DoubleVector radiusSum = vR.add(DoubleVector.fromArray(SPECIES, s.radius, j));
+            count = writeLanes(distance.compare(VectorOperators.LT, radiusSum), j, out, count);
+        }
+        return circleTail(s, i, j, to, out, count);
+    }
+
+    private int overlappingCircles(OffHeapShapeStore s, int i, int from, int to, int[] out) {
+        ByteBuffer buffer = s.buffer();
+        DoubleVector vCx = DoubleVector.broadcast(SPECIES, s.centerX(i));
+        DoubleVector vCy = DoubleVector.broadcast(SPECIES, s.centerY(i));
+        DoubleVector vR = DoubleVector.broadcast(SPECIES, s.radius(i));
+
+        int count = 0;
+        int j = from;
+        int upper = from + SPECIES.loopBound(to - from);
+        for (; j < upper; j += SPECIES.length()) {
+            int lane = 8 * j;
+            DoubleVector dx = vCx.sub(load(buffer, s.centerXAt + lane));
+            DoubleVector dy = vCy.sub(load(buffer, s.centerYAt + lane));
+            DoubleVector distance = dx.mul(dx).add(dy.mul(dy)).lanewise(VectorOperators.SQRT);
+            DoubleVector radiusSum = vR.add(load(buffer, s.radiusAt + lane));
+            count = writeLanes(distance.compare(VectorOperators.LT, radiusSum), j, out, count);
+        }
+        return circleTail(s, i, j, to, out, count);
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + SPECIES.length() + "x64";
+    }
+
+    private static DoubleVector load(ByteBuffer buffer, int byteOffset) {
+        return DoubleVector.fromByteBuffer(SPECIES, buffer, byteOffset, OffHeapShapeStore.ORDER);
+    }
+
+    // The last to - j < SPECIES.length() shapes, with the scalar comparisons
+    private static int boxTail(GeometryStore s, int i, int j, int to, int[] out, int count) {
+        double aMinX = s.minX(i), aMinY = s.minY(i), aMaxX = s.maxX(i), aMaxY = s.maxY(i);
+        for (; j < to; j++) {
+            if (!(aMaxX < s.minX(j) || s.maxX(j) < aMinX || aMaxY < s.minY(j) || s.maxY(j) < aMinY)) {
+                out[count++] = j;
+            }
+        }
+        return count;
+    }
+
+    private static int circleTail(GeometryStore s, int i, int j, int to, int[] out, int count) {
+        double cx = s.centerX(i), cy = s.centerY(i), r = s.radius(i);
+        for (; j < to; j++) {
+            double dx = cx - s.centerX(j);
+            double dy = cy - s.centerY(j);
+            if (Math.sqrt(dx * dx + dy * dy) < r + s.radius(j)) {
+                out[count++] = j;
+            }
+        }
+        return count;
+    }
+
+    private static int writeLanes(VectorMask<Double> hits, int base, int[] out, int count) {
+        long bits = hits.toLong();
+        while (bits != 0) {
+            out[count++] = base + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.shapemanegement.repository;
+
+import com.example.shapemanegement.entity.ChangeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ChangeSequenceRepository extends JpaRepository<ChangeSequence, String> {
+
+    // Takes the row lock for the rest of the transaction; returns 0 when the counter does not exist yet
+    @Modifying
+    @Query("UPDATE ChangeSequence c SET c.current = c.current + 1 WHERE c.name = :name")
+    int increment(@Param("name") String name);
+
+    // As increment, reserving count numbers at once
+    @Modifying
+    @Query("UPDATE ChangeSequence c SET c.current = c.current + :count WHERE c.name = :name")
+    int incrementBy(@Param("name") String name, @Param("count") long count);
+
+    @Query("SELECT c.current FROM ChangeSequence c WHERE c.name = :name")
+    Optional<Long> findCurrent(@Param("name") String name);
+}
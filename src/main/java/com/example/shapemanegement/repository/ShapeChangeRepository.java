@@ -0,0 +1,24 @@
+package com.example.shapemanegement.repository;
+
+import com.example.shapemanegement.entity.ShapeChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ShapeChangeRepository extends JpaRepository<ShapeChange, Long> {
+
+    @Modifying
+    @Query("DELETE FROM ShapeChange c WHERE c.seq <= :seq")
+    int deleteThrough(@Param("seq") Long seq);
+
+    List<ShapeChange> findByCanvasIdAndSeqGreaterThanOrderBySeq(Long canvasId, Long seq, Limit limit);
+
+    @Query("SELECT DISTINCT c.shapeId FROM ShapeChange c WHERE c.canvasId = :canvasId AND c.seq > :seq ORDER BY c.shapeId")
+    List<Long> findShapeIdsChangedAfter(@Param("canvasId") Long canvasId, @Param("seq") Long seq);
+}
@@ -0,0 +1,10 @@
+package com.example.shapemanegement.repository;
+
+import com.example.shapemanegement.entity.Shape;
+
+import java.util.Optional;
+
+// Lookups by shape name that go through Hibernate's natural-id cache instead of a query
+public interface ShapeNaturalIdRepository {
+    Optional<Shape> findByName(long canvasId, String name);
+}
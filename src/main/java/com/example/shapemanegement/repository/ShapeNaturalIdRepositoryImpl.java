@@ -0,0 +1,27 @@
+package com.example.shapemanegement.repository;
+
+import com.example.shapemanegement.entity.Shape;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Transactional(readOnly = true)
+public class ShapeNaturalIdRepositoryImpl implements ShapeNaturalIdRepository {
+
+    private final EntityManager entityManager;
+
+    public ShapeNaturalIdRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Optional<Shape> findByName(long canvasId, String name) {
+        return entityManager.unwrap(Session.class)
+                .byNaturalId(Shape.class)
+                .using("canvasId", canvasId)
+                .using("name", name)
+                .loadOptional();
+    }
+}
@@ -1,16 +1,78 @@
 package com.example.shapemanegement.repository;
 
+import com.example.shapemanegement.dto.projection.ShapeGeometryDto;
+import com.example.shapemanegement.dto.response.ShapeResponseDto;
 import com.example.shapemanegement.entity.Shape;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ShapeRepository  extends JpaRepository<Shape,Long> {
-    Optional<Shape> findByName(String name);
+public interface ShapeRepository  extends JpaRepository<Shape,Long>, ShapeNaturalIdRepository {
 
-    boolean existsByName(String name);
+    // Rows saved before the bounding-box columns existed, one page in id order
+    @Query("SELECT new com.example.shapemanegement.dto.response.ShapeResponseDto(" +
+            "s.id, s.name, s.type, s.coordinates, s.centerX, s.centerY, s.radius, s.version, s.canvasId) FROM Shape s " +
+            "WHERE s.minX IS NULL AND s.id > :id ORDER BY s.id")
+    List<ShapeResponseDto> findResponsesWithoutBoundingBoxAfter(@Param("id") Long id, Limit limit);
 
-    boolean existsByNameAndIdNot(String name, Long id);
+    @Query("SELECT MAX(s.id) FROM Shape s")
+    Optional<Long> findMaxId();
+
+    // --- Projections: rows are read straight into DTOs, nothing enters the persistence context ---
+
+    @Query("SELECT new com.example.shapemanegement.dto.response.ShapeResponseDto(" +
+            "s.id, s.name, s.type, s.coordinates, s.centerX, s.centerY, s.radius, s.version, s.canvasId) FROM Shape s " +
+            "WHERE s.canvasId = :canvasId ORDER BY s.id")
+    List<ShapeResponseDto> findResponsesByCanvasId(@Param("canvasId") Long canvasId);
+
+    @Query("SELECT new com.example.shapemanegement.dto.response.ShapeResponseDto(" +
+            "s.id, s.name, s.type, s.coordinates, s.centerX, s.centerY, s.radius, s.version, s.canvasId) FROM Shape s " +
+            "WHERE s.id IN :ids ORDER BY s.id")
+    List<ShapeResponseDto> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Shapes of one canvas whose stored bounding box intersects the given box (edges touching count)
+    @Query("SELECT new com.example.shapemanegement.dto.response.ShapeResponseDto(" +
+            "s.id, s.name, s.type, s.coordinates, s.centerX, s.centerY, s.radius, s.version, s.canvasId) FROM Shape s " +
+            "WHERE s.canvasId = :canvasId " +
+            "AND s.minX <= :maxX AND s.maxX >= :minX AND s.minY <= :maxY AND s.maxY >= :minY")
+    List<ShapeResponseDto> findResponsesByBoundingBoxIntersecting(@Param("canvasId") Long canvasId,
+                                                                  @Param("minX") double minX, @Param("minY") double minY,
+                                                                  @Param("maxX") double maxX, @Param("maxY") double maxY);
+
+    // Ids of the same shapes, capped so a huge selection is rejected without reading it all
+    @Query("SELECT s.id FROM Shape s WHERE s.canvasId = :canvasId " +
+            "AND s.minX <= :maxX AND s.maxX >= :minX AND s.minY <= :maxY AND s.maxY >= :minY ORDER BY s.id")
+    List<Long> findIdsByBoundingBoxIntersecting(@Param("canvasId") Long canvasId,
+                                                @Param("minX") double minX, @Param("minY") double minY,
+                                                @Param("maxX") double maxX, @Param("maxY") double maxY, Limit limit);
+
+    @Query("SELECT new com.example.shapemanegement.dto.projection.ShapeGeometryDto(" +
+            "s.id, s.type, s.coordinates, s.centerX, s.centerY, s.radius) FROM Shape s " +
+            "WHERE s.canvasId = :canvasId ORDER BY s.id")
+    List<ShapeGeometryDto> findGeometryByCanvasId(@Param("canvasId") Long canvasId);
+
+    // The given shapes that belong to the canvas
+    @Query("SELECT new com.example.shapemanegement.dto.projection.ShapeGeometryDto(" +
+            "s.id, s.type, s.coordinates, s.centerX, s.centerY, s.radius) FROM Shape s " +
+            "WHERE s.canvasId = :canvasId AND s.id IN :ids ORDER BY s.id")
+    List<ShapeGeometryDto> findGeometryByCanvasIdAndIdIn(@Param("canvasId") Long canvasId, @Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.example.shapemanegement.dto.projection.ShapeGeometryDto(" +
+            "s.id, s.type, s.coordinates, s.centerX, s.centerY, s.radius) FROM Shape s WHERE s.id = :id")
+    Optional<ShapeGeometryDto> findGeometryById(@Param("id") Long id);
+
+    // Overlap candidates for one shape: every other shape of its canvas whose bounding box intersects its own
+    @Query("SELECT new com.example.shapemanegement.dto.projection.ShapeGeometryDto(" +
+            "s.id, s.type, s.coordinates, s.centerX, s.centerY, s.radius) FROM Shape s " +
+            "WHERE s.canvasId = (SELECT t.canvasId FROM Shape t WHERE t.id = :id) AND s.id <> :id AND s.minX <= :maxX AND s.maxX >= :minX AND s.minY <= :maxY AND s.maxY >= :minY")
+    List<ShapeGeometryDto> findOverlapCandidateGeometry(@Param("id") Long id,
+                                                        @Param("minX") double minX, @Param("minY") double minY,
+                                                        @Param("maxX") double maxX, @Param("maxY") double maxY);
 }
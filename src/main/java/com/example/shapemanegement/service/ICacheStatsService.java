@@ -0,0 +1,7 @@
+package com.example.shapemanegement.service;
+
+import java.util.Map;
+
+public interface ICacheStatsService {
+    Map<String, Object> getCacheStatistics();
+}
@@ -1,21 +1,60 @@
 package com.example.shapemanegement.service;
 
+import com.example.shapemanegement.dto.request.ShapeGeometryRequestDto;
 import com.example.shapemanegement.dto.request.ShapeRequestDto;
+import com.example.shapemanegement.dto.request.ShapeTransformRequestDto;
+import com.example.shapemanegement.dto.response.OverlapAreaDto;
+import com.example.shapemanegement.dto.response.OverlapPageDto;
+import com.example.shapemanegement.dto.response.ShapeBatchResponseDto;
+import com.example.shapemanegement.dto.response.ShapeChangesResponseDto;
+import com.example.shapemanegement.dto.response.ShapeDistanceDto;
 import com.example.shapemanegement.dto.response.ShapeResponseDto;
+import com.example.shapemanegement.dto.response.ShapeTileDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface IShapeService {
-    List<ShapeResponseDto> findAllShapes();
+    List<ShapeResponseDto> findAllShapes(long canvasId);
 
     ShapeResponseDto findShapeById(Long id);
 
+    ShapeBatchResponseDto findShapesByIds(List<Long> ids);
+
     ShapeResponseDto createShape(ShapeRequestDto requestDto);
 
     ShapeResponseDto updateShape(Long id, ShapeRequestDto requestDto);
 
     void deleteShape(Long id);
 
+    void updateGeometryLater(Long id, ShapeGeometryRequestDto requestDto);
+
+    List<ShapeResponseDto> transformShapes(ShapeTransformRequestDto requestDto);
+
+
+    long[] findOverlappingShapeIds(long canvasId);
+
+    OverlapPageDto findOverlappingShapeIds(long canvasId, long deadlineMs, Long continuation);
+
+    long[] findShapesOverlapping(Long id);
+
+    void forEachOverlapArea(long canvasId, Consumer<OverlapAreaDto> consumer);
+
+    List<ShapeDistanceDto> findNearestShapes(long canvasId, double x, double y, int k);
+
+    List<ShapeDistanceDto> findShapesWithin(Long id, double distance);
+
+    long[] findShapesContainedBy(Long id);
+
+    long[] findShapesContaining(Long id);
+
+    long[] findShapesContainingPoint(long canvasId, double x, double y);
+
+    long[] findShapesDisjointFrom(Long id);
+
+    List<ShapeResponseDto> findShapesInViewport(long canvasId, double minX, double minY, double maxX, double maxY);
+
+    ShapeTileDto findTile(long canvasId, int z, int x, int y);
 
-     List<Long> findOverlappingShapeIds();
+    ShapeChangesResponseDto findChangesSince(long canvasId, long since, int limit);
 }
@@ -0,0 +1,50 @@
+package com.example.shapemanegement.service.impl;
+
+import com.example.shapemanegement.service.ICacheStatsService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+public class CacheStatsServiceImpl implements ICacheStatsService {
+
+    private final Statistics statistics;
+
+    public CacheStatsServiceImpl(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public Map<String, Object> getCacheStatistics() {
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Object> regionStats = new LinkedHashMap<>();
+            regionStats.put("hitCount", region.getHitCount());
+            regionStats.put("missCount", region.getMissCount());
+            regionStats.put("putCount", region.getPutCount());
+            regionStats.put("elementCountInMemory", region.getElementCountInMemory());
+            regions.put(regionName, regionStats);
+        }
+
+        Map<String, Object> naturalIdCache = new LinkedHashMap<>();
+        naturalIdCache.put("hitCount", statistics.getNaturalIdCacheHitCount());
+        naturalIdCache.put("missCount", statistics.getNaturalIdCacheMissCount());
+        naturalIdCache.put("putCount", statistics.getNaturalIdCachePutCount());
+
+        Map<String, Object> responseBody = new LinkedHashMap<>();
+        responseBody.put("regions", regions);
+        responseBody.put("naturalIdCache", naturalIdCache);
+        responseBody.put("secondLevelCacheHitCount", statistics.getSecondLevelCacheHitCount());
+        responseBody.put("secondLevelCacheMissCount", statistics.getSecondLevelCacheMissCount());
+        return responseBody;
+    }
+}
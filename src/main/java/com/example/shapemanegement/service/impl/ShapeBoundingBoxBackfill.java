@@ -0,0 +1,118 @@
+package com.example.shapemanegement.service.impl;
+
+import com.example.shapemanegement.dto.response.ShapeResponseDto;
+import com.example.shapemanegement.entity.ChangeSequence;
+import com.example.shapemanegement.entity.Shape;
+import com.example.shapemanegement.entity.ShapeChange;
+import com.example.shapemanegement.repository.ChangeSequenceRepository;
+import com.example.shapemanegement.repository.ShapeRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fills the bounding-box columns of rows written before they existed, one page per transaction.
+ * The id it has got to is kept in a {@link ChangeSequence} row; every row above the highest id
+ * present when a pass starts was written with its box, so a finished backfill only looks at the
+ * rows added since, and rows whose geometry cannot produce a box are read once.
+ * <p>
+ * The columns are written with plain JDBC, leaving {@code version} alone: the geometry is
+ * unchanged, so a client holding the shape must not get a conflict on its next update. Each
+ * filled row is still logged as a change, so change-feed clients and geometry snapshots pick
+ * it up, and is evicted from the second-level cache once the page commits.
+ */
+@Component
+public class ShapeBoundingBoxBackfill {
+
+    static final String PROGRESS = "bounding-box-backfill";
+    static final int PAGE = 500;
+
+    // A row a regular write has given a box in the meantime is left as that write made it
+    private static final String FILL_BOX =
+            "UPDATE shapes SET min_x = ?, min_y = ?, max_x = ?, max_y = ? WHERE id = ? AND min_x IS NULL";
+
+    // reached: the id the backfill has got to; filled: ids whose box this page wrote
+    private record Page(long reached, List<Long> filled) {
+    }
+
+    private final ShapeRepository shapeRepository;
+    private final ChangeSequenceRepository sequenceRepository;
+    private final ShapeChangeLog changeLog;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactions;
+
+    public ShapeBoundingBoxBackfill(ShapeRepository shapeRepository, ChangeSequenceRepository sequenceRepository,
+                                    ShapeChangeLog changeLog, JdbcTemplate jdbcTemplate,
+                                    EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager) {
+        this.shapeRepository = shapeRepository;
+        this.sequenceRepository = sequenceRepository;
+        this.changeLog = changeLog;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactions = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long done = sequenceRepository.findCurrent(PROGRESS).orElse(0L);
+        long last = shapeRepository.findMaxId().orElse(0L);
+        long after = done;
+        while (after < last) {
+            long from = after;
+            Page page = transactions.execute(status -> fill(from, last));
+            page.filled().forEach(id -> entityManagerFactory.getCache().evict(Shape.class, id));
+            after = page.reached();
+        }
+    }
+
+    private Page fill(long from, long last) {
+        List<ShapeResponseDto> rows = shapeRepository.findResponsesWithoutBoundingBoxAfter(from, Limit.of(PAGE));
+        List<Shape> boxed = new ArrayList<>(rows.size());
+        for (ShapeResponseDto row : rows) {
+            Shape shape = new Shape(row.getId(), null, row.getType(), row.getCoordinates(),
+                    row.getCenterX(), row.getCenterY(), row.getRadius());
+            shape.setCanvasId(row.getCanvasId());
+            shape.updateBoundingBox();
+            if (shape.getMinX() != null) {
+                boxed.add(shape);
+            }
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(FILL_BOX, boxed, PAGE, (statement, shape) -> {
+            statement.setDouble(1, shape.getMinX());
+            statement.setDouble(2, shape.getMinY());
+            statement.setDouble(3, shape.getMaxX());
+            statement.setDouble(4, shape.getMaxY());
+            statement.setLong(5, shape.getId());
+        });
+
+        // Logged per canvas, in id order
+        Map<Long, List<Long>> filledByCanvas = new TreeMap<>();
+        List<Long> filled = new ArrayList<>(boxed.size());
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                Shape shape = boxed.get(i++);
+                if (count != 0) {
+                    filled.add(shape.getId());
+                    filledByCanvas.computeIfAbsent(shape.getCanvasId(), canvas -> new ArrayList<>()).add(shape.getId());
+                }
+            }
+        }
+        filledByCanvas.forEach((canvasId, ids) -> changeLog.recordAll(canvasId, ids, ShapeChange.Type.UPDATED));
+
+        long reached = rows.size() < PAGE ? last : rows.get(rows.size() - 1).getId();
+        sequenceRepository.save(new ChangeSequence(PROGRESS, reached));
+        return new Page(reached, filled);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.shapemanegement.service.impl;
+
+import com.example.shapemanegement.entity.ChangeSequence;
+import com.example.shapemanegement.entity.ShapeChange;
+import com.example.shapemanegement.repository.ChangeSequenceRepository;
+import com.example.shapemanegement.repository.ShapeChangeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Monotonic sequence of shape writes. Every create, update and delete appends one
+ * {@link ShapeChange} in the writing transaction, numbered from a counter row that stays
+ * locked until commit. Writers are therefore serialized on that row and sequence numbers are
+ * handed out in commit order without gaps: a reader that has seen everything up to
+ * {@code seq} can never later find a smaller number appear.
+ * <p>
+ * Changes are read per canvas, but the counter is shared by all of them, so writers to
+ * different canvases still wait for each other's commit. The lock is held from the counter
+ * update to commit, which every write path keeps at the end of its transaction; giving each
+ * canvas its own counter would make {@code seq} unique only within a canvas.
+ * <p>
+ * Only the newest {@code shapes.changes.retained} changes are kept: every
+ * {@code shapes.changes.prune-interval} older ones are deleted, and the highest deleted number
+ * is kept in a {@link ChangeSequence} row committed with the delete. A reader that needs
+ * changes from before it, a sync client or a stale geometry snapshot, has to start over from
+ * the shapes themselves. Readers check it after reading the changes, so a prune committing
+ * in between is never missed.
+ */
+@Component
+public class ShapeChangeLog {
+
+    static final String SEQUENCE = "shapes";
+    static final String PRUNED = "shape-changes-pruned";
+
+    private final ShapeChangeRepository changeRepository;
+    private final ChangeSequenceRepository sequenceRepository;
+    private final long retained;
+
+    public ShapeChangeLog(ShapeChangeRepository changeRepository, ChangeSequenceRepository sequenceRepository,
+                          @Value("${shapes.changes.retained:1000000}") long retained) {
+        this.changeRepository = changeRepository;
+        this.sequenceRepository = sequenceRepository;
+        this.retained = retained;
+    }
+
+    // Creates the counter before the first write, so concurrent first writers never race to insert it
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void createSequence() {
+        if (!sequenceRepository.existsById(SEQUENCE)) {
+            sequenceRepository.save(new ChangeSequence(SEQUENCE, 0L));
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long record(long canvasId, Long shapeId, ShapeChange.Type type) {
+        if (sequenceRepository.increment(SEQUENCE) == 0) {
+            sequenceRepository.saveAndFlush(new ChangeSequence(SEQUENCE, 1L));
+        }
+        long seq = sequenceRepository.findCurrent(SEQUENCE).orElseThrow();
+        changeRepository.save(new ShapeChange(seq, canvasId, shapeId, type));
+        return seq;
+    }
+
+    // One counter update for many shapes of a canvas changed together; they get consecutive numbers in list order
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(long canvasId, List<Long> shapeIds, ShapeChange.Type type) {
+        if (shapeIds.isEmpty()) {
+            return;
+        }
+        int count = shapeIds.size();
+        if (sequenceRepository.incrementBy(SEQUENCE, count) == 0) {
+            sequenceRepository.saveAndFlush(new ChangeSequence(SEQUENCE, (long) count));
+        }
+        long first = sequenceRepository.findCurrent(SEQUENCE).orElseThrow() - count + 1;
+        List<ShapeChange> changes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            changes.add(new ShapeChange(first + i, canvasId, shapeIds.get(i), type));
+        }
+        changeRepository.saveAll(changes);
+    }
+
+    // Highest committed sequence number over all canvases; 0 before the first write
+    @Transactional(readOnly = true)
+    public long currentSeq() {
+        return sequenceRepository.findCurrent(SEQUENCE).orElse(0L);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ShapeChange> changesAfter(long canvasId, long seq, int limit) {
+        return changeRepository.findByCanvasIdAndSeqGreaterThanOrderBySeq(canvasId, seq, Limit.of(limit));
+    }
+
+    // Ids of every shape of the canvas created, updated or deleted after seq, ascending
+    @Transactional(readOnly = true)
+    public List<Long> shapeIdsChangedAfter(long canvasId, long seq) {
+        return changeRepository.findShapeIdsChangedAfter(canvasId, seq);
+    }
+
+    // Highest deleted sequence number: changes after seq are all still there only if seq is at least this
+    @Transactional(readOnly = true)
+    public long prunedThrough() {
+        return sequenceRepository.findCurrent(PRUNED).orElse(0L);
+    }
+
+    // Does not touch the counter row, so writers never wait for it
+    @Scheduled(fixedDelayString = "${shapes.changes.prune-interval:PT1H}",
+            initialDelayString = "${shapes.changes.prune-interval:PT1H}")
+    @Transactional
+    public void prune() {
+        long through = currentSeq() - retained;
+        if (through <= prunedThrough()) {
+            return;
+        }
+        sequenceRepository.save(new ChangeSequence(PRUNED, through));
+        changeRepository.deleteThrough(through);
+    }
+}
@@ -0,0 +1,414 @@
+package com.example.shapemanegement.service.impl;
+
+import com.example.shapemanegement.dto.projection.ShapeGeometryDto;
+import com.example.shapemanegement.entity.Shape;
+import com.example.shapemanegement.geometry.GeometryStore;
+import com.example.shapemanegement.geometry.OffHeapShapeStore;
+import com.example.shapemanegement.geometry.ShapeSet;
+import com.example.shapemanegement.repository.ShapeRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Compiled geometry of every shape, kept between overlap runs, one store per canvas. Each store
+ * records the {@link ShapeChangeLog} sequence number it reflects; the first read after a committed
+ * write to its canvas refreshes it incrementally by reloading only the shapes changed since then.
+ * Canvases are loaded and refreshed independently, so a write to one canvas never makes another
+ * one reload, and different canvases refresh concurrently.
+ * <p>
+ * Where the geometry lives is set by {@code shapes.geometry.store}:
+ * <ul>
+ *   <li>{@code heap} (default): a {@link ShapeSet} of primitive arrays</li>
+ *   <li>{@code off-heap}: an {@link OffHeapShapeStore} in direct memory, outside GC</li>
+ *   <li>{@code mapped}: an {@link OffHeapShapeStore} backed by {@code shapes.geometry.file},
+ *   rewritten on every refresh</li>
+ * </ul>
+ * With {@code shapes.geometry.snapshot=true} the other modes write the same file every
+ * {@code shapes.geometry.snapshot-interval}. On startup an existing file is mapped and
+ * reconciled with the shapes changed since it was written, instead of loading every shape.
+ * The default canvas uses the configured file; canvas {@code n} uses the same name with
+ * {@code -n} before the extension.
+ * <p>
+ * At most {@code shapes.geometry.max-canvases} canvases are kept; the least recently used are
+ * dropped and load again on their next read.
+ * <p>
+ * Geometry {@link ShapeWriteBehind} has accepted but not yet flushed is never merged into a store.
+ * A {@link View} pairs the store with the few pending shapes of its canvas, compiled on their own,
+ * so the store, its trees and the tiles cached from it stay as they are while a shape is dragged.
+ * The pending set is rebuilt only when the canvas's pending geometry or its store changed.
+ */
+@Component
+public class ShapeGeometryIndex {
+
+    public enum StoreMode { HEAP, OFF_HEAP, MAPPED }
+
+    private static final Logger log = LoggerFactory.getLogger(ShapeGeometryIndex.class);
+
+    // Keeps each IN list of a refresh to a size every database accepts
+    static final int REFRESH_CHUNK = 1000;
+
+    private static final ShapeSet NO_SHAPES = ShapeSet.builder(0).build();
+
+    // version: change sequence read before the rows were; every change up to it is in the store
+    private record Loaded(GeometryStore store, long generation, long version) {
+    }
+
+    /**
+     * A canvas's store and the geometry pending for some of its shapes. Queries run on the store,
+     * skip the shapes that have pending geometry and test the pending shapes on their own. Pending
+     * shape {@code k} replaces store shape {@code replaced[k]}; both are in id order.
+     */
+    public record View(GeometryStore store, ShapeSet pending, int[] replaced) {
+
+        public boolean hasPending() {
+            return replaced.length > 0;
+        }
+
+        public boolean isReplaced(int shape) {
+            return replaced.length > 0 && Arrays.binarySearch(replaced, shape) >= 0;
+        }
+    }
+
+    // version: of the canvas's pending geometry the view was built from
+    private record PendingView(long version, View view) {
+    }
+
+    private final ShapeRepository shapeRepository;
+    private final ShapeChangeLog changeLog;
+    private final StoreMode mode;
+    private final Path file;
+    private final boolean snapshots;
+    private final Cache<Long, Canvas> canvases;
+    private volatile LongFunction<ShapeWriteBehind.CanvasPending> pending = canvasId -> null;
+
+    public ShapeGeometryIndex(ShapeRepository shapeRepository, ShapeChangeLog changeLog,
+                              @Value("${shapes.geometry.store:heap}") StoreMode mode,
+                              @Value("${shapes.geometry.file:shape-geometry.bin}") String file,
+                              @Value("${shapes.geometry.snapshot:false}") boolean snapshots,
+                              @Value("${shapes.geometry.max-canvases:1000}") long maxCanvases) {
+        this.shapeRepository = shapeRepository;
+        this.changeLog = changeLog;
+        this.mode = mode;
+        this.file = Path.of(file);
+        this.snapshots = snapshots;
+        this.canvases = Caffeine.newBuilder().maximumSize(maxCanvases).build();
+    }
+
+    // The stored geometry alone, without pending drags
+    public GeometryStore current(long canvasId) {
+        return storeOf(canvases.get(canvasId, Canvas::new));
+    }
+
+    public View view(long canvasId) {
+        Canvas canvas = canvases.get(canvasId, Canvas::new);
+        return canvas.view(storeOf(canvas));
+    }
+
+    private static GeometryStore storeOf(Canvas canvas) {
+        Loaded current = canvas.loaded;
+        return current != null && current.generation() == canvas.generation.get()
+                ? current.store()
+                : canvas.refresh().store();
+    }
+
+    // Set by ShapeWriteBehind, which itself depends on the index: a canvas's unflushed geometry, or null
+    void pending(LongFunction<ShapeWriteBehind.CanvasPending> pending) {
+        this.pending = pending;
+    }
+
+    // Marks the canvas stale once the current transaction commits, so a refresh never sees uncommitted rows
+    public void invalidate(long canvasId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    advance(canvasId);
+                }
+            });
+        } else {
+            advance(canvasId);
+        }
+    }
+
+    // Looked up at commit: a canvas dropped and loaded again in the meantime may have read the old rows
+    private void advance(long canvasId) {
+        Canvas canvas = canvases.getIfPresent(canvasId);
+        if (canvas != null) {
+            canvas.generation.incrementAndGet();
+        }
+    }
+
+    // With a snapshot on disk, startup only maps and reconciles it, so do it before the first request
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (usesFile() && Files.isRegularFile(file)) {
+            current(Shape.DEFAULT_CANVAS);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shapes.geometry.snapshot-interval:PT5M}",
+            initialDelayString = "${shapes.geometry.snapshot-interval:PT5M}")
+    public void writeSnapshot() {
+        // Mapped mode already writes the file on every refresh
+        if (!snapshots || mode == StoreMode.MAPPED) {
+            return;
+        }
+        canvases.asMap().values().forEach(Canvas::writeSnapshot);
+    }
+
+    // The default canvas keeps the configured name, so snapshots from before canvases existed still load
+    Path fileFor(long canvasId) {
+        if (canvasId == Shape.DEFAULT_CANVAS) {
+            return file;
+        }
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String suffixed = dot > 0
+                ? name.substring(0, dot) + "-" + canvasId + name.substring(dot)
+                : name + "-" + canvasId;
+        return file.resolveSibling(suffixed);
+    }
+
+    // The geometry of one canvas; refreshes of different canvases do not wait for each other
+    private final class Canvas {
+        private final long id;
+        private final Path file;
+        private final AtomicLong generation = new AtomicLong();
+        private volatile Loaded loaded;
+        private volatile PendingView pendingView;
+        // The store whose contents are in the file, by identity
+        private volatile GeometryStore snapshotStore;
+        // Whether the last store checked was too large for one buffer; guarded by this canvas
+        private boolean oversized;
+
+        Canvas(long id) {
+            this.id = id;
+            this.file = fileFor(id);
+        }
+
+        synchronized Loaded refresh() {
+            long target = generation.get();
+            Loaded base = loaded;
+            if (base != null && base.generation() == target) {
+                return base;
+            }
+            if (base == null && usesFile()) {
+                base = mapSnapshot();
+            }
+
+            // Changes committed after this read are applied again by the next refresh, which is harmless
+            long version = changeLog.currentSeq();
+            GeometryStore store = base == null ? null : reconcile(base, version);
+            if (store == null) {
+                store = materialize(compile(shapeRepository.findGeometryByCanvasId(id)), version);
+            }
+            loaded = new Loaded(store, target, version);
+            return loaded;
+        }
+
+        View view(GeometryStore store) {
+            ShapeWriteBehind.CanvasPending source = pending.apply(id);
+            if (source == null) {
+                return new View(store, NO_SHAPES, new int[0]);
+            }
+            long version = source.version();
+            PendingView current = pendingView;
+            if (current != null && current.version() == version && current.view().store() == store) {
+                return current.view();
+            }
+            View built = pendingView(store, source.shapes());
+            pendingView = new PendingView(version, built);
+            return built;
+        }
+
+        // A snapshot that cannot be written is skipped; the next startup reconciles an older one or reloads
+        synchronized void writeSnapshot() {
+            Loaded current = loaded;
+            if (current == null || current.store() == snapshotStore || !fits(current.store())) {
+                return;
+            }
+            try {
+                OffHeapShapeStore.write(current.store(), current.version(), file);
+            } catch (IOException e) {
+                log.warn("Could not write shape geometry snapshot {}", file, e);
+                return;
+            }
+            snapshotStore = current.store();
+        }
+
+        // Reloads the shapes of this canvas changed since base was built; those no longer found were deleted.
+        // Changes to other canvases are not even listed. Returns base itself when nothing changed, and null
+        // when some of the changes since base were pruned, which leaves only loading every shape again.
+        private GeometryStore reconcile(Loaded base, long version) {
+            GeometryStore store = base.store();
+            List<Long> changedIds = changeLog.shapeIdsChangedAfter(id, base.version());
+            // Checked after the read, so a prune committing in between is not missed
+            if (base.version() < changeLog.prunedThrough()) {
+                return null;
+            }
+            if (changedIds.isEmpty()) {
+                return store;
+            }
+            List<ShapeGeometryDto> changed = new ArrayList<>();
+            for (int from = 0; from < changedIds.size(); from += REFRESH_CHUNK) {
+                changed.addAll(shapeRepository.findGeometryByCanvasIdAndIdIn(id,
+                        changedIds.subList(from, Math.min(from + REFRESH_CHUNK, changedIds.size()))));
+            }
+            long[] touched = changedIds.stream().mapToLong(Long::longValue).toArray();
+            if (changed.isEmpty() && !containsAny(store, touched)) {
+                return store;
+            }
+
+            // Both inputs are in id order; merge them, dropping every old copy of a changed shape
+            ShapeSet.Builder builder = ShapeSet.builder(store.size() + changed.size());
+            int i = 0;
+            int c = 0;
+            while (i < store.size() || c < changed.size()) {
+                long baseId = i < store.size() ? store.id(i) : Long.MAX_VALUE;
+                long changedId = c < changed.size() ? changed.get(c).getId() : Long.MAX_VALUE;
+                if (changedId <= baseId) {
+                    ShapeGeometryDto shape = changed.get(c++);
+                    builder.add(shape.getId(), shape.getType(), shape.getCoordinates(),
+                            shape.getCenterX(), shape.getCenterY(), shape.getRadius());
+                    if (changedId == baseId) {
+                        i++;
+                    }
+                } else {
+                    if (Arrays.binarySearch(touched, baseId) < 0) {
+                        builder.add(store, i);
+                    }
+                    i++;
+                }
+            }
+            return materialize(builder.build(), version);
+        }
+
+        // Geometry that does not fit one buffer, or whose file cannot be written, stays on the heap
+        private GeometryStore materialize(ShapeSet shapes, long version) {
+            if (mode == StoreMode.HEAP || !fits(shapes)) {
+                return shapes;
+            }
+            if (mode == StoreMode.OFF_HEAP) {
+                return OffHeapShapeStore.copyOf(shapes);
+            }
+            try {
+                OffHeapShapeStore mapped = OffHeapShapeStore.write(shapes, version, file);
+                snapshotStore = mapped;
+                return mapped;
+            } catch (IOException e) {
+                log.warn("Could not write shape geometry file {}; keeping canvas {} on the heap", file, id, e);
+                return shapes;
+            }
+        }
+
+        // Warns once each time the canvas outgrows one buffer
+        private boolean fits(GeometryStore store) {
+            boolean fits = OffHeapShapeStore.fits(store);
+            if (!fits && !oversized) {
+                log.warn("Geometry of canvas {} exceeds {} bytes; it stays on the heap and gets no snapshot",
+                        id, OffHeapShapeStore.MAX_BYTES);
+            }
+            oversized = !fits;
+            return fits;
+        }
+
+        // The previous run's file, or null when there is none or it cannot be read
+        private Loaded mapSnapshot() {
+            if (!Files.isRegularFile(file)) {
+                return null;
+            }
+            try {
+                OffHeapShapeStore store = OffHeapShapeStore.map(file);
+                snapshotStore = store;
+                return new Loaded(store, -1, store.version());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    // Whether any of the sorted ids is in the store, which keeps shapes in id order
+    private static boolean containsAny(GeometryStore store, long[] ids) {
+        int i = 0;
+        int k = 0;
+        while (i < store.size() && k < ids.length) {
+            long id = store.id(i);
+            if (id == ids[k]) {
+                return true;
+            }
+            if (id < ids[k]) {
+                i++;
+            } else {
+                k++;
+            }
+        }
+        return false;
+    }
+
+    // Pending geometry of a shape not in the store is left out: the shape was deleted, or created after
+    // the store was loaded and shows up once it is refreshed
+    private static View pendingView(GeometryStore store, Collection<Shape> geometry) {
+        List<Shape> sorted = new ArrayList<>(geometry);
+        sorted.sort(Comparator.comparing(Shape::getId));
+        ShapeSet.Builder builder = ShapeSet.builder(sorted.size());
+        int[] replaced = new int[sorted.size()];
+        int count = 0;
+        for (Shape shape : sorted) {
+            int index = indexOf(store, shape.getId());
+            if (index >= 0) {
+                builder.add(shape.getId(), shape.getType(), shape.getCoordinates(),
+                        shape.getCenterX(), shape.getCenterY(), shape.getRadius());
+                replaced[count++] = index;
+            }
+        }
+        return new View(store, count == 0 ? NO_SHAPES : builder.build(), Arrays.copyOf(replaced, count));
+    }
+
+    // The store keeps shapes in id order
+    private static int indexOf(GeometryStore store, long id) {
+        int lo = 0;
+        int hi = store.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (store.id(mid) < id) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < store.size() && store.id(lo) == id ? lo : -1;
+    }
+
+    private boolean usesFile() {
+        return snapshots || mode == StoreMode.MAPPED;
+    }
+
+    private ShapeSet compile(List<ShapeGeometryDto> shapes) {
+        ShapeSet.Builder builder = ShapeSet.builder(shapes.size());
+        for (ShapeGeometryDto shape : shapes) {
+            builder.add(shape.getId(), shape.getType(), shape.getCoordinates(),
+                    shape.getCenterX(), shape.getCenterY(), shape.getRadius());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.shapemanegement.service.impl;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drops the unique index on {@code shapes.name} alone that schemas created before canvases
+ * still have. {@code ddl-auto=update} adds the per-canvas {@code (canvas_id, name)} constraint
+ * but never drops an index, and while the old one exists a name can be used on one canvas
+ * only. Runs on every startup; once the index is gone it only reads the table's index list.
+ * A schema it cannot fix stops startup rather than rejecting valid names later.
+ */
+@Component
+public class ShapeNameIndexMigration {
+
+    static final String TABLE = "shapes";
+    static final String COLUMN = "name";
+
+    private final DataSource dataSource;
+
+    public ShapeNameIndexMigration(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void dropLegacyNameIndex() {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String index : legacyNameIndexes(connection, metaData)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(dropIndex(metaData, index));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not drop the unique index on " + TABLE + "." + COLUMN
+                    + " from before canvases; names would stay unique across all canvases", e);
+        }
+    }
+
+    // Unique indexes whose only column is name; the per-canvas constraint has two
+    private static List<String> legacyNameIndexes(Connection connection, DatabaseMetaData metaData) throws SQLException {
+        String table = metaData.storesUpperCaseIdentifiers() ? TABLE.toUpperCase() : TABLE;
+        Map<String, List<String>> columnsByIndex = new LinkedHashMap<>();
+        try (ResultSet rows = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), table, true, false)) {
+            while (rows.next()) {
+                String index = rows.getString("INDEX_NAME");
+                String column = rows.getString("COLUMN_NAME");
+                if (index != null && column != null) {
+                    columnsByIndex.computeIfAbsent(index, name -> new ArrayList<>()).add(column);
+                }
+            }
+        }
+        List<String> legacy = new ArrayList<>();
+        columnsByIndex.forEach((index, columns) -> {
+            if (columns.size() == 1 && columns.get(0).equalsIgnoreCase(COLUMN)) {
+                legacy.add(index);
+            }
+        });
+        return legacy;
+    }
+
+    // MySQL names indexes per table; elsewhere the standard statement applies
+    private static String dropIndex(DatabaseMetaData metaData, String index) throws SQLException {
+        String quote = metaData.getIdentifierQuoteString().trim();
+        String quoted = quote + index + quote;
+        String product = metaData.getDatabaseProductName().toLowerCase();
+        return product.contains("mysql") || product.contains("mariadb")
+                ? "ALTER TABLE " + TABLE + " DROP INDEX " + quoted
+                : "DROP INDEX " + quoted;
+    }
+}
@@ -1,36 +1,106 @@
 package com.example.shapemanegement.service.impl;
 
 
+import com.example.shapemanegement.dto.projection.ShapeGeometryDto;
+import com.example.shapemanegement.dto.request.ShapeGeometryRequestDto;
 import com.example.shapemanegement.dto.request.ShapeRequestDto;
+import com.example.shapemanegement.dto.request.ShapeTransformRequestDto;
+import com.example.shapemanegement.dto.response.OverlapAreaDto;
+import com.example.shapemanegement.dto.response.OverlapPageDto;
+import com.example.shapemanegement.dto.response.ShapeBatchResponseDto;
+import com.example.shapemanegement.dto.response.ShapeChangeDto;
+import com.example.shapemanegement.dto.response.ShapeChangesResponseDto;
+import com.example.shapemanegement.dto.response.ShapeDistanceDto;
 import com.example.shapemanegement.dto.response.ShapeResponseDto;
+import com.example.shapemanegement.dto.response.ShapeTileDto;
 import com.example.shapemanegement.entity.Shape;
+import com.example.shapemanegement.entity.ShapeChange;
+import com.example.shapemanegement.exception.ChangesExpiredException;
 import com.example.shapemanegement.exception.ResourceNotFoundException;
+import com.example.shapemanegement.exception.VersionConflictException;
+import com.example.shapemanegement.geometry.CoordinateFormatException;
+import com.example.shapemanegement.geometry.CoordinateParser;
+import com.example.shapemanegement.geometry.EdgeHierarchy;
+import com.example.shapemanegement.geometry.GeometryKernels;
+import com.example.shapemanegement.geometry.GeometryStore;
+import com.example.shapemanegement.geometry.IntersectionArea;
+import com.example.shapemanegement.geometry.LongHashSet;
+import com.example.shapemanegement.geometry.OverlapDetector;
+import com.example.shapemanegement.geometry.PolygonSimplicity;
+import com.example.shapemanegement.geometry.ShapeDistances;
+import com.example.shapemanegement.geometry.ShapeSet;
+import com.example.shapemanegement.geometry.ShapeTransform;
+import com.example.shapemanegement.geometry.ShapeType;
+import com.example.shapemanegement.geometry.SpatialRelations;
+import com.example.shapemanegement.geometry.SweepLineOverlapDetector;
 import com.example.shapemanegement.exception.ValidationException;
 import com.example.shapemanegement.repository.ShapeRepository;
 import com.example.shapemanegement.service.IShapeService;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ShapeServiceImpl implements IShapeService {
 
-    private final ShapeRepository shapeRepository;
+    static final int MAX_CHANGES_PER_PAGE = 1000;
+    static final int MAX_NEAREST = 1000;
+    static final int MAX_TRANSFORM = 10_000;
+    static final int MAX_BATCH_GET = 10_000;
+    // Ids per IN list, well below the bind-parameter limits of the supported databases
+    static final int ID_CHUNK = 1000;
+
+    // pairwise tests each bounding-box pair; sweep runs one plane sweep over all polygon edges
+    public enum OverlapStrategy { PAIRWISE, SWEEP }
 
-    public ShapeServiceImpl(ShapeRepository shapeRepository) {
+    private final ShapeRepository shapeRepository;
+    private final ShapeGeometryIndex geometryIndex;
+    private final ShapeChangeLog changeLog;
+    private final ShapeTileCache tileCache;
+    private final ShapeWriteBehind writeBehind;
+    private final OverlapStrategy overlapStrategy;
+
+    public ShapeServiceImpl(ShapeRepository shapeRepository, ShapeGeometryIndex geometryIndex, ShapeChangeLog changeLog,
+                            ShapeTileCache tileCache, ShapeWriteBehind writeBehind,
+                            @Value("${shapes.overlap.strategy:pairwise}") OverlapStrategy overlapStrategy) {
         this.shapeRepository = shapeRepository;
+        this.geometryIndex = geometryIndex;
+        this.changeLog = changeLog;
+        this.tileCache = tileCache;
+        this.writeBehind = writeBehind;
+        this.overlapStrategy = overlapStrategy;
+    }
+
+    // Resolves the type name once per request; everything after works on the enum
+    private ShapeType resolveType(String name) {
+        ShapeType type = ShapeType.fromValue(name);
+        if (type == null) {
+            throw new ValidationException("Invalid shape type. Must be rectangle, triangle, circle, or polygon.");
+        }
+        return type;
     }
 
     // Utility for Coordinate Validation
-    private void validateCoordinates(String type, String coordinates, Double centerX, Double centerY, Double radius) {
-        if ("circle".equalsIgnoreCase(type)) {
+    private void validateCoordinates(ShapeType type, String coordinates, Double centerX, Double centerY, Double radius) {
+        if (type == ShapeType.CIRCLE) {
             if (centerX == null || centerY == null || radius == null) {
                 throw new ValidationException("For circle, centerX, centerY, and radius are required.");
             }
@@ -39,82 +109,352 @@ public class ShapeServiceImpl implements IShapeService {
             }
         } else {
             if (coordinates == null || coordinates.trim().isEmpty()) {
-                throw new ValidationException("Coordinates string is required for " + type + ".");
+                throw new ValidationException("Coordinates string is required for " + type.value() + ".");
             }
-            Pattern coordPattern = Pattern.compile("^\\s*\\d+,\\d+(;\\s*\\d+,\\d+)*\\s*$");
-            if (!coordPattern.matcher(coordinates).matches()) {
-                throw new ValidationException("Coordinates format invalid. Expected 'x1,y1;x2,y2;...'");
+            double[] xy;
+            try {
+                xy = CoordinateParser.parse(coordinates);
+            } catch (CoordinateFormatException e) {
+                throw new ValidationException("Coordinates format invalid: " + e.getMessage() + ". Expected 'x1,y1;x2,y2;...'");
             }
-            String[] points = coordinates.split(";");
-            if ("triangle".equalsIgnoreCase(type) && points.length < 3) {
+            int pointCount = xy.length / 2;
+            if (type == ShapeType.TRIANGLE && pointCount < 3) {
                 throw new ValidationException("Triangle requires at least 3 points.");
             }
-            if (("rectangle".equalsIgnoreCase(type) || "polygon".equalsIgnoreCase(type)) && points.length < 3) {
+            if ((type == ShapeType.RECTANGLE || type == ShapeType.POLYGON) && pointCount < 3) {
                 throw new ValidationException("Rectangle/Polygon requires at least 3 points.");
             }
+            validateSimple(xy);
         }
     }
 
+    // Point-in-polygon tests are only meaningful for rings whose edges meet nowhere but at shared vertices
+    private static void validateSimple(double[] xy) {
+        PolygonSimplicity.EdgePair pair = PolygonSimplicity.findSelfIntersection(xy);
+        if (pair != null) {
+            throw new ValidationException("Polygon edges must not cross or touch: " + describeEdge(xy, pair.first())
+                    + " meets " + describeEdge(xy, pair.second()) + ".");
+        }
+    }
+
+    // Edges are numbered from 1 in coordinate order, the last one closing the ring
+    private static String describeEdge(double[] xy, int edge) {
+        int n = xy.length / 2;
+        int next = edge + 1 == n ? 0 : edge + 1;
+        return "edge " + (edge + 1) + " (" + (long) xy[2 * edge] + "," + (long) xy[2 * edge + 1]
+                + " to " + (long) xy[2 * next] + "," + (long) xy[2 * next + 1] + ")";
+    }
+
     // --- CRUD Operations (Implementations of IShapeService methods) ---
 
     @Override
-    public List<ShapeResponseDto> findAllShapes() {
-        return shapeRepository.findAll().stream()
-                .map(this::mapToResponseDto)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<ShapeResponseDto> findAllShapes(long canvasId) {
+        List<ShapeResponseDto> shapes = shapeRepository.findResponsesByCanvasId(canvasId);
+        if (writeBehind.hasPending()) {
+            shapes.forEach(this::applyPendingGeometry);
+        }
+        return shapes;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ShapeResponseDto findShapeById(Long id) {
         Shape shape = shapeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Shape not found with id: " + id));
-        return mapToResponseDto(shape);
+        return applyPendingGeometry(mapToResponseDto(shape));
+    }
+
+    // Up to ID_CHUNK ids cost one query; the rows come back in id order and are put back in request order
+    @Override
+    @Transactional(readOnly = true)
+    public ShapeBatchResponseDto findShapesByIds(List<Long> ids) {
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new ValidationException("Shape ids must not be null.");
+        }
+        List<Long> requested = ids.stream().distinct().toList();
+        if (requested.size() > MAX_BATCH_GET) {
+            throw new ValidationException("At most " + MAX_BATCH_GET + " shapes can be fetched at once.");
+        }
+        Map<Long, ShapeResponseDto> found = new HashMap<>();
+        for (int from = 0; from < requested.size(); from += ID_CHUNK) {
+            for (ShapeResponseDto shape : shapeRepository.findResponsesByIdIn(
+                    requested.subList(from, Math.min(requested.size(), from + ID_CHUNK)))) {
+                found.put(shape.getId(), shape);
+            }
+        }
+        List<ShapeResponseDto> shapes = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>(requested.size() - found.size());
+        for (Long id : requested) {
+            ShapeResponseDto shape = found.get(id);
+            if (shape == null) {
+                missing.add(id);
+            } else {
+                shapes.add(applyPendingGeometry(shape));
+            }
+        }
+        return new ShapeBatchResponseDto(shapes, missing);
     }
 
     @Override
     @Transactional
     public ShapeResponseDto createShape(ShapeRequestDto requestDto) {
-        if (shapeRepository.existsByName(requestDto.getName())) {
-            throw new ValidationException("Shape with name '" + requestDto.getName() + "' already exists.");
-        }
-        validateCoordinates(requestDto.getType(), requestDto.getCoordinates(),
+        ShapeType type = resolveType(requestDto.getType());
+        validateCoordinates(type, requestDto.getCoordinates(),
                 requestDto.getCenterX(), requestDto.getCenterY(), requestDto.getRadius());
 
-        Shape shape = mapToEntity(requestDto);
-        Shape savedShape = shapeRepository.save(shape);
-        return mapToResponseDto(savedShape);
+        // The unique constraint on (canvas_id, name) is the uniqueness check: one round-trip, no race window
+        Shape shape = mapToEntity(requestDto, type);
+        try {
+            Shape savedShape = shapeRepository.saveAndFlush(shape);
+            changeLog.record(savedShape.getCanvasId(), savedShape.getId(), ShapeChange.Type.CREATED);
+            geometryIndex.invalidate(savedShape.getCanvasId());
+            return mapToResponseDto(savedShape);
+        } catch (DataIntegrityViolationException e) {
+            throw translateIntegrityViolation(e, requestDto.getName());
+        }
     }
 
     @Override
     @Transactional
     public ShapeResponseDto updateShape(Long id, ShapeRequestDto requestDto) {
-        Shape existingShape = shapeRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Shape not found with id: " + id));
+        ShapeType type = resolveType(requestDto.getType());
+        validateCoordinates(type, requestDto.getCoordinates(),
+                requestDto.getCenterX(), requestDto.getCenterY(), requestDto.getRadius());
 
-        if (shapeRepository.existsByNameAndIdNot(requestDto.getName(), id)) {
-            throw new ValidationException("Shape with name '" + requestDto.getName() + "' already exists.");
+        // The entity is normally a second-level cache hit. It decides the canvas: shapes never move between
+        // canvases, and clients may leave canvasId out
+        Shape shape = shapeOf(id);
+        if (requestDto.getCanvasId() != null && !requestDto.getCanvasId().equals(shape.getCanvasId())) {
+            throw new ValidationException("A shape cannot be moved to another canvas.");
         }
-        validateCoordinates(requestDto.getType(), requestDto.getCoordinates(),
-                requestDto.getCenterX(), requestDto.getCenterY(), requestDto.getRadius());
+        // With a version from the client the update is conditional, so concurrent edits cannot overwrite each other
+        Long expectedVersion = requestDto.getVersion();
+        if (expectedVersion != null && !expectedVersion.equals(shape.getVersion())) {
+            throw new VersionConflictException("Shape " + id + " was modified since version " + expectedVersion + ".");
+        }
+        // Before any write, so a drag position still pending cannot be flushed over this update
+        writeBehind.discard(id);
+        shape.setName(requestDto.getName());
+        shape.setType(type);
+        shape.setCoordinates(requestDto.getCoordinates());
+        shape.setCenterX(requestDto.getCenterX());
+        shape.setCenterY(requestDto.getCenterY());
+        shape.setRadius(requestDto.getRadius());
+        // One versioned UPDATE: it checks the version the entity was loaded at, bumps it, and replaces just this
+        // shape in the second-level cache, where a bulk update would evict the whole region. A write committed
+        // since the entity was loaded fails it, whether or not the client sent a version.
+        try {
+            shapeRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw translateIntegrityViolation(e, requestDto.getName());
+        } catch (OptimisticLockingFailureException e) {
+            throw new VersionConflictException("Shape " + id + " was modified during the update; retry it.");
+        }
+        changeLog.record(shape.getCanvasId(), id, ShapeChange.Type.UPDATED);
+        geometryIndex.invalidate(shape.getCanvasId());
+        return mapToResponseDto(shape);
+    }
 
-        existingShape.setName(requestDto.getName());
-        existingShape.setType(requestDto.getType());
-        existingShape.setCoordinates(requestDto.getCoordinates());
-        existingShape.setCenterX(requestDto.getCenterX());
-        existingShape.setCenterY(requestDto.getCenterY());
-        existingShape.setRadius(requestDto.getRadius());
+    @Override
+    @Transactional
+    public void deleteShape(Long id) {
+        writeBehind.discard(id);
+        long canvasId = canvasOf(id);
+        shapeRepository.deleteById(id);
+        changeLog.record(canvasId, id, ShapeChange.Type.DELETED);
+        geometryIndex.invalidate(canvasId);
+    }
 
-        Shape updatedShape = shapeRepository.save(existingShape);
-        return mapToResponseDto(updatedShape);
+    // Acknowledged before anything is written; the shape's type and canvas come from the cached entity,
+    // so this costs one second-level cache hit however large the canvas is
+    @Override
+    @Transactional(readOnly = true)
+    public void updateGeometryLater(Long id, ShapeGeometryRequestDto requestDto) {
+        Shape stored = shapeOf(id);
+        ShapeType type = stored.getType();
+        long canvasId = stored.getCanvasId();
+        validateCoordinates(type, requestDto.getCoordinates(),
+                requestDto.getCenterX(), requestDto.getCenterY(), requestDto.getRadius());
+        Shape geometry = type == ShapeType.CIRCLE
+                ? new Shape(id, null, type, null, requestDto.getCenterX(), requestDto.getCenterY(), requestDto.getRadius())
+                : new Shape(id, null, type, requestDto.getCoordinates(), null, null, null);
+        geometry.setCanvasId(canvasId);
+        writeBehind.accept(id, geometry);
     }
 
+    // Every selected shape is transformed from its newest geometry, including geometry still pending
+    // write-behind, and written by one batch of versioned updates in this transaction
     @Override
     @Transactional
-    public void deleteShape(Long id) {
-        if (!shapeRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Shape not found with id: " + id);
+    public List<ShapeResponseDto> transformShapes(ShapeTransformRequestDto requestDto) {
+        ShapeTransform transform = toTransform(requestDto.getMatrix());
+        List<Long> ids = selectForTransform(requestDto);
+        if (ids.size() > MAX_TRANSFORM) {
+            throw new ValidationException("At most " + MAX_TRANSFORM + " shapes can be transformed at once.");
         }
-        shapeRepository.deleteById(id);
+
+        List<Shape> shapes = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += ID_CHUNK) {
+            shapes.addAll(shapeRepository.findAllById(ids.subList(from, Math.min(ids.size(), from + ID_CHUNK))));
+        }
+        if (shapes.size() < ids.size()) {
+            LongHashSet found = new LongHashSet(shapes.size());
+            shapes.forEach(shape -> found.add(shape.getId()));
+            List<Long> missing = ids.stream().filter(id -> !found.contains(id)).toList();
+            throw new ResourceNotFoundException("Shapes not found with ids: " + missing);
+        }
+        if (!transform.isSimilarity() && shapes.stream().anyMatch(shape -> shape.getType() == ShapeType.CIRCLE)) {
+            throw new ValidationException("Circles can only be moved, rotated, reflected or scaled uniformly; "
+                    + "this transform would turn them into ellipses.");
+        }
+
+        // Everything is validated before the first shape changes, so a rejected transform keeps pending drags
+        List<Shape> transformed = new ArrayList<>(shapes.size());
+        for (Shape shape : shapes) {
+            Shape pending = writeBehind.pending(shape.getId());
+            transformed.add(transform(transform, pending != null ? pending : shape));
+        }
+        for (int i = 0; i < shapes.size(); i++) {
+            Shape shape = shapes.get(i);
+            Shape geometry = transformed.get(i);
+            writeBehind.discard(shape.getId());
+            shape.setCoordinates(geometry.getCoordinates());
+            shape.setCenterX(geometry.getCenterX());
+            shape.setCenterY(geometry.getCenterY());
+            shape.setRadius(geometry.getRadius());
+        }
+        try {
+            shapeRepository.flush();
+        } catch (OptimisticLockingFailureException e) {
+            throw new VersionConflictException("A selected shape was modified during the transform; retry it.");
+        }
+        shapes.sort(Comparator.comparing(Shape::getId));
+        // Shapes selected by id may come from several canvases
+        Map<Long, List<Long>> idsByCanvas = shapes.stream().collect(Collectors.groupingBy(Shape::getCanvasId,
+                TreeMap::new, Collectors.mapping(Shape::getId, Collectors.toList())));
+        idsByCanvas.forEach((canvasId, canvasShapeIds) -> {
+            changeLog.recordAll(canvasId, canvasShapeIds, ShapeChange.Type.UPDATED);
+            geometryIndex.invalidate(canvasId);
+        });
+        return shapes.stream().map(this::mapToResponseDto).toList();
+    }
+
+    private static ShapeTransform toTransform(List<Double> matrix) {
+        if (matrix == null || matrix.size() != 6 || matrix.stream().anyMatch(v -> v == null || !Double.isFinite(v))) {
+            throw new ValidationException("Transform matrix must have 6 finite entries: a, b, c, d, e, f.");
+        }
+        ShapeTransform transform = new ShapeTransform(matrix.get(0), matrix.get(1), matrix.get(2),
+                matrix.get(3), matrix.get(4), matrix.get(5));
+        if (transform.determinant() == 0) {
+            throw new ValidationException("Transform matrix is singular; it would flatten shapes onto a line.");
+        }
+        return transform;
+    }
+
+    // Distinct ids in request order, or the shapes of the canvas shown in the given box
+    private List<Long> selectForTransform(ShapeTransformRequestDto requestDto) {
+        boolean byBox = requestDto.getMinX() != null || requestDto.getMinY() != null
+                || requestDto.getMaxX() != null || requestDto.getMaxY() != null;
+        if ((requestDto.getIds() != null) == byBox) {
+            throw new ValidationException("Select shapes either by ids or by minX, minY, maxX and maxY, not both.");
+        }
+        if (!byBox) {
+            if (requestDto.getIds().stream().anyMatch(Objects::isNull)) {
+                throw new ValidationException("Shape ids must not be null.");
+            }
+            return requestDto.getIds().stream().distinct().toList();
+        }
+        if (requestDto.getMinX() == null || requestDto.getMinY() == null
+                || requestDto.getMaxX() == null || requestDto.getMaxY() == null) {
+            throw new ValidationException("A selection box needs minX, minY, maxX and maxY.");
+        }
+        long canvasId = requestDto.getCanvasId() == null ? Shape.DEFAULT_CANVAS : requestDto.getCanvasId();
+        double minX = requestDto.getMinX(), minY = requestDto.getMinY(), maxX = requestDto.getMaxX(), maxY = requestDto.getMaxY();
+        if (minX > maxX || minY > maxY) {
+            throw new ValidationException("Selection box minimum must not exceed its maximum.");
+        }
+        List<Shape> pending = List.copyOf(writeBehind.pendingIn(canvasId));
+        // One id past the cap proves the selection too large, even if every pending drag moved a listed shape out
+        List<Long> ids = shapeRepository.findIdsByBoundingBoxIntersecting(canvasId, minX, minY, maxX, maxY,
+                Limit.of(MAX_TRANSFORM + 1 + pending.size()));
+        if (pending.isEmpty()) {
+            return ids;
+        }
+        LongHashSet selected = new LongHashSet(ids.size());
+        ids.forEach(selected::add);
+        LongHashSet movedOut = new LongHashSet(pending.size());
+        List<Long> adjusted = new ArrayList<>(ids.size());
+        for (Shape geometry : pending) {
+            if (!intersects(geometry, minX, minY, maxX, maxY)) {
+                movedOut.add(geometry.getId());
+            } else if (!selected.contains(geometry.getId())) {
+                adjusted.add(geometry.getId());
+            }
+        }
+        for (Long id : ids) {
+            if (!movedOut.contains(id)) {
+                adjusted.add(id);
+            }
+        }
+        return adjusted;
+    }
+
+    // Stored coordinates are unsigned integers, so transformed vertices are rounded and must stay non-negative
+    private static Shape transform(ShapeTransform transform, Shape shape) {
+        if (shape.getType() == ShapeType.CIRCLE) {
+            return new Shape(shape.getId(), null, shape.getType(), null,
+                    transform.x(shape.getCenterX(), shape.getCenterY()),
+                    transform.y(shape.getCenterX(), shape.getCenterY()),
+                    shape.getRadius() * transform.scale());
+        }
+        double[] xy;
+        try {
+            xy = transform.apply(CoordinateParser.parse(shape.getCoordinates() == null ? "" : shape.getCoordinates()));
+        } catch (CoordinateFormatException e) {
+            throw new ValidationException("Shape " + shape.getId() + " has no readable coordinates to transform.");
+        }
+        StringBuilder coordinates = new StringBuilder();
+        for (int i = 0; i < xy.length; i += 2) {
+            long x = Math.round(xy[i]);
+            long y = Math.round(xy[i + 1]);
+            if (x < 0 || y < 0) {
+                throw new ValidationException("Transform moves shape " + shape.getId()
+                        + " to negative coordinates, which cannot be stored.");
+            }
+            if (i > 0) {
+                coordinates.append(';');
+            }
+            coordinates.append(x).append(',').append(y);
+            xy[i] = x;
+            xy[i + 1] = y;
+        }
+        // Rounding can fold thin parts of a polygon onto each other
+        validateSimple(xy);
+        return new Shape(shape.getId(), null, shape.getType(), coordinates.toString(), null, null, null);
+    }
+
+    // Reads show the newest geometry even while it is waiting to be flushed
+    private ShapeResponseDto applyPendingGeometry(ShapeResponseDto dto) {
+        Shape geometry = writeBehind.pending(dto.getId());
+        if (geometry != null) {
+            dto.setCoordinates(geometry.getCoordinates());
+            dto.setCenterX(geometry.getCenterX());
+            dto.setCenterY(geometry.getCenterY());
+            dto.setRadius(geometry.getRadius());
+        }
+        return dto;
+    }
+
+    // A unique violation on a shapes write can only come from the name constraint
+    private RuntimeException translateIntegrityViolation(DataIntegrityViolationException e, String name) {
+        if (e.getCause() instanceof ConstraintViolationException violation
+                && (violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE
+                || (violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase().contains(Shape.NAME_CONSTRAINT)))) {
+            return new ValidationException("Shape with name '" + name + "' already exists.");
+        }
+        return e;
     }
 
     //  Helper methods for mapping
@@ -126,14 +466,17 @@ public class ShapeServiceImpl implements IShapeService {
                 shape.getCoordinates(),
                 shape.getCenterX(),
                 shape.getCenterY(),
-                shape.getRadius()
+                shape.getRadius(),
+                shape.getVersion(),
+                shape.getCanvasId()
         );
     }
 
-    private Shape mapToEntity(ShapeRequestDto dto) {
+    private Shape mapToEntity(ShapeRequestDto dto, ShapeType type) {
         Shape shape = new Shape();
+        shape.setCanvasId(dto.getCanvasId() == null ? Shape.DEFAULT_CANVAS : dto.getCanvasId());
         shape.setName(dto.getName());
-        shape.setType(dto.getType());
+        shape.setType(type);
         shape.setCoordinates(dto.getCoordinates());
         shape.setCenterX(dto.getCenterX());
         shape.setCenterY(dto.getCenterY());
@@ -144,286 +487,474 @@ public class ShapeServiceImpl implements IShapeService {
     // --- OVERLAP DETECTION IMPLEMENTATION ---
 
     @Override
-    public List<Long> findOverlappingShapeIds() {
-        List<Shape> allShapes = shapeRepository.findAll();
-        Set<Long> overlappingShapeIds = new HashSet<>();
-
-        // Check all pairs of shapes for overlaps
-        for (int i = 0; i < allShapes.size(); i++) {
-            for (int j = i + 1; j < allShapes.size(); j++) {
-                Shape shape1 = allShapes.get(i);
-                Shape shape2 = allShapes.get(j);
-
-                if (shapesOverlap(shape1, shape2)) {
-                    overlappingShapeIds.add(shape1.getId());
-                    overlappingShapeIds.add(shape2.getId());
-                }
-            }
-        }
-
-        return new ArrayList<>(overlappingShapeIds);
+    @Transactional(readOnly = true)
+    public long[] findOverlappingShapeIds(long canvasId) {
+        ShapeGeometryIndex.View view = geometryIndex.view(canvasId);
+        GeometryStore shapes = view.store();
+        long[] ids = overlapStrategy == OverlapStrategy.SWEEP
+                ? SweepLineOverlapDetector.findOverlappingIds(shapes)
+                : OverlapDetector.findOverlappingIds(shapes);
+        return view.hasPending() ? withPending(view, ids, true) : ids;
     }
 
-    private boolean shapesOverlap(Shape shape1, Shape shape2) {
-        // Early bounding box check for performance optimization
-        if (!boundingBoxesOverlap(shape1, shape2)) {
-            return false;
+    // The budget is checked between shapes of the pairwise pass, whichever strategy is configured
+    @Override
+    @Transactional(readOnly = true)
+    public OverlapPageDto findOverlappingShapeIds(long canvasId, long deadlineMs, Long continuation) {
+        if (deadlineMs < 1) {
+            throw new ValidationException("deadlineMs must be at least 1.");
         }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        ShapeGeometryIndex.View view = geometryIndex.view(canvasId);
+        GeometryStore shapes = view.store();
+        // The continuation is the id of the first shape not yet done, so writes in between do not shift it
+        int from = continuation == null ? 0 : lowerBound(shapes, continuation);
+        OverlapDetector.PartialOverlaps partial = OverlapDetector.findOverlappingIds(shapes, from, deadline);
+        // Shapes a drag may have changed are left out of every page and decided in the last one
+        long[] ids = view.hasPending() ? withPending(view, partial.ids(), partial.complete()) : partial.ids();
+        return new OverlapPageDto(ids, partial.complete(),
+                partial.complete() ? null : shapes.id(partial.next()));
+    }
 
-        // Detailed overlap detection based on shape types
-        if (isCircle(shape1) && isCircle(shape2)) {
-            return circleCircleOverlap(shape1, shape2);
-        } else if (isCircle(shape1) && isPolygon(shape2)) {
-            return circlePolygonOverlap(shape1, shape2);
-        } else if (isPolygon(shape1) && isCircle(shape2)) {
-            return circlePolygonOverlap(shape2, shape1);
-        } else if (isPolygon(shape1) && isPolygon(shape2)) {
-            return polygonPolygonOverlap(shape1, shape2);
+    /**
+     * Corrects overlapping ids found in the store for the canvas's pending geometry without running
+     * the pass again. Stored shapes whose box meets a replaced shape's old box may have overlapped
+     * only that shape, so they are taken out and, with decide, tested again against the store; each
+     * pending shape is tested against the store and the other pending shapes around it.
+     */
+    private static long[] withPending(ShapeGeometryIndex.View view, long[] storeIds, boolean decide) {
+        GeometryStore store = view.store();
+        LongHashSet suspects = new LongHashSet();
+        List<Integer> recheck = new ArrayList<>();
+        for (int replaced : view.replaced()) {
+            suspects.add(store.id(replaced));
+            store.tree().intersecting(store, store.minX(replaced), store.minY(replaced), store.maxX(replaced), store.maxY(replaced), 0,
+                    other -> {
+                        if (!view.isReplaced(other) && suspects.add(store.id(other))) {
+                            recheck.add(other);
+                        }
+                    });
         }
-
-        return false;
+        LongHashSet overlapping = new LongHashSet(storeIds.length);
+        for (long id : storeIds) {
+            if (!suspects.contains(id)) {
+                overlapping.add(id);
+            }
+        }
+        if (!decide) {
+            return overlapping.toSortedArray();
+        }
+        for (int shape : recheck) {
+            if (OverlapDetector.findOverlappingIds(nearby(view, store, shape, 0, false), 0).length > 0) {
+                overlapping.add(store.id(shape));
+            }
+        }
+        ShapeSet pending = view.pending();
+        for (int k = 0; k < pending.size(); k++) {
+            long[] hits = OverlapDetector.findOverlappingIds(nearby(view, pending, k, 0, true), 0);
+            if (hits.length > 0) {
+                overlapping.add(pending.id(k));
+                for (long hit : hits) {
+                    overlapping.add(hit);
+                }
+            }
+        }
+        return overlapping.toSortedArray();
     }
 
-    // Shape type helper methods
-    private boolean isCircle(Shape shape) {
-        return "circle".equalsIgnoreCase(shape.getType());
+    /**
+     * A set with the given shape, of the store or the pending set, first, followed by the store's
+     * shapes without pending geometry whose boxes come within margin of its box and, if asked,
+     * the other pending shapes that do. Exact tests against that one shape then run on the set.
+     */
+    private static ShapeSet nearby(ShapeGeometryIndex.View view, GeometryStore from, int shape, double margin,
+                                   boolean withPending) {
+        GeometryStore store = view.store();
+        double loX = from.minX(shape) - margin, loY = from.minY(shape) - margin;
+        double hiX = from.maxX(shape) + margin, hiY = from.maxY(shape) + margin;
+        ShapeSet.Builder builder = ShapeSet.builder(8);
+        builder.add(from, shape);
+        store.tree().intersecting(store, loX, loY, hiX, hiY, 0, other -> {
+            if (!view.isReplaced(other) && (from != store || other != shape)) {
+                builder.add(store, other);
+            }
+        });
+        ShapeSet pending = view.pending();
+        for (int k = 0; withPending && k < pending.size(); k++) {
+            if ((from != pending || k != shape) && pending.maxX(k) >= loX && hiX >= pending.minX(k)
+                    && pending.maxY(k) >= loY && hiY >= pending.minY(k)) {
+                builder.add(pending, k);
+            }
+        }
+        return builder.build();
     }
 
-    private boolean isPolygon(Shape shape) {
-        String type = shape.getType().toLowerCase();
-        return "triangle".equals(type) || "rectangle".equals(type) || "polygon".equals(type);
+    // The shape's pending geometry if it has some, with the shapes around it; see nearby
+    private static ShapeSet around(ShapeGeometryIndex.View view, Long id, double margin) {
+        int pending = indexOf(view.pending(), id);
+        return pending >= 0
+                ? nearby(view, view.pending(), pending, margin, true)
+                : nearby(view, view.store(), requireIndex(view.store(), id), margin, true);
     }
 
-    // Bounding Box Optimization
-    private boolean boundingBoxesOverlap(Shape shape1, Shape shape2) {
-        double[] bounds1 = getBoundingBox(shape1);
-        double[] bounds2 = getBoundingBox(shape2);
-
-
-        return !(bounds1[2] < bounds2[0] ||
-                bounds2[2] < bounds1[0] ||
-                bounds1[3] < bounds2[1] ||
-                bounds2[3] < bounds1[1]);
+    @Override
+    @Transactional(readOnly = true)
+    public long[] findShapesOverlapping(Long id) {
+        // The box query reads the rows, which do not have geometry still waiting to be flushed; the index does
+        if (writeBehind.hasPending()) {
+            long canvasId = canvasOf(id);
+            if (!writeBehind.pendingIn(canvasId).isEmpty()) {
+                long[] overlapping = OverlapDetector.findOverlappingIds(around(geometryIndex.view(canvasId), id, 0), 0);
+                Arrays.sort(overlapping);
+                return overlapping;
+            }
+        }
+        ShapeGeometryDto shape = shapeRepository.findGeometryById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Shape not found with id: " + id));
+        ShapeSet target = compile(List.of(shape));
+
+        // Bounding-box filtering runs in the database; only candidates get the exact test
+        List<ShapeGeometryDto> candidates = shapeRepository.findOverlapCandidateGeometry(id,
+                target.minX[0], target.minY[0], target.maxX[0], target.maxY[0]);
+        List<ShapeGeometryDto> shapes = new ArrayList<>(candidates.size() + 1);
+        shapes.add(shape);
+        shapes.addAll(candidates);
+        return OverlapDetector.findOverlappingIds(compile(shapes), 0);
     }
 
-    private double[] getBoundingBox(Shape shape) {
-        if (isCircle(shape)) {
-            double minX = shape.getCenterX() - shape.getRadius();
-            double minY = shape.getCenterY() - shape.getRadius();
-            double maxX = shape.getCenterX() + shape.getRadius();
-            double maxY = shape.getCenterY() + shape.getRadius();
-            return new double[]{minX, minY, maxX, maxY};
-        } else {
-            List<Point> points = parseCoordinates(shape.getCoordinates());
-            double minX = points.stream().mapToDouble(Point::getX).min().orElse(0);
-            double minY = points.stream().mapToDouble(Point::getY).min().orElse(0);
-            double maxX = points.stream().mapToDouble(Point::getX).max().orElse(0);
-            double maxY = points.stream().mapToDouble(Point::getY).max().orElse(0);
-            return new double[]{minX, minY, maxX, maxY};
+    // Runs while the response streams, so it must not hold a database connection for the whole pass
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void forEachOverlapArea(long canvasId, Consumer<OverlapAreaDto> consumer) {
+        ShapeGeometryIndex.View view = geometryIndex.view(canvasId);
+        GeometryStore shapes = view.store();
+        OverlapDetector.forEachOverlappingPair(shapes, (a, b) -> {
+            if (!view.isReplaced(a) && !view.isReplaced(b)) {
+                consumer.accept(overlapArea(shapes, a, b));
+            }
+        });
+        // Pending shapes against the stored ones around them, then against each other
+        ShapeSet pending = view.pending();
+        for (int k = 0; k < pending.size(); k++) {
+            ShapeSet around = nearby(view, pending, k, 0, false);
+            EdgeHierarchy edges = around.edges();
+            for (int other = 1; other < around.size(); other++) {
+                if (GeometryKernels.overlaps(around, edges, 0, other)) {
+                    consumer.accept(around.id(0) < around.id(other) ? overlapArea(around, 0, other) : overlapArea(around, other, 0));
+                }
+            }
+        }
+        if (pending.size() > 1) {
+            OverlapDetector.forEachOverlappingPair(pending, (a, b) -> consumer.accept(overlapArea(pending, a, b)));
         }
     }
 
-    // Circle-Circle Overlap Detection
-    private boolean circleCircleOverlap(Shape circle1, Shape circle2) {
-        double dx = circle1.getCenterX() - circle2.getCenterX();
-        double dy = circle1.getCenterY() - circle2.getCenterY();
-        double distance = Math.sqrt(dx * dx + dy * dy);
-        double radiusSum = circle1.getRadius() + circle2.getRadius();
-
-
-        return distance < radiusSum;
+    private static OverlapAreaDto overlapArea(GeometryStore shapes, int a, int b) {
+        double area = IntersectionArea.intersectionArea(shapes, a, b);
+        return new OverlapAreaDto(shapes.id(a), shapes.id(b), area,
+                coveragePercent(area, IntersectionArea.area(shapes, a)),
+                coveragePercent(area, IntersectionArea.area(shapes, b)));
     }
 
-    // Circle-Polygon Overlap Detection
-    private boolean circlePolygonOverlap(Shape circle, Shape polygon) {
-        List<Point> polygonPoints = parseCoordinates(polygon.getCoordinates());
-        Point center = new Point(circle.getCenterX(), circle.getCenterY());
-        double radius = circle.getRadius();
+    private static double coveragePercent(double intersection, double area) {
+        return area > 0 ? Math.min(100, 100 * intersection / area) : 0;
+    }
 
-        // Check if circle center is inside polygon
-        if (isPointInPolygon(center, polygonPoints)) {
-            return true;
+    @Override
+    @Transactional(readOnly = true)
+    public List<ShapeDistanceDto> findNearestShapes(long canvasId, double x, double y, int k) {
+        if (!Double.isFinite(x) || !Double.isFinite(y)) {
+            throw new ValidationException("x and y must be finite numbers.");
         }
-
-        // Check if any polygon vertex is inside circle
-        for (Point vertex : polygonPoints) {
-            double distance = Math.sqrt(Math.pow(vertex.getX() - center.getX(), 2) +
-                    Math.pow(vertex.getY() - center.getY(), 2));
-            if (distance < radius) {
-                return true;
-            }
+        if (k < 1 || k > MAX_NEAREST) {
+            throw new ValidationException("k must be between 1 and " + MAX_NEAREST + ".");
         }
-
-        // Check if circle intersects any polygon edge
-        for (int i = 0; i < polygonPoints.size(); i++) {
-            Point p1 = polygonPoints.get(i);
-            Point p2 = polygonPoints.get((i + 1) % polygonPoints.size());
-            if (distanceFromPointToLineSegment(center, p1, p2) < radius) {
-                return true;
+        ShapeGeometryIndex.View view = geometryIndex.view(canvasId);
+        GeometryStore shapes = view.store();
+        List<ShapeDistanceDto> nearest = new ArrayList<>(Math.min(k, shapes.size()));
+        shapes.tree().nearest(shapes, x, y, (shape, distance) -> {
+            if (!view.isReplaced(shape)) {
+                nearest.add(new ShapeDistanceDto(shapes.id(shape), distance));
             }
+            return nearest.size() < k;
+        });
+        if (!view.hasPending()) {
+            return nearest;
         }
-
-        return false;
+        ShapeSet pending = view.pending();
+        for (int p = 0; p < pending.size(); p++) {
+            nearest.add(new ShapeDistanceDto(pending.id(p), ShapeDistances.pointDistance(pending, pending.edges(), p, x, y)));
+        }
+        nearest.sort(Comparator.comparingDouble(ShapeDistanceDto::getDistance));
+        return new ArrayList<>(nearest.subList(0, Math.min(k, nearest.size())));
     }
 
-    // Polygon-Polygon Overlap Detection
-    private boolean polygonPolygonOverlap(Shape polygon1, Shape polygon2) {
-        List<Point> points1 = parseCoordinates(polygon1.getCoordinates());
-        List<Point> points2 = parseCoordinates(polygon2.getCoordinates());
-
-        // Check if any vertex of polygon1 is inside polygon2
-        for (Point point : points1) {
-            if (isPointInPolygon(point, points2)) {
-                return true;
-            }
+    @Override
+    @Transactional(readOnly = true)
+    public List<ShapeDistanceDto> findShapesWithin(Long id, double distance) {
+        if (!(distance >= 0) || Double.isInfinite(distance)) {
+            throw new ValidationException("distance must be a finite number of at least 0.");
         }
-
-        // Check if any vertex of polygon2 is inside polygon1
-        for (Point point : points2) {
-            if (isPointInPolygon(point, points1)) {
-                return true;
+        ShapeGeometryIndex.View view = geometryIndex.view(canvasOf(id));
+        List<ShapeDistanceDto> within = new ArrayList<>();
+        if (view.hasPending()) {
+            ShapeSet around = around(view, id, distance);
+            for (int other = 1; other < around.size(); other++) {
+                double gap = ShapeDistances.distance(around, around.edges(), 0, other);
+                if (gap <= distance) {
+                    within.add(new ShapeDistanceDto(around.id(other), gap));
+                }
             }
+            within.sort(Comparator.comparingDouble(ShapeDistanceDto::getDistance));
+            return within;
         }
+        GeometryStore shapes = view.store();
+        int shape = requireIndex(shapes, id);
+        shapes.tree().within(shapes, shape, distance, (other, gap) -> {
+            within.add(new ShapeDistanceDto(shapes.id(other), gap));
+            return true;
+        });
+        return within;
+    }
 
-        // Check for edge intersections
-        for (int i = 0; i < points1.size(); i++) {
-            Point p1 = points1.get(i);
-            Point p2 = points1.get((i + 1) % points1.size());
+    // Only shapes whose box lies in the target's box can be inside it, so the tree's box query supplies the candidates
+    @Override
+    @Transactional(readOnly = true)
+    public long[] findShapesContainedBy(Long id) {
+        ShapeGeometryIndex.View view = geometryIndex.view(canvasOf(id));
+        GeometryStore shapes = view.hasPending() ? around(view, id, 0) : view.store();
+        int outer = view.hasPending() ? 0 : requireIndex(shapes, id);
+        EdgeHierarchy edges = shapes.edges();
+        LongHashSet contained = new LongHashSet();
+        shapes.tree().intersecting(shapes, shapes.minX(outer), shapes.minY(outer), shapes.maxX(outer), shapes.maxY(outer), 0,
+                inner -> {
+                    if (inner != outer && SpatialRelations.contains(shapes, edges, outer, inner)) {
+                        contained.add(shapes.id(inner));
+                    }
+                });
+        return contained.toSortedArray();
+    }
 
-            for (int j = 0; j < points2.size(); j++) {
-                Point p3 = points2.get(j);
-                Point p4 = points2.get((j + 1) % points2.size());
+    @Override
+    @Transactional(readOnly = true)
+    public long[] findShapesContaining(Long id) {
+        ShapeGeometryIndex.View view = geometryIndex.view(canvasOf(id));
+        GeometryStore shapes = view.hasPending() ? around(view, id, 0) : view.store();
+        int inner = view.hasPending() ? 0 : requireIndex(shapes, id);
+        EdgeHierarchy edges = shapes.edges();
+        LongHashSet containing = new LongHashSet();
+        shapes.tree().intersecting(shapes, shapes.minX(inner), shapes.minY(inner), shapes.maxX(inner), shapes.maxY(inner), 0,
+                outer -> {
+                    if (outer != inner && SpatialRelations.contains(shapes, edges, outer, inner)) {
+                        containing.add(shapes.id(outer));
+                    }
+                });
+        return containing.toSortedArray();
+    }
 
-                if (lineSegmentsIntersect(p1, p2, p3, p4)) {
-                    return true;
-                }
+    @Override
+    @Transactional(readOnly = true)
+    public long[] findShapesContainingPoint(long canvasId, double x, double y) {
+        if (!Double.isFinite(x) || !Double.isFinite(y)) {
+            throw new ValidationException("x and y must be finite numbers.");
+        }
+        ShapeGeometryIndex.View view = geometryIndex.view(canvasId);
+        GeometryStore shapes = view.store();
+        EdgeHierarchy edges = shapes.edges();
+        LongHashSet containing = new LongHashSet();
+        shapes.tree().intersecting(shapes, x, y, x, y, 0, shape -> {
+            if (!view.isReplaced(shape) && SpatialRelations.containsPoint(shapes, edges, shape, x, y)) {
+                containing.add(shapes.id(shape));
+            }
+        });
+        ShapeSet pending = view.pending();
+        for (int p = 0; p < pending.size(); p++) {
+            if (SpatialRelations.containsPoint(pending, pending.edges(), p, x, y)) {
+                containing.add(pending.id(p));
             }
         }
-
-        return false;
+        return containing.toSortedArray();
     }
 
-    // --- GEOMETRIC HELPER METHODS ---
-
-    // Coordinate parsing
-    private List<Point> parseCoordinates(String coordinates) {
-        try {
-            String[] pairs = coordinates.split(";");
-            List<Point> points = new ArrayList<>();
-
-            for (String pair : pairs) {
-                String[] xy = pair.trim().split(",");
-                if (xy.length != 2) {
-                    throw new IllegalArgumentException("Invalid coordinate format");
+    // Disjoint is the complement of the overlap predicates: only shapes whose boxes meet the target's need an exact test
+    @Override
+    @Transactional(readOnly = true)
+    public long[] findShapesDisjointFrom(Long id) {
+        ShapeGeometryIndex.View view = geometryIndex.view(canvasOf(id));
+        if (view.hasPending()) {
+            // Every shape of the canvas is in the store, dragged or not; only those around the target can overlap it
+            GeometryStore stored = view.store();
+            ShapeSet around = around(view, id, 0);
+            LongHashSet overlapping = new LongHashSet();
+            overlapping.add(id);
+            for (long other : OverlapDetector.findOverlappingIds(around, 0)) {
+                overlapping.add(other);
+            }
+            long[] disjoint = new long[stored.size()];
+            int count = 0;
+            for (int i = 0; i < stored.size(); i++) {
+                if (!overlapping.contains(stored.id(i))) {
+                    disjoint[count++] = stored.id(i);
                 }
-                double x = Double.parseDouble(xy[0].trim());
-                double y = Double.parseDouble(xy[1].trim());
-                points.add(new Point(x, y));
             }
-
-            return points;
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid coordinate values", e);
+            return Arrays.copyOf(disjoint, count);
         }
+        GeometryStore shapes = view.store();
+        int target = requireIndex(shapes, id);
+        EdgeHierarchy edges = shapes.edges();
+        boolean[] overlapping = new boolean[shapes.size()];
+        overlapping[target] = true;
+        shapes.tree().intersecting(shapes, shapes.minX(target), shapes.minY(target), shapes.maxX(target), shapes.maxY(target), 0,
+                other -> {
+                    if (other != target && GeometryKernels.narrowPhaseOverlaps(shapes, edges, target, other)) {
+                        overlapping[other] = true;
+                    }
+                });
+        long[] disjoint = new long[shapes.size()];
+        int count = 0;
+        for (int i = 0; i < shapes.size(); i++) {
+            if (!overlapping[i]) {
+                disjoint[count++] = shapes.id(i);
+            }
+        }
+        return Arrays.copyOf(disjoint, count);
     }
 
-    // Point-in-polygon test using ray casting algorithm
-    private boolean isPointInPolygon(Point point, List<Point> polygon) {
-        int intersections = 0;
-        int n = polygon.size();
+    // Id-based queries run on the shape's canvas; the lookup is normally served by the second-level cache
+    private long canvasOf(Long id) {
+        return shapeOf(id).getCanvasId();
+    }
 
-        for (int i = 0; i < n; i++) {
-            Point p1 = polygon.get(i);
-            Point p2 = polygon.get((i + 1) % n);
+    private Shape shapeOf(Long id) {
+        return shapeRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Shape not found with id: " + id));
+    }
 
-            if (rayIntersectsEdge(point, p1, p2)) {
-                intersections++;
-            }
+    private static int requireIndex(GeometryStore shapes, Long id) {
+        int index = indexOf(shapes, id);
+        if (index < 0) {
+            throw new ResourceNotFoundException("Shape not found with id: " + id);
         }
+        return index;
+    }
 
-        return (intersections % 2) == 1;
+    // The index keeps shapes in id order
+    private static int indexOf(GeometryStore shapes, long id) {
+        int index = lowerBound(shapes, id);
+        return index < shapes.size() && shapes.id(index) == id ? index : -1;
     }
 
-    private boolean rayIntersectsEdge(Point point, Point edgeStart, Point edgeEnd) {
-        if (edgeStart.getY() > point.getY() != edgeEnd.getY() > point.getY()) {
-            double intersectionX = (edgeEnd.getX() - edgeStart.getX()) *
-                    (point.getY() - edgeStart.getY()) /
-                    (edgeEnd.getY() - edgeStart.getY()) + edgeStart.getX();
-            if (point.getX() < intersectionX) {
-                return true;
+    // Index of the first shape with an id of at least id; the set's size if there is none
+    private static int lowerBound(GeometryStore shapes, long id) {
+        int lo = 0;
+        int hi = shapes.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (shapes.id(mid) < id) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
             }
         }
-        return false;
+        return lo;
     }
 
-    // Distance from point to line segment
-    private double distanceFromPointToLineSegment(Point point, Point lineStart, Point lineEnd) {
-        double A = point.getX() - lineStart.getX();
-        double B = point.getY() - lineStart.getY();
-        double C = lineEnd.getX() - lineStart.getX();
-        double D = lineEnd.getY() - lineStart.getY();
-
-        double dot = A * C + B * D;
-        double lenSq = C * C + D * D;
-
-        if (lenSq == 0) {
-            return Math.sqrt(A * A + B * B);
+    @Override
+    @Transactional(readOnly = true)
+    public List<ShapeResponseDto> findShapesInViewport(long canvasId, double minX, double minY, double maxX, double maxY) {
+        if (minX > maxX || minY > maxY) {
+            throw new ValidationException("Viewport minimum must not exceed its maximum.");
         }
-
-        double param = dot / lenSq;
-
-        double xx, yy;
-        if (param < 0) {
-            xx = lineStart.getX();
-            yy = lineStart.getY();
-        } else if (param > 1) {
-            xx = lineEnd.getX();
-            yy = lineEnd.getY();
-        } else {
-            xx = lineStart.getX() + param * C;
-            yy = lineStart.getY() + param * D;
+        List<ShapeResponseDto> shapes = shapeRepository.findResponsesByBoundingBoxIntersecting(canvasId, minX, minY, maxX, maxY);
+        if (!writeBehind.hasPending()) {
+            return shapes;
         }
-
-        double dx = point.getX() - xx;
-        double dy = point.getY() - yy;
-        return Math.sqrt(dx * dx + dy * dy);
-    }
-
-    // Line segment intersection test
-    private boolean lineSegmentsIntersect(Point p1, Point p2, Point p3, Point p4) {
-        double d1 = crossProduct(p4.getX() - p3.getX(), p4.getY() - p3.getY(), p1.getX() - p3.getX(), p1.getY() - p3.getY());
-        double d2 = crossProduct(p4.getX() - p3.getX(), p4.getY() - p3.getY(), p2.getX() - p3.getX(), p2.getY() - p3.getY());
-        double d3 = crossProduct(p2.getX() - p1.getX(), p2.getY() - p1.getY(), p3.getX() - p1.getX(), p3.getY() - p1.getY());
-        double d4 = crossProduct(p2.getX() - p1.getX(), p2.getY() - p1.getY(), p4.getX() - p1.getX(), p4.getY() - p1.getY());
-
-        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) &&
-                ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) {
-            return true;
+        // Pending geometry decides by its own box: moved-out shapes are dropped and moved-in ones fetched
+        List<ShapeResponseDto> visible = new ArrayList<>(shapes.size());
+        LongHashSet listed = new LongHashSet(shapes.size());
+        for (ShapeResponseDto shape : shapes) {
+            listed.add(shape.getId());
+            Shape geometry = writeBehind.pending(shape.getId());
+            if (geometry == null || intersects(geometry, minX, minY, maxX, maxY)) {
+                visible.add(applyPendingGeometry(shape));
+            }
         }
-
-        return false;
+        List<Long> movedIn = new ArrayList<>();
+        for (Shape geometry : writeBehind.pendingIn(canvasId)) {
+            if (!listed.contains(geometry.getId()) && intersects(geometry, minX, minY, maxX, maxY)) {
+                movedIn.add(geometry.getId());
+            }
+        }
+        if (!movedIn.isEmpty()) {
+            shapeRepository.findResponsesByIdIn(movedIn).forEach(shape -> visible.add(applyPendingGeometry(shape)));
+        }
+        return visible;
     }
 
-    private double crossProduct(double ax, double ay, double bx, double by) {
-        return ax * by - ay * bx;
+    private static boolean intersects(Shape geometry, double minX, double minY, double maxX, double maxY) {
+        return geometry.getMinX() != null && geometry.getMinX() <= maxX && geometry.getMaxX() >= minX
+                && geometry.getMinY() <= maxY && geometry.getMaxY() >= minY;
     }
 
-    // Inner class for Point representation
-    private static class Point {
-        private final double x;
-        private final double y;
+    @Override
+    @Transactional(readOnly = true)
+    public ShapeTileDto findTile(long canvasId, int z, int x, int y) {
+        if (z < 0 || z > ShapeTileCache.MAX_ZOOM) {
+            throw new ValidationException("z must be between 0 and " + ShapeTileCache.MAX_ZOOM + ".");
+        }
+        int tiles = 1 << z;
+        if (x < 0 || x >= tiles || y < 0 || y >= tiles) {
+            throw new ValidationException("x and y must be between 0 and " + (tiles - 1) + " at zoom " + z + ".");
+        }
+        return tileCache.tile(canvasId, z, x, y);
+    }
 
-        public Point(double x, double y) {
-            this.x = x;
-            this.y = y;
+    @Override
+    @Transactional(readOnly = true)
+    public ShapeChangesResponseDto findChangesSince(long canvasId, long since, int limit) {
+        if (since < 0) {
+            throw new ValidationException("since must not be negative.");
+        }
+        if (limit < 1 || limit > MAX_CHANGES_PER_PAGE) {
+            throw new ValidationException("limit must be between 1 and " + MAX_CHANGES_PER_PAGE + ".");
+        }
+        List<ShapeChange> page = changeLog.changesAfter(canvasId, since, limit + 1);
+        // Checked after the read: a prune committed before it shows up here. Everything up to the current
+        // number is in a reload made after this response, so the client continues from there.
+        long prunedThrough = changeLog.prunedThrough();
+        if (since < prunedThrough) {
+            throw new ChangesExpiredException("Changes up to " + prunedThrough + " are no longer kept; reload the canvas's "
+                    + "shapes and continue from since=" + changeLog.currentSeq() + ".");
+        }
+        boolean hasMore = page.size() > limit;
+        if (hasMore) {
+            page = page.subList(0, limit);
         }
 
-        public double getX() {
-            return x;
+        // One query for the current state of every shape in the page
+        List<Long> shapeIds = page.stream().map(ShapeChange::getShapeId).distinct().toList();
+        Map<Long, ShapeResponseDto> current = new HashMap<>();
+        if (!shapeIds.isEmpty()) {
+            for (ShapeResponseDto shape : shapeRepository.findResponsesByIdIn(shapeIds)) {
+                current.put(shape.getId(), applyPendingGeometry(shape));
+            }
+        }
+        List<ShapeChangeDto> changes = new ArrayList<>(page.size());
+        for (ShapeChange change : page) {
+            changes.add(new ShapeChangeDto(change.getSeq(), change.getShapeId(), change.getType(), current.get(change.getShapeId())));
         }
+        long nextSince = page.isEmpty() ? since : page.get(page.size() - 1).getSeq();
+        return new ShapeChangesResponseDto(changes, nextSince, hasMore);
+    }
+
+    // --- GEOMETRY HELPERS ---
 
-        public double getY() {
-            return y;
+    private ShapeSet compile(List<ShapeGeometryDto> shapes) {
+        ShapeSet.Builder builder = ShapeSet.builder(shapes.size());
+        for (ShapeGeometryDto shape : shapes) {
+            builder.add(shape.getId(), shape.getType(), shape.getCoordinates(),
+                    shape.getCenterX(), shape.getCenterY(), shape.getRadius());
         }
+        return builder.build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,158 @@
+package com.example.shapemanegement.service.impl;
+
+import com.example.shapemanegement.dto.projection.ShapeGeometryDto;
+import com.example.shapemanegement.dto.response.ShapeTileDto;
+import com.example.shapemanegement.geometry.GeometryStore;
+import com.example.shapemanegement.geometry.ShapeSet;
+import com.example.shapemanegement.geometry.Simplifier;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Map tiles built from the {@link ShapeGeometryIndex}, with the most used ones cached.
+ * <p>
+ * Tile {@code z/x/y} covers {@code [x, x + 1) * extent / 2^z} by {@code [y, y + 1) * extent / 2^z}
+ * and is drawn at {@link #TILE_PIXELS} pixels across, so one pixel is the detail worth sending:
+ * polygons are simplified to that tolerance and shapes smaller than a pixel are left out. The
+ * shapes are found through the index's {@link com.example.shapemanegement.geometry.ShapeTree},
+ * which skips whole subtrees of sub-pixel shapes, so a zoomed-out tile costs about as much as
+ * the shapes it shows rather than every shape under it.
+ * <p>
+ * Tiles are per canvas. Every shape write replaces its canvas's store in the index, and the first
+ * tile read from a new store starts a new epoch for that canvas. Tiles are keyed by epoch, so the
+ * old store's tiles are never served again and age out of the cache like any unused tile; no
+ * write has to look through other canvases' tiles.
+ * <p>
+ * Pending drag geometry does not change the store, so it does not start an epoch either. A tile
+ * that a dragged shape covers, where it is now or where it is stored, is built for each request
+ * from the store and the pending shapes and is not cached; every other tile is served as usual.
+ */
+@Component
+public class ShapeTileCache {
+
+    public static final int MAX_ZOOM = 24;
+    static final int TILE_PIXELS = 256;
+
+    private record Epoch(GeometryStore store, long number) {
+    }
+
+    // epoch: its number identifies the canvas too; tile: z, x and y packed into one long
+    private record TileKey(long epoch, long tile) {
+    }
+
+    private final ShapeGeometryIndex geometryIndex;
+    private final double extent;
+    private final Cache<TileKey, ShapeTileDto> tiles;
+    // Numbers are never reused, so a canvas whose epoch was evicted cannot be served another store's tiles
+    private final Cache<Long, Epoch> epochs;
+    private final AtomicLong epochNumbers = new AtomicLong();
+
+    public ShapeTileCache(ShapeGeometryIndex geometryIndex,
+                          @Value("${shapes.tiles.extent:65536}") double extent,
+                          @Value("${shapes.tiles.cache-size:10000}") long cacheSize) {
+        this.geometryIndex = geometryIndex;
+        this.extent = extent;
+        this.tiles = Caffeine.newBuilder().maximumSize(cacheSize).build();
+        // A canvas without a cached tile needs no epoch, so there are never more worth keeping than tiles
+        this.epochs = Caffeine.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    public ShapeTileDto tile(long canvasId, int z, int x, int y) {
+        ShapeGeometryIndex.View view = geometryIndex.view(canvasId);
+        GeometryStore store = view.store();
+        if (view.hasPending() && touchesPending(view, z, x, y)) {
+            return build(view, z, x, y);
+        }
+        Epoch current = epochs.getIfPresent(canvasId);
+        if (current == null || current.store() != store) {
+            current = advance(canvasId, store);
+        }
+        // z needs 5 bits and x, y at most MAX_ZOOM bits each
+        TileKey key = new TileKey(current.number(), (long) z << 2 * MAX_ZOOM | (long) x << MAX_ZOOM | y);
+        ShapeTileDto cached = tiles.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        // No pending shape comes near this tile, so it is the stored shapes alone
+        ShapeTileDto content = build(view, z, x, y);
+        tiles.put(key, content);
+        return content;
+    }
+
+    // Whether a pending shape's box, old or new, meets the tile
+    private boolean touchesPending(ShapeGeometryIndex.View view, int z, int x, int y) {
+        double size = extent / (1L << z);
+        GeometryStore store = view.store();
+        ShapeSet pending = view.pending();
+        for (int k = 0; k < pending.size(); k++) {
+            int stored = view.replaced()[k];
+            if (meets(store, stored, x * size, y * size, (x + 1) * size, (y + 1) * size)
+                    || meets(pending, k, x * size, y * size, (x + 1) * size, (y + 1) * size)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean meets(GeometryStore s, int shape, double loX, double loY, double hiX, double hiY) {
+        return s.maxX(shape) >= loX && hiX >= s.minX(shape) && s.maxY(shape) >= loY && hiY >= s.minY(shape);
+    }
+
+    // Tiles still being built from the old store are put under the old number and never served
+    private Epoch advance(long canvasId, GeometryStore store) {
+        return epochs.asMap().compute(canvasId, (id, current) ->
+                current != null && current.store() == store ? current : new Epoch(store, epochNumbers.incrementAndGet()));
+    }
+
+    // Stored shapes with pending geometry are drawn where it puts them
+    private ShapeTileDto build(ShapeGeometryIndex.View view, int z, int x, int y) {
+        double size = extent / (1L << z);
+        double pixel = size / TILE_PIXELS;
+        double loX = x * size, loY = y * size, hiX = (x + 1) * size, hiY = (y + 1) * size;
+        GeometryStore store = view.store();
+        List<ShapeGeometryDto> shapes = new ArrayList<>();
+        store.tree().intersecting(store, loX, loY, hiX, hiY, pixel, shape -> {
+            if (!view.isReplaced(shape)) {
+                shapes.add(toDto(store, shape, pixel));
+            }
+        });
+        ShapeSet pending = view.pending();
+        for (int k = 0; k < view.replaced().length; k++) {
+            if (meets(pending, k, loX, loY, hiX, hiY)
+                    && Math.max(pending.maxX(k) - pending.minX(k), pending.maxY(k) - pending.minY(k)) >= pixel) {
+                shapes.add(toDto(pending, k, pixel));
+            }
+        }
+        return new ShapeTileDto(z, x, y, shapes);
+    }
+
+    private ShapeGeometryDto toDto(GeometryStore store, int shape, double tolerance) {
+        if (store.type(shape) == ShapeSet.TYPE_CIRCLE) {
+            return new ShapeGeometryDto(store.id(shape), store.shapeType(shape), null,
+                    store.centerX(shape), store.centerY(shape), store.radius(shape));
+        }
+        StringBuilder coordinates = new StringBuilder();
+        for (int vertex : Simplifier.simplifyRing(store, shape, tolerance)) {
+            if (!coordinates.isEmpty()) {
+                coordinates.append(';');
+            }
+            appendCoordinate(coordinates, store.x(vertex)).append(',');
+            appendCoordinate(coordinates, store.y(vertex));
+        }
+        // Simplified, a rectangle may have lost a vertex, but it is still drawn as the shape the client stored
+        return new ShapeGeometryDto(store.id(shape), store.shapeType(shape), coordinates.toString(), null, null, null);
+    }
+
+    // Same notation the coordinates were stored in: whole numbers without a fraction
+    private static StringBuilder appendCoordinate(StringBuilder builder, double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? builder.append((long) value)
+                : builder.append(value);
+    }
+}
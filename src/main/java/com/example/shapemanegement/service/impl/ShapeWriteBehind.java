@@ -0,0 +1,213 @@
+package com.example.shapemanegement.service.impl;
+
+import com.example.shapemanegement.entity.Shape;
+import com.example.shapemanegement.entity.ShapeChange;
+import com.example.shapemanegement.repository.ShapeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Geometry updates accepted without touching the database, for editors that send one per mouse
+ * move while a shape is dragged. Only the newest geometry per shape is kept; every
+ * {@code shapes.write-behind.interval} all of them are written in one transaction, each with its
+ * change-log entry, so a drag costs one row update per interval instead of one transaction per
+ * move. Updates are unconditional: the last one wins, whatever version the client last read.
+ * <p>
+ * The batch is written through managed entities, not a bulk update. Hibernate then replaces just
+ * the flushed shapes in the {@code shapes} second-level cache region, where a bulk update would
+ * evict the whole region on every flush. Loading them is normally served by that same region.
+ * <p>
+ * Pending geometry is also kept per canvas, with a version that every change to it moves on, so
+ * the {@link ShapeGeometryIndex} reads one canvas's few pending shapes and rebuilds what it lays
+ * over them only when they changed.
+ * <p>
+ * A regular update or delete of a shape first {@link #discard discards} its pending geometry,
+ * without waiting for anything. A flush only writes geometry still pending after it has loaded
+ * the shape, so an older drag position can never be written over a newer synchronous write: the
+ * flush either loads the row after that write committed and skips the shape, or loaded it before
+ * and one of the two fails on the version.
+ * <p>
+ * A batch that fails for a passing reason, like such a version conflict or a lost connection, is
+ * retried by the next flush. Any other failure is narrowed down by writing the shapes one by one,
+ * and geometry that cannot be written is logged and dropped.
+ */
+@Component
+public class ShapeWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(ShapeWriteBehind.class);
+
+    private final ShapeRepository shapeRepository;
+    private final ShapeChangeLog changeLog;
+    private final ShapeGeometryIndex geometryIndex;
+    private final TransactionTemplate transaction;
+    private final Map<Long, Shape> pending = new ConcurrentHashMap<>();
+    // The same geometry by canvas; only changed inside an update of the shape's entry in pending, so they agree
+    private final Map<Long, CanvasPending> byCanvas = new ConcurrentHashMap<>();
+
+    // The pending geometry of one canvas's shapes, by id
+    static final class CanvasPending {
+        private final Map<Long, Shape> shapes = new ConcurrentHashMap<>();
+        private final AtomicLong version = new AtomicLong();
+
+        // Read before shapes(): a change in between is seen again under the next version
+        long version() {
+            return version.get();
+        }
+
+        Collection<Shape> shapes() {
+            return shapes.values();
+        }
+
+        private void put(Shape geometry) {
+            shapes.put(geometry.getId(), geometry);
+            version.incrementAndGet();
+        }
+
+        private void remove(Shape geometry) {
+            if (shapes.remove(geometry.getId(), geometry)) {
+                version.incrementAndGet();
+            }
+        }
+    }
+
+    public ShapeWriteBehind(ShapeRepository shapeRepository, ShapeChangeLog changeLog, ShapeGeometryIndex geometryIndex,
+                            PlatformTransactionManager transactionManager) {
+        this.shapeRepository = shapeRepository;
+        this.changeLog = changeLog;
+        this.geometryIndex = geometryIndex;
+        this.transaction = new TransactionTemplate(transactionManager);
+        geometryIndex.pending(byCanvas::get);
+    }
+
+    // Replaces any geometry still pending for the shape; type only decides how the bounding box is computed,
+    // and canvasId which canvas's viewports show it
+    public void accept(Long id, Shape geometry) {
+        geometry.setId(id);
+        geometry.beforeWrite();
+        pending.compute(id, (key, previous) -> {
+            if (previous != null) {
+                canvas(previous.getCanvasId()).remove(previous);
+            }
+            canvas(geometry.getCanvasId()).put(geometry);
+            return geometry;
+        });
+    }
+
+    // The newest unflushed geometry of the shape, or null
+    public Shape pending(Long id) {
+        return pending.get(id);
+    }
+
+    // The unflushed geometry of one canvas's shapes, in no particular order
+    public Collection<Shape> pendingIn(long canvasId) {
+        CanvasPending canvas = byCanvas.get(canvasId);
+        return canvas == null ? List.of() : canvas.shapes();
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    // Called inside the writers' transactions, so it must never wait for a flush
+    public void discard(Long id) {
+        pending.computeIfPresent(id, (key, previous) -> {
+            canvas(previous.getCanvasId()).remove(previous);
+            return null;
+        });
+    }
+
+    // Flushes never overlap each other; writers do not take this lock
+    @Scheduled(fixedDelayString = "${shapes.write-behind.interval:PT0.2S}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Shape> batch = List.copyOf(pending.values());
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            if (!isTransient(e)) {
+                writeOneByOne(batch);
+            }
+            return;
+        }
+        batch.forEach(this::remove);
+    }
+
+    // Finds the geometry that keeps the batch from being written; it would fail every flush after this one
+    private void writeOneByOne(List<Shape> batch) {
+        for (Shape geometry : batch) {
+            try {
+                write(List.of(geometry));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    continue;
+                }
+                log.warn("Dropping pending geometry of shape {}, which cannot be written", geometry.getId(), e);
+            }
+            remove(geometry);
+        }
+    }
+
+    private void write(List<Shape> batch) {
+        transaction.executeWithoutResult(status -> {
+            Set<Long> canvases = new HashSet<>();
+            for (Shape geometry : batch) {
+                // One lookup per shape, since by id they are cache hits where a query would read every row;
+                // shapes deleted in the meantime are not found and are dropped
+                Shape shape = shapeRepository.findById(geometry.getId()).orElse(null);
+                // Checked after the load: geometry discarded by a regular write, or replaced by a newer drag, is skipped
+                if (shape == null || pending.get(geometry.getId()) != geometry) {
+                    continue;
+                }
+                shape.setCoordinates(geometry.getCoordinates());
+                shape.setCenterX(geometry.getCenterX());
+                shape.setCenterY(geometry.getCenterY());
+                shape.setRadius(geometry.getRadius());
+                changeLog.record(shape.getCanvasId(), geometry.getId(), ShapeChange.Type.UPDATED);
+                canvases.add(shape.getCanvasId());
+            }
+            canvases.forEach(geometryIndex::invalidate);
+        });
+    }
+
+    // Geometry accepted while the batch was written stays for the next flush
+    private void remove(Shape geometry) {
+        pending.computeIfPresent(geometry.getId(), (key, previous) -> {
+            if (previous != geometry) {
+                return previous;
+            }
+            canvas(previous.getCanvasId()).remove(previous);
+            return null;
+        });
+    }
+
+    // Kept once created, even when empty: a canvas has at most one, and removing it could race an accept
+    private CanvasPending canvas(long canvasId) {
+        return byCanvas.computeIfAbsent(canvasId, key -> new CanvasPending());
+    }
+
+    // Failures the same batch may get past on the next flush: version conflicts, lock timeouts, an unreachable database
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+}
@@ -2,7 +2,9 @@ package com.example.shapemanegement.controller;
 
 import com.example.shapemanegement.dto.request.ShapeRequestDto;
 import com.example.shapemanegement.entity.Shape;
+import com.example.shapemanegement.geometry.ShapeType;
 import com.example.shapemanegement.repository.ShapeRepository;
+import com.example.shapemanegement.util.JwtUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -47,19 +49,19 @@ class ShapeControllerIntegrationTest {
     void setup() {
         shapeRepository.deleteAll();
 
-        Shape savedRectangle = shapeRepository.save(new Shape(null, "MyRectangle", "rectangle", "0,0,10,10", null, null, null));
+        Shape savedRectangle = shapeRepository.save(new Shape(null, "MyRectangle", ShapeType.RECTANGLE, "0,0,10,10", null, null, null));
         rectangleId = savedRectangle.getId();
 
-        Shape savedCircle = shapeRepository.save(new Shape(null, "MyCircle", "circle", null, 5.0, 5.0, 3.0));
+        Shape savedCircle = shapeRepository.save(new Shape(null, "MyCircle", ShapeType.CIRCLE, null, 5.0, 5.0, 3.0));
         circleId = savedCircle.getId();
 
-        Shape savedPolygon = shapeRepository.save(new Shape(null, "MyPolygon", "polygon", "1,1,2,2,3,3", null, null, null));
+        Shape savedPolygon = shapeRepository.save(new Shape(null, "MyPolygon", ShapeType.POLYGON, "1,1,2,2,3,3", null, null, null));
         polygonId = savedPolygon.getId();
 
-        Shape savedOverlappingRect1 = shapeRepository.save(new Shape(null, "OverlappingRect1", "rectangle", "0,0,5,5", null, null, null));
+        Shape savedOverlappingRect1 = shapeRepository.save(new Shape(null, "OverlappingRect1", ShapeType.RECTANGLE, "0,0,5,5", null, null, null));
         overlappingRect1Id = savedOverlappingRect1.getId();
 
-        Shape savedOverlappingRect2 = shapeRepository.save(new Shape(null, "OverlappingRect2", "rectangle", "3,3,8,8", null, null, null));
+        Shape savedOverlappingRect2 = shapeRepository.save(new Shape(null, "OverlappingRect2", ShapeType.RECTANGLE, "3,3,8,8", null, null, null));
         overlappingRect2Id = savedOverlappingRect2.getId();
     }
 
@@ -102,7 +104,7 @@ class ShapeControllerIntegrationTest {
                 .andExpect(jsonPath("$.coordinates").value("0,0,20,20"));
 
         assertEquals(6, shapeRepository.count());
-        assertTrue(shapeRepository.findByName("NewRectangle").isPresent());
+        assertTrue(shapeRepository.findByName(Shape.DEFAULT_CANVAS, "NewRectangle").isPresent());
     }
 
     @Test
@@ -144,4 +146,30 @@ class ShapeControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isArray());
     }
+
+    @Test
+    void testGetShapesContainingShape() throws Exception {
+        // Circles on a canvas of their own: H2 hands JSON coordinates back quoted, which the geometry index rejects
+        Shape frame = new Shape(null, "Frame", ShapeType.CIRCLE, null, 20.0, 20.0, 15.0);
+        frame.setCanvasId(9L);
+        Long frameId = shapeRepository.save(frame).getId();
+        Shape dot = new Shape(null, "Dot", ShapeType.CIRCLE, null, 20.0, 20.0, 3.0);
+        dot.setCanvasId(9L);
+        Long dotId = shapeRepository.save(dot).getId();
+
+        mockMvc.perform(get("/api/shapes/" + dotId + "/containing")
+                        .header("Authorization", "Bearer " + JwtUtil.generateToken("admin"))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0]").value(frameId));
+
+        mockMvc.perform(get("/api/shapes/within")
+                        .header("Authorization", "Bearer " + JwtUtil.generateToken("admin"))
+                        .param("id", String.valueOf(dotId))
+                        .param("distance", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(frameId));
+    }
 }
@@ -0,0 +1,93 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("BroadPhaseKernel Tests")
+class BroadPhaseKernelTest {
+
+    @Test
+    @DisplayName("Should load the vector kernel when the incubator module is present")
+    void shouldLoadVectorKernel() {
+
+        // Surefire runs with --add-modules jdk.incubator.vector
+        assertThat(BroadPhaseKernels.vector()).isNotNull();
+        assertThat(BroadPhaseKernels.best()).isSameAs(BroadPhaseKernels.vector());
+        assertThat(BroadPhaseKernels.scalar().name()).isEqualTo("scalar");
+    }
+
+    @Test
+    @DisplayName("Should give identical box and circle hits in vector and scalar kernels")
+    void shouldMatchScalarKernel() {
+
+        BroadPhaseKernel vector = BroadPhaseKernels.vector();
+        BroadPhaseKernel scalar = BroadPhaseKernels.scalar();
+        Random random = new Random(7L);
+        // Odd sizes and offsets exercise both the vector loop and the scalar tail
+        for (int size : new int[]{1, 3, 8, 37, 500}) {
+            ShapeSet shapes = randomShapes(size, random);
+            int[] expected = new int[size];
+            int[] actual = new int[size];
+            for (int i = 0; i < size; i++) {
+                int from = Math.min(i + 1, size);
+                int expectedCount = scalar.overlappingBoxes(shapes, i, from, size, expected);
+                int actualCount = vector.overlappingBoxes(shapes, i, from, size, actual);
+                assertThat(Arrays.copyOf(actual, actualCount)).containsExactly(Arrays.copyOf(expected, expectedCount));
+
+                if (shapes.types[i] == ShapeSet.TYPE_CIRCLE) {
+                    expectedCount = scalar.overlappingCircles(shapes, i, 0, size, expected);
+                    actualCount = vector.overlappingCircles(shapes, i, 0, size, actual);
+                    assertThat(Arrays.copyOf(actual, actualCount)).containsExactly(Arrays.copyOf(expected, expectedCount));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should detect the same overlaps as a brute-force pair loop with either kernel")
+    void shouldMatchBruteForce() {
+
+        ShapeSet shapes = randomShapes(400, new Random(11L));
+        boolean[] overlapping = new boolean[shapes.size];
+        for (int i = 0; i < shapes.size; i++) {
+            for (int j = i + 1; j < shapes.size; j++) {
+                if (GeometryKernels.overlaps(shapes, shapes.edges(), i, j)) {
+                    overlapping[i] = overlapping[j] = true;
+                }
+            }
+        }
+        long[] expected = new long[shapes.size];
+        int count = 0;
+        for (int i = 0; i < shapes.size; i++) {
+            if (overlapping[i]) {
+                expected[count++] = shapes.ids[i];
+            }
+        }
+
+
+        assertThat(OverlapDetector.findOverlappingIds(shapes, BroadPhaseKernels.scalar())).containsExactly(Arrays.copyOf(expected, count));
+        assertThat(OverlapDetector.findOverlappingIds(shapes, BroadPhaseKernels.vector())).containsExactly(Arrays.copyOf(expected, count));
+    }
+
+    // --- HELPER METHODS ---
+
+    private ShapeSet randomShapes(int count, Random random) {
+        ShapeSet.Builder builder = ShapeSet.builder(count);
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(200);
+            int y = random.nextInt(200);
+            int size = 1 + random.nextInt(15);
+            if (random.nextBoolean()) {
+                builder.add(i, ShapeType.CIRCLE, null, (double) x, (double) y, (double) size);
+            } else {
+                builder.add(i, ShapeType.TRIANGLE, x + "," + y + ";" + (x + size) + "," + y + ";" + x + "," + (y + size), null, null, null);
+            }
+        }
+        return builder.build();
+    }
+}
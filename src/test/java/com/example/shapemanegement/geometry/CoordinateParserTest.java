@@ -0,0 +1,174 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("CoordinateParser Tests")
+class CoordinateParserTest {
+
+    // The validation regex the parser replaces; acceptance must stay identical
+    private static final Pattern LEGACY_PATTERN = Pattern.compile("^\\s*\\d+,\\d+(;\\s*\\d+,\\d+)*\\s*$");
+
+    private static final String ALPHABET = "0123456789,;,;  \t\n\r\f\u000B-.+ex\u0085\u2028";
+
+    @Test
+    @DisplayName("Should parse points into a flat x,y array")
+    void shouldParsePoints() {
+
+        double[] xy = CoordinateParser.parse("  0,0; 10,0;\t5,10 \n");
+
+
+        assertThat(xy).containsExactly(0, 0, 10, 0, 5, 10);
+    }
+
+    @Test
+    @DisplayName("Should grow past the initial buffer")
+    void shouldParseManyPoints() {
+
+        StringBuilder coordinates = new StringBuilder("0,0");
+        for (int i = 1; i < 100; i++) {
+            coordinates.append(';').append(i).append(',').append(i * 2);
+        }
+
+
+        double[] xy = CoordinateParser.parse(coordinates.toString());
+
+
+        assertThat(xy).hasSize(200);
+        assertThat(xy[198]).isEqualTo(99);
+        assertThat(xy[199]).isEqualTo(198);
+    }
+
+    @Test
+    @DisplayName("Should parse long digit runs exactly like Double.parseDouble")
+    void shouldParseLongNumbers() {
+
+        String big = "123456789012345678901234567890";
+        double[] xy = CoordinateParser.parse("999999999999999999," + big);
+
+
+        assertThat(xy[0]).isEqualTo(Double.parseDouble("999999999999999999"));
+        assertThat(xy[1]).isEqualTo(Double.parseDouble(big));
+    }
+
+    @Test
+    @DisplayName("Should report the position of the first bad character")
+    void shouldReportErrorPositions() {
+
+        assertError("", 0, "expected a digit");
+        assertError("1,2;3", 5, "expected ','");
+        assertError("1,2;3,x", 6, "expected a digit");
+        assertError("1,2 ;3,4", 4, "expected end of input");
+        assertError("1,2:3,4", 3, "expected ';'");
+        assertError("-1,2", 0, "expected a digit");
+        assertError("1.5,2", 1, "expected ','");
+        assertError("1,2;", 4, "expected a digit");
+    }
+
+    @Test
+    @DisplayName("Should accept exactly what the legacy regex accepts (fuzzed)")
+    void shouldMatchLegacyRegex() {
+
+        Random random = new Random(20261019L);
+        for (int i = 0; i < 200_000; i++) {
+            String candidate = i % 2 == 0 ? randomString(random) : mutate(validString(random), random);
+            assertEquivalent(candidate);
+        }
+    }
+
+    // --- HELPER METHODS ---
+
+    private void assertError(String coordinates, int position, String reason) {
+        assertThatThrownBy(() -> CoordinateParser.parse(coordinates))
+                .isInstanceOfSatisfying(CoordinateFormatException.class, e -> {
+                    assertThat(e.getPosition()).isEqualTo(position);
+                    assertThat(e.getMessage()).startsWith(reason);
+                });
+    }
+
+    private void assertEquivalent(String candidate) {
+        boolean legacyAccepts = LEGACY_PATTERN.matcher(candidate).matches();
+        double[] xy;
+        try {
+            xy = CoordinateParser.parse(candidate);
+        } catch (CoordinateFormatException e) {
+            assertThat(legacyAccepts).as("regex accepts %s but parser rejected at %d", escape(candidate), e.getPosition()).isFalse();
+            assertThat(e.getPosition()).isBetween(0, candidate.length());
+            return;
+        }
+        assertThat(legacyAccepts).as("parser accepts %s but regex rejects", escape(candidate)).isTrue();
+
+        // Values must match the old split/parseDouble pipeline
+        String[] pairs = candidate.split(";");
+        assertThat(xy).hasSize(pairs.length * 2);
+        for (int p = 0; p < pairs.length; p++) {
+            String[] values = pairs[p].trim().split(",");
+            assertThat(xy[2 * p]).isEqualTo(Double.parseDouble(values[0].trim()));
+            assertThat(xy[2 * p + 1]).isEqualTo(Double.parseDouble(values[1].trim()));
+        }
+    }
+
+    private String randomString(Random random) {
+        int length = random.nextInt(16);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+
+    private String validString(Random random) {
+        StringBuilder sb = new StringBuilder();
+        appendWhitespace(sb, random);
+        int points = 1 + random.nextInt(5);
+        for (int p = 0; p < points; p++) {
+            if (p > 0) {
+                sb.append(';');
+                appendWhitespace(sb, random);
+            }
+            sb.append(random.nextInt(random.nextBoolean() ? 10 : 100_000)).append(',').append(random.nextInt(1000));
+        }
+        appendWhitespace(sb, random);
+        return sb.toString();
+    }
+
+    private void appendWhitespace(StringBuilder sb, Random random) {
+        int count = random.nextInt(4) == 0 ? random.nextInt(3) : 0;
+        for (int i = 0; i < count; i++) {
+            sb.append(" \t\n\r\f\u000B".charAt(random.nextInt(6)));
+        }
+    }
+
+    // Zero to two random insert/delete/replace edits, so most candidates sit near the grammar boundary
+    private String mutate(String valid, Random random) {
+        StringBuilder sb = new StringBuilder(valid);
+        int edits = random.nextInt(3);
+        for (int e = 0; e < edits; e++) {
+            int at = sb.length() == 0 ? 0 : random.nextInt(sb.length());
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            switch (random.nextInt(3)) {
+                case 0 -> sb.insert(at, c);
+                case 1 -> {
+                    if (sb.length() > 0) {
+                        sb.deleteCharAt(at);
+                    }
+                }
+                default -> {
+                    if (sb.length() > 0) {
+                        sb.setCharAt(at, c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private String escape(String s) {
+        return "\"" + s.replace("\n", "\\n").replace("\t", "\\t").replace("\r", "\\r") + "\"";
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("EdgeHierarchy Tests")
+class EdgeHierarchyTest {
+
+    @Test
+    @DisplayName("Should index only polygons with at least MIN_VERTICES vertices")
+    void shouldIndexLargePolygonsOnly() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(3);
+        builder.add(1L, ShapeType.CIRCLE, null, 0.0, 0.0, 5.0);
+        builder.add(2L, ShapeType.TRIANGLE, "0,0;10,0;5,10", null, null, null);
+        builder.add(3L, ShapeType.POLYGON, ring(100, 100, 50, 100, new Random(1L)), null, null, null);
+        ShapeSet shapes = builder.build();
+
+
+        EdgeHierarchy edges = shapes.edges();
+
+
+        assertThat(edges.indexes(0)).isFalse();
+        assertThat(edges.indexes(1)).isFalse();
+        assertThat(edges.indexes(2)).isTrue();
+        // 100 edges in leaves of at most 8: 16 leaves and 15 inner nodes
+        assertThat(edges.nodeCount()).isEqualTo(31);
+    }
+
+    @Test
+    @DisplayName("Should decide every pair exactly as the linear scans do")
+    void shouldMatchLinearKernels() {
+
+        Random random = new Random(11L);
+        ShapeSet.Builder builder = ShapeSet.builder(60);
+        for (int i = 0; i < 60; i++) {
+            int x = 100 + random.nextInt(400);
+            int y = 100 + random.nextInt(400);
+            switch (i % 4) {
+                case 0 -> builder.add(i, ShapeType.CIRCLE, null, (double) x, (double) y, 5.0 + random.nextInt(40));
+                case 1 -> builder.add(i, ShapeType.TRIANGLE, x + "," + y + ";" + (x + 30) + "," + y + ";" + x + "," + (y + 30), null, null, null);
+                default -> builder.add(i, ShapeType.POLYGON, ring(x, y, 20 + random.nextInt(80), 32 + random.nextInt(300), random), null, null, null);
+            }
+        }
+        ShapeSet shapes = builder.build();
+        EdgeHierarchy edges = shapes.edges();
+
+
+        int overlapping = 0;
+        for (int a = 0; a < shapes.size(); a++) {
+            for (int b = a + 1; b < shapes.size(); b++) {
+                if (!GeometryKernels.boundingBoxesOverlap(shapes, a, b)) {
+                    continue;
+                }
+                boolean indexed = GeometryKernels.narrowPhaseOverlaps(shapes, edges, a, b);
+                assertThat(indexed).as("pair %d, %d", a, b).isEqualTo(linear(shapes, a, b));
+                overlapping += indexed ? 1 : 0;
+            }
+        }
+        assertThat(overlapping).isGreaterThan(20);
+    }
+
+    @Test
+    @DisplayName("Should give an off-heap copy the same hierarchy as its source")
+    void shouldShareHierarchyWithOffHeapCopy() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(1);
+        builder.add(1L, ShapeType.POLYGON, ring(100, 100, 50, 64, new Random(2L)), null, null, null);
+        ShapeSet shapes = builder.build();
+
+
+        OffHeapShapeStore store = OffHeapShapeStore.copyOf(shapes);
+
+
+        assertThat(store.edges()).isSameAs(shapes.edges());
+        assertThat(store.edges().isPointInPolygon(store, 0, 100, 100)).isTrue();
+        assertThat(store.edges().isPointInPolygon(store, 0, 500, 100)).isFalse();
+    }
+
+    private boolean linear(ShapeSet s, int a, int b) {
+        boolean circleA = s.types[a] == ShapeSet.TYPE_CIRCLE;
+        boolean circleB = s.types[b] == ShapeSet.TYPE_CIRCLE;
+        if (circleA && circleB) {
+            return GeometryKernels.circleCircleOverlap(s, a, b);
+        }
+        if (circleA) {
+            return GeometryKernels.circlePolygonOverlap(s, a, b);
+        }
+        if (circleB) {
+            return GeometryKernels.circlePolygonOverlap(s, b, a);
+        }
+        return GeometryKernels.polygonPolygonOverlap(s, a, b);
+    }
+
+    // A star-shaped ring around (cx, cy) with a jagged radius, like a digitised outline; radius <= min(cx, cy)
+    private String ring(int cx, int cy, int radius, int vertices, Random random) {
+        StringBuilder coordinates = new StringBuilder();
+        for (int v = 0; v < vertices; v++) {
+            double angle = 2 * Math.PI * v / vertices;
+            double r = radius * (0.6 + 0.4 * random.nextDouble());
+            if (v > 0) {
+                coordinates.append(';');
+            }
+            coordinates.append(Math.round(cx + r * Math.cos(angle))).append(',').append(Math.round(cy + r * Math.sin(angle)));
+        }
+        return coordinates.toString();
+    }
+}
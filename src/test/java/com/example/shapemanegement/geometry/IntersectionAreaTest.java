@@ -0,0 +1,91 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("IntersectionArea Tests")
+class IntersectionAreaTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    @DisplayName("Should compute the overlap of two polygons in either orientation")
+    void shouldComputePolygonPolygonArea() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(5);
+        builder.add(1L, ShapeType.RECTANGLE, "0,0;10,0;10,10;0,10", null, null, null);
+        builder.add(2L, ShapeType.RECTANGLE, "5,5;15,5;15,15;5,15", null, null, null);
+        builder.add(3L, ShapeType.RECTANGLE, "5,5;5,15;15,15;15,5", null, null, null);
+        builder.add(4L, ShapeType.RECTANGLE, "0,0;10,0;10,10;0,10", null, null, null);
+        builder.add(5L, ShapeType.TRIANGLE, "20,20;30,20;25,30", null, null, null);
+        ShapeSet shapes = builder.build();
+
+
+        assertThat(IntersectionArea.intersectionArea(shapes, 0, 1)).isCloseTo(25.0, within(EPSILON));
+        assertThat(IntersectionArea.intersectionArea(shapes, 0, 2)).isCloseTo(25.0, within(EPSILON));
+        assertThat(IntersectionArea.intersectionArea(shapes, 2, 0)).isCloseTo(25.0, within(EPSILON));
+        // Shared edges count once
+        assertThat(IntersectionArea.intersectionArea(shapes, 0, 3)).isCloseTo(100.0, within(EPSILON));
+        assertThat(IntersectionArea.intersectionArea(shapes, 0, 4)).isZero();
+        assertThat(IntersectionArea.area(shapes, 2)).isCloseTo(100.0, within(EPSILON));
+        assertThat(IntersectionArea.area(shapes, 4)).isCloseTo(50.0, within(EPSILON));
+    }
+
+    @Test
+    @DisplayName("Should compute the overlap of a concave polygon")
+    void shouldComputeConcaveOverlap() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(3);
+        builder.add(1L, ShapeType.POLYGON, "0,0;20,0;20,10;10,10;10,20;0,20", null, null, null);
+        builder.add(2L, ShapeType.RECTANGLE, "5,5;15,5;15,15;5,15", null, null, null);
+        // A notch reaching into the L's missing corner from above
+        builder.add(3L, ShapeType.TRIANGLE, "12,12;18,12;15,25", null, null, null);
+        ShapeSet shapes = builder.build();
+
+
+        assertThat(IntersectionArea.area(shapes, 0)).isCloseTo(300.0, within(EPSILON));
+        // The square minus the quarter that falls in the L's missing corner
+        assertThat(IntersectionArea.intersectionArea(shapes, 0, 1)).isCloseTo(75.0, within(EPSILON));
+        assertThat(IntersectionArea.intersectionArea(shapes, 0, 2)).isCloseTo(0.0, within(EPSILON));
+    }
+
+    @Test
+    @DisplayName("Should compute the lens between two circles")
+    void shouldComputeCircleCircleArea() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(4);
+        builder.add(1L, ShapeType.CIRCLE, null, 10.0, 10.0, 5.0);
+        builder.add(2L, ShapeType.CIRCLE, null, 15.0, 10.0, 5.0);
+        builder.add(3L, ShapeType.CIRCLE, null, 11.0, 10.0, 2.0);
+        builder.add(4L, ShapeType.CIRCLE, null, 30.0, 10.0, 5.0);
+        ShapeSet shapes = builder.build();
+
+
+        double lens = 50 * Math.acos(0.5) - 2.5 * Math.sqrt(75);
+        assertThat(IntersectionArea.intersectionArea(shapes, 0, 1)).isCloseTo(lens, within(EPSILON));
+        assertThat(IntersectionArea.intersectionArea(shapes, 0, 2)).isCloseTo(4 * Math.PI, within(EPSILON));
+        assertThat(IntersectionArea.intersectionArea(shapes, 0, 3)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should compute the overlap of a circle and a polygon")
+    void shouldComputeCirclePolygonArea() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(5);
+        builder.add(1L, ShapeType.RECTANGLE, "10,10;30,10;30,30;10,30", null, null, null);
+        builder.add(2L, ShapeType.CIRCLE, null, 20.0, 20.0, 3.0);
+        builder.add(3L, ShapeType.CIRCLE, null, 10.0, 10.0, 4.0);
+        builder.add(4L, ShapeType.CIRCLE, null, 20.0, 20.0, 50.0);
+        builder.add(5L, ShapeType.CIRCLE, null, 20.0, 10.0, 4.0);
+        ShapeSet shapes = builder.build();
+
+
+        assertThat(IntersectionArea.intersectionArea(shapes, 0, 1)).isCloseTo(9 * Math.PI, within(EPSILON));
+        assertThat(IntersectionArea.intersectionArea(shapes, 2, 0)).isCloseTo(4 * Math.PI, within(EPSILON));
+        assertThat(IntersectionArea.intersectionArea(shapes, 0, 3)).isCloseTo(400.0, within(EPSILON));
+        // Centered on an edge: half the circle
+        assertThat(IntersectionArea.intersectionArea(shapes, 0, 4)).isCloseTo(8 * Math.PI, within(EPSILON));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("LongHashSet Tests")
+class LongHashSetTest {
+
+    @Test
+    @DisplayName("Should hold the same keys as a HashSet through growth")
+    void shouldMatchHashSet() {
+
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(7L);
+
+
+        for (int i = 0; i < 50_000; i++) {
+            // Packed index pairs, as the sweep stores them, plus repeats and extremes
+            long key = switch (i % 3) {
+                case 0 -> (long) random.nextInt(1000) << 32 | random.nextInt(1000);
+                case 1 -> random.nextLong();
+                default -> i % 2 == 0 ? Long.MIN_VALUE : 0L;
+            };
+            assertThat(set.add(key)).isEqualTo(expected.add(key));
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (long key : expected) {
+            assertThat(set.contains(key)).isTrue();
+        }
+        assertThat(set.contains(-1L)).isEqualTo(expected.contains(-1L));
+        assertThat(set.toSortedArray()).containsExactly(expected.stream().mapToLong(Long::longValue).sorted().toArray());
+    }
+
+    @Test
+    @DisplayName("Should start empty")
+    void shouldStartEmpty() {
+
+        LongHashSet set = new LongHashSet();
+
+
+        assertThat(set.isEmpty()).isTrue();
+        assertThat(set.contains(0L)).isFalse();
+        assertThat(set.toArray()).isEmpty();
+    }
+}
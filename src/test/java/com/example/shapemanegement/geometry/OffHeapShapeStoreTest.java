@@ -0,0 +1,131 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("OffHeapShapeStore Tests")
+class OffHeapShapeStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should read back every field of the set from direct memory")
+    void shouldCopySet() {
+
+        ShapeSet shapes = randomShapes(101, new Random(3L));
+        OffHeapShapeStore store = OffHeapShapeStore.copyOf(shapes);
+
+
+        assertSameGeometry(store, shapes);
+    }
+
+    @Test
+    @DisplayName("Should round-trip the set through a memory-mapped file")
+    void shouldWriteAndMapFile() throws IOException {
+
+        ShapeSet shapes = randomShapes(57, new Random(5L));
+        Path file = directory.resolve("geometry.bin");
+
+
+        OffHeapShapeStore.write(shapes, 42L, file);
+        OffHeapShapeStore mapped = OffHeapShapeStore.map(file);
+
+
+        assertThat(Files.size(file)).isEqualTo(mapped.byteSize());
+        assertThat(mapped.version()).isEqualTo(42L);
+        assertSameGeometry(mapped, shapes);
+        assertThat(directory.toFile().list()).containsExactly("geometry.bin");
+    }
+
+    @Test
+    @DisplayName("Should find the same overlaps as the on-heap set with every kernel")
+    void shouldDetectSameOverlaps() {
+
+        ShapeSet shapes = randomShapes(400, new Random(9L));
+        OffHeapShapeStore store = OffHeapShapeStore.copyOf(shapes);
+        long[] expected = OverlapDetector.findOverlappingIds(shapes, BroadPhaseKernels.scalar());
+
+
+        assertThat(OverlapDetector.findOverlappingIds(store, BroadPhaseKernels.scalar())).containsExactly(expected);
+        assertThat(OverlapDetector.findOverlappingIds(store, BroadPhaseKernels.vector())).containsExactly(expected);
+        assertThat(OverlapDetector.findOverlappingIds(store, 0)).containsExactly(OverlapDetector.findOverlappingIds(shapes, 0));
+    }
+
+    @Test
+    @DisplayName("Should copy one compiled shape into a builder without parsing")
+    void shouldCopyShapesBetweenStores() {
+
+        ShapeSet shapes = randomShapes(30, new Random(13L));
+        OffHeapShapeStore store = OffHeapShapeStore.copyOf(shapes);
+        ShapeSet.Builder builder = ShapeSet.builder(1);
+        for (int i = 0; i < store.size(); i++) {
+            builder.add(store, i);
+        }
+
+
+        assertSameGeometry(builder.build(), shapes);
+    }
+
+    @Test
+    @DisplayName("Should reject files that are not complete geometry files")
+    void shouldRejectBadFiles() throws IOException {
+
+        Path file = directory.resolve("geometry.bin");
+        OffHeapShapeStore.write(randomShapes(10, new Random(1L)), 1L, file);
+        byte[] bytes = Files.readAllBytes(file);
+        Path truncated = Files.write(directory.resolve("truncated.bin"), Arrays.copyOf(bytes, bytes.length - 8));
+        Path foreign = Files.write(directory.resolve("foreign.bin"), new byte[64]);
+
+
+        assertThatThrownBy(() -> OffHeapShapeStore.map(truncated)).isInstanceOf(IOException.class).hasMessageContaining("Truncated");
+        assertThatThrownBy(() -> OffHeapShapeStore.map(foreign)).isInstanceOf(IOException.class).hasMessageContaining("Not a shape geometry file");
+    }
+
+    // --- HELPER METHODS ---
+
+    private void assertSameGeometry(GeometryStore store, ShapeSet shapes) {
+        assertThat(store.size()).isEqualTo(shapes.size);
+        for (int i = 0; i < shapes.size; i++) {
+            assertThat(store.id(i)).isEqualTo(shapes.ids[i]);
+            assertThat(store.type(i)).isEqualTo(shapes.types[i]);
+            assertThat(store.shapeType(i)).isEqualTo(shapes.shapeType(i));
+            assertThat(new double[]{store.minX(i), store.minY(i), store.maxX(i), store.maxY(i)})
+                    .containsExactly(shapes.minX[i], shapes.minY[i], shapes.maxX[i], shapes.maxY[i]);
+            assertThat(new double[]{store.centerX(i), store.centerY(i), store.radius(i)})
+                    .containsExactly(shapes.centerX[i], shapes.centerY[i], shapes.radius[i]);
+            assertThat(store.vertexStart(i)).isEqualTo(shapes.offsets[i]);
+            assertThat(store.vertexEnd(i)).isEqualTo(shapes.offsets[i + 1]);
+        }
+        for (int v = 0; v < shapes.xs.length; v++) {
+            assertThat(store.x(v)).isEqualTo(shapes.xs[v]);
+            assertThat(store.y(v)).isEqualTo(shapes.ys[v]);
+        }
+    }
+
+    private ShapeSet randomShapes(int count, Random random) {
+        ShapeSet.Builder builder = ShapeSet.builder(count);
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(200);
+            int y = random.nextInt(200);
+            int size = 1 + random.nextInt(15);
+            switch (i % 3) {
+                case 0 -> builder.add(i, ShapeType.CIRCLE, null, (double) x, (double) y, (double) size);
+                case 1 -> builder.add(i, ShapeType.TRIANGLE, x + "," + y + ";" + (x + size) + "," + y + ";" + x + "," + (y + size), null, null, null);
+                default -> builder.add(i, ShapeType.RECTANGLE,
+                        x + "," + y + ";" + (x + size) + "," + y + ";" + (x + size) + "," + (y + size) + ";" + x + "," + (y + size),
+                        null, null, null);
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("OverlapDetector Tests")
+class OverlapDetectorTest {
+
+    @Test
+    @DisplayName("Should store polygons as offsets into shared vertex arrays")
+    void shouldCompileShapeSet() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(1);
+        builder.add(1L, ShapeType.CIRCLE, null, 2.0, 3.0, 1.0);
+        builder.add(2L, ShapeType.TRIANGLE, "0,0;10,0;5,10", null, null, null);
+        builder.add(3L, ShapeType.RECTANGLE, "20,20;30,20;30,30;20,30", null, null, null);
+        ShapeSet shapes = builder.build();
+
+
+        assertThat(shapes.size).isEqualTo(3);
+        assertThat(shapes.types).containsExactly(ShapeSet.TYPE_CIRCLE, ShapeSet.TYPE_POLYGON, ShapeSet.TYPE_POLYGON);
+        assertThat(shapes.offsets).containsExactly(0, 0, 3, 7);
+        assertThat(shapes.vertexCount(2)).isEqualTo(4);
+        assertThat(shapes.minX[0]).isEqualTo(1.0);
+        assertThat(shapes.maxY[1]).isEqualTo(10.0);
+        assertThat(shapes.xs[3]).isEqualTo(20.0);
+    }
+
+    @Test
+    @DisplayName("Should detect crossing polygons with no vertex inside the other")
+    void shouldDetectCrossingPolygons() {
+
+        ShapeSet shapes = shapes(
+                "rectangle", "0,4;10,4;10,6;0,6",
+                "rectangle", "4,0;6,0;6,10;4,10");
+
+
+        assertThat(OverlapDetector.findOverlappingIds(shapes)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Should detect a polygon nested inside another")
+    void shouldDetectNestedPolygons() {
+
+        ShapeSet shapes = shapes(
+                "rectangle", "0,0;100,0;100,100;0,100",
+                "triangle", "40,40;60,40;50,60");
+
+
+        assertThat(OverlapDetector.findOverlappingIds(shapes)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Should detect a circle crossing a polygon edge")
+    void shouldDetectCircleCrossingEdge() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(2);
+        builder.add(1L, ShapeType.RECTANGLE, "0,0;100,0;100,10;0,10", null, null, null);
+        builder.add(2L, ShapeType.CIRCLE, null, 50.0, 13.0, 4.0);
+
+
+        assertThat(OverlapDetector.findOverlappingIds(builder.build())).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Should not treat touching circles as overlapping")
+    void shouldIgnoreTouchingCircles() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(2);
+        builder.add(1L, ShapeType.CIRCLE, null, 0.0, 0.0, 5.0);
+        builder.add(2L, ShapeType.CIRCLE, null, 10.0, 0.0, 5.0);
+
+
+        assertThat(OverlapDetector.findOverlappingIds(builder.build())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should map type names to type codes once, ignoring case")
+    void shouldMapTypeNames() {
+
+        assertThat(ShapeType.fromValue("Rectangle")).isEqualTo(ShapeType.RECTANGLE);
+        assertThat(ShapeType.fromValue("hexagon")).isNull();
+        assertThat(ShapeType.fromValue(null)).isNull();
+        assertThat(ShapeType.CIRCLE.code()).isEqualTo(ShapeSet.TYPE_CIRCLE);
+        assertThat(ShapeType.TRIANGLE.code()).isEqualTo(ShapeSet.TYPE_POLYGON);
+        assertThat(ShapeType.POLYGON.value()).isEqualTo("polygon");
+    }
+
+    @Test
+    @DisplayName("Should find the shapes overlapping one target")
+    void shouldFindOverlapsOfTarget() {
+
+        ShapeSet shapes = shapes(
+                "rectangle", "0,0;10,0;10,10;0,10",
+                "rectangle", "5,5;15,5;15,15;5,15",
+                "rectangle", "50,50;60,50;60,60;50,60",
+                "triangle", "8,8;12,8;10,12");
+
+
+        assertThat(OverlapDetector.findOverlappingIds(shapes, 0)).containsExactly(2L, 4L);
+    }
+
+    @Test
+    @DisplayName("Should resume a pass stopped by its deadline without losing overlaps")
+    void shouldResumePartialOverlaps() {
+
+        ShapeSet shapes = shapes(
+                "rectangle", "0,0;10,0;10,10;0,10",
+                "rectangle", "50,50;60,50;60,60;50,60",
+                "rectangle", "5,5;15,5;15,15;5,15",
+                "triangle", "100,100;110,100;105,110",
+                "rectangle", "55,55;65,55;65,65;55,65");
+
+
+        // Already past the deadline: each run does exactly one shape
+        Set<Long> found = new TreeSet<>();
+        int runs = 0;
+        OverlapDetector.PartialOverlaps partial;
+        int from = 0;
+        do {
+            partial = OverlapDetector.findOverlappingIds(shapes, from, System.nanoTime() - 1);
+            Arrays.stream(partial.ids()).forEach(found::add);
+            assertThat(partial.next()).isEqualTo(from + 1);
+            from = partial.next();
+            runs++;
+        } while (!partial.complete());
+
+        assertThat(runs).isEqualTo(shapes.size());
+        assertThat(found).containsExactly(1L, 2L, 3L, 5L);
+        assertThat(OverlapDetector.findOverlappingIds(shapes, 0, System.nanoTime() + 1_000_000_000L).ids())
+                .containsExactly(OverlapDetector.findOverlappingIds(shapes));
+    }
+
+    @Test
+    @DisplayName("Should measure distance to degenerate and regular segments")
+    void shouldMeasureDistanceToSegments() {
+
+        assertThat(GeometryKernels.distanceFromPointToLineSegment(3, 4, 0, 0, 0, 0)).isEqualTo(5.0);
+        assertThat(GeometryKernels.distanceFromPointToLineSegment(5, 3, 0, 0, 10, 0)).isEqualTo(3.0);
+        assertThat(GeometryKernels.distanceFromPointToLineSegment(13, 4, 0, 0, 10, 0)).isEqualTo(5.0);
+    }
+
+    // --- HELPER METHODS ---
+
+    // Alternating type/coordinates pairs; ids start at 1
+    private ShapeSet shapes(String... typesAndCoordinates) {
+        ShapeSet.Builder builder = ShapeSet.builder(typesAndCoordinates.length / 2);
+        for (int i = 0; i < typesAndCoordinates.length; i += 2) {
+            builder.add(i / 2 + 1, ShapeType.fromValue(typesAndCoordinates[i]), typesAndCoordinates[i + 1], null, null, null);
+        }
+        return builder.build();
+    }
+}
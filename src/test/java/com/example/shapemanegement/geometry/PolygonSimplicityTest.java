@@ -0,0 +1,133 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("PolygonSimplicity Tests")
+class PolygonSimplicityTest {
+
+    @Test
+    @DisplayName("Should accept simple rings and report the edges of bow-ties, pinches and spikes")
+    void shouldFindSelfIntersections() {
+
+        assertThat(find("0,0;10,0;10,10;0,10")).isNull();
+        assertThat(find("0,0;10,0;10,10;0,10;0,0")).isNull();
+        assertThat(find("0,0;30,0;30,30;20,30;20,10;10,10;10,30;0,30")).isNull();
+
+
+        // Bow-tie: the two diagonals cross
+        assertThat(find("0,0;10,10;10,0;0,10")).isEqualTo(new PolygonSimplicity.EdgePair(0, 2));
+        // Figure eight through one vertex visited twice
+        assertThat(find("0,0;10,10;20,0;20,20;10,10;0,20")).isNotNull();
+        // Vertex touching a non-adjacent edge
+        assertThat(find("0,0;20,0;20,10;10,0;0,10")).isNotNull();
+        // Spike folding back along the previous edge, and a flat triangle
+        assertThat(find("0,0;10,0;10,10;10,5;0,10")).isIn(new PolygonSimplicity.EdgePair(1, 2), new PolygonSimplicity.EdgePair(1, 3));
+        assertThat(find("0,0;5,0;10,0")).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Should agree with the all-pairs check on random rings full of degenerate cases")
+    void shouldMatchAllPairs() {
+
+        Random random = new Random(42L);
+        int simple = 0;
+        for (int round = 0; round < 20_000; round++) {
+            int n = 3 + random.nextInt(round % 2 == 0 ? 5 : 12);
+            int grid = 2 + random.nextInt(round % 3 == 0 ? 4 : 20);
+            double[] xy = new double[2 * n];
+            for (int i = 0; i < xy.length; i++) {
+                xy[i] = random.nextInt(grid);
+            }
+
+
+            PolygonSimplicity.EdgePair found = PolygonSimplicity.findSelfIntersection(xy);
+
+
+            boolean expected = allPairs(xy);
+            assertThat(found != null).as("ring %s", java.util.Arrays.toString(xy)).isEqualTo(expected);
+            if (found == null) {
+                simple++;
+            } else {
+                assertThat(meet(xy, found.first(), found.second())).as("pair in %s", java.util.Arrays.toString(xy)).isTrue();
+            }
+        }
+        assertThat(simple).isGreaterThan(1000);
+    }
+
+    private static PolygonSimplicity.EdgePair find(String coordinates) {
+        return PolygonSimplicity.findSelfIntersection(CoordinateParser.parse(coordinates));
+    }
+
+    // Reference: every pair of non-empty edges, consecutive ones allowed to share their vertex
+    private static boolean allPairs(double[] xy) {
+        int n = xy.length / 2;
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                if (!empty(xy, a) && !empty(xy, b) && meet(xy, a, b)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean meet(double[] xy, int a, int b) {
+        int n = xy.length / 2;
+        int nextA = nextNonEmpty(xy, a);
+        int nextB = nextNonEmpty(xy, b);
+        if (nextA == b) {
+            return foldsBack(xy, a, b);
+        }
+        if (nextB == a) {
+            return foldsBack(xy, b, a);
+        }
+        double ax = xy[2 * a], ay = xy[2 * a + 1], bx = xy[2 * ((a + 1) % n)], by = xy[2 * ((a + 1) % n) + 1];
+        double cx = xy[2 * b], cy = xy[2 * b + 1], dx = xy[2 * ((b + 1) % n)], dy = xy[2 * ((b + 1) % n) + 1];
+        double d1 = orient(ax, ay, bx, by, cx, cy);
+        double d2 = orient(ax, ay, bx, by, dx, dy);
+        double d3 = orient(cx, cy, dx, dy, ax, ay);
+        double d4 = orient(cx, cy, dx, dy, bx, by);
+        if (d1 * d2 < 0 && d3 * d4 < 0) {
+            return true;
+        }
+        return d1 == 0 && between(ax, ay, bx, by, cx, cy) || d2 == 0 && between(ax, ay, bx, by, dx, dy)
+                || d3 == 0 && between(cx, cy, dx, dy, ax, ay) || d4 == 0 && between(cx, cy, dx, dy, bx, by);
+    }
+
+    // Edge after turns back along edge before, past their shared vertex
+    private static boolean foldsBack(double[] xy, int before, int after) {
+        int n = xy.length / 2;
+        double px = xy[2 * after], py = xy[2 * after + 1];
+        double ax = xy[2 * before], ay = xy[2 * before + 1];
+        double bx = xy[2 * ((after + 1) % n)], by = xy[2 * ((after + 1) % n) + 1];
+        return orient(px, py, ax, ay, bx, by) == 0 && (ax - px) * (bx - px) + (ay - py) * (by - py) > 0;
+    }
+
+    private static int nextNonEmpty(double[] xy, int edge) {
+        int n = xy.length / 2;
+        int next = (edge + 1) % n;
+        while (empty(xy, next) && next != edge) {
+            next = (next + 1) % n;
+        }
+        return next;
+    }
+
+    private static boolean empty(double[] xy, int edge) {
+        int n = xy.length / 2;
+        int w = (edge + 1) % n;
+        return xy[2 * edge] == xy[2 * w] && xy[2 * edge + 1] == xy[2 * w + 1];
+    }
+
+    private static double orient(double ax, double ay, double bx, double by, double px, double py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+    private static boolean between(double ax, double ay, double bx, double by, double px, double py) {
+        return Math.min(ax, bx) <= px && px <= Math.max(ax, bx) && Math.min(ay, by) <= py && py <= Math.max(ay, by);
+    }
+}
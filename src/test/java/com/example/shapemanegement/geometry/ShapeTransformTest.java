@@ -0,0 +1,40 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ShapeTransform Tests")
+class ShapeTransformTest {
+
+    @Test
+    @DisplayName("Should map points with SVG matrix order")
+    void shouldApplyMatrix() {
+
+        // Rotation by 30 degrees, scaled by 3, then moved by (5, 7)
+        double cos = 3 * Math.cos(Math.PI / 6);
+        double sin = 3 * Math.sin(Math.PI / 6);
+        ShapeTransform transform = new ShapeTransform(cos, sin, -sin, cos, 5, 7);
+
+
+        double[] xy = transform.apply(new double[]{1, 0, 0, 1});
+
+
+        assertThat(xy).containsExactly(new double[]{5 + cos, 7 + sin, 5 - sin, 7 + cos}, within(1e-12));
+        assertThat(transform.scale()).isCloseTo(3, within(1e-12));
+        assertThat(transform.isSimilarity()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should tell circle-preserving transforms from shears and unequal scales")
+    void shouldDetectSimilarities() {
+
+        assertThat(new ShapeTransform(1, 0, 0, 1, 10, 20).isSimilarity()).isTrue();
+        assertThat(new ShapeTransform(-2, 0, 0, 2, 0, 0).isSimilarity()).isTrue();
+        assertThat(new ShapeTransform(0, 1, 1, 0, 0, 0).isSimilarity()).isTrue();
+        assertThat(new ShapeTransform(2, 0, 0, 3, 0, 0).isSimilarity()).isFalse();
+        assertThat(new ShapeTransform(1, 0, 0.5, 1, 0, 0).isSimilarity()).isFalse();
+        assertThat(new ShapeTransform(1, 2, 2, 4, 0, 0).determinant()).isZero();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ShapeTree Tests")
+class ShapeTreeTest {
+
+    @Test
+    @DisplayName("Should measure exact distances between shapes and from points")
+    void shouldMeasureDistances() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(4);
+        builder.add(1L, ShapeType.RECTANGLE, "0,0;10,0;10,10;0,10", null, null, null);
+        builder.add(2L, ShapeType.RECTANGLE, "13,14;20,14;20,20;13,20", null, null, null);
+        builder.add(3L, ShapeType.CIRCLE, null, 25.0, 5.0, 5.0);
+        builder.add(4L, ShapeType.CIRCLE, null, 25.0, 30.0, 5.0);
+        ShapeSet shapes = builder.build();
+        EdgeHierarchy edges = shapes.edges();
+
+
+        // Corner (10,10) to corner (13,14)
+        assertThat(ShapeDistances.distance(shapes, edges, 0, 1)).isCloseTo(5.0, within(1e-9));
+        assertThat(ShapeDistances.distance(shapes, edges, 0, 2)).isCloseTo(10.0, within(1e-9));
+        assertThat(ShapeDistances.distance(shapes, edges, 2, 3)).isCloseTo(15.0, within(1e-9));
+        assertThat(ShapeDistances.pointDistance(shapes, edges, 0, 5, 5)).isZero();
+        assertThat(ShapeDistances.pointDistance(shapes, edges, 0, 5, 13)).isCloseTo(3.0, within(1e-9));
+        assertThat(ShapeDistances.pointDistance(shapes, edges, 2, 25, 13)).isCloseTo(3.0, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("Should return nearest shapes in the same order as a full scan")
+    void shouldMatchFullScanForNearest() {
+
+        ShapeSet shapes = randomShapes(500, new Random(3L));
+        EdgeHierarchy edges = shapes.edges();
+        double px = 250;
+        double py = 300;
+
+
+        List<Double> found = new ArrayList<>();
+        shapes.tree().nearest(shapes, px, py, (shape, distance) -> {
+            found.add(distance);
+            return found.size() < 25;
+        });
+
+        double[] all = new double[shapes.size()];
+        for (int i = 0; i < shapes.size(); i++) {
+            all[i] = ShapeDistances.pointDistance(shapes, edges, i, px, py);
+        }
+        Arrays.sort(all);
+        assertThat(found).hasSize(25);
+        for (int k = 0; k < 25; k++) {
+            assertThat(found.get(k)).isCloseTo(all[k], within(1e-9));
+        }
+        assertThat(shapes.tree().nodeCount()).isGreaterThan(500 / ShapeTree.NODE_CAPACITY);
+    }
+
+    @Test
+    @DisplayName("Should return exactly the shapes within a distance, nearest first")
+    void shouldMatchFullScanForWithin() {
+
+        ShapeSet shapes = randomShapes(500, new Random(4L));
+        EdgeHierarchy edges = shapes.edges();
+
+
+        for (int target = 0; target < shapes.size(); target += 37) {
+            List<Integer> found = new ArrayList<>();
+            List<Double> distances = new ArrayList<>();
+            shapes.tree().within(shapes, target, 40, (shape, distance) -> {
+                found.add(shape);
+                distances.add(distance);
+                return true;
+            });
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < shapes.size(); i++) {
+                if (i != target && ShapeDistances.distance(shapes, edges, target, i) <= 40) {
+                    expected.add(i);
+                }
+            }
+            assertThat(found).as("target %d", target).containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(distances).isSorted();
+        }
+    }
+
+    @Test
+    @DisplayName("Should find the shapes in a box at least as large as the minimum extent")
+    void shouldMatchFullScanForBoxes() {
+
+        ShapeSet shapes = randomShapes(500, new Random(5L));
+
+
+        List<Integer> found = new ArrayList<>();
+        shapes.tree().intersecting(shapes, 100, 150, 300, 400, 10, found::add);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < shapes.size(); i++) {
+            boolean inBox = shapes.maxX[i] >= 100 && shapes.minX[i] <= 300 && shapes.maxY[i] >= 150 && shapes.minY[i] <= 400;
+            if (inBox && Math.max(shapes.maxX[i] - shapes.minX[i], shapes.maxY[i] - shapes.minY[i]) >= 10) {
+                expected.add(i);
+            }
+        }
+        assertThat(found).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(expected).isNotEmpty();
+        // Extents from 2 (smallest triangle) to 32 (largest circle and rectangle) span five powers of two
+        assertThat(shapes.tree().sizeClassCount()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Should handle an empty set")
+    void shouldHandleEmptySet() {
+
+        ShapeSet shapes = ShapeSet.builder(0).build();
+
+
+        List<Integer> found = new ArrayList<>();
+        shapes.tree().nearest(shapes, 0, 0, (shape, distance) -> found.add(shape));
+
+        assertThat(found).isEmpty();
+        assertThat(shapes.tree().nodeCount()).isZero();
+        assertThat(shapes.tree().sizeClassCount()).isZero();
+    }
+
+    private ShapeSet randomShapes(int count, Random random) {
+        ShapeSet.Builder builder = ShapeSet.builder(count);
+        for (int i = 0; i < count; i++) {
+            int x = 20 + random.nextInt(600);
+            int y = 20 + random.nextInt(600);
+            int size = 2 + random.nextInt(15);
+            switch (i % 3) {
+                case 0 -> builder.add(i, ShapeType.CIRCLE, null, (double) x, (double) y, (double) size);
+                case 1 -> builder.add(i, ShapeType.TRIANGLE, x + "," + y + ";" + (x + size) + "," + y + ";" + x + "," + (y + size), null, null, null);
+                default -> builder.add(i, ShapeType.RECTANGLE, x + "," + y + ";" + (x + size) + "," + y + ";" + (x + size) + "," + (y + 2 * size) + ";" + x + "," + (y + 2 * size), null, null, null);
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Simplifier Tests")
+class SimplifierTest {
+
+    @Test
+    @DisplayName("Should drop vertices within the tolerance and keep the corners")
+    void shouldSimplifyRing() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(2);
+        builder.add(1L, ShapeType.CIRCLE, null, 5.0, 5.0, 1.0);
+        // A square whose bottom edge has a 1-unit bump and whose right edge has a collinear vertex
+        builder.add(2L, ShapeType.POLYGON, "0,0;10,0;20,1;30,0;30,15;30,30;0,30", null, null, null);
+        ShapeSet shapes = builder.build();
+        int start = shapes.vertexStart(1);
+
+
+        int[] coarse = Simplifier.simplifyRing(shapes, 1, 2);
+        int[] fine = Simplifier.simplifyRing(shapes, 1, 0.25);
+
+        assertThat(coarse).containsExactly(start, start + 3, start + 5, start + 6);
+        assertThat(fine).containsExactly(start, start + 1, start + 2, start + 3, start + 5, start + 6);
+    }
+
+    @Test
+    @DisplayName("Should keep every vertex rather than collapse below a triangle")
+    void shouldNotCollapseRing() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(1);
+        builder.add(1L, ShapeType.POLYGON, "0,0;10,0;10,1;0,1", null, null, null);
+        ShapeSet shapes = builder.build();
+
+
+        int[] vertices = Simplifier.simplifyRing(shapes, 0, 5);
+
+        assertThat(vertices).hasSize(4);
+    }
+}
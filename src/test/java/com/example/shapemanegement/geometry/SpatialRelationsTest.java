@@ -0,0 +1,89 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("SpatialRelations Tests")
+class SpatialRelationsTest {
+
+    @Test
+    @DisplayName("Should decide containment between circles and polygons, outlines touching")
+    void shouldDecideContainment() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(8);
+        builder.add(1L, ShapeType.RECTANGLE, "0,0;100,0;100,100;0,100", null, null, null);
+        builder.add(2L, ShapeType.TRIANGLE, "10,10;50,10;30,40", null, null, null);
+        builder.add(3L, ShapeType.CIRCLE, null, 50.0, 50.0, 50.0);
+        builder.add(4L, ShapeType.CIRCLE, null, 50.0, 50.0, 10.0);
+        builder.add(5L, ShapeType.RECTANGLE, "0,0;50,0;50,50;0,50", null, null, null);
+        builder.add(6L, ShapeType.RECTANGLE, "90,90;110,90;110,110;90,110", null, null, null);
+        builder.add(7L, ShapeType.CIRCLE, null, 95.0, 50.0, 10.0);
+        ShapeSet s = builder.build();
+        EdgeHierarchy edges = s.edges();
+
+
+        // Square holds the triangle, the inscribed circle and the quarter sharing two of its sides
+        assertThat(SpatialRelations.contains(s, edges, 0, 1)).isTrue();
+        assertThat(SpatialRelations.contains(s, edges, 0, 2)).isTrue();
+        assertThat(SpatialRelations.contains(s, edges, 0, 4)).isTrue();
+        // The inscribed circle holds the small circle but not the square's corners
+        assertThat(SpatialRelations.contains(s, edges, 2, 3)).isTrue();
+        assertThat(SpatialRelations.contains(s, edges, 2, 0)).isFalse();
+        assertThat(SpatialRelations.contains(s, edges, 3, 2)).isFalse();
+        // Crossing the square's corner or side is not containment
+        assertThat(SpatialRelations.contains(s, edges, 0, 5)).isFalse();
+        assertThat(SpatialRelations.contains(s, edges, 0, 6)).isFalse();
+        assertThat(SpatialRelations.contains(s, edges, 1, 0)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should reject polygons that leave a concave outline between their vertices")
+    void shouldHandleConcaveOutlines() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(4);
+        // U shape open at the top between x = 10 and x = 20
+        builder.add(1L, ShapeType.POLYGON, "0,0;30,0;30,30;20,30;20,10;10,10;10,30;0,30", null, null, null);
+        builder.add(2L, ShapeType.RECTANGLE, "5,5;25,5;25,10;5,10", null, null, null);
+        builder.add(3L, ShapeType.RECTANGLE, "5,20;25,20;25,25;5,25", null, null, null);
+        builder.add(4L, ShapeType.CIRCLE, null, 15.0, 20.0, 2.0);
+        ShapeSet s = builder.build();
+        EdgeHierarchy edges = s.edges();
+
+
+        assertThat(SpatialRelations.contains(s, edges, 0, 1)).isTrue();
+        assertThat(SpatialRelations.contains(s, edges, 0, 2)).isFalse();
+        assertThat(SpatialRelations.contains(s, edges, 0, 3)).isFalse();
+        assertThat(SpatialRelations.containsPoint(s, edges, 0, 15, 20)).isFalse();
+        assertThat(SpatialRelations.containsPoint(s, edges, 0, 20, 20)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should test circles against polygons with an edge hierarchy")
+    void shouldUseEdgeHierarchy() {
+
+        StringBuilder ring = new StringBuilder();
+        for (int v = 0; v < 64; v++) {
+            double angle = 2 * Math.PI * v / 64;
+            if (v > 0) {
+                ring.append(';');
+            }
+            ring.append(Math.round(100 + 50 * Math.cos(angle))).append(',').append(Math.round(100 + 50 * Math.sin(angle)));
+        }
+        ShapeSet.Builder builder = ShapeSet.builder(3);
+        builder.add(1L, ShapeType.POLYGON, ring.toString(), null, null, null);
+        builder.add(2L, ShapeType.CIRCLE, null, 100.0, 100.0, 45.0);
+        builder.add(3L, ShapeType.CIRCLE, null, 130.0, 100.0, 25.0);
+        ShapeSet s = builder.build();
+        EdgeHierarchy edges = s.edges();
+
+
+        assertThat(edges.indexes(0)).isTrue();
+        assertThat(SpatialRelations.contains(s, edges, 0, 1)).isTrue();
+        assertThat(SpatialRelations.contains(s, edges, 0, 2)).isFalse();
+        assertThat(SpatialRelations.containsPoint(s, edges, 0, 150, 100)).isTrue();
+        assertThat(SpatialRelations.containsPoint(s, edges, 1, 145, 100)).isTrue();
+        assertThat(SpatialRelations.containsPoint(s, edges, 1, 146, 100)).isFalse();
+    }
+}
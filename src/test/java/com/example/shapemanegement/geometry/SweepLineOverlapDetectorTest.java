@@ -0,0 +1,94 @@
+package com.example.shapemanegement.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("SweepLineOverlapDetector Tests")
+class SweepLineOverlapDetectorTest {
+
+    @Test
+    @DisplayName("Should find crossing, nested, vertical-edged and circle overlaps")
+    void shouldFindEveryKindOfOverlap() {
+
+        ShapeSet.Builder builder = ShapeSet.builder(9);
+        // Axis-aligned rectangles crossing only through vertical and horizontal edges
+        builder.add(1L, ShapeType.RECTANGLE, "0,10;100,10;100,20;0,20", null, null, null);
+        builder.add(2L, ShapeType.RECTANGLE, "40,0;50,0;50,100;40,100", null, null, null);
+        // Nested with no edges crossing
+        builder.add(3L, ShapeType.POLYGON, "200,200;400,200;400,400;200,400", null, null, null);
+        builder.add(4L, ShapeType.TRIANGLE, "250,250;300,250;250,300", null, null, null);
+        // Self-intersecting bow tie next to a triangle it does not reach
+        builder.add(5L, ShapeType.POLYGON, "500,0;600,100;600,0;500,100", null, null, null);
+        builder.add(6L, ShapeType.TRIANGLE, "650,0;700,0;650,50", null, null, null);
+        // Circle touching the inside of a long thin polygon's box but not the polygon
+        builder.add(7L, ShapeType.POLYGON, "800,0;1000,200;995,205;795,5", null, null, null);
+        builder.add(8L, ShapeType.CIRCLE, null, 980.0, 20.0, 10.0);
+        builder.add(9L, ShapeType.CIRCLE, null, 985.0, 25.0, 10.0);
+        ShapeSet shapes = builder.build();
+
+
+        long[] ids = SweepLineOverlapDetector.findOverlappingIds(shapes);
+
+        assertThat(ids).containsExactly(1L, 2L, 3L, 4L, 8L, 9L);
+        assertThat(ids).containsExactly(OverlapDetector.findOverlappingIds(shapes));
+    }
+
+    @Test
+    @DisplayName("Should agree with the pairwise detector on random scenes")
+    void shouldMatchPairwiseDetector() {
+
+        for (long seed = 0; seed < 20; seed++) {
+            ShapeSet shapes = randomShapes(400, new Random(seed));
+
+
+            long[] ids = SweepLineOverlapDetector.findOverlappingIds(shapes);
+
+            assertThat(ids).as("seed %d", seed).containsExactly(OverlapDetector.findOverlappingIds(shapes));
+        }
+    }
+
+    @Test
+    @DisplayName("Should handle an empty set")
+    void shouldHandleEmptySet() {
+
+        ShapeSet shapes = ShapeSet.builder(0).build();
+
+
+        assertThat(SweepLineOverlapDetector.findOverlappingIds(shapes)).isEmpty();
+    }
+
+    // Long thin polygons, axis-aligned rectangles, small triangles and circles on a fine grid
+    private ShapeSet randomShapes(int count, Random random) {
+        ShapeSet.Builder builder = ShapeSet.builder(count);
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(1_000_000);
+            int y = random.nextInt(1_000_000);
+            switch (i % 4) {
+                case 0 -> {
+                    int x2 = random.nextInt(1_000_000);
+                    int y2 = random.nextInt(1_000_000);
+                    int w = 1 + random.nextInt(2_000);
+                    builder.add(i, ShapeType.POLYGON, x + "," + y + ";" + x2 + "," + y2 + ";"
+                            + (x2 + w) + "," + (y2 + w) + ";" + (x + w) + "," + (y + w), null, null, null);
+                }
+                case 1 -> {
+                    int w = 1 + random.nextInt(200_000);
+                    int h = 1 + random.nextInt(20_000);
+                    builder.add(i, ShapeType.RECTANGLE, x + "," + y + ";" + (x + w) + "," + y + ";"
+                            + (x + w) + "," + (y + h) + ";" + x + "," + (y + h), null, null, null);
+                }
+                case 2 -> {
+                    int size = 1 + random.nextInt(30_000);
+                    builder.add(i, ShapeType.TRIANGLE, x + "," + y + ";" + (x + size) + "," + (y + random.nextInt(size))
+                            + ";" + (x + random.nextInt(size)) + "," + (y + size), null, null, null);
+                }
+                default -> builder.add(i, ShapeType.CIRCLE, null, (double) x, (double) y, (double) (1 + random.nextInt(20_000)));
+            }
+        }
+        return builder.build();
+    }
+}
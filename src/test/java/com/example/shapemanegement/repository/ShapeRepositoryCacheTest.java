@@ -0,0 +1,137 @@
+package com.example.shapemanegement.repository;
+
+import com.example.shapemanegement.dto.request.ShapeRequestDto;
+import com.example.shapemanegement.dto.response.ShapeResponseDto;
+import com.example.shapemanegement.entity.Shape;
+import com.example.shapemanegement.geometry.ShapeType;
+import com.example.shapemanegement.service.IShapeService;
+import com.example.shapemanegement.service.impl.ShapeWriteBehind;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.*;
+
+// Runs outside a test transaction: second-level cache entries only become visible after commit. The tests flush
+// write-behind themselves; a scheduled flush running alongside would soft-lock entries and turn reads into misses.
+@SpringBootTest(properties = "shapes.write-behind.interval=PT1H")
+@ActiveProfiles("test")
+@DisplayName("ShapeRepository Second-Level Cache Tests")
+class ShapeRepositoryCacheTest {
+
+    @Autowired
+    private ShapeRepository shapeRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ShapeWriteBehind writeBehind;
+
+    @Autowired
+    private IShapeService shapeService;
+
+    private Statistics statistics;
+    private Shape circle;
+
+    @BeforeEach
+    void setUp() {
+        shapeRepository.deleteAll();
+        // The regions are shared by every test context in the JVM, and transactions other test classes rolled back
+        // leave soft locks on the same ids there
+        entityManagerFactory.getCache().evictAll();
+        circle = shapeRepository.save(new Shape(null, "CachedCircle", ShapeType.CIRCLE, null, 0.0, 0.0, 5.0));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        shapeRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should serve findById from the second-level cache")
+    void shouldServeFindByIdFromCache() {
+
+        // identity inserts are not cached, so the first read loads and populates the region
+        shapeRepository.findById(circle.getId());
+        shapeRepository.findById(circle.getId());
+        shapeRepository.findById(circle.getId());
+
+
+        assertThat(statistics.getCacheRegionStatistics("shapes").getHitCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should resolve names through the natural-id cache")
+    void shouldResolveNameThroughNaturalIdCache() {
+
+        // the name -> id entry is cached on insert; the entity itself on first load
+        assertThat(shapeRepository.findByName(Shape.DEFAULT_CANVAS, "CachedCircle")).map(Shape::getId).contains(circle.getId());
+        long statementsAfterFirstLookup = statistics.getPrepareStatementCount();
+        assertThat(shapeRepository.findByName(Shape.DEFAULT_CANVAS, "CachedCircle")).isPresent();
+        assertThat(shapeRepository.findByName(Shape.DEFAULT_CANVAS, "CachedCircle")).isPresent();
+
+
+        assertThat(statistics.getNaturalIdCacheHitCount()).isEqualTo(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statementsAfterFirstLookup);
+    }
+
+    @Test
+    @DisplayName("Should refresh only the dragged shape in the cache when write-behind flushes")
+    void shouldKeepRegionAcrossWriteBehindFlush() {
+
+        Shape other = shapeRepository.save(new Shape(null, "OtherCircle", ShapeType.CIRCLE, null, 20.0, 20.0, 5.0));
+        shapeRepository.findById(circle.getId());
+        shapeRepository.findById(other.getId());
+        statistics.clear();
+        Shape geometry = new Shape(null, null, ShapeType.CIRCLE, null, 3.0, 4.0, 5.0);
+        geometry.setCanvasId(Shape.DEFAULT_CANVAS);
+
+
+        writeBehind.accept(circle.getId(), geometry);
+        writeBehind.flush();
+        Shape moved = shapeRepository.findById(circle.getId()).orElseThrow();
+        shapeRepository.findById(other.getId());
+
+
+        // A bulk update would have evicted the region, and both reads would go to the database
+        assertThat(moved.getCenterX()).isEqualTo(3.0);
+        assertThat(moved.getMinX()).isEqualTo(-2.0);
+        assertThat(moved.getVersion()).isEqualTo(circle.getVersion() + 1);
+        assertThat(statistics.getCacheRegionStatistics("shapes").getMissCount()).isZero();
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should refresh only the updated shape in the cache and return the version it wrote")
+    void shouldKeepRegionAcrossUpdate() {
+
+        Shape other = shapeRepository.save(new Shape(null, "OtherCircle", ShapeType.CIRCLE, null, 20.0, 20.0, 5.0));
+        shapeRepository.findById(circle.getId());
+        shapeRepository.findById(other.getId());
+        statistics.clear();
+        ShapeRequestDto request = new ShapeRequestDto("RenamedCircle", "circle", null, 3.0, 4.0, 5.0);
+
+
+        ShapeResponseDto updated = shapeService.updateShape(circle.getId(), request);
+        Shape stored = shapeRepository.findById(circle.getId()).orElseThrow();
+        shapeRepository.findById(other.getId());
+
+
+        assertThat(updated.getVersion()).isEqualTo(circle.getVersion() + 1).isEqualTo(stored.getVersion());
+        assertThat(stored.getName()).isEqualTo("RenamedCircle");
+        assertThat(stored.getMinX()).isEqualTo(-2.0);
+        assertThat(statistics.getCacheRegionStatistics("shapes").getMissCount()).isZero();
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
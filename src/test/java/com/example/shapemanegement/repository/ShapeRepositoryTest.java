@@ -0,0 +1,266 @@
+package com.example.shapemanegement.repository;
+
+import com.example.shapemanegement.dto.projection.ShapeGeometryDto;
+import com.example.shapemanegement.dto.response.ShapeResponseDto;
+import com.example.shapemanegement.entity.Shape;
+import com.example.shapemanegement.geometry.ShapeType;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("ShapeRepository Query Tests")
+class ShapeRepositoryTest {
+
+    @Autowired
+    private ShapeRepository shapeRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Shape circle;
+    private Shape triangle;
+    private Shape farRectangle;
+
+    @BeforeEach
+    void setUp() {
+        circle = shapeRepository.save(new Shape(null, "Circle", ShapeType.CIRCLE, null, 0.0, 0.0, 5.0));
+        triangle = shapeRepository.save(new Shape(null, "Triangle", ShapeType.TRIANGLE, "0,0;10,0;5,10", null, null, null));
+        farRectangle = shapeRepository.save(new Shape(null, "FarRectangle", ShapeType.RECTANGLE, "100,100;120,100;120,120;100,120", null, null, null));
+    }
+
+    @Test
+    @DisplayName("Should compute bounding box on save")
+    void shouldComputeBoundingBoxOnSave() {
+
+        assertThat(circle.getMinX()).isEqualTo(-5.0);
+        assertThat(circle.getMaxY()).isEqualTo(5.0);
+        assertThat(triangle.getMinX()).isEqualTo(0.0);
+        assertThat(triangle.getMaxX()).isEqualTo(10.0);
+        assertThat(triangle.getMaxY()).isEqualTo(10.0);
+    }
+
+    @Test
+    @DisplayName("Should recompute bounding box when geometry changes")
+    void shouldRecomputeBoundingBoxOnUpdate() {
+
+        farRectangle.setCoordinates("200,200;220,200;220,220;200,220");
+        shapeRepository.saveAndFlush(farRectangle);
+
+
+        assertThat(farRectangle.getMinX()).isEqualTo(200.0);
+        assertThat(farRectangle.getMaxY()).isEqualTo(220.0);
+    }
+
+    @Test
+    @DisplayName("Should leave bounding box empty for unreadable coordinates")
+    void shouldLeaveBoundingBoxEmptyForUnreadableCoordinates() {
+
+        Shape broken = shapeRepository.save(new Shape(null, "Broken", ShapeType.POLYGON, "0,0,10,10", null, null, null));
+
+
+        assertThat(broken.getMinX()).isNull();
+        assertThat(shapeRepository.findResponsesWithoutBoundingBoxAfter(0L, Limit.of(10)))
+                .extracting(ShapeResponseDto::getName).containsExactly("Broken");
+    }
+
+    @Test
+    @DisplayName("Should return only shapes intersecting the viewport")
+    void shouldFindShapesIntersectingViewport() {
+
+        List<ShapeResponseDto> shapes = shapeRepository.findResponsesByBoundingBoxIntersecting(Shape.DEFAULT_CANVAS, -1, -1, 20, 20);
+
+
+        assertThat(shapes).extracting(ShapeResponseDto::getName).containsExactlyInAnyOrder("Circle", "Triangle");
+    }
+
+    @Test
+    @DisplayName("Should return at most the requested number of ids in a box, in id order")
+    void shouldLimitIdsIntersectingBox() {
+
+        List<Long> ids = shapeRepository.findIdsByBoundingBoxIntersecting(Shape.DEFAULT_CANVAS, -1, -1, 200, 200, Limit.of(2));
+
+
+        assertThat(ids).containsExactly(circle.getId(), triangle.getId());
+    }
+
+    @Test
+    @DisplayName("Should treat touching bounding boxes as intersecting")
+    void shouldTreatTouchingBoxesAsIntersecting() {
+
+        List<ShapeResponseDto> shapes = shapeRepository.findResponsesByBoundingBoxIntersecting(Shape.DEFAULT_CANVAS, 120, 120, 130, 130);
+
+
+        assertThat(shapes).extracting(ShapeResponseDto::getName).containsExactly("FarRectangle");
+    }
+
+    @Test
+    @DisplayName("Should exclude the shape itself from overlap candidates")
+    void shouldFindOverlapCandidates() {
+
+        List<ShapeGeometryDto> candidates = shapeRepository.findOverlapCandidateGeometry(circle.getId(),
+                circle.getMinX(), circle.getMinY(), circle.getMaxX(), circle.getMaxY());
+
+
+        assertThat(candidates).extracting(ShapeGeometryDto::getId).containsExactly(triangle.getId());
+    }
+
+    @Test
+    @DisplayName("Should bump the version and recompute the box when a loaded shape is written")
+    void shouldUpdateLoadedShape() {
+
+        entityManager.flush();
+        entityManager.clear();
+        Shape loaded = shapeRepository.findById(triangle.getId()).orElseThrow();
+        Long initial = loaded.getVersion();
+
+
+        loaded.setName("MovedTriangle");
+        loaded.setCoordinates("5,5;15,5;10,15");
+        shapeRepository.flush();
+        entityManager.clear();
+
+
+        Shape updated = shapeRepository.findById(triangle.getId()).orElseThrow();
+        assertThat(loaded.getVersion()).isEqualTo(initial + 1);
+        assertThat(updated.getVersion()).isEqualTo(initial + 1);
+        assertThat(updated.getName()).isEqualTo("MovedTriangle");
+        assertThat(updated.getMinX()).isEqualTo(5.0);
+        assertThat(updated.getMaxY()).isEqualTo(15.0);
+    }
+
+    @Test
+    @DisplayName("Should report duplicate names as a unique constraint violation")
+    void shouldReportDuplicateNameAsUniqueViolation() {
+
+        assertThatThrownBy(() -> shapeRepository.saveAndFlush(new Shape(null, "Circle", ShapeType.CIRCLE, null, 1.0, 1.0, 1.0)))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .cause()
+                .isInstanceOfSatisfying(ConstraintViolationException.class, violation ->
+                        assertThat(violation.getKind()).isEqualTo(ConstraintViolationException.ConstraintKind.UNIQUE));
+    }
+
+    @Test
+    @DisplayName("Should allow the same name in different canvases")
+    void shouldScopeNamesToCanvas() {
+
+        Shape other = new Shape(null, "Circle", ShapeType.CIRCLE, null, 1.0, 1.0, 1.0);
+        other.setCanvasId(5L);
+        shapeRepository.saveAndFlush(other);
+
+
+        assertThat(shapeRepository.findByName(5L, "Circle")).map(Shape::getId).contains(other.getId());
+        assertThat(shapeRepository.findByName(Shape.DEFAULT_CANVAS, "Circle")).map(Shape::getId).contains(circle.getId());
+        assertThat(shapeRepository.findByName(7L, "Circle")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should keep listings and geometry within one canvas")
+    void shouldPartitionQueriesByCanvas() {
+
+        Shape other = new Shape(null, "OtherCircle", ShapeType.CIRCLE, null, 1.0, 1.0, 2.0);
+        other.setCanvasId(5L);
+        shapeRepository.saveAndFlush(other);
+
+
+        assertThat(shapeRepository.findResponsesByCanvasId(5L))
+                .extracting(ShapeResponseDto::getId, ShapeResponseDto::getCanvasId).containsExactly(tuple(other.getId(), 5L));
+        assertThat(shapeRepository.findResponsesByBoundingBoxIntersecting(Shape.DEFAULT_CANVAS, 0, 0, 2, 2))
+                .extracting(ShapeResponseDto::getName).containsExactlyInAnyOrder("Circle", "Triangle");
+        assertThat(shapeRepository.findOverlapCandidateGeometry(other.getId(), -1, -1, 3, 3)).isEmpty();
+        assertThat(shapeRepository.findGeometryByCanvasIdAndIdIn(Shape.DEFAULT_CANVAS, List.of(other.getId()))).isEmpty();
+        assertThat(shapeRepository.findGeometryByCanvasId(5L)).extracting(ShapeGeometryDto::getId).containsExactly(other.getId());
+    }
+
+    @Test
+    @DisplayName("Should reject a write to a shape changed since it was loaded")
+    void shouldRejectStaleWrite() {
+
+        entityManager.flush();
+        entityManager.clear();
+        Shape stale = shapeRepository.findById(triangle.getId()).orElseThrow();
+        entityManager.detach(stale);
+        Shape current = shapeRepository.findById(triangle.getId()).orElseThrow();
+        current.setCoordinates("5,5;15,5;10,15");
+        shapeRepository.flush();
+        entityManager.clear();
+
+
+        stale.setName("MovedTriangle");
+
+
+        assertThatThrownBy(() -> shapeRepository.saveAndFlush(stale))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    @DisplayName("Should load geometry and responses for a set of ids")
+    void shouldFindByIdIn() {
+
+        List<Long> ids = List.of(farRectangle.getId(), circle.getId(), -1L);
+
+
+        assertThat(shapeRepository.findGeometryByCanvasIdAndIdIn(Shape.DEFAULT_CANVAS, ids))
+                .extracting(ShapeGeometryDto::getId).containsExactly(circle.getId(), farRectangle.getId());
+        assertThat(shapeRepository.findResponsesByIdIn(ids))
+                .extracting(ShapeResponseDto::getId).containsExactlyInAnyOrder(circle.getId(), farRectangle.getId());
+    }
+
+    // Projections must read the same values as entity hydration (including the JSON converter)
+
+    @Test
+    @DisplayName("Should build response DTOs in id order matching the entities")
+    void shouldProjectResponses() {
+
+        List<ShapeResponseDto> responses = shapeRepository.findResponsesByCanvasId(Shape.DEFAULT_CANVAS);
+        entityManager.clear();
+        Shape hydrated = shapeRepository.findById(triangle.getId()).orElseThrow();
+
+
+        assertThat(responses).extracting(ShapeResponseDto::getId)
+                .containsExactly(circle.getId(), triangle.getId(), farRectangle.getId());
+        assertThat(responses.get(1).getCoordinates()).isEqualTo(hydrated.getCoordinates());
+        assertThat(responses.get(0).getRadius()).isEqualTo(5.0);
+    }
+
+    @Test
+    @DisplayName("Should project only geometry fields for a single shape")
+    void shouldProjectGeometryById() {
+
+        ShapeGeometryDto geometry = shapeRepository.findGeometryById(triangle.getId()).orElseThrow();
+        entityManager.clear();
+        Shape hydrated = shapeRepository.findById(triangle.getId()).orElseThrow();
+
+
+        assertThat(geometry.getType()).isEqualTo(ShapeType.TRIANGLE);
+        assertThat(geometry.getCoordinates()).isEqualTo(hydrated.getCoordinates());
+        assertThat(shapeRepository.findGeometryByCanvasId(Shape.DEFAULT_CANVAS)).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("Should store shape types as their lowercase names")
+    void shouldStoreLowercaseTypeNames() {
+
+        entityManager.flush();
+
+
+        Object stored = entityManager.getEntityManager()
+                .createNativeQuery("SELECT type FROM shapes WHERE id = ?1")
+                .setParameter(1, farRectangle.getId())
+                .getSingleResult();
+        assertThat(stored).isEqualTo("rectangle");
+    }
+}
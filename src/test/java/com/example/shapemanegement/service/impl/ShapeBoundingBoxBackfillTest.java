@@ -0,0 +1,78 @@
+package com.example.shapemanegement.service.impl;
+
+import com.example.shapemanegement.entity.Shape;
+import com.example.shapemanegement.entity.ShapeChange;
+import com.example.shapemanegement.geometry.ShapeType;
+import com.example.shapemanegement.repository.ChangeSequenceRepository;
+import com.example.shapemanegement.repository.ShapeRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ShapeBoundingBoxBackfill.class, ShapeChangeLog.class})
+@DisplayName("ShapeBoundingBoxBackfill Tests")
+class ShapeBoundingBoxBackfillTest {
+
+    @Autowired
+    private ShapeBoundingBoxBackfill backfill;
+
+    @Autowired
+    private ShapeRepository shapeRepository;
+
+    @Autowired
+    private ChangeSequenceRepository sequenceRepository;
+
+    @Autowired
+    private ShapeChangeLog changeLog;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    @DisplayName("Should fill missing boxes once and not read the same rows on the next run")
+    void shouldFillMissingBoxesOnce() {
+
+        Shape old = shapeRepository.save(new Shape(null, "Old", ShapeType.CIRCLE, null, 0.0, 0.0, 5.0));
+        Shape broken = shapeRepository.save(new Shape(null, "Broken", ShapeType.POLYGON, "0,0,10,10", null, null, null));
+        clearBox(old);
+        long version = shapeRepository.findById(old.getId()).orElseThrow().getVersion();
+        entityManager.clear();
+        long start = changeLog.currentSeq();
+
+
+        backfill.backfill();
+
+
+        Shape filled = shapeRepository.findById(old.getId()).orElseThrow();
+        assertThat(filled.getMinX()).isEqualTo(-5.0);
+        // The geometry did not change, so neither does the version a client may send back
+        assertThat(filled.getVersion()).isEqualTo(version);
+        assertThat(changeLog.changesAfter(Shape.DEFAULT_CANVAS, start, 10))
+                .extracting(ShapeChange::getShapeId, ShapeChange::getType)
+                .containsExactly(tuple(old.getId(), ShapeChange.Type.UPDATED));
+        assertThat(sequenceRepository.findCurrent(ShapeBoundingBoxBackfill.PROGRESS)).contains(broken.getId());
+
+        // Rows at or below the watermark are not looked at again
+        clearBox(old);
+        backfill.backfill();
+
+        assertThat(shapeRepository.findById(old.getId()).orElseThrow().getMinX()).isNull();
+    }
+
+    private void clearBox(Shape shape) {
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Shape s SET s.minX = NULL, s.minY = NULL, s.maxX = NULL, s.maxY = NULL WHERE s.id = :id")
+                .setParameter("id", shape.getId())
+                .executeUpdate();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.shapemanegement.service.impl;
+
+import com.example.shapemanegement.entity.ShapeChange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static com.example.shapemanegement.entity.Shape.DEFAULT_CANVAS;
+import static org.assertj.core.api.Assertions.*;
+
+@DataJpaTest(properties = "shapes.changes.retained=2")
+@ActiveProfiles("test")
+@Import(ShapeChangeLog.class)
+@DisplayName("ShapeChangeLog Tests")
+class ShapeChangeLogTest {
+
+    @Autowired
+    private ShapeChangeLog changeLog;
+
+    @Test
+    @DisplayName("Should number changes consecutively, creating the counter on first use")
+    void shouldRecordConsecutiveChanges() {
+
+        long start = changeLog.currentSeq();
+
+
+        long first = changeLog.record(DEFAULT_CANVAS, 5L, ShapeChange.Type.CREATED);
+        long second = changeLog.record(DEFAULT_CANVAS, 3L, ShapeChange.Type.UPDATED);
+        long third = changeLog.record(DEFAULT_CANVAS, 5L, ShapeChange.Type.DELETED);
+
+
+        assertThat(first).isEqualTo(start + 1);
+        assertThat(second).isEqualTo(start + 2);
+        assertThat(third).isEqualTo(start + 3);
+        assertThat(changeLog.currentSeq()).isEqualTo(third);
+    }
+
+    @Test
+    @DisplayName("Should number a batch of changes consecutively with one counter update")
+    void shouldRecordAllChanges() {
+
+        long start = changeLog.currentSeq();
+
+
+        changeLog.recordAll(DEFAULT_CANVAS, List.of(7L, 2L, 9L), ShapeChange.Type.UPDATED);
+        long next = changeLog.record(DEFAULT_CANVAS, 2L, ShapeChange.Type.DELETED);
+
+
+        assertThat(changeLog.changesAfter(DEFAULT_CANVAS, start, 10))
+                .extracting(ShapeChange::getSeq, ShapeChange::getShapeId)
+                .containsExactly(tuple(start + 1, 7L), tuple(start + 2, 2L), tuple(start + 3, 9L), tuple(start + 4, 2L));
+        assertThat(next).isEqualTo(start + 4);
+    }
+
+    @Test
+    @DisplayName("Should page changes and list distinct changed shapes after a sequence number")
+    void shouldFindChangesAfter() {
+
+        changeLog.createSequence();
+        long start = changeLog.currentSeq();
+        changeLog.record(DEFAULT_CANVAS, 5L, ShapeChange.Type.CREATED);
+        changeLog.record(DEFAULT_CANVAS, 3L, ShapeChange.Type.CREATED);
+        changeLog.record(DEFAULT_CANVAS, 5L, ShapeChange.Type.UPDATED);
+
+
+        assertThat(changeLog.changesAfter(DEFAULT_CANVAS, start, 2))
+                .extracting(ShapeChange::getSeq, ShapeChange::getShapeId, ShapeChange::getType)
+                .containsExactly(tuple(start + 1, 5L, ShapeChange.Type.CREATED), tuple(start + 2, 3L, ShapeChange.Type.CREATED));
+        assertThat(changeLog.shapeIdsChangedAfter(DEFAULT_CANVAS, start)).containsExactly(3L, 5L);
+        assertThat(changeLog.shapeIdsChangedAfter(DEFAULT_CANVAS, start + 2)).containsExactly(5L);
+    }
+
+    @Test
+    @DisplayName("Should list only the changes of the requested canvas, numbered by the shared counter")
+    void shouldFilterChangesByCanvas() {
+
+        long start = changeLog.currentSeq();
+        changeLog.record(DEFAULT_CANVAS, 5L, ShapeChange.Type.CREATED);
+        changeLog.record(7L, 6L, ShapeChange.Type.CREATED);
+        changeLog.recordAll(7L, List.of(6L, 8L), ShapeChange.Type.UPDATED);
+        changeLog.record(DEFAULT_CANVAS, 5L, ShapeChange.Type.UPDATED);
+
+
+        assertThat(changeLog.changesAfter(7L, start, 10))
+                .extracting(ShapeChange::getSeq, ShapeChange::getShapeId)
+                .containsExactly(tuple(start + 2, 6L), tuple(start + 3, 6L), tuple(start + 4, 8L));
+        assertThat(changeLog.changesAfter(DEFAULT_CANVAS, start, 10))
+                .extracting(ShapeChange::getSeq)
+                .containsExactly(start + 1, start + 5);
+        assertThat(changeLog.shapeIdsChangedAfter(7L, start)).containsExactly(6L, 8L);
+        assertThat(changeLog.shapeIdsChangedAfter(DEFAULT_CANVAS, start + 1)).containsExactly(5L);
+    }
+
+    @Test
+    @DisplayName("Should delete all but the retained changes and remember how far it pruned")
+    void shouldPruneOldChanges() {
+
+        changeLog.createSequence();
+        long start = changeLog.currentSeq();
+        changeLog.record(DEFAULT_CANVAS, 5L, ShapeChange.Type.CREATED);
+        changeLog.record(DEFAULT_CANVAS, 3L, ShapeChange.Type.CREATED);
+        changeLog.record(DEFAULT_CANVAS, 5L, ShapeChange.Type.UPDATED);
+
+
+        changeLog.prune();
+        changeLog.prune();
+
+
+        assertThat(changeLog.prunedThrough()).isEqualTo(start + 1);
+        assertThat(changeLog.changesAfter(DEFAULT_CANVAS, 0L, 10))
+                .extracting(ShapeChange::getSeq)
+                .containsExactly(start + 2, start + 3);
+    }
+}
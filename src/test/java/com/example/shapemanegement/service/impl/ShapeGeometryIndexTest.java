@@ -0,0 +1,315 @@
+package com.example.shapemanegement.service.impl;
+
+import com.example.shapemanegement.dto.projection.ShapeGeometryDto;
+import com.example.shapemanegement.geometry.GeometryStore;
+import com.example.shapemanegement.geometry.OffHeapShapeStore;
+import com.example.shapemanegement.geometry.ShapeSet;
+import com.example.shapemanegement.geometry.ShapeType;
+import com.example.shapemanegement.repository.ShapeRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static com.example.shapemanegement.entity.Shape.DEFAULT_CANVAS;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ShapeGeometryIndex Unit Tests")
+class ShapeGeometryIndexTest {
+
+    @Mock
+    private ShapeRepository shapeRepository;
+
+    @Mock
+    private ShapeChangeLog changeLog;
+
+    @TempDir
+    Path directory;
+
+    private final ShapeGeometryDto circle = new ShapeGeometryDto(1L, ShapeType.CIRCLE, null, 0.0, 0.0, 5.0);
+    private final ShapeGeometryDto triangle = new ShapeGeometryDto(7L, ShapeType.TRIANGLE, "0,0;10,0;5,10", null, null, null);
+
+    @Test
+    @DisplayName("Should reuse the compiled geometry until invalidated")
+    void shouldReuseUntilInvalidated() {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle, triangle));
+        ShapeGeometryIndex index = index(ShapeGeometryIndex.StoreMode.HEAP, false);
+
+
+        GeometryStore first = index.current(DEFAULT_CANVAS);
+        GeometryStore second = index.current(DEFAULT_CANVAS);
+
+
+        assertThat(first).isInstanceOf(ShapeSet.class).isSameAs(second);
+        verify(shapeRepository, times(1)).findGeometryByCanvasId(DEFAULT_CANVAS);
+    }
+
+    @Test
+    @DisplayName("Should reload only the shapes changed since its sequence number after a write")
+    void shouldRefreshIncrementally() {
+
+        ShapeGeometryDto movedCircle = new ShapeGeometryDto(1L, ShapeType.CIRCLE, null, 50.0, 50.0, 5.0);
+        ShapeGeometryDto square = new ShapeGeometryDto(9L, ShapeType.RECTANGLE, "0,0;1,0;1,1;0,1", null, null, null);
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle, triangle));
+        when(changeLog.currentSeq()).thenReturn(4L, 7L);
+        when(changeLog.shapeIdsChangedAfter(DEFAULT_CANVAS, 4L)).thenReturn(List.of(1L, 7L, 9L));
+        when(shapeRepository.findGeometryByCanvasIdAndIdIn(DEFAULT_CANVAS, List.of(1L, 7L, 9L))).thenReturn(List.of(movedCircle, square));
+        ShapeGeometryIndex index = index(ShapeGeometryIndex.StoreMode.HEAP, false);
+        index.current(DEFAULT_CANVAS);
+
+
+        index.invalidate(DEFAULT_CANVAS);
+        GeometryStore refreshed = index.current(DEFAULT_CANVAS);
+
+
+        assertThat(ids(refreshed)).containsExactly(1L, 9L);
+        assertThat(refreshed.centerX(0)).isEqualTo(50.0);
+        verify(shapeRepository, times(1)).findGeometryByCanvasId(DEFAULT_CANVAS);
+    }
+
+    @Test
+    @DisplayName("Should load every shape again when changes since its sequence number were pruned")
+    void shouldReloadWhenChangesPruned() {
+
+        ShapeGeometryDto movedCircle = new ShapeGeometryDto(1L, ShapeType.CIRCLE, null, 50.0, 50.0, 5.0);
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle, triangle), List.of(movedCircle));
+        when(changeLog.currentSeq()).thenReturn(4L, 9L);
+        when(changeLog.shapeIdsChangedAfter(DEFAULT_CANVAS, 4L)).thenReturn(List.of());
+        when(changeLog.prunedThrough()).thenReturn(6L);
+        ShapeGeometryIndex index = index(ShapeGeometryIndex.StoreMode.HEAP, false);
+        index.current(DEFAULT_CANVAS);
+
+
+        index.invalidate(DEFAULT_CANVAS);
+        GeometryStore refreshed = index.current(DEFAULT_CANVAS);
+
+
+        assertThat(ids(refreshed)).containsExactly(1L);
+        assertThat(refreshed.centerX(0)).isEqualTo(50.0);
+        verify(shapeRepository, never()).findGeometryByCanvasIdAndIdIn(eq(DEFAULT_CANVAS), anyCollection());
+    }
+
+    @Test
+    @DisplayName("Should keep the same store when nothing changed")
+    void shouldKeepUnchangedStore() {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle, triangle));
+        when(changeLog.shapeIdsChangedAfter(anyLong(), anyLong())).thenReturn(List.of());
+        ShapeGeometryIndex index = index(ShapeGeometryIndex.StoreMode.HEAP, false);
+        GeometryStore first = index.current(DEFAULT_CANVAS);
+
+
+        index.invalidate(DEFAULT_CANVAS);
+
+
+        assertThat(index.current(DEFAULT_CANVAS)).isSameAs(first);
+        verify(shapeRepository, never()).findGeometryByCanvasIdAndIdIn(eq(DEFAULT_CANVAS), anyCollection());
+    }
+
+    @Test
+    @DisplayName("Should keep geometry in direct memory in off-heap mode")
+    void shouldBuildOffHeapStore() {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle, triangle));
+        ShapeGeometryIndex index = index(ShapeGeometryIndex.StoreMode.OFF_HEAP, false);
+
+
+        GeometryStore store = index.current(DEFAULT_CANVAS);
+
+
+        assertThat(store).isInstanceOf(OffHeapShapeStore.class);
+        assertThat(store.id(1)).isEqualTo(7L);
+    }
+
+    @Test
+    @DisplayName("Should write a versioned snapshot and start from it after a restart")
+    void shouldRestartFromSnapshot() throws Exception {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle, triangle));
+        when(changeLog.currentSeq()).thenReturn(12L, 13L);
+        ShapeGeometryIndex index = index(ShapeGeometryIndex.StoreMode.HEAP, true);
+        index.current(DEFAULT_CANVAS);
+        index.writeSnapshot();
+        long version = OffHeapShapeStore.map(snapshotFile()).version();
+
+        ShapeGeometryDto lateTriangle = new ShapeGeometryDto(8L, ShapeType.TRIANGLE, "20,20;30,20;25,30", null, null, null);
+        when(changeLog.shapeIdsChangedAfter(DEFAULT_CANVAS, 12L)).thenReturn(List.of(8L));
+        when(shapeRepository.findGeometryByCanvasIdAndIdIn(DEFAULT_CANVAS, List.of(8L))).thenReturn(List.of(lateTriangle));
+
+
+        ShapeGeometryIndex restarted = index(ShapeGeometryIndex.StoreMode.HEAP, true);
+        restarted.warmUp();
+
+
+        assertThat(version).isEqualTo(12L);
+        assertThat(ids(restarted.current(DEFAULT_CANVAS))).containsExactly(1L, 7L, 8L);
+        verify(shapeRepository, times(1)).findGeometryByCanvasId(DEFAULT_CANVAS);
+    }
+
+    @Test
+    @DisplayName("Should not rewrite the snapshot when the geometry has not changed")
+    void shouldSkipUnchangedSnapshot() throws Exception {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle));
+        ShapeGeometryIndex index = index(ShapeGeometryIndex.StoreMode.HEAP, true);
+        index.current(DEFAULT_CANVAS);
+        index.writeSnapshot();
+        Files.delete(snapshotFile());
+
+
+        index.writeSnapshot();
+
+
+        assertThat(snapshotFile()).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("Should rewrite the mapped file on every refresh in mapped mode")
+    void shouldRewriteMappedFile() throws Exception {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle, triangle));
+        when(changeLog.shapeIdsChangedAfter(anyLong(), anyLong())).thenReturn(List.of(1L));
+        when(shapeRepository.findGeometryByCanvasIdAndIdIn(DEFAULT_CANVAS, List.of(1L))).thenReturn(List.of());
+        ShapeGeometryIndex index = index(ShapeGeometryIndex.StoreMode.MAPPED, false);
+        index.current(DEFAULT_CANVAS);
+
+
+        index.invalidate(DEFAULT_CANVAS);
+        GeometryStore refreshed = index.current(DEFAULT_CANVAS);
+
+
+        assertThat(refreshed).isInstanceOf(OffHeapShapeStore.class);
+        assertThat(ids(OffHeapShapeStore.map(snapshotFile()))).containsExactly(7L);
+    }
+
+    @Test
+    @DisplayName("Should load changed shapes in bounded IN lists")
+    void shouldChunkChangedIds() {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle));
+        List<Long> changedIds = LongStream.rangeClosed(1, ShapeGeometryIndex.REFRESH_CHUNK + 1).boxed().toList();
+        when(changeLog.shapeIdsChangedAfter(anyLong(), anyLong())).thenReturn(changedIds);
+        when(shapeRepository.findGeometryByCanvasIdAndIdIn(eq(DEFAULT_CANVAS), anyCollection())).thenReturn(List.of());
+        ShapeGeometryIndex index = index(ShapeGeometryIndex.StoreMode.HEAP, false);
+        index.current(DEFAULT_CANVAS);
+
+
+        index.invalidate(DEFAULT_CANVAS);
+        GeometryStore refreshed = index.current(DEFAULT_CANVAS);
+
+
+        assertThat(refreshed.size()).isZero();
+        verify(shapeRepository).findGeometryByCanvasIdAndIdIn(DEFAULT_CANVAS, changedIds.subList(0, ShapeGeometryIndex.REFRESH_CHUNK));
+        verify(shapeRepository).findGeometryByCanvasIdAndIdIn(DEFAULT_CANVAS, List.of((long) ShapeGeometryIndex.REFRESH_CHUNK + 1));
+    }
+
+    @Test
+    @DisplayName("Should refresh only the canvas that was written")
+    void shouldRefreshCanvasesIndependently() {
+
+        ShapeGeometryDto square = new ShapeGeometryDto(9L, ShapeType.RECTANGLE, "0,0;1,0;1,1;0,1", null, null, null);
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle, triangle));
+        when(shapeRepository.findGeometryByCanvasId(5L)).thenReturn(List.of(square));
+        ShapeGeometryIndex index = index(ShapeGeometryIndex.StoreMode.HEAP, false);
+        GeometryStore defaultCanvas = index.current(DEFAULT_CANVAS);
+        GeometryStore otherCanvas = index.current(5L);
+
+
+        index.invalidate(5L);
+        index.current(5L);
+
+
+        assertThat(ids(defaultCanvas)).containsExactly(1L, 7L);
+        assertThat(ids(otherCanvas)).containsExactly(9L);
+        assertThat(index.current(DEFAULT_CANVAS)).isSameAs(defaultCanvas);
+        verify(changeLog, times(1)).shapeIdsChangedAfter(anyLong(), anyLong());
+        verify(shapeRepository, times(1)).findGeometryByCanvasId(DEFAULT_CANVAS);
+    }
+
+    @Test
+    @DisplayName("Should keep the same store when only other canvases changed")
+    void shouldIgnoreChangesToOtherCanvases() {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle, triangle));
+        when(changeLog.shapeIdsChangedAfter(anyLong(), anyLong())).thenReturn(List.of(9L));
+        when(shapeRepository.findGeometryByCanvasIdAndIdIn(DEFAULT_CANVAS, List.of(9L))).thenReturn(List.of());
+        ShapeGeometryIndex index = index(ShapeGeometryIndex.StoreMode.HEAP, false);
+        GeometryStore first = index.current(DEFAULT_CANVAS);
+
+
+        index.invalidate(DEFAULT_CANVAS);
+
+
+        assertThat(index.current(DEFAULT_CANVAS)).isSameAs(first);
+    }
+
+    @Test
+    @DisplayName("Should keep a snapshot file per canvas")
+    void shouldWriteSnapshotPerCanvas() throws Exception {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle));
+        when(shapeRepository.findGeometryByCanvasId(5L)).thenReturn(List.of(triangle));
+        ShapeGeometryIndex index = index(ShapeGeometryIndex.StoreMode.HEAP, true);
+        index.current(DEFAULT_CANVAS);
+        index.current(5L);
+
+
+        index.writeSnapshot();
+
+
+        assertThat(index.fileFor(5L)).isEqualTo(directory.resolve("geometry-5.bin"));
+        assertThat(ids(OffHeapShapeStore.map(snapshotFile()))).containsExactly(1L);
+        assertThat(ids(OffHeapShapeStore.map(index.fileFor(5L)))).containsExactly(7L);
+    }
+
+    @Test
+    @DisplayName("Should skip a snapshot or mapped file it cannot write and keep serving the geometry")
+    void shouldSkipUnwritableFile() throws Exception {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(List.of(circle));
+        when(shapeRepository.findGeometryByCanvasId(5L)).thenReturn(List.of(triangle));
+        // A directory in place of the file makes moving the written file into place fail
+        Files.createDirectory(snapshotFile());
+        ShapeGeometryIndex snapshotting = index(ShapeGeometryIndex.StoreMode.HEAP, true);
+        snapshotting.current(DEFAULT_CANVAS);
+        snapshotting.current(5L);
+
+
+        snapshotting.writeSnapshot();
+        GeometryStore mapped = index(ShapeGeometryIndex.StoreMode.MAPPED, false).current(DEFAULT_CANVAS);
+
+
+        assertThat(ids(OffHeapShapeStore.map(snapshotting.fileFor(5L)))).containsExactly(7L);
+        assertThat(mapped).isInstanceOf(ShapeSet.class);
+        assertThat(ids(mapped)).containsExactly(1L);
+    }
+
+    // --- HELPER METHODS ---
+
+    private ShapeGeometryIndex index(ShapeGeometryIndex.StoreMode mode, boolean snapshots) {
+        return new ShapeGeometryIndex(shapeRepository, changeLog, mode, snapshotFile().toString(), snapshots, 1000);
+    }
+
+    private Path snapshotFile() {
+        return directory.resolve("geometry.bin");
+    }
+
+    private long[] ids(GeometryStore store) {
+        long[] ids = new long[store.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = store.id(i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.shapemanegement.service.impl;
+
+import com.example.shapemanegement.entity.Shape;
+import com.example.shapemanegement.geometry.ShapeType;
+import com.example.shapemanegement.repository.ShapeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.*;
+
+// Runs outside a test transaction: the migration works on its own connection, which would wait for the test's locks
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ShapeNameIndexMigration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("ShapeNameIndexMigration Tests")
+class ShapeNameIndexMigrationTest {
+
+    @Autowired
+    private ShapeNameIndexMigration migration;
+
+    @Autowired
+    private ShapeRepository shapeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        shapeRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should drop a unique index on name alone and keep names unique per canvas")
+    void shouldDropLegacyNameIndex() {
+
+        jdbcTemplate.execute("CREATE UNIQUE INDEX legacy_shapes_name ON shapes(name)");
+
+
+        migration.dropLegacyNameIndex();
+        migration.dropLegacyNameIndex();
+        shapeRepository.save(circle("Shared", Shape.DEFAULT_CANVAS));
+        shapeRepository.save(circle("Shared", 7L));
+
+
+        assertThat(shapeRepository.count()).isEqualTo(2);
+        assertThatThrownBy(() -> shapeRepository.save(circle("Shared", 7L)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private static Shape circle(String name, long canvasId) {
+        Shape shape = new Shape(null, name, ShapeType.CIRCLE, null, 0.0, 0.0, 5.0);
+        shape.setCanvasId(canvasId);
+        return shape;
+    }
+}
@@ -1,23 +1,46 @@
 package com.example.shapemanegement.service.impl;
 
+import com.example.shapemanegement.dto.projection.ShapeGeometryDto;
+import com.example.shapemanegement.dto.request.ShapeGeometryRequestDto;
 import com.example.shapemanegement.dto.request.ShapeRequestDto;
+import com.example.shapemanegement.dto.request.ShapeTransformRequestDto;
+import com.example.shapemanegement.dto.response.OverlapAreaDto;
+import com.example.shapemanegement.dto.response.OverlapPageDto;
+import com.example.shapemanegement.dto.response.ShapeBatchResponseDto;
+import com.example.shapemanegement.dto.response.ShapeChangeDto;
+import com.example.shapemanegement.dto.response.ShapeChangesResponseDto;
+import com.example.shapemanegement.dto.response.ShapeDistanceDto;
 import com.example.shapemanegement.dto.response.ShapeResponseDto;
+import com.example.shapemanegement.dto.response.ShapeTileDto;
 import com.example.shapemanegement.entity.Shape;
+import com.example.shapemanegement.entity.ShapeChange;
+import com.example.shapemanegement.exception.ChangesExpiredException;
 import com.example.shapemanegement.exception.ResourceNotFoundException;
 import com.example.shapemanegement.exception.ValidationException;
+import com.example.shapemanegement.exception.VersionConflictException;
+import com.example.shapemanegement.geometry.GeometryStore;
+import com.example.shapemanegement.geometry.ShapeType;
 import com.example.shapemanegement.repository.ShapeRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
+import static com.example.shapemanegement.entity.Shape.DEFAULT_CANVAS;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -29,7 +52,16 @@ class ShapeServiceImplTest {
     @Mock
     private ShapeRepository shapeRepository;
 
-    @InjectMocks
+    @Mock
+    private ShapeChangeLog changeLog;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ShapeGeometryIndex geometryIndex;
+
+    private ShapeWriteBehind writeBehind;
+
     private ShapeServiceImpl shapeService;
 
     private Shape circle1;
@@ -39,6 +71,11 @@ class ShapeServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        geometryIndex = new ShapeGeometryIndex(shapeRepository, changeLog, ShapeGeometryIndex.StoreMode.HEAP, "unused.bin", false, 1000);
+        writeBehind = new ShapeWriteBehind(shapeRepository, changeLog, geometryIndex, transactionManager);
+        shapeService = new ShapeServiceImpl(shapeRepository, geometryIndex, changeLog,
+                new ShapeTileCache(geometryIndex, 1024, 100), writeBehind, ShapeServiceImpl.OverlapStrategy.PAIRWISE);
+
         // Create test shapes
         circle1 = createCircle(1L, "Circle1", 0.0, 0.0, 5.0);
         circle2 = createCircle(2L, "Circle2", 8.0, 0.0, 3.0);
@@ -53,24 +90,55 @@ class ShapeServiceImplTest {
     void shouldDetectOverlappingCircles() {
 
         Shape overlappingCircle = createCircle(5L, "OverlapCircle", 3.0, 0.0, 4.0);
-        when(shapeRepository.findAll()).thenReturn(Arrays.asList(circle1, overlappingCircle));
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(circle1, overlappingCircle));
 
 
-        List<Long> overlappingIds = shapeService.findOverlappingShapeIds();
+        long[] overlappingIds = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
 
 
         assertThat(overlappingIds).hasSize(2);
         assertThat(overlappingIds).containsExactlyInAnyOrder(1L, 5L);
     }
 
+    @Test
+    @DisplayName("Should detect overlaps per canvas and refresh only the canvas written to")
+    void shouldPartitionOverlapsByCanvas() {
+
+        Shape overlappingCircle = createCircle(5L, "Circle1", 3.0, 0.0, 4.0);
+        overlappingCircle.setCanvasId(5L);
+        Shape otherCanvasCircle = createCircle(6L, "Circle2", 4.0, 0.0, 4.0);
+        otherCanvasCircle.setCanvasId(5L);
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(circle1, circle2));
+        when(shapeRepository.findGeometryByCanvasId(5L)).thenReturn(geometries(overlappingCircle));
+        when(shapeRepository.saveAndFlush(any(Shape.class))).thenReturn(otherCanvasCircle);
+        ShapeRequestDto request = new ShapeRequestDto("Circle2", "circle", null, 4.0, 0.0, 4.0);
+        request.setCanvasId(5L);
+
+
+        long[] defaultCanvas = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
+        long[] otherCanvas = shapeService.findOverlappingShapeIds(5L);
+        ShapeResponseDto created = shapeService.createShape(request);
+        long[] unchanged = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
+
+
+        // circle1 and the canvas-5 circle overlap on the plane, but not on one canvas
+        assertThat(defaultCanvas).isEmpty();
+        assertThat(otherCanvas).isEmpty();
+        assertThat(unchanged).isEmpty();
+        assertThat(created.getCanvasId()).isEqualTo(5L);
+        verify(shapeRepository).saveAndFlush(argThat(shape -> shape.getCanvasId() == 5L));
+        verify(shapeRepository, times(1)).findGeometryByCanvasId(DEFAULT_CANVAS);
+        verify(changeLog, never()).shapeIdsChangedAfter(anyLong(), anyLong());
+    }
+
     @Test
     @DisplayName("Should detect non-overlapping circles")
     void shouldDetectNonOverlappingCircles() {
 
-        when(shapeRepository.findAll()).thenReturn(Arrays.asList(circle1, circle2));
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(circle1, circle2));
 
 
-        List<Long> overlappingIds = shapeService.findOverlappingShapeIds();
+        long[] overlappingIds = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
 
 
         assertThat(overlappingIds).isEmpty();
@@ -81,10 +149,10 @@ class ShapeServiceImplTest {
     void shouldDetectCirclePolygonOverlap() {
 
         Shape overlappingCircle = createCircle(6L, "OverlapCircle", 5.0, 3.0, 4.0);
-        when(shapeRepository.findAll()).thenReturn(Arrays.asList(triangle1, overlappingCircle));
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(triangle1, overlappingCircle));
 
 
-        List<Long> overlappingIds = shapeService.findOverlappingShapeIds();
+        long[] overlappingIds = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
 
 
         assertThat(overlappingIds).hasSize(2);
@@ -96,23 +164,225 @@ class ShapeServiceImplTest {
     void shouldDetectPolygonPolygonOverlap() {
 
         Shape overlappingRect = createRectangle(7L, "OverlapRect", "25,25;35,25;35,35;25,35");
-        when(shapeRepository.findAll()).thenReturn(Arrays.asList(rectangle1, overlappingRect));
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(rectangle1, overlappingRect));
 
 
-        List<Long> overlappingIds = shapeService.findOverlappingShapeIds();
+        long[] overlappingIds = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
 
         assertThat(overlappingIds).hasSize(2);
         assertThat(overlappingIds).containsExactlyInAnyOrder(4L, 7L);
     }
 
+    @Test
+    @DisplayName("Should find the same overlaps with the sweep-line strategy")
+    void shouldDetectOverlapsWithSweepStrategy() {
+
+        ShapeServiceImpl sweepService = new ShapeServiceImpl(shapeRepository, geometryIndex, changeLog,
+                new ShapeTileCache(geometryIndex, 1024, 100), writeBehind, ShapeServiceImpl.OverlapStrategy.SWEEP);
+        Shape overlappingRect = createRectangle(7L, "OverlapRect", "25,25;35,25;35,35;25,35");
+        Shape overlappingCircle = createCircle(6L, "OverlapCircle", 5.0, 3.0, 4.0);
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(
+                geometries(circle2, triangle1, rectangle1, overlappingCircle, overlappingRect));
+
+
+        long[] overlappingIds = sweepService.findOverlappingShapeIds(DEFAULT_CANVAS);
+
+
+        assertThat(overlappingIds).containsExactlyInAnyOrder(2L, 3L, 4L, 6L, 7L);
+        assertThat(overlappingIds).containsExactly(shapeService.findOverlappingShapeIds(DEFAULT_CANVAS));
+    }
+
+    @Test
+    @DisplayName("Should finish within a generous deadline and resume from a continuation")
+    void shouldFindOverlapsWithinDeadline() {
+
+        Shape overlappingCircle = createCircle(5L, "OverlapCircle", 3.0, 0.0, 4.0);
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(circle1, circle2, overlappingCircle, rectangle1));
+
+
+        OverlapPageDto page = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS, 60_000, null);
+        // Resuming at circle 2 skips the pairs of circle 1
+        OverlapPageDto resumed = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS, 60_000, 2L);
+
+
+        assertThat(page.isComplete()).isTrue();
+        assertThat(page.getContinuation()).isNull();
+        assertThat(page.getIds()).containsExactly(1L, 2L, 5L);
+        assertThat(resumed.isComplete()).isTrue();
+        assertThat(resumed.getIds()).containsExactly(2L, 5L);
+        assertThatThrownBy(() -> shapeService.findOverlappingShapeIds(DEFAULT_CANVAS, 0, null))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    @DisplayName("Should stream the intersection area of each overlapping pair")
+    void shouldStreamOverlapAreas() {
+
+        Shape overlappingRect = createRectangle(7L, "OverlapRect", "25,25;35,25;35,35;25,35");
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(rectangle1, overlappingRect, circle2));
+
+
+        List<OverlapAreaDto> pairs = new ArrayList<>();
+        shapeService.forEachOverlapArea(DEFAULT_CANVAS, pairs::add);
+
+        assertThat(pairs).hasSize(1);
+        OverlapAreaDto pair = pairs.get(0);
+        assertThat(List.of(pair.getFirstId(), pair.getSecondId())).containsExactlyInAnyOrder(4L, 7L);
+        assertThat(pair.getIntersectionArea()).isCloseTo(25.0, within(1e-9));
+        assertThat(pair.getFirstCoveragePercent()).isCloseTo(25.0, within(1e-9));
+        assertThat(pair.getSecondCoveragePercent()).isCloseTo(25.0, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("Should find the nearest shapes to a point, nearest first")
+    void shouldFindNearestShapes() {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(circle1, circle2, rectangle1));
+
+
+        List<ShapeDistanceDto> nearest = shapeService.findNearestShapes(DEFAULT_CANVAS, 15.0, 0.0, 2);
+
+        assertThat(nearest).extracting(ShapeDistanceDto::getId).containsExactly(2L, 1L);
+        assertThat(nearest.get(0).getDistance()).isCloseTo(4.0, within(1e-9));
+        assertThat(nearest.get(1).getDistance()).isCloseTo(10.0, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("Should find shapes within a distance of a shape")
+    void shouldFindShapesWithinDistance() {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(circle1, circle2, triangle1, rectangle1));
+        stubFindById(rectangle1);
+
+
+        List<ShapeDistanceDto> within = shapeService.findShapesWithin(4L, 21.0);
+
+        // Triangle apex (5,10) and circle2's rim are nearest to the rectangle's corner (20,20); circle1 is 23.3 away
+        assertThat(within).extracting(ShapeDistanceDto::getId).containsExactly(3L, 2L);
+        assertThat(within.get(0).getDistance()).isCloseTo(Math.sqrt(325), within(1e-9));
+        assertThat(within.get(1).getDistance()).isCloseTo(Math.sqrt(544) - 3, within(1e-9));
+        assertThatThrownBy(() -> shapeService.findShapesWithin(99L, 1.0))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Should reject invalid proximity query parameters")
+    void shouldRejectInvalidProximityParameters() {
+
+        assertThatThrownBy(() -> shapeService.findNearestShapes(DEFAULT_CANVAS, 0.0, 0.0, 0))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> shapeService.findNearestShapes(DEFAULT_CANVAS, 0.0, 0.0, ShapeServiceImpl.MAX_NEAREST + 1))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> shapeService.findShapesWithin(1L, -1.0))
+                .isInstanceOf(ValidationException.class);
+        verifyNoInteractions(shapeRepository);
+    }
+
+    @Test
+    @DisplayName("Should find shapes inside, around and apart from a shape, and around a point")
+    void shouldFindSpatialRelations() {
+
+        Shape frame = createRectangle(10L, "Frame", "0,0;40,0;40,40;0,40");
+        Shape dot = createCircle(11L, "Dot", 20.0, 20.0, 3.0);
+        Shape far = createCircle(12L, "Far", 100.0, 100.0, 5.0);
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(circle2, triangle1, rectangle1, frame, dot, far));
+        stubFindById(rectangle1, frame, dot, far);
+
+
+        // circle2 pokes out below the frame; the triangle shares two of its sides
+        assertThat(shapeService.findShapesContainedBy(10L)).containsExactly(3L, 4L, 11L);
+        assertThat(shapeService.findShapesContaining(11L)).containsExactly(10L);
+        assertThat(shapeService.findShapesContainingPoint(DEFAULT_CANVAS, 25.0, 25.0)).containsExactly(4L, 10L);
+        assertThat(shapeService.findShapesDisjointFrom(12L)).containsExactly(2L, 3L, 4L, 10L, 11L);
+        assertThat(shapeService.findShapesDisjointFrom(4L)).containsExactly(2L, 3L, 12L);
+        assertThatThrownBy(() -> shapeService.findShapesContainedBy(99L))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> shapeService.findShapesContainingPoint(DEFAULT_CANVAS, Double.NaN, 0.0))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    @DisplayName("Should return simplified shapes of a tile and leave out sub-pixel shapes")
+    void shouldBuildTile() {
+
+        // A pixel is 4 units at zoom 0 and 1 unit at zoom 2 with a 1024-unit extent
+        Shape jagged = createRectangle(5L, "Jagged", "20,20;25,20;30,20;30,30;20,30");
+        Shape tiny = createRectangle(6L, "Tiny", "100,100;102,100;102,102;100,102");
+        Shape outside = createCircle(7L, "Outside", 600.0, 600.0, 10.0);
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(triangle1, jagged, tiny, outside));
+
+
+        ShapeTileDto world = shapeService.findTile(DEFAULT_CANVAS, 0, 0, 0);
+        ShapeTileDto corner = shapeService.findTile(DEFAULT_CANVAS, 2, 0, 0);
+
+        assertThat(world.getShapes()).extracting(ShapeGeometryDto::getId).containsExactlyInAnyOrder(3L, 5L, 7L);
+        assertThat(world.getShapes()).filteredOn(shape -> shape.getId() == 5L)
+                .extracting(ShapeGeometryDto::getCoordinates, ShapeGeometryDto::getType)
+                .containsExactly(tuple("20,20;30,20;30,30;20,30", ShapeType.RECTANGLE));
+        assertThat(world.getShapes()).extracting(ShapeGeometryDto::getType)
+                .containsExactlyInAnyOrder(ShapeType.TRIANGLE, ShapeType.RECTANGLE, ShapeType.CIRCLE);
+        assertThat(corner.getShapes()).extracting(ShapeGeometryDto::getId).containsExactlyInAnyOrder(3L, 5L, 6L);
+        assertThat(shapeService.findTile(DEFAULT_CANVAS, 0, 0, 0)).isSameAs(world);
+    }
+
+    @Test
+    @DisplayName("Should rebuild cached tiles after a shape write")
+    void shouldInvalidateTilesAfterWrite() {
+
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(triangle1));
+        ShapeTileDto before = shapeService.findTile(DEFAULT_CANVAS, 0, 0, 0);
+        when(changeLog.shapeIdsChangedAfter(anyLong(), anyLong())).thenReturn(List.of(4L));
+        when(shapeRepository.findGeometryByCanvasIdAndIdIn(eq(DEFAULT_CANVAS), any())).thenReturn(geometries(rectangle1));
+
+
+        geometryIndex.invalidate(DEFAULT_CANVAS);
+        ShapeTileDto after = shapeService.findTile(DEFAULT_CANVAS, 0, 0, 0);
+
+        assertThat(before.getShapes()).extracting(ShapeGeometryDto::getId).containsExactly(3L);
+        assertThat(after.getShapes()).extracting(ShapeGeometryDto::getId).containsExactlyInAnyOrder(3L, 4L);
+    }
+
+    @Test
+    @DisplayName("Should keep other canvases' tiles when one canvas is written")
+    void shouldKeepOtherCanvasTilesAfterWrite() {
+
+        Shape elsewhere = createCircle(8L, "Elsewhere", 50.0, 50.0, 10.0);
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(triangle1));
+        when(shapeRepository.findGeometryByCanvasId(7L)).thenReturn(geometries(elsewhere));
+        ShapeTileDto defaultBefore = shapeService.findTile(DEFAULT_CANVAS, 0, 0, 0);
+        ShapeTileDto otherBefore = shapeService.findTile(7L, 0, 0, 0);
+        when(changeLog.shapeIdsChangedAfter(DEFAULT_CANVAS, 0L)).thenReturn(List.of(4L));
+        when(shapeRepository.findGeometryByCanvasIdAndIdIn(eq(DEFAULT_CANVAS), any())).thenReturn(geometries(rectangle1));
+
+
+        geometryIndex.invalidate(DEFAULT_CANVAS);
+        ShapeTileDto defaultAfter = shapeService.findTile(DEFAULT_CANVAS, 0, 0, 0);
+        ShapeTileDto otherAfter = shapeService.findTile(7L, 0, 0, 0);
+
+
+        assertThat(defaultAfter).isNotSameAs(defaultBefore);
+        assertThat(defaultAfter.getShapes()).extracting(ShapeGeometryDto::getId).containsExactlyInAnyOrder(3L, 4L);
+        assertThat(otherAfter).isSameAs(otherBefore);
+    }
+
+    @Test
+    @DisplayName("Should reject tiles outside the zoom level")
+    void shouldRejectInvalidTile() {
+
+        assertThatThrownBy(() -> shapeService.findTile(DEFAULT_CANVAS, -1, 0, 0)).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> shapeService.findTile(DEFAULT_CANVAS, ShapeTileCache.MAX_ZOOM + 1, 0, 0)).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> shapeService.findTile(DEFAULT_CANVAS, 2, 4, 0)).isInstanceOf(ValidationException.class);
+        verifyNoInteractions(shapeRepository);
+    }
+
     @Test
     @DisplayName("Should handle empty shape list")
     void shouldHandleEmptyShapeList() {
 
-        when(shapeRepository.findAll()).thenReturn(Arrays.asList());
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries());
 
 
-        List<Long> overlappingIds = shapeService.findOverlappingShapeIds();
+        long[] overlappingIds = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
 
 
         assertThat(overlappingIds).isEmpty();
@@ -122,10 +392,10 @@ class ShapeServiceImplTest {
     @DisplayName("Should handle single shape")
     void shouldHandleSingleShape() {
 
-        when(shapeRepository.findAll()).thenReturn(Arrays.asList(circle1));
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(circle1));
 
 
-        List<Long> overlappingIds = shapeService.findOverlappingShapeIds();
+        long[] overlappingIds = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
 
 
         assertThat(overlappingIds).isEmpty();
@@ -137,16 +407,42 @@ class ShapeServiceImplTest {
 
         Shape circle3 = createCircle(8L, "Circle3", 2.0, 2.0, 3.0);
         Shape circle4 = createCircle(9L, "Circle4", 4.0, 4.0, 3.0);
-        when(shapeRepository.findAll()).thenReturn(Arrays.asList(circle1, circle3, circle4));
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(circle1, circle3, circle4));
 
 
-        List<Long> overlappingIds = shapeService.findOverlappingShapeIds();
+        long[] overlappingIds = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
 
 
         assertThat(overlappingIds).hasSize(3);
         assertThat(overlappingIds).containsExactlyInAnyOrder(1L, 8L, 9L);
     }
 
+    @Test
+    @DisplayName("Should detect shapes overlapping a single shape from bounding-box candidates")
+    void shouldDetectShapesOverlappingSingleShape() {
+
+        Shape overlappingCircle = createCircle(5L, "OverlapCircle", 3.0, 0.0, 4.0);
+        Shape boxOnlyCircle = createCircle(6L, "BoxOnlyCircle", 7.0, 7.0, 2.0);
+        when(shapeRepository.findGeometryById(1L)).thenReturn(Optional.of(toGeometry(circle1)));
+        when(shapeRepository.findOverlapCandidateGeometry(1L, -5.0, -5.0, 5.0, 5.0))
+                .thenReturn(geometries(overlappingCircle, boxOnlyCircle));
+
+
+        long[] overlappingIds = shapeService.findShapesOverlapping(1L);
+
+
+        assertThat(overlappingIds).containsExactly(5L);
+    }
+
+    @Test
+    @DisplayName("Should reject an inverted viewport")
+    void shouldRejectInvertedViewport() {
+
+        assertThatThrownBy(() -> shapeService.findShapesInViewport(DEFAULT_CANVAS, 10, 0, 0, 10))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("Viewport");
+    }
+
     // --- CRUD OPERATION TESTS ---
 
     @Test
@@ -162,15 +458,14 @@ class ShapeServiceImplTest {
 
         Shape savedShape = createCircle(10L, "TestCircle", 10.0, 10.0, 5.0);
 
-        when(shapeRepository.existsByName("TestCircle")).thenReturn(false);
-        when(shapeRepository.save(any(Shape.class))).thenReturn(savedShape);
+        when(shapeRepository.saveAndFlush(any(Shape.class))).thenReturn(savedShape);
 
 
         ShapeResponseDto response = shapeService.createShape(requestDto);
 
 
         assertThat(response.getName()).isEqualTo("TestCircle");
-        assertThat(response.getType()).isEqualTo("circle");
+        assertThat(response.getType()).isEqualTo(ShapeType.CIRCLE);
         assertThat(response.getCenterX()).isEqualTo(10.0);
         assertThat(response.getCenterY()).isEqualTo(10.0);
         assertThat(response.getRadius()).isEqualTo(5.0);
@@ -187,7 +482,7 @@ class ShapeServiceImplTest {
         requestDto.setCenterY(10.0);
         requestDto.setRadius(5.0);
 
-        when(shapeRepository.existsByName("DuplicateShape")).thenReturn(true);
+        when(shapeRepository.saveAndFlush(any(Shape.class))).thenThrow(uniqueNameViolation());
 
 
         assertThatThrownBy(() -> shapeService.createShape(requestDto))
@@ -206,12 +501,147 @@ class ShapeServiceImplTest {
         requestDto.setCenterY(10.0);
         requestDto.setRadius(-5.0);
 
-        when(shapeRepository.existsByName("InvalidCircle")).thenReturn(false);
-
-
         assertThatThrownBy(() -> shapeService.createShape(requestDto))
                 .isInstanceOf(ValidationException.class)
                 .hasMessageContaining("Radius must be positive");
+        verifyNoInteractions(shapeRepository);
+    }
+
+    @Test
+    @DisplayName("Should reject self-intersecting polygons on create and update, naming the edges")
+    void shouldRejectSelfIntersectingPolygons() {
+
+        ShapeRequestDto bowTie = new ShapeRequestDto("BowTie", "polygon", "0,0;10,10;10,0;0,10", null, null, null);
+
+        assertThatThrownBy(() -> shapeService.createShape(bowTie))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("edge 1 (0,0 to 10,10) meets edge 3 (10,0 to 0,10)");
+        assertThatThrownBy(() -> shapeService.updateShape(4L, bowTie))
+                .isInstanceOf(ValidationException.class);
+        verifyNoInteractions(shapeRepository);
+    }
+
+    @Test
+    @DisplayName("Should update the loaded shape with one versioned write and return the version it wrote")
+    void shouldUpdateShape() {
+
+        ShapeRequestDto requestDto = new ShapeRequestDto("MovedTriangle", "triangle", "10,10;20,10;15,20", null, null, null);
+        triangle1.setVersion(6L);
+        stubFindById(triangle1);
+        bumpVersionOnFlush(triangle1);
+
+
+        ShapeResponseDto response = shapeService.updateShape(3L, requestDto);
+
+
+        assertThat(response.getId()).isEqualTo(3L);
+        assertThat(response.getName()).isEqualTo("MovedTriangle");
+        assertThat(response.getCoordinates()).isEqualTo("10,10;20,10;15,20");
+        assertThat(response.getVersion()).isEqualTo(7L);
+        assertThat(triangle1.getCoordinates()).isEqualTo("10,10;20,10;15,20");
+        verify(shapeRepository).findById(3L);
+        verify(shapeRepository).flush();
+        verifyNoMoreInteractions(shapeRepository);
+        verify(changeLog).record(DEFAULT_CANVAS, 3L, ShapeChange.Type.UPDATED);
+    }
+
+    @Test
+    @DisplayName("Should update only at the expected version and return the next one")
+    void shouldUpdateShapeAtExpectedVersion() {
+
+        ShapeRequestDto requestDto = new ShapeRequestDto("MovedTriangle", "triangle", "10,10;20,10;15,20", null, null, null);
+        requestDto.setVersion(4L);
+        triangle1.setVersion(4L);
+        stubFindById(triangle1);
+        bumpVersionOnFlush(triangle1);
+
+
+        ShapeResponseDto response = shapeService.updateShape(3L, requestDto);
+
+
+        assertThat(response.getVersion()).isEqualTo(5L);
+    }
+
+    @Test
+    @DisplayName("Should report a conflict when the shape moved past the expected version")
+    void shouldThrowExceptionOnVersionConflict() {
+
+        ShapeRequestDto requestDto = new ShapeRequestDto("MovedTriangle", "triangle", "10,10;20,10;15,20", null, null, null);
+        requestDto.setVersion(4L);
+        triangle1.setVersion(5L);
+        stubFindById(triangle1);
+
+
+        assertThatThrownBy(() -> shapeService.updateShape(3L, requestDto))
+                .isInstanceOf(VersionConflictException.class)
+                .hasMessageContaining("modified since version 4");
+        assertThat(triangle1.getName()).isEqualTo("Triangle1");
+        verify(shapeRepository, never()).flush();
+        verifyNoInteractions(changeLog);
+    }
+
+    @Test
+    @DisplayName("Should report a conflict when another write commits while the update is written")
+    void shouldThrowExceptionOnConcurrentWrite() {
+
+        ShapeRequestDto requestDto = new ShapeRequestDto("MovedTriangle", "triangle", "10,10;20,10;15,20", null, null, null);
+        triangle1.setVersion(5L);
+        stubFindById(triangle1);
+        doThrow(new ObjectOptimisticLockingFailureException(Shape.class, 3L)).when(shapeRepository).flush();
+
+
+        assertThatThrownBy(() -> shapeService.updateShape(3L, requestDto))
+                .isInstanceOf(VersionConflictException.class)
+                .hasMessageContaining("modified during the update");
+        verifyNoInteractions(changeLog);
+    }
+
+    @Test
+    @DisplayName("Should throw exception when updating non-existent shape")
+    void shouldThrowExceptionWhenUpdatingNonExistentShape() {
+
+        ShapeRequestDto requestDto = new ShapeRequestDto("Ghost", "circle", null, 1.0, 1.0, 1.0);
+
+
+        assertThatThrownBy(() -> shapeService.updateShape(999L, requestDto))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Shape not found with id: 999");
+        verify(shapeRepository, never()).flush();
+    }
+
+    @Test
+    @DisplayName("Should update a shape in its own canvas when the request leaves canvasId out")
+    void shouldUpdateShapeInItsOwnCanvas() {
+
+        triangle1.setCanvasId(5L);
+        stubFindById(triangle1);
+        ShapeRequestDto requestDto = new ShapeRequestDto("MovedTriangle", "triangle", "10,10;20,10;15,20", null, null, null);
+        ShapeRequestDto moving = new ShapeRequestDto("MovedTriangle", "triangle", "10,10;20,10;15,20", null, null, null);
+        moving.setCanvasId(6L);
+
+
+        ShapeResponseDto response = shapeService.updateShape(3L, requestDto);
+
+
+        assertThat(response.getCanvasId()).isEqualTo(5L);
+        assertThat(triangle1.getCanvasId()).isEqualTo(5L);
+        assertThatThrownBy(() -> shapeService.updateShape(3L, moving))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("cannot be moved to another canvas");
+    }
+
+    @Test
+    @DisplayName("Should throw exception when renaming to an existing name")
+    void shouldThrowExceptionWhenUpdatingToDuplicateName() {
+
+        ShapeRequestDto requestDto = new ShapeRequestDto("Circle2", "circle", null, 1.0, 1.0, 1.0);
+        stubFindById(circle1);
+        doThrow(uniqueNameViolation()).when(shapeRepository).flush();
+
+
+        assertThatThrownBy(() -> shapeService.updateShape(1L, requestDto))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("Shape with name 'Circle2' already exists.");
     }
 
     @Test
@@ -226,7 +656,43 @@ class ShapeServiceImplTest {
 
         assertThat(response.getId()).isEqualTo(1L);
         assertThat(response.getName()).isEqualTo("Circle1");
-        assertThat(response.getType()).isEqualTo("circle");
+        assertThat(response.getType()).isEqualTo(ShapeType.CIRCLE);
+    }
+
+    @Test
+    @DisplayName("Should fetch shapes by ids in request order and report missing ids")
+    void shouldFindShapesByIds() {
+
+        ShapeResponseDto first = new ShapeResponseDto(1L, "Circle1", ShapeType.CIRCLE, null, 0.0, 0.0, 5.0, 0L, DEFAULT_CANVAS);
+        ShapeResponseDto fourth = new ShapeResponseDto(4L, "Rectangle1", ShapeType.RECTANGLE, "20,20;30,20;30,30;20,30", null, null, null, 0L, DEFAULT_CANVAS);
+        when(shapeRepository.findResponsesByIdIn(List.of(4L, 99L, 1L))).thenReturn(List.of(first, fourth));
+
+
+        ShapeBatchResponseDto result = shapeService.findShapesByIds(List.of(4L, 99L, 1L, 4L));
+
+
+        assertThat(result.getShapes()).extracting(ShapeResponseDto::getId).containsExactly(4L, 1L);
+        assertThat(result.getMissing()).containsExactly(99L);
+        verify(shapeRepository, times(1)).findResponsesByIdIn(any());
+    }
+
+    @Test
+    @DisplayName("Should split long id lists into chunked IN queries")
+    void shouldChunkBatchGet() {
+
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= ShapeServiceImpl.ID_CHUNK + 1; id++) {
+            ids.add(id);
+        }
+        when(shapeRepository.findResponsesByIdIn(any())).thenReturn(List.of());
+
+
+        ShapeBatchResponseDto result = shapeService.findShapesByIds(ids);
+
+
+        verify(shapeRepository).findResponsesByIdIn(ids.subList(0, ShapeServiceImpl.ID_CHUNK));
+        verify(shapeRepository).findResponsesByIdIn(List.of(ShapeServiceImpl.ID_CHUNK + 1L));
+        assertThat(result.getMissing()).hasSize(ids.size());
     }
 
     @Test
@@ -245,20 +711,21 @@ class ShapeServiceImplTest {
     @DisplayName("Should delete shape successfully")
     void shouldDeleteShape() {
 
-        when(shapeRepository.existsById(1L)).thenReturn(true);
+        when(shapeRepository.findById(1L)).thenReturn(Optional.of(circle1));
 
 
         shapeService.deleteShape(1L);
 
 
         verify(shapeRepository).deleteById(1L);
+        verify(changeLog).record(DEFAULT_CANVAS, 1L, ShapeChange.Type.DELETED);
     }
 
     @Test
     @DisplayName("Should throw exception when deleting non-existent shape")
     void shouldThrowExceptionWhenDeletingNonExistentShape() {
 
-        when(shapeRepository.existsById(999L)).thenReturn(false);
+        when(shapeRepository.findById(999L)).thenReturn(Optional.empty());
 
 
         assertThatThrownBy(() -> shapeService.deleteShape(999L))
@@ -266,13 +733,411 @@ class ShapeServiceImplTest {
                 .hasMessageContaining("Shape not found with id: 999");
     }
 
+    // --- WRITE-BEHIND TESTS ---
+
+    @Test
+    @DisplayName("Should show pending geometry at once and write only the newest per shape")
+    void shouldCoalesceGeometryUpdates() {
+
+        when(shapeRepository.findById(4L)).thenReturn(Optional.of(rectangle1));
+
+
+        shapeService.updateGeometryLater(4L, new ShapeGeometryRequestDto("21,20;31,20;31,30;21,30", null, null, null));
+        shapeService.updateGeometryLater(4L, new ShapeGeometryRequestDto("22,20;32,20;32,30;22,30", null, null, null));
+        ShapeResponseDto beforeFlush = shapeService.findShapeById(4L);
+        writeBehind.flush();
+        writeBehind.flush();
+
+
+        assertThat(beforeFlush.getCoordinates()).isEqualTo("22,20;32,20;32,30;22,30");
+        assertThat(rectangle1.getCoordinates()).isEqualTo("22,20;32,20;32,30;22,30");
+        verify(changeLog).record(DEFAULT_CANVAS, 4L, ShapeChange.Type.UPDATED);
+        assertThat(writeBehind.hasPending()).isFalse();
+        // Accepting a drag must not compile the canvas's geometry
+        verify(shapeRepository, never()).findGeometryByCanvasId(any());
+    }
+
+    @Test
+    @DisplayName("Should find shapes in a viewport by their pending geometry")
+    void shouldApplyPendingGeometryToViewport() {
+
+        stubFindById(rectangle1);
+        ShapeResponseDto stored = new ShapeResponseDto(4L, "Rectangle1", ShapeType.RECTANGLE, "20,20;30,20;30,30;20,30", null, null, null, 0L, DEFAULT_CANVAS);
+        when(shapeRepository.findResponsesByBoundingBoxIntersecting(DEFAULT_CANVAS, 15, 15, 35, 35)).thenReturn(List.of(stored));
+        when(shapeRepository.findResponsesByBoundingBoxIntersecting(DEFAULT_CANVAS, 95, 95, 120, 120)).thenReturn(List.of());
+        when(shapeRepository.findResponsesByIdIn(List.of(4L))).thenReturn(List.of(stored));
+
+
+        shapeService.updateGeometryLater(4L, new ShapeGeometryRequestDto("100,100;110,100;110,110;100,110", null, null, null));
+        List<ShapeResponseDto> oldArea = shapeService.findShapesInViewport(DEFAULT_CANVAS, 15, 15, 35, 35);
+        List<ShapeResponseDto> newArea = shapeService.findShapesInViewport(DEFAULT_CANVAS, 95, 95, 120, 120);
+
+
+        assertThat(oldArea).isEmpty();
+        assertThat(newArea).extracting(ShapeResponseDto::getCoordinates).containsExactly("100,100;110,100;110,110;100,110");
+    }
+
+    @Test
+    @DisplayName("Should find overlaps by pending geometry before it is flushed")
+    void shouldApplyPendingGeometryToOverlapQueries() {
+
+        Shape farCircle = createCircle(5L, "FarCircle", 100.0, 100.0, 5.0);
+        stubFindById(circle1, farCircle);
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(circle1, farCircle));
+
+
+        long[] before = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
+        shapeService.updateGeometryLater(5L, new ShapeGeometryRequestDto(null, 3.0, 0.0, 5.0));
+        long[] overlappingCircle1 = shapeService.findShapesOverlapping(1L);
+        long[] overlapping = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
+
+
+        assertThat(before).isEmpty();
+        assertThat(overlappingCircle1).containsExactly(5L);
+        assertThat(overlapping).containsExactlyInAnyOrder(1L, 5L);
+        // The stored geometry is read once; the drag is laid over it, not loaded from the rows
+        verify(shapeRepository).findGeometryByCanvasId(DEFAULT_CANVAS);
+        verify(shapeRepository, never()).findOverlapCandidateGeometry(any(), anyDouble(), anyDouble(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    @DisplayName("Should test pending shapes on their own, keeping the stored geometry and untouched tiles")
+    void shouldLayPendingGeometryOverStoredGeometry() {
+
+        // A pixel is 1 unit at zoom 2 with a 1024-unit extent; tile 2/0/0 holds the circles, 2/1/1 the far one
+        Shape nearCircle = createCircle(2L, "NearCircle", 6.0, 0.0, 3.0);
+        Shape farCircle = createCircle(5L, "FarCircle", 500.0, 500.0, 5.0);
+        stubFindById(circle1, nearCircle, rectangle1, farCircle);
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(circle1, nearCircle, rectangle1, farCircle));
+        GeometryStore stored = geometryIndex.current(DEFAULT_CANVAS);
+        ShapeTileDto emptyTile = shapeService.findTile(DEFAULT_CANVAS, 2, 3, 3);
+        long[] before = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
+
+
+        shapeService.updateGeometryLater(2L, new ShapeGeometryRequestDto(null, 503.0, 500.0, 3.0));
+        long[] overlapping = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
+        long[] overlappingFar = shapeService.findShapesOverlapping(5L);
+        ShapeTileDto oldPlace = shapeService.findTile(DEFAULT_CANVAS, 2, 0, 0);
+        ShapeTileDto newPlace = shapeService.findTile(DEFAULT_CANVAS, 2, 1, 1);
+        ShapeGeometryIndex.View firstView = geometryIndex.view(DEFAULT_CANVAS);
+        shapeService.updateGeometryLater(2L, new ShapeGeometryRequestDto(null, 7.0, 0.0, 3.0));
+        long[] movedBack = shapeService.findOverlappingShapeIds(DEFAULT_CANVAS);
+
+
+        assertThat(before).containsExactly(1L, 2L);
+        assertThat(overlapping).containsExactly(2L, 5L);
+        assertThat(overlappingFar).containsExactly(2L);
+        assertThat(oldPlace.getShapes()).extracting(ShapeGeometryDto::getId).containsExactlyInAnyOrder(1L, 4L);
+        assertThat(newPlace.getShapes()).extracting(ShapeGeometryDto::getId, ShapeGeometryDto::getCenterX)
+                .containsExactlyInAnyOrder(tuple(5L, 500.0), tuple(2L, 503.0));
+        assertThat(movedBack).containsExactly(1L, 2L);
+        // The stored geometry is neither copied nor reloaded, so tiles no drag touches stay cached
+        assertThat(firstView.store()).isSameAs(stored);
+        assertThat(geometryIndex.view(DEFAULT_CANVAS).store()).isSameAs(stored);
+        assertThat(geometryIndex.view(DEFAULT_CANVAS)).isSameAs(geometryIndex.view(DEFAULT_CANVAS));
+        assertThat(shapeService.findTile(DEFAULT_CANVAS, 2, 3, 3)).isSameAs(emptyTile);
+        verify(shapeRepository).findGeometryByCanvasId(DEFAULT_CANVAS);
+    }
+
+    @Test
+    @DisplayName("Should answer proximity, containment and area queries by pending geometry")
+    void shouldApplyPendingGeometryToSpatialQueries() {
+
+        Shape frame = createRectangle(10L, "Frame", "0,0;40,0;40,40;0,40");
+        Shape dot = createCircle(11L, "Dot", 100.0, 100.0, 3.0);
+        stubFindById(circle1, frame, dot);
+        when(shapeRepository.findGeometryByCanvasId(DEFAULT_CANVAS)).thenReturn(geometries(circle1, frame, dot));
+
+
+        // The dot is dragged from far away into the middle of the frame
+        shapeService.updateGeometryLater(11L, new ShapeGeometryRequestDto(null, 20.0, 20.0, 3.0));
+        List<ShapeDistanceDto> nearest = shapeService.findNearestShapes(DEFAULT_CANVAS, 20.0, 45.0, 2);
+        List<ShapeDistanceDto> withinDot = shapeService.findShapesWithin(11L, 21.0);
+        List<OverlapAreaDto> areas = new ArrayList<>();
+        shapeService.forEachOverlapArea(DEFAULT_CANVAS, areas::add);
+
+
+        assertThat(nearest).extracting(ShapeDistanceDto::getId).containsExactly(10L, 11L);
+        assertThat(withinDot).extracting(ShapeDistanceDto::getId).containsExactly(10L, 1L);
+        assertThat(shapeService.findShapesContainedBy(10L)).containsExactly(11L);
+        assertThat(shapeService.findShapesContaining(11L)).containsExactly(10L);
+        assertThat(shapeService.findShapesContainingPoint(DEFAULT_CANVAS, 20.0, 20.0)).containsExactly(10L, 11L);
+        assertThat(shapeService.findShapesContainingPoint(DEFAULT_CANVAS, 100.0, 100.0)).isEmpty();
+        assertThat(shapeService.findShapesDisjointFrom(11L)).containsExactly(1L);
+        assertThat(areas).extracting(OverlapAreaDto::getFirstId, OverlapAreaDto::getSecondId)
+                .containsExactlyInAnyOrder(tuple(1L, 10L), tuple(10L, 11L));
+    }
+
+    @Test
+    @DisplayName("Should drop pending geometry when the shape is deleted")
+    void shouldDiscardPendingGeometryOnDelete() {
+
+        when(shapeRepository.findById(1L)).thenReturn(Optional.of(circle1));
+
+
+        shapeService.updateGeometryLater(1L, new ShapeGeometryRequestDto(null, 3.0, 4.0, 5.0));
+        shapeService.deleteShape(1L);
+        writeBehind.flush();
+
+
+        verify(changeLog, never()).record(DEFAULT_CANVAS, 1L, ShapeChange.Type.UPDATED);
+        assertThat(writeBehind.hasPending()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should skip geometry discarded by a regular write while the flush loads its shapes")
+    void shouldSkipGeometryDiscardedDuringFlush() {
+
+        when(shapeRepository.findById(4L)).thenReturn(Optional.of(rectangle1));
+        shapeService.updateGeometryLater(4L, new ShapeGeometryRequestDto("21,20;31,20;31,30;21,30", null, null, null));
+        // A PUT discards the geometry after the flush took its batch, and commits before the flush loads the row
+        when(shapeRepository.findById(4L)).thenAnswer(invocation -> {
+            writeBehind.discard(4L);
+            return Optional.of(rectangle1);
+        });
+
+
+        writeBehind.flush();
+
+
+        assertThat(rectangle1.getCoordinates()).isEqualTo("20,20;30,20;30,30;20,30");
+        verify(changeLog, never()).record(DEFAULT_CANVAS, 4L, ShapeChange.Type.UPDATED);
+        assertThat(writeBehind.hasPending()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should retry a batch after a version conflict and drop only geometry that can never be written")
+    void shouldRetryTransientFailuresAndDropPermanentOnes() {
+
+        stubFindById(circle1, rectangle1);
+        shapeService.updateGeometryLater(1L, new ShapeGeometryRequestDto(null, 3.0, 4.0, 5.0));
+        shapeService.updateGeometryLater(4L, new ShapeGeometryRequestDto("21,20;31,20;31,30;21,30", null, null, null));
+        when(changeLog.record(DEFAULT_CANVAS, 1L, ShapeChange.Type.UPDATED))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Shape.class, 1L))
+                .thenReturn(1L);
+        when(changeLog.record(DEFAULT_CANVAS, 4L, ShapeChange.Type.UPDATED))
+                .thenThrow(new DataIntegrityViolationException("constraint"));
+
+
+        writeBehind.flush();
+        boolean pendingAfterConflict = writeBehind.pending(1L) != null && writeBehind.pending(4L) != null;
+        writeBehind.flush();
+
+
+        assertThat(pendingAfterConflict).isTrue();
+        assertThat(circle1.getCenterX()).isEqualTo(3.0);
+        assertThat(writeBehind.hasPending()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should reject geometry that does not fit the shape's type, and unknown shapes")
+    void shouldRejectInvalidGeometryUpdates() {
+
+        stubFindById(circle1, triangle1);
+
+
+        assertThatThrownBy(() -> shapeService.updateGeometryLater(1L, new ShapeGeometryRequestDto("0,0;1,0;0,1", null, null, null)))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> shapeService.updateGeometryLater(3L, new ShapeGeometryRequestDto("0,0;1,0", null, null, null)))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> shapeService.updateGeometryLater(99L, new ShapeGeometryRequestDto(null, 1.0, 1.0, 1.0)))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(writeBehind.hasPending()).isFalse();
+    }
+
+    // --- BULK TRANSFORM TESTS ---
+
+    @Test
+    @DisplayName("Should rotate, scale and move circles and polygons in one batch")
+    void shouldTransformShapes() {
+
+        when(shapeRepository.findAllById(List.of(3L, 1L))).thenReturn(List.of(circle1, triangle1));
+
+
+        // Quarter turn, doubled, then 20 to the right
+        List<ShapeResponseDto> transformed = shapeService.transformShapes(
+                new ShapeTransformRequestDto(List.of(3L, 1L, 3L), null, null, null, null, null, List.of(0.0, 2.0, -2.0, 0.0, 20.0, 0.0)));
+
+
+        assertThat(transformed).extracting(ShapeResponseDto::getId).containsExactly(1L, 3L);
+        assertThat(circle1.getCenterX()).isEqualTo(20.0);
+        assertThat(circle1.getCenterY()).isEqualTo(0.0);
+        assertThat(circle1.getRadius()).isEqualTo(10.0);
+        assertThat(triangle1.getCoordinates()).isEqualTo("20,0;20,20;0,10");
+        verify(shapeRepository).flush();
+        verify(changeLog).recordAll(DEFAULT_CANVAS, List.of(1L, 3L), ShapeChange.Type.UPDATED);
+    }
+
+    @Test
+    @DisplayName("Should transform pending geometry and drop it, selecting by box")
+    void shouldTransformPendingGeometry() {
+
+        stubFindById(rectangle1);
+        when(shapeRepository.findIdsByBoundingBoxIntersecting(DEFAULT_CANVAS, 0, 0, 50, 50, Limit.of(ShapeServiceImpl.MAX_TRANSFORM + 2)))
+                .thenReturn(List.of(4L));
+        when(shapeRepository.findAllById(List.of(4L))).thenReturn(List.of(rectangle1));
+
+
+        shapeService.updateGeometryLater(4L, new ShapeGeometryRequestDto("21,20;31,20;31,30;21,30", null, null, null));
+        shapeService.transformShapes(
+                new ShapeTransformRequestDto(null, 0.0, 0.0, 50.0, 50.0, null, List.of(1.0, 0.0, 0.0, 1.0, 0.4, 5.6)));
+        writeBehind.flush();
+
+
+        assertThat(rectangle1.getCoordinates()).isEqualTo("21,26;31,26;31,36;21,36");
+        assertThat(writeBehind.hasPending()).isFalse();
+        verify(changeLog, never()).record(DEFAULT_CANVAS, 4L, ShapeChange.Type.UPDATED);
+    }
+
+    @Test
+    @DisplayName("Should reject invalid transforms and selections before changing anything")
+    void shouldRejectInvalidTransforms() {
+
+        when(shapeRepository.findAllById(List.of(1L))).thenReturn(List.of(circle1));
+        when(shapeRepository.findAllById(List.of(3L))).thenReturn(List.of(triangle1));
+        when(shapeRepository.findAllById(List.of(3L, 99L))).thenReturn(List.of(triangle1));
+        List<Double> shear = List.of(1.0, 0.0, 1.0, 1.0, 0.0, 0.0);
+
+
+        assertThatThrownBy(() -> shapeService.transformShapes(new ShapeTransformRequestDto(List.of(1L), null, null, null, null, null, shear)))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("Circles");
+        assertThatThrownBy(() -> shapeService.transformShapes(new ShapeTransformRequestDto(List.of(3L), null, null, null, null, null,
+                List.of(1.0, 0.0, 0.0, 1.0, -5.0, 0.0))))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("negative");
+        assertThatThrownBy(() -> shapeService.transformShapes(new ShapeTransformRequestDto(List.of(3L), null, null, null, null, null,
+                List.of(1.0, 2.0, 2.0, 4.0, 0.0, 0.0))))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("singular");
+        assertThatThrownBy(() -> shapeService.transformShapes(new ShapeTransformRequestDto(List.of(3L), 0.0, 0.0, 1.0, 1.0, null, shear)))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> shapeService.transformShapes(new ShapeTransformRequestDto(List.of(3L, 99L), null, null, null, null, null, shear)))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("[99]");
+        assertThat(triangle1.getCoordinates()).isEqualTo("0,0;10,0;5,10");
+        verify(shapeRepository, never()).flush();
+        verify(changeLog, never()).recordAll(anyLong(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should reject a box selection over the cap without reading every shape in it")
+    void shouldRejectOversizedBoxSelection() {
+
+        List<Long> ids = LongStream.rangeClosed(1, ShapeServiceImpl.MAX_TRANSFORM + 1).boxed().toList();
+        when(shapeRepository.findIdsByBoundingBoxIntersecting(DEFAULT_CANVAS, 0, 0, 50, 50, Limit.of(ShapeServiceImpl.MAX_TRANSFORM + 1)))
+                .thenReturn(ids);
+
+
+        assertThatThrownBy(() -> shapeService.transformShapes(
+                new ShapeTransformRequestDto(null, 0.0, 0.0, 50.0, 50.0, null, List.of(1.0, 0.0, 0.0, 1.0, 1.0, 0.0))))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("At most");
+        verify(shapeRepository, never()).findAllById(any());
+        verify(shapeRepository, never()).findResponsesByBoundingBoxIntersecting(anyLong(), anyDouble(), anyDouble(), anyDouble(), anyDouble());
+    }
+
+    // --- CHANGE FEED TESTS ---
+
+    @Test
+    @DisplayName("Should page changes with the current state of each shape")
+    void shouldFindChangesSince() {
+
+        when(changeLog.changesAfter(DEFAULT_CANVAS, 10L, 3)).thenReturn(List.of(
+                new ShapeChange(11L, DEFAULT_CANVAS, 1L, ShapeChange.Type.UPDATED),
+                new ShapeChange(12L, DEFAULT_CANVAS, 3L, ShapeChange.Type.DELETED),
+                new ShapeChange(13L, DEFAULT_CANVAS, 1L, ShapeChange.Type.UPDATED)));
+        ShapeResponseDto current = new ShapeResponseDto(1L, "Circle1", ShapeType.CIRCLE, null, 0.0, 0.0, 5.0, 7L, DEFAULT_CANVAS);
+        when(shapeRepository.findResponsesByIdIn(List.of(1L, 3L))).thenReturn(List.of(current));
+
+
+        ShapeChangesResponseDto response = shapeService.findChangesSince(DEFAULT_CANVAS, 10L, 2);
+
+
+        assertThat(response.getChanges()).extracting(ShapeChangeDto::getSeq).containsExactly(11L, 12L);
+        assertThat(response.getChanges()).extracting(ShapeChangeDto::getShape).containsExactly(current, null);
+        assertThat(response.getNextSince()).isEqualTo(12L);
+        assertThat(response.isHasMore()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should return an empty page at the head of the feed")
+    void shouldReturnEmptyChangePage() {
+
+        when(changeLog.changesAfter(DEFAULT_CANVAS, 42L, 501)).thenReturn(List.of());
+
+
+        ShapeChangesResponseDto response = shapeService.findChangesSince(DEFAULT_CANVAS, 42L, 500);
+
+
+        assertThat(response.getChanges()).isEmpty();
+        assertThat(response.getNextSince()).isEqualTo(42L);
+        assertThat(response.isHasMore()).isFalse();
+        verifyNoInteractions(shapeRepository);
+    }
+
+    @Test
+    @DisplayName("Should tell the client to reload when the changes it asks for were pruned")
+    void shouldRejectPrunedChanges() {
+
+        when(changeLog.changesAfter(DEFAULT_CANVAS, 10L, 3)).thenReturn(List.of());
+        when(changeLog.prunedThrough()).thenReturn(25L);
+        when(changeLog.currentSeq()).thenReturn(90L);
+
+
+        assertThatThrownBy(() -> shapeService.findChangesSince(DEFAULT_CANVAS, 10L, 2))
+                .isInstanceOf(ChangesExpiredException.class)
+                .hasMessageContaining("since=90");
+        verifyNoInteractions(shapeRepository);
+    }
+
+    @Test
+    @DisplayName("Should reject out-of-range change page arguments")
+    void shouldRejectInvalidChangePage() {
+
+        assertThatThrownBy(() -> shapeService.findChangesSince(DEFAULT_CANVAS, -1L, 10))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> shapeService.findChangesSince(DEFAULT_CANVAS, 0L, ShapeServiceImpl.MAX_CHANGES_PER_PAGE + 1))
+                .isInstanceOf(ValidationException.class);
+        verifyNoInteractions(changeLog);
+    }
+
     // --- HELPER METHODS ---
 
+    private DataIntegrityViolationException uniqueNameViolation() {
+        return new DataIntegrityViolationException("duplicate name", new ConstraintViolationException(
+                "duplicate name", new SQLException(), ConstraintViolationException.ConstraintKind.UNIQUE, Shape.NAME_CONSTRAINT));
+    }
+
+    // Stands in for Hibernate's versioned UPDATE of a loaded shape
+    private void bumpVersionOnFlush(Shape shape) {
+        doAnswer(invocation -> {
+            shape.setVersion(shape.getVersion() + 1);
+            return null;
+        }).when(shapeRepository).flush();
+    }
+
+    // Lets id-based queries look up the canvas of each shape
+    private void stubFindById(Shape... shapes) {
+        for (Shape shape : shapes) {
+            lenient().when(shapeRepository.findById(shape.getId())).thenReturn(Optional.of(shape));
+        }
+    }
+
+    private List<ShapeGeometryDto> geometries(Shape... shapes) {
+        return Arrays.stream(shapes).map(this::toGeometry).toList();
+    }
+
+    private ShapeGeometryDto toGeometry(Shape shape) {
+        return new ShapeGeometryDto(shape.getId(), shape.getType(), shape.getCoordinates(),
+                shape.getCenterX(), shape.getCenterY(), shape.getRadius());
+    }
+
     private Shape createCircle(Long id, String name, Double centerX, Double centerY, Double radius) {
         Shape shape = new Shape();
         shape.setId(id);
         shape.setName(name);
-        shape.setType("circle");
+        shape.setType(ShapeType.CIRCLE);
         shape.setCenterX(centerX);
         shape.setCenterY(centerY);
         shape.setRadius(radius);
@@ -283,7 +1148,7 @@ class ShapeServiceImplTest {
         Shape shape = new Shape();
         shape.setId(id);
         shape.setName(name);
-        shape.setType("triangle");
+        shape.setType(ShapeType.TRIANGLE);
         shape.setCoordinates(coordinates);
         return shape;
     }
@@ -292,7 +1157,7 @@ class ShapeServiceImplTest {
         Shape shape = new Shape();
         shape.setId(id);
         shape.setName(name);
-        shape.setType("rectangle");
+        shape.setType(ShapeType.RECTANGLE);
         shape.setCoordinates(coordinates);
         return shape;
     }